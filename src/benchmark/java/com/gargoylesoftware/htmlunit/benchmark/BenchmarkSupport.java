@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+
+/**
+ * Fixtures shared by the benchmarks. Everything is served by a {@link MockWebConnection};
+ * the benchmarks do not depend on the network or on a local web server.
+ */
+final class BenchmarkSupport {
+
+    /** The base url of all fixtures. */
+    static final URL URL_FIRST;
+
+    /** The directory holding the library test pages. */
+    static final File LIBRARIES = new File("src/test/resources/libraries");
+
+    static {
+        try {
+            URL_FIRST = new URL("http://localhost:22222/");
+        }
+        catch (final MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BenchmarkSupport() {
+        // util class
+    }
+
+    /**
+     * Creates a new client using the given connection; script errors are only logged.
+     * @param connection the connection
+     * @return the new client
+     */
+    static WebClient createWebClient(final MockWebConnection connection) {
+        final WebClient webClient = new WebClient(BrowserVersion.BEST_SUPPORTED);
+        webClient.setWebConnection(connection);
+        webClient.getOptions().setThrowExceptionOnScriptError(false);
+        webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+        return webClient;
+    }
+
+    /**
+     * Returns a page with a style sheet and a table of the given size; the rows
+     * are using different classes to give the selectors something to do.
+     * @param rows the number of table rows
+     * @return the html source
+     */
+    static String createFixture(final int rows) {
+        final StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html><head><title>Benchmark</title>\n")
+            .append("<style>\n")
+            .append("  body { font-family: sans-serif; color: #333 }\n")
+            .append("  table.data td { padding: 2px 4px }\n")
+            .append("  tr.odd { background-color: #eee }\n")
+            .append("  tr.odd td.value, tr.even td.value { text-align: right }\n")
+            .append("  .hidden { display: none }\n")
+            .append("  #footer > p:first-child { font-weight: bold }\n")
+            .append("</style>\n")
+            .append("</head><body>\n")
+            .append("<h1 id='header'>Benchmark <em>fixture</em></h1>\n")
+            .append("<form id='form' action='submit'>\n")
+            .append("  <input type='text' name='query' value='htmlunit'>\n")
+            .append("  <select name='size'><option>small</option><option selected>large</option></select>\n")
+            .append("</form>\n")
+            .append("<table class='data'>\n");
+
+        for (int i = 0; i < rows; i++) {
+            html.append("<tr class='row ").append(i % 2 == 0 ? "even" : "odd").append("'>")
+                .append("<td class='key'>key ").append(i).append("</td>")
+                .append("<td class='value'>").append(i * 7).append("</td>")
+                .append("<td><a href='detail?id=").append(i).append("'>detail</a></td>")
+                .append("<td").append(i % 10 == 0 ? " class='hidden'" : "").append(">")
+                .append("some &amp; more <b>text</b></td>")
+                .append("</tr>\n");
+        }
+
+        html.append("</table>\n")
+            .append("<div id='footer'><p>first</p><p>second</p></div>\n")
+            .append("</body></html>");
+        return html.toString();
+    }
+
+    /**
+     * Registers all files of the given directory (including the sub directories)
+     * with the connection.
+     * @param connection the connection
+     * @param directory the directory
+     * @param baseUrl the url of the directory
+     * @throws IOException in case of error
+     */
+    static void registerDirectory(final MockWebConnection connection, final File directory, final URL baseUrl)
+            throws IOException {
+        final Path root = directory.toPath();
+        final List<Path> files;
+        try (Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        final List<NameValuePair> headers = Collections.emptyList();
+        for (final Path file : files) {
+            final String relative = root.relativize(file).toString().replace(File.separatorChar, '/');
+            connection.setResponse(new URL(baseUrl, relative), Files.readAllBytes(file), 200, "OK",
+                    getContentType(relative), headers);
+        }
+    }
+
+    private static String getContentType(final String fileName) {
+        if (fileName.endsWith(".html") || fileName.endsWith(".htm")) {
+            return MimeType.TEXT_HTML;
+        }
+        if (fileName.endsWith(".js")) {
+            return MimeType.APPLICATION_JAVASCRIPT;
+        }
+        if (fileName.endsWith(".css")) {
+            return MimeType.TEXT_CSS;
+        }
+        if (fileName.endsWith(".xml")) {
+            return MimeType.TEXT_XML;
+        }
+        if (fileName.endsWith(".json")) {
+            return MimeType.APPLICATION_JSON;
+        }
+        if (fileName.endsWith(".txt")) {
+            return MimeType.TEXT_PLAIN;
+        }
+        return MimeType.APPLICATION_OCTET_STREAM;
+    }
+}
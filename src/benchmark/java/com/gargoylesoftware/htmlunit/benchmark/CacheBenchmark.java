@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gargoylesoftware.htmlunit.Cache;
+import com.gargoylesoftware.htmlunit.HttpHeader;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+
+/**
+ * Benchmarks for the {@link Cache}; the number of different urls is larger than
+ * the size of the cache, therefore storing includes the eviction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+    private static final int URLS = 200;
+
+    private Cache cache_;
+    private WebRequest[] requests_;
+    private WebResponse[] responses_;
+    private int next_;
+
+    /**
+     * Creates the cache and the responses to store.
+     * @throws MalformedURLException in case of error
+     */
+    @Setup
+    public void setUp() throws MalformedURLException {
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        headers.add(new NameValuePair(HttpHeader.CONTENT_TYPE, MimeType.APPLICATION_JAVASCRIPT));
+        final byte[] content = "var x = 1;".getBytes(UTF_8);
+
+        requests_ = new WebRequest[URLS];
+        responses_ = new WebResponse[URLS];
+        for (int i = 0; i < URLS; i++) {
+            requests_[i] = new WebRequest(new URL(BenchmarkSupport.URL_FIRST, "script" + i + ".js"));
+            responses_[i] = new WebResponse(new WebResponseData(content, 200, "OK", headers), requests_[i], 0);
+        }
+
+        cache_ = new Cache();
+        for (int i = 0; i < cache_.getMaxSize(); i++) {
+            cache_.cacheIfPossible(requests_[i], responses_[i], null);
+        }
+    }
+
+    /**
+     * Looks up a cached response.
+     * @return the response
+     */
+    @Benchmark
+    public WebResponse getCachedResponse() {
+        next_ = (next_ + 1) % cache_.getMaxSize();
+        return cache_.getCachedResponse(requests_[next_]);
+    }
+
+    /**
+     * Stores a response.
+     * @return whether the response was stored
+     */
+    @Benchmark
+    public boolean cacheIfPossible() {
+        next_ = (next_ + 1) % URLS;
+        return cache_.cacheIfPossible(requests_[next_], responses_[next_], null);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+import com.gargoylesoftware.htmlunit.html.DomNodeList;
+import com.gargoylesoftware.htmlunit.html.HtmlElement;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.javascript.host.Window;
+import com.gargoylesoftware.htmlunit.javascript.host.css.ComputedCSSStyleDeclaration;
+
+/**
+ * Benchmarks for the queries on a loaded page: selectors, XPath, computed styles
+ * and the text serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomBenchmark {
+
+    /** The number of table rows of the fixture. */
+    @Param({"10", "1000"})
+    public int rows_;
+
+    private WebClient webClient_;
+    private HtmlPage page_;
+    private Window window_;
+    private List<HtmlElement> cells_;
+
+    /**
+     * Creates the client and loads the fixture.
+     * @throws IOException in case of error
+     */
+    @Setup
+    public void setUp() throws IOException {
+        final MockWebConnection connection = new MockWebConnection();
+        connection.setResponse(BenchmarkSupport.URL_FIRST, BenchmarkSupport.createFixture(rows_));
+
+        webClient_ = BenchmarkSupport.createWebClient(connection);
+        page_ = webClient_.getPage(BenchmarkSupport.URL_FIRST);
+        window_ = page_.getEnclosingWindow().getScriptableObject();
+        cells_ = page_.getByXPath("//td");
+    }
+
+    /**
+     * Closes the client.
+     */
+    @TearDown
+    public void tearDown() {
+        webClient_.close();
+    }
+
+    /**
+     * Selects the value cells of the odd rows.
+     * @return the nodes found
+     */
+    @Benchmark
+    public DomNodeList<DomNode> querySelectorAll() {
+        return page_.querySelectorAll("table.data tr.odd > td.value");
+    }
+
+    /**
+     * Selects the value cells of the odd rows.
+     * @return the nodes found
+     */
+    @Benchmark
+    public List<?> getByXPath() {
+        return page_.getByXPath("//table[@class='data']/tbody/tr[contains(@class, 'odd')]/td[@class='value']");
+    }
+
+    /**
+     * Resolves the computed style of all table cells; the styles cached by the window
+     * are cleared before.
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void computedStyle(final Blackhole blackhole) {
+        window_.clearComputedStyles();
+        for (final HtmlElement cell : cells_) {
+            final ComputedCSSStyleDeclaration style = window_.getComputedStyle(cell.getScriptableObject(), null);
+            blackhole.consume(style.getDisplay());
+            blackhole.consume(style.getColor());
+        }
+    }
+
+    /**
+     * Serializes the page as text.
+     * @return the text
+     */
+    @Benchmark
+    public String asText() {
+        return page_.asText();
+    }
+}
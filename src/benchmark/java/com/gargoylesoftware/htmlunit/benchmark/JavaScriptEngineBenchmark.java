@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebWindow;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
+
+import net.sourceforge.htmlunit.corejs.javascript.Script;
+
+/**
+ * Benchmarks for the setup of the window scope, for the compilation
+ * and for the execution of scripts by the {@link JavaScriptEngine}.
+ * The compiled script cache is disabled, {@link #compile()} measures the
+ * real compilation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JavaScriptEngineBenchmark {
+
+    /** Whether to compile the scripts to bytecode. */
+    @Param({"false", "true"})
+    public boolean compiled_;
+
+    private WebClient webClient_;
+    private JavaScriptEngine engine_;
+    private HtmlPage page_;
+    private WebWindow window_;
+    private String jQuerySource_;
+    private Script loopScript_;
+
+    /**
+     * Creates the client and loads the page used as compile scope.
+     * @throws IOException in case of error
+     */
+    @Setup
+    public void setUp() throws IOException {
+        final MockWebConnection connection = new MockWebConnection();
+        connection.setResponse(BenchmarkSupport.URL_FIRST, BenchmarkSupport.createFixture(10));
+
+        webClient_ = BenchmarkSupport.createWebClient(connection);
+        engine_ = (JavaScriptEngine) webClient_.getJavaScriptEngine();
+        engine_.getContextFactory().setCompiledMode(compiled_);
+        engine_.getContextFactory().setCompiledScriptCache(null);
+        page_ = webClient_.getPage(BenchmarkSupport.URL_FIRST);
+        window_ = webClient_.openWindow(null, "benchmark");
+
+        final File jQuery = new File(BenchmarkSupport.LIBRARIES, "jQuery/1.8.2/jquery/dist/jquery.js");
+        jQuerySource_ = new String(Files.readAllBytes(jQuery.toPath()), UTF_8);
+
+        loopScript_ = engine_.compile(page_, "var result = 0;\n"
+                + "function fib(n) { return n < 2 ? n : fib(n - 1) + fib(n - 2); }\n"
+                + "for (var i = 0; i < 1000; i++) {\n"
+                + "  var s = 'item' + i;\n"
+                + "  result += s.length + (i % 7) * 3;\n"
+                + "}\n"
+                + "result += fib(20);\n", "loop.js", 1);
+    }
+
+    /**
+     * Closes the client.
+     */
+    @TearDown
+    public void tearDown() {
+        webClient_.close();
+    }
+
+    /**
+     * Sets up the standard objects and all host objects of a window.
+     * @return the window
+     */
+    @Benchmark
+    public WebWindow initializeWindow() {
+        engine_.initialize(window_);
+        return window_;
+    }
+
+    /**
+     * Compiles jQuery.
+     * @return the compiled script
+     */
+    @Benchmark
+    public Script compile() {
+        return engine_.compile(page_, jQuerySource_, "jquery.js", 1);
+    }
+
+    /**
+     * Executes a compiled script doing only computations (loops, function calls, string
+     * concatenation); this shows the difference between the interpreter and the compiled mode
+     * without the costs of the DOM.
+     * @return the result
+     */
+    @Benchmark
+    public Object execute() {
+        return engine_.execute(page_, loopScript_);
+    }
+}
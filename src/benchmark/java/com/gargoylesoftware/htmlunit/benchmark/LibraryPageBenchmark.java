@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
+
+/**
+ * Benchmarks for {@link WebClient#getPage(URL)} of pages using the libraries
+ * from <code>src/test/resources/libraries</code>; this covers the complete
+ * processing including the download, the parser, the script execution and the
+ * background jobs started while loading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibraryPageBenchmark {
+
+    /** The library to use. */
+    @Param({"jQuery", "GWT", "Dojo"})
+    public String library_;
+
+    /** Whether to compile the scripts to bytecode. */
+    @Param({"false", "true"})
+    public boolean compiled_;
+
+    private WebClient webClient_;
+    private URL url_;
+
+    /**
+     * Creates the client and registers the files of the library.
+     * @throws IOException in case of error
+     */
+    @Setup
+    public void setUp() throws IOException {
+        final MockWebConnection connection = new MockWebConnection();
+        switch (library_) {
+            case "jQuery":
+                BenchmarkSupport.registerDirectory(connection,
+                        new File(BenchmarkSupport.LIBRARIES, "jQuery/1.8.2/jquery/dist"), BenchmarkSupport.URL_FIRST);
+                url_ = new URL(BenchmarkSupport.URL_FIRST, "index.html");
+                connection.setResponse(url_, "<html><head>\n"
+                        + "<script src='jquery.js'></script>\n"
+                        + "<script>\n"
+                        + "  $(function() {\n"
+                        + "    for (var i = 0; i < 100; i++) {\n"
+                        + "      $('<div class=\"item\"><span>' + i + '</span></div>').appendTo('body');\n"
+                        + "    }\n"
+                        + "    $('div.item:odd').addClass('odd').css('color', 'red');\n"
+                        + "  });\n"
+                        + "</script>\n"
+                        + "</head><body></body></html>");
+                break;
+
+            case "GWT":
+                BenchmarkSupport.registerDirectory(connection,
+                        new File(BenchmarkSupport.LIBRARIES, "GWT/2.5.0/Hello"), BenchmarkSupport.URL_FIRST);
+                url_ = new URL(BenchmarkSupport.URL_FIRST, "Hello.html");
+                break;
+
+            case "Dojo":
+                BenchmarkSupport.registerDirectory(connection,
+                        new File(BenchmarkSupport.LIBRARIES, "dojo/1.0.2/dojo"),
+                        new URL(BenchmarkSupport.URL_FIRST, "dojo/"));
+                url_ = new URL(BenchmarkSupport.URL_FIRST, "index.html");
+                connection.setResponse(url_, "<html><head>\n"
+                        + "<script src='dojo/dojo.js'></script>\n"
+                        + "<script>\n"
+                        + "  dojo.require('dojo.date');\n"
+                        + "  dojo.addOnLoad(function() {\n"
+                        + "    dojo.query('body')[0].appendChild(document.createTextNode(dojo.date.getDaysInMonth("
+                        + "new Date())));\n"
+                        + "  });\n"
+                        + "</script>\n"
+                        + "</head><body></body></html>");
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown library: " + library_);
+        }
+
+        webClient_ = BenchmarkSupport.createWebClient(connection);
+        ((JavaScriptEngine) webClient_.getJavaScriptEngine()).getContextFactory().setCompiledMode(compiled_);
+    }
+
+    /**
+     * Closes the client.
+     */
+    @TearDown
+    public void tearDown() {
+        webClient_.close();
+    }
+
+    /**
+     * Loads the page and waits for the background jobs started while loading.
+     * @return the page
+     * @throws IOException in case of error
+     */
+    @Benchmark
+    public HtmlPage getPage() throws IOException {
+        final HtmlPage page = webClient_.getPage(url_);
+        webClient_.waitForBackgroundJavaScriptStartingBefore(1_000);
+        return page;
+    }
+}
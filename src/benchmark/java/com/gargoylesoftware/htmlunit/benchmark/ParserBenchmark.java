@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.StringWebResponse;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.html.parser.neko.HtmlUnitNekoHtmlParser;
+
+/**
+ * Benchmarks for {@link HtmlUnitNekoHtmlParser#parse(WebResponse, HtmlPage, boolean)}.
+ * JavaScript is disabled, only the parser and the DOM construction are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    /** The number of table rows of the fixture. */
+    @Param({"10", "1000"})
+    public int rows_;
+
+    private WebClient webClient_;
+    private WebResponse webResponse_;
+    private HtmlUnitNekoHtmlParser parser_;
+
+    /**
+     * Creates the client and the response to parse.
+     */
+    @Setup
+    public void setUp() {
+        webClient_ = BenchmarkSupport.createWebClient(new MockWebConnection());
+        webClient_.getOptions().setJavaScriptEnabled(false);
+        webClient_.getOptions().setCssEnabled(false);
+
+        webResponse_ = new StringWebResponse(BenchmarkSupport.createFixture(rows_), BenchmarkSupport.URL_FIRST);
+        parser_ = new HtmlUnitNekoHtmlParser();
+    }
+
+    /**
+     * Closes the client.
+     */
+    @TearDown
+    public void tearDown() {
+        webClient_.close();
+    }
+
+    /**
+     * Parses the fixture into a new page.
+     * @return the page
+     * @throws IOException in case of error
+     */
+    @Benchmark
+    public HtmlPage parse() throws IOException {
+        final HtmlPage page = new HtmlPage(webResponse_, webClient_.getCurrentWindow());
+        parser_.parse(webResponse_, page, false);
+        return page;
+    }
+}
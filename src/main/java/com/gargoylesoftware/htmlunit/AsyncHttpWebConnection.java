@@ -0,0 +1,481 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.io.FileUtils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+
+import com.gargoylesoftware.htmlunit.httpclient.HtmlUnitCookieStore;
+import com.gargoylesoftware.htmlunit.httpclient.HtmlUnitRedirectStrategie;
+import com.gargoylesoftware.htmlunit.httpclient.HtmlUnitSSLIOSessionStrategyFactory;
+
+/**
+ * A {@link WebConnection} based on the non blocking HttpAsyncClient.
+ *
+ * <p>Requests are executed by a few io dispatcher threads instead of blocking one thread per
+ * request; connections are pooled and kept alive per route and shared by all windows of the client.
+ * {@link #getResponseAsync(WebRequest)} returns immediately (see
+ * {@link WebClient#loadWebResponseAsync(WebRequest)}), {@link #getResponse(WebRequest)} waits for the response.
+ * Dependent stages of the returned futures should not do long running work in the io dispatcher thread;
+ * use the <code>...Async</code> methods of the future for this.</p>
+ *
+ * <p>The requests are built exactly like the ones of the {@link HttpWebConnection}; cookies,
+ * authentication, proxies and the browser specific order of the headers are handled the same way.
+ * SOCKS proxies are not supported by the non blocking client; requests using a SOCKS proxy are
+ * executed by the blocking implementation. Response bodies are written to memory or to a temporary file
+ * while they are received, respecting {@link WebClientOptions#getMaxInMemory()}.</p>
+ *
+ * <p>The HttpAsyncClient (<code>org.apache.httpcomponents:httpasyncclient</code>) is an optional dependency;
+ * it has to be added to the classpath to use this connection.</p>
+ */
+public class AsyncHttpWebConnection extends HttpWebConnection {
+
+    private static final Log LOG = LogFactory.getLog(AsyncHttpWebConnection.class);
+
+    private static final String WEB_REQUEST = "htmlunit.webRequest";
+    private static final String HTTP_PROCESSOR = "htmlunit.httpProcessor";
+
+    private final WebClient webClient_;
+    private final WebClientOptions usedOptions_ = new WebClientOptions();
+    private CloseableHttpAsyncClient asyncClient_;
+
+    /**
+     * Creates a new non blocking HTTP web connection instance.
+     * @param webClient the WebClient that is using this connection
+     */
+    public AsyncHttpWebConnection(final WebClient webClient) {
+        super(webClient);
+        webClient_ = webClient;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WebResponse getResponse(final WebRequest request) throws IOException {
+        if (isSocksProxy(request)) {
+            return super.getResponse(request);
+        }
+
+        try {
+            return getResponseAsync(request).get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.getUrl());
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<WebResponse> getResponseAsync(final WebRequest request) {
+        final CompletableFuture<WebResponse> result = new CompletableFuture<>();
+        if (isSocksProxy(request)) {
+            webClient_.getExecutor().execute(() -> {
+                try {
+                    result.complete(super.getResponse(request));
+                }
+                catch (final IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return result;
+        }
+
+        final HttpClientContext httpContext = HttpClientContext.create();
+        httpContext.setAttribute(HttpClientContext.AUTH_CACHE, getSharedAuthCache());
+        httpContext.setCookieStore(new HtmlUnitCookieStore(webClient_.getCookieManager()));
+        httpContext.setCookieSpecRegistry(getCookieSpecRegistry());
+        httpContext.setCredentialsProvider(getCredentialsProvider(request));
+        httpContext.setAttribute(WEB_REQUEST, request);
+
+        final HttpRequestBase httpMethod;
+        try {
+            httpMethod = makeHttpRequest(request, httpContext);
+        }
+        catch (final URISyntaxException e) {
+            result.completeExceptionally(new IOException("Unable to create URI from URL: "
+                    + request.getUrl().toExternalForm() + " (reason: " + e.getMessage() + ")", e));
+            return result;
+        }
+
+        final URL url = request.getUrl();
+        final HttpHost httpHost = new HttpHost(url.getHost(), url.getPort(), url.getProtocol());
+        final long startTime = System.currentTimeMillis();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Executing async request " + httpMethod.getMethod() + " " + url);
+        }
+
+        final DownloadingResponseConsumer consumer =
+                new DownloadingResponseConsumer(webClient_.getOptions().getMaxInMemory());
+        getAsyncClient().execute(HttpAsyncMethods.create(httpHost, httpMethod), consumer,
+                httpContext, new FutureCallback<HttpResponse>() {
+                    @Override
+                    public void completed(final HttpResponse httpResponse) {
+                        try {
+                            final long endTime = System.currentTimeMillis();
+                            result.complete(makeWebResponse(httpResponse, request, consumer.getContent(),
+                                    endTime - startTime));
+                        }
+                        catch (final RuntimeException e) {
+                            consumer.getContent().cleanUp();
+                            result.completeExceptionally(e);
+                        }
+                        finally {
+                            onResponseGenerated(httpMethod);
+                        }
+                    }
+
+                    @Override
+                    public void failed(final Exception e) {
+                        onResponseGenerated(httpMethod);
+                        result.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        onResponseGenerated(httpMethod);
+                        result.cancel(false);
+                    }
+                });
+        return result;
+    }
+
+    private static boolean isSocksProxy(final WebRequest request) {
+        return request.getProxyHost() != null && request.isSocksProxy();
+    }
+
+    /**
+     * Returns the started client; a new one is created if the relevant options of the
+     * web client have changed.
+     */
+    private synchronized CloseableHttpAsyncClient getAsyncClient() {
+        final WebClientOptions options = webClient_.getOptions();
+        if (asyncClient_ != null
+                && (options.isUseInsecureSSL() != usedOptions_.isUseInsecureSSL()
+                    || !Objects.equals(options.getSSLInsecureProtocol(), usedOptions_.getSSLInsecureProtocol())
+                    // KeyStore has no value equality, the password is always set together with the store
+                    || options.getSSLClientCertificateStore() != usedOptions_.getSSLClientCertificateStore()
+                    || options.getSSLTrustStore() != usedOptions_.getSSLTrustStore()
+                    || !Arrays.equals(options.getSSLClientCipherSuites(), usedOptions_.getSSLClientCipherSuites())
+                    || !Arrays.equals(options.getSSLClientProtocols(), usedOptions_.getSSLClientProtocols())
+                    || !Objects.equals(options.getLocalAddress(), usedOptions_.getLocalAddress())
+                    || options.getMaxConnectionsPerRoute() != usedOptions_.getMaxConnectionsPerRoute()
+                    || getTimeout() != usedOptions_.getTimeout())) {
+            closeAsyncClient();
+        }
+
+        if (asyncClient_ == null) {
+            asyncClient_ = createHttpAsyncClientBuilder().build();
+            asyncClient_.start();
+
+            // copies, the arrays may be modified in place
+            usedOptions_.setUseInsecureSSL(options.isUseInsecureSSL());
+            usedOptions_.setSSLInsecureProtocol(options.getSSLInsecureProtocol());
+            usedOptions_.setSSLClientCertificateStore(options.getSSLClientCertificateStore());
+            usedOptions_.setSSLTrustStore(options.getSSLTrustStore());
+            usedOptions_.setSSLClientCipherSuites(clone(options.getSSLClientCipherSuites()));
+            usedOptions_.setSSLClientProtocols(clone(options.getSSLClientProtocols()));
+            usedOptions_.setLocalAddress(options.getLocalAddress());
+            usedOptions_.setMaxConnectionsPerRoute(options.getMaxConnectionsPerRoute());
+            usedOptions_.setTimeout(getTimeout());
+        }
+        return asyncClient_;
+    }
+
+    private static String[] clone(final String[] array) {
+        return array == null ? null : array.clone();
+    }
+
+    /**
+     * Creates the <tt>HttpAsyncClientBuilder</tt> that will be used by this connection.
+     * Extensions may override this method in order to create a customized builder.
+     * @return the <tt>HttpAsyncClientBuilder</tt> that will be used by this connection
+     */
+    protected HttpAsyncClientBuilder createHttpAsyncClientBuilder() {
+        final WebClientOptions options = webClient_.getOptions();
+        final int timeout = getTimeout();
+
+        final IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(timeout)
+                .setSoTimeout(timeout)
+                .build();
+
+        return HttpAsyncClients.custom()
+                .setHttpProcessor(new WebRequestHttpProcessor())
+                .setRedirectStrategy(new HtmlUnitRedirectStrategie())
+                .setDefaultRequestConfig(createRequestConfigBuilder(timeout, options.getLocalAddress()).build())
+                .setDefaultIOReactorConfig(ioReactorConfig)
+                .setSSLStrategy(HtmlUnitSSLIOSessionStrategyFactory.buildSSLIOSessionStrategy(options))
+                .setUserAgent(webClient_.getBrowserVersion().getUserAgent())
+                .setMaxConnPerRoute(options.getMaxConnectionsPerRoute());
+    }
+
+    private void closeAsyncClient() {
+        try {
+            asyncClient_.close();
+        }
+        catch (final IOException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Failed to close the async client", e);
+            }
+        }
+        asyncClient_ = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        super.close();
+
+        synchronized (this) {
+            if (asyncClient_ != null) {
+                closeAsyncClient();
+            }
+        }
+    }
+
+    /**
+     * Writes the response body into a {@link DownloadedContent} while it is received, the same way
+     * {@link HttpWebConnection#downloadContent(java.io.InputStream, int, long)} does: in memory up to
+     * <code>maxInMemory</code> bytes, into a temporary file otherwise.
+     */
+    private static final class DownloadingResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+        private final int maxInMemory_;
+        private final List<byte[]> chunks_ = new ArrayList<>();
+        private HttpResponse response_;
+        private ByteBuffer buffer_;
+        private byte[] chunk_;
+        private int pos_;
+        private long size_;
+        private File file_;
+        private FileChannel channel_;
+        private DownloadedContent content_;
+
+        DownloadingResponseConsumer(final int maxInMemory) {
+            maxInMemory_ = maxInMemory;
+        }
+
+        /**
+         * Returns the downloaded body; only valid after the response was completed.
+         * @return the downloaded body
+         */
+        DownloadedContent getContent() {
+            if (content_ == null) {
+                return new DownloadedContent.InMemory(null);
+            }
+            return content_;
+        }
+
+        @Override
+        protected void onResponseReceived(final HttpResponse response) {
+            response_ = response;
+        }
+
+        @Override
+        protected void onEntityEnclosed(final HttpEntity entity, final ContentType contentType) throws IOException {
+            final long contentLength = entity.getContentLength();
+            if (contentLength > 0 && contentLength > maxInMemory_) {
+                openFile();
+            }
+            else if (contentLength > 0) {
+                chunk_ = new byte[(int) contentLength];
+            }
+            buffer_ = ByteBuffer.allocate(HttpWebConnection.DOWNLOAD_CHUNK_SIZE);
+        }
+
+        @Override
+        protected void onContentReceived(final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
+            while (decoder.read(buffer_) > 0) {
+                buffer_.flip();
+                if (channel_ == null) {
+                    copyToChunks();
+                }
+                if (channel_ == null && size_ > maxInMemory_) {
+                    // we have exceeded the max for memory, let's write everything to a temporary file
+                    openFile();
+                }
+                if (channel_ != null) {
+                    writeFully(buffer_);
+                }
+                buffer_.clear();
+            }
+        }
+
+        private void copyToChunks() {
+            while (buffer_.hasRemaining()) {
+                if (chunk_ == null) {
+                    chunk_ = new byte[HttpWebConnection.DOWNLOAD_CHUNK_SIZE];
+                }
+                else if (pos_ == chunk_.length) {
+                    chunks_.add(chunk_);
+                    chunk_ = new byte[Math.min(chunk_.length * 2, HttpWebConnection.MAX_DOWNLOAD_CHUNK_SIZE)];
+                    pos_ = 0;
+                }
+                final int length = Math.min(buffer_.remaining(), chunk_.length - pos_);
+                buffer_.get(chunk_, pos_, length);
+                pos_ += length;
+                size_ += length;
+            }
+        }
+
+        private void openFile() throws IOException {
+            file_ = File.createTempFile("htmlunit", ".tmp");
+            file_.deleteOnExit();
+            channel_ = FileChannel.open(file_.toPath(), StandardOpenOption.WRITE);
+
+            for (final byte[] full : chunks_) {
+                writeFully(ByteBuffer.wrap(full));
+            }
+            if (chunk_ != null) {
+                writeFully(ByteBuffer.wrap(chunk_, 0, pos_));
+            }
+            chunks_.clear();
+            chunk_ = null;
+        }
+
+        private void writeFully(final ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel_.write(buffer);
+            }
+        }
+
+        @Override
+        protected HttpResponse buildResult(final HttpContext context) throws IOException {
+            if (channel_ != null) {
+                channel_.close();
+                channel_ = null;
+                content_ = new DownloadedContent.OnFile(file_, true);
+            }
+            else if (chunk_ != null || !chunks_.isEmpty()) {
+                if (chunk_ != null && pos_ > 0) {
+                    chunks_.add(chunk_);
+                }
+                if (chunks_.isEmpty()) {
+                    content_ = new DownloadedContent.InMemory(new byte[0]);
+                }
+                else if (chunks_.size() == 1 && chunks_.get(0).length == size_) {
+                    content_ = new DownloadedContent.InMemory(chunks_.get(0));
+                }
+                else {
+                    content_ = new DownloadedContent.InMemoryChunks(chunks_.toArray(new byte[chunks_.size()][]),
+                            size_);
+                }
+            }
+            else if (buffer_ != null) {
+                // entity without content
+                content_ = new DownloadedContent.InMemory(new byte[0]);
+            }
+            return response_;
+        }
+
+        @Override
+        protected void releaseResources() {
+            if (channel_ != null) {
+                try {
+                    channel_.close();
+                }
+                catch (final IOException e) {
+                    // ignore
+                }
+                channel_ = null;
+            }
+            if (content_ == null && file_ != null) {
+                // failed or cancelled
+                FileUtils.deleteQuietly(file_);
+            }
+            chunks_.clear();
+            chunk_ = null;
+            buffer_ = null;
+        }
+    }
+
+    /**
+     * Delegates to the processor built for the request being executed; this way the headers
+     * are added the same way as by {@link HttpWebConnection}, although all requests share one client.
+     */
+    private final class WebRequestHttpProcessor implements HttpProcessor {
+
+        @Override
+        public void process(final HttpRequest request, final HttpContext context) throws HttpException, IOException {
+            final WebRequest webRequest = (WebRequest) context.getAttribute(WEB_REQUEST);
+            final HttpProcessor processor = createHttpProcessor(webRequest);
+            context.setAttribute(HTTP_PROCESSOR, processor);
+            processor.process(request, context);
+        }
+
+        @Override
+        public void process(final HttpResponse response, final HttpContext context)
+                throws HttpException, IOException {
+            final HttpProcessor processor = (HttpProcessor) context.getAttribute(HTTP_PROCESSOR);
+            if (processor != null) {
+                processor.process(response, context);
+            }
+        }
+    }
+}
@@ -16,14 +16,18 @@ package com.gargoylesoftware.htmlunit;
 
 import java.io.Serializable;
 import java.net.URL;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.http.HttpStatus;
 import org.apache.http.client.utils.DateUtils;
 
 import com.gargoylesoftware.css.dom.CSSStyleSheetImpl;
@@ -35,6 +39,9 @@ import com.gargoylesoftware.htmlunit.util.UrlUtils;
  * compiled JavaScript files avoids unnecessary web requests and additional compilation overhead, while
  * caching parsed CSS snippets avoids very expensive CSS parsing.</p>
  *
+ * <p>Lookups are lock free; the least recently used entry is evicted in constant time once either the
+ * maximum number of entries or the (optional) maximum size in bytes is exceeded.</p>
+ *
  * @author Marc Guillemot
  * @author Daniel Gredler
  * @author Ahmed Ashour
@@ -49,6 +56,15 @@ public class Cache implements Serializable {
     private static final Pattern DATE_HEADER_PATTERN = Pattern.compile("-?\\d+");
     static final long DELAY = 10 * org.apache.commons.lang3.time.DateUtils.MILLIS_PER_MINUTE;
 
+    /** The maximum size of the cache in bytes; 0 means unlimited. */
+    private volatile long maxSizeInBytes_;
+
+    /** Whether stale responses with validators are kept for conditional revalidation. */
+    private boolean revalidationEnabled_;
+
+    /** The second level cache shared with other clients, if any. */
+    private transient SharedCache sharedCache_;
+
     /**
      * The map which holds the cached responses. Note that when keying on URLs, we key on the string version
      * of the URLs, rather than on the URLs themselves. This is done for performance, because a) the
@@ -56,61 +72,43 @@ public class Cache implements Serializable {
      * method triggers DNS lookups of the URL hostnames' IPs. As of this writing, the HtmlUnit unit tests
      * run ~20% faster whey keying on strings rather than on {@link java.net.URL} instances.
      */
-    private final Map<String, Entry> entries_ = Collections.synchronizedMap(new HashMap<String, Entry>(maxSize_));
+    private final Map<String, Entry> entries_ = new ConcurrentHashMap<>(maxSize_);
+
+    /**
+     * The same entries as {@link #entries_} in access order, the eldest entry being the first one.
+     * Guarded by {@link #lock_}.
+     */
+    private final LinkedHashMap<String, Entry> accessOrder_ = new LinkedHashMap<>(maxSize_, 0.75f, true);
+    private final ReentrantLock lock_ = new ReentrantLock();
+    private long sizeInBytes_;
+
+    /**
+     * The objects attached to responses, see {@link #attach(WebResponse, Object)}; the responses are
+     * weakly referenced. Guarded by itself, created on demand.
+     */
+    private transient Map<WebResponse, Object> attachments_;
+
+    private final AtomicLong hitCount_ = new AtomicLong();
+    private final AtomicLong missCount_ = new AtomicLong();
+    private final AtomicLong evictionCount_ = new AtomicLong();
+    private final AtomicLong revalidationCount_ = new AtomicLong();
 
     /**
      * A cache entry.
      */
-    private static class Entry implements Comparable<Entry>, Serializable {
+    private static class Entry implements Serializable {
         private final String key_;
         private final WebResponse response_;
         private final Object value_;
-        private long lastAccess_;
-        private final long createdAt_;
+        private volatile long createdAt_;
+        private long weight_;
+        private volatile boolean mustRevalidate_;
 
-        Entry(final String key, final WebResponse response, final Object value) {
+        Entry(final String key, final WebResponse response, final Object value, final long createdAt) {
             key_ = key;
             response_ = response;
             value_ = value;
-            createdAt_ = System.currentTimeMillis();
-            lastAccess_ = createdAt_;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int compareTo(final Entry other) {
-            if (lastAccess_ < other.lastAccess_) {
-                return -1;
-            }
-            if (lastAccess_ == other.lastAccess_) {
-                return 0;
-            }
-            return 1;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean equals(final Object obj) {
-            return obj instanceof Entry && lastAccess_ == ((Entry) obj).lastAccess_;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int hashCode() {
-            return ((Long) lastAccess_).hashCode();
-        }
-
-        /**
-         * Updates the last access date.
-         */
-        public void touch() {
-            lastAccess_ = System.currentTimeMillis();
+            createdAt_ = createdAt;
         }
 
         /**
@@ -127,6 +125,10 @@ public class Cache implements Serializable {
          * @return freshnessLifetime
          */
         boolean isStillFresh(final long now) {
+            if (mustRevalidate_) {
+                return false;
+            }
+
             long freshnessLifetime = 0;
             if (!HeaderUtils.containsPrivate(response_) && HeaderUtils.containsSMaxage(response_)) {
                 // check s-maxage
@@ -161,15 +163,35 @@ public class Cache implements Serializable {
      * @return whether the response was cached or not
      */
     public boolean cacheIfPossible(final WebRequest request, final WebResponse response, final Object toCache) {
+        return cacheIfPossible(request, response, toCache, true);
+    }
+
+    /**
+     * Caches the specified object, if the corresponding request and response objects indicate
+     * that it is cacheable. Responses are only added to the shared cache if no cookies were sent.
+     *
+     * @param request the request corresponding to the specified compiled script
+     * @param response the response corresponding to the specified compiled script
+     * @param toCache the object that is to be cached, if possible
+     * @param withCookies whether the web connection sent cookies together with the request
+     * @return whether the response was cached or not
+     */
+    boolean cacheIfPossible(final WebRequest request, final WebResponse response, final Object toCache,
+            final boolean withCookies) {
         if (isCacheable(request, response)) {
             final URL url = request.getUrl();
             if (url == null) {
                 return false;
             }
 
-            final Entry entry = new Entry(UrlUtils.normalize(url), response, toCache);
-            entries_.put(entry.key_, entry);
-            deleteOverflow();
+            final Entry entry = new Entry(UrlUtils.normalize(url), response, toCache, System.currentTimeMillis());
+            entry.mustRevalidate_ = revalidationEnabled_
+                    && (HeaderUtils.containsNoCache(response) || !isFreshContent(response));
+            put(entry);
+
+            if (sharedCache_ != null && toCache == null) {
+                sharedCache_.store(request, response, withCookies);
+            }
             return true;
         }
 
@@ -188,24 +210,115 @@ public class Cache implements Serializable {
      * @param styleSheet the parsed version of <tt>css</tt>
      */
     public void cache(final String css, final CSSStyleSheetImpl styleSheet) {
-        final Entry entry = new Entry(css, null, styleSheet);
-        entries_.put(entry.key_, entry);
+        put(new Entry(css, null, styleSheet, System.currentTimeMillis()));
+    }
+
+    private void put(final Entry entry) {
+        final boolean weighed = maxSizeInBytes_ > 0;
+        if (weighed) {
+            entry.weight_ = weigh(entry.key_, entry.response_, entry.value_);
+        }
+
+        lock_.lock();
+        try {
+            if (!weighed && maxSizeInBytes_ > 0) {
+                // the limit was enabled in the meantime
+                entry.weight_ = weigh(entry.key_, entry.response_, entry.value_);
+            }
+            final Entry previous = accessOrder_.put(entry.key_, entry);
+            if (previous != null) {
+                sizeInBytes_ -= previous.weight_;
+            }
+            sizeInBytes_ += entry.weight_;
+            entries_.put(entry.key_, entry);
+        }
+        finally {
+            lock_.unlock();
+        }
         deleteOverflow();
     }
 
+    private void remove(final Entry entry) {
+        lock_.lock();
+        try {
+            // the entry might have been replaced or evicted in the meantime
+            if (entries_.remove(entry.key_, entry)) {
+                accessOrder_.remove(entry.key_);
+                sizeInBytes_ -= entry.weight_;
+            }
+        }
+        finally {
+            lock_.unlock();
+        }
+    }
+
+    /**
+     * Marks the specified entry as the most recently used one. Readers do not wait for the lock;
+     * if it is held by someone else the access is simply not recorded, which only makes the eviction
+     * order a bit less precise.
+     */
+    private void touch(final Entry entry) {
+        if (lock_.tryLock()) {
+            try {
+                accessOrder_.get(entry.key_);
+            }
+            finally {
+                lock_.unlock();
+            }
+        }
+    }
+
+    /**
+     * Estimates the memory footprint of an entry. This is only called if a maximum size in bytes
+     * is set (see {@link #setMaxSizeInBytes(long)}); all entries are weighed when the limit is enabled.
+     *
+     * <p>The default implementation uses the length of the downloaded content and counts compiled
+     * scripts with the same size again (the compiled form is roughly proportional to the source).
+     * Style sheets are estimated by the size of the CSS snippet they were parsed from; the probed size
+     * of an image adds only a few bytes.</p>
+     *
+     * @param key the cache key (the normalized url or the CSS snippet)
+     * @param response the cached response, may be {@code null}
+     * @param value the cached object, may be {@code null}
+     * @return the estimated size in bytes
+     */
+    protected long weigh(final String key, final WebResponse response, final Object value) {
+        long weight = 0;
+        if (response != null) {
+            weight += response.getContentLength();
+        }
+        if (value instanceof CSSStyleSheetImpl) {
+            weight += 2L * key.length();
+        }
+        else if (value != null && value != response) {
+            weight += response == null ? 2L * key.length() : response.getContentLength();
+        }
+        return weight;
+    }
+
     /**
-     * Truncates the cache to the maximal number of entries.
+     * Truncates the cache to the maximal number of entries and the maximal size in bytes
+     * by removing the least recently used entries.
      */
     protected void deleteOverflow() {
-        synchronized (entries_) {
-            while (entries_.size() > maxSize_) {
-                final Entry oldestEntry = Collections.min(entries_.values());
-                entries_.remove(oldestEntry.key_);
-                if (oldestEntry.response_ != null) {
-                    oldestEntry.response_.cleanUp();
+        lock_.lock();
+        try {
+            final Iterator<Entry> iter = accessOrder_.values().iterator();
+            while (iter.hasNext()
+                    && (accessOrder_.size() > maxSize_ || maxSizeInBytes_ > 0 && sizeInBytes_ > maxSizeInBytes_)) {
+                final Entry eldestEntry = iter.next();
+                iter.remove();
+                entries_.remove(eldestEntry.key_);
+                sizeInBytes_ -= eldestEntry.weight_;
+                evictionCount_.incrementAndGet();
+                if (eldestEntry.response_ != null) {
+                    eldestEntry.response_.cleanUp();
                 }
             }
         }
+        finally {
+            lock_.unlock();
+        }
     }
 
     /**
@@ -244,6 +357,20 @@ public class Cache implements Serializable {
             return false;
         }
 
+        if (revalidationEnabled_ && hasValidator(response)) {
+            return true;
+        }
+
+        return isFreshContent(response);
+    }
+
+    /**
+     * Tries to guess if the content is dynamic or not (see {@link #isCacheableContent(WebResponse)}).
+     *
+     * @param response the response to examine
+     * @return {@code true} if the response can be used without revalidation
+     */
+    private boolean isFreshContent(final WebResponse response) {
         final Date lastModified = parseDateHeader(response, HttpHeader.LAST_MODIFIED);
 
         // https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Expires
@@ -324,7 +451,124 @@ public class Cache implements Serializable {
         return cachedEntry.value_;
     }
 
-    private Entry getCacheEntry(final WebRequest request) {
+    /**
+     * Returns the cached object belonging to the specified response. In contrast to
+     * {@link #getCachedObject(WebRequest)} this also returns the object if the response
+     * was taken from the cache after a successful revalidation (see
+     * {@link #getCachedResponseToRevalidate(WebRequest)}).
+     *
+     * @param request the request whose corresponding cached compiled script is sought
+     * @param response the response returned by {@link WebClient#loadWebResponse(WebRequest)} for this request
+     * @return the cached object corresponding to the specified response if any
+     */
+    public Object getCachedObject(final WebRequest request, final WebResponse response) {
+        if (!(response instanceof WebResponseFromCache)) {
+            return getCachedObject(request);
+        }
+
+        final Entry cachedEntry = getEntry(request);
+        if (cachedEntry == null || cachedEntry.response_ != ((WebResponseFromCache) response).getCachedResponse()) {
+            return null;
+        }
+        return cachedEntry.value_;
+    }
+
+    /**
+     * Attaches an object computed from the content of the given response (like the size of an image),
+     * so that it is computed only once per response. In contrast to
+     * {@link #cacheIfPossible(WebRequest, WebResponse, Object)} this works for every response, cacheable
+     * or not, and doesn't touch the cache entry (and therefore the freshness) of the response. The object
+     * is kept as long as the response is reachable; it must not reference the response.
+     *
+     * @param response the response; for a response taken from the cache the cached response is used
+     * @param attachment the object to attach
+     */
+    public void attach(final WebResponse response, final Object attachment) {
+        final WebResponse key = unwrap(response);
+        synchronized (this) {
+            if (attachments_ == null) {
+                attachments_ = new WeakHashMap<>();
+            }
+            attachments_.put(key, attachment);
+        }
+    }
+
+    /**
+     * Returns the object attached to the given response using {@link #attach(WebResponse, Object)}.
+     *
+     * @param response the response; for a response taken from the cache the cached response is used
+     * @return the attached object or {@code null}
+     */
+    public Object getAttachment(final WebResponse response) {
+        final WebResponse key = unwrap(response);
+        synchronized (this) {
+            if (attachments_ == null) {
+                return null;
+            }
+            return attachments_.get(key);
+        }
+    }
+
+    private static WebResponse unwrap(final WebResponse response) {
+        if (response instanceof WebResponseFromCache) {
+            return ((WebResponseFromCache) response).getCachedResponse();
+        }
+        return response;
+    }
+
+    /**
+     * Returns the cached response for the specified request if it is no longer fresh but can be
+     * revalidated using the <tt>ETag</tt> or <tt>Last-Modified</tt> header. This is only supported if
+     * revalidation is enabled (see {@link #setRevalidationEnabled(boolean)}).
+     *
+     * @param request the request whose corresponding response is sought
+     * @return the stale response or {@code null}
+     */
+    public WebResponse getCachedResponseToRevalidate(final WebRequest request) {
+        if (!revalidationEnabled_) {
+            return null;
+        }
+
+        final Entry cachedEntry = getEntry(request);
+        if (cachedEntry == null
+                || cachedEntry.response_ == null
+                || !hasValidator(cachedEntry.response_)
+                || cachedEntry.isStillFresh(getCurrentTimestamp())) {
+            return null;
+        }
+        return cachedEntry.response_;
+    }
+
+    /**
+     * Updates the cache after a conditional request (see {@link #getCachedResponseToRevalidate(WebRequest)}).
+     * If the server answered with <tt>304 Not Modified</tt> the cached entry is fresh again and the cached
+     * response is returned; otherwise the stale entry is removed and {@code null} is returned.
+     *
+     * @param request the conditional request
+     * @param response the response received from the server
+     * @return the cached response to use instead of the received one, or {@code null}
+     */
+    public WebResponse revalidated(final WebRequest request, final WebResponse response) {
+        final Entry cachedEntry = getEntry(request);
+        if (cachedEntry == null || cachedEntry.response_ == null) {
+            return null;
+        }
+
+        if (response.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+            cachedEntry.createdAt_ = getCurrentTimestamp();
+            // fresh again, only 'no-cache' requires to revalidate every use
+            cachedEntry.mustRevalidate_ = HeaderUtils.containsNoCache(cachedEntry.response_);
+            revalidationCount_.incrementAndGet();
+            touch(cachedEntry);
+            return cachedEntry.response_;
+        }
+
+        // the stale response might still be in use by a page or a script, don't clean it up here
+        remove(cachedEntry);
+        return null;
+    }
+
+    private Entry getEntry(final WebRequest request) {
         if (HttpMethod.GET != request.getHttpMethod()) {
             return null;
         }
@@ -334,22 +578,61 @@ public class Cache implements Serializable {
             return null;
         }
 
-        final String normalizedUrl = UrlUtils.normalize(url);
-        final Entry cachedEntry = entries_.get(normalizedUrl);
+        return entries_.get(UrlUtils.normalize(url));
+    }
+
+    private Entry getCacheEntry(final WebRequest request) {
+        if (HttpMethod.GET != request.getHttpMethod() || request.getUrl() == null) {
+            return null;
+        }
+
+        Entry cachedEntry = getEntry(request);
         if (cachedEntry == null) {
+            cachedEntry = getSharedEntry(request);
+        }
+        if (cachedEntry == null) {
+            missCount_.incrementAndGet();
             return null;
         }
 
         if (cachedEntry.isStillFresh(getCurrentTimestamp())) {
-            synchronized (entries_) {
-                cachedEntry.touch();
-            }
+            hitCount_.incrementAndGet();
+            touch(cachedEntry);
             return cachedEntry;
         }
-        entries_.remove(UrlUtils.normalize(url));
+        missCount_.incrementAndGet();
+        if (!revalidationEnabled_ || cachedEntry.response_ == null || !hasValidator(cachedEntry.response_)) {
+            remove(cachedEntry);
+        }
         return null;
     }
 
+    /**
+     * Looks up the shared cache and copies the response found there into this cache.
+     */
+    private Entry getSharedEntry(final WebRequest request) {
+        if (sharedCache_ == null) {
+            return null;
+        }
+
+        final WebResponse response = sharedCache_.getResponse(request);
+        if (response == null) {
+            return null;
+        }
+
+        final Entry entry = new Entry(UrlUtils.normalize(request.getUrl()), response, null,
+                sharedCache_.getStoredAt(request));
+        entry.mustRevalidate_ = revalidationEnabled_
+                && (HeaderUtils.containsNoCache(response) || !isFreshContent(response));
+        put(entry);
+        return entry;
+    }
+
+    private static boolean hasValidator(final WebResponse response) {
+        return response.getResponseHeaderValue(HttpHeader.ETAG) != null
+                || response.getResponseHeaderValue(HttpHeader.LAST_MODIFIED) != null;
+    }
+
     /**
      * Returns the cached parsed version of the specified CSS snippet. If there is no
      * corresponding cached stylesheet, this method returns {@code null}.
@@ -360,11 +643,11 @@ public class Cache implements Serializable {
     public CSSStyleSheetImpl getCachedStyleSheet(final String css) {
         final Entry cachedEntry = entries_.get(css);
         if (cachedEntry == null) {
+            missCount_.incrementAndGet();
             return null;
         }
-        synchronized (entries_) {
-            cachedEntry.touch();
-        }
+        hitCount_.incrementAndGet();
+        touch(cachedEntry);
         return (CSSStyleSheetImpl) cachedEntry.value_;
     }
 
@@ -392,6 +675,88 @@ public class Cache implements Serializable {
         deleteOverflow();
     }
 
+    /**
+     * Returns the cache's maximum size in bytes. The default is <tt>0</tt> (unlimited).
+     *
+     * @return the cache's maximum size in bytes
+     */
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes_;
+    }
+
+    /**
+     * Sets the cache's maximum size in bytes (see {@link #weigh(String, WebResponse, Object)}).
+     * The entries already in the cache are weighed when the limit is enabled.
+     * The default is <tt>0</tt> (unlimited).
+     *
+     * @param maxSizeInBytes the cache's maximum size in bytes (must be &gt;= 0)
+     */
+    public void setMaxSizeInBytes(final long maxSizeInBytes) {
+        if (maxSizeInBytes < 0) {
+            throw new IllegalArgumentException("Illegal value for maxSizeInBytes: " + maxSizeInBytes);
+        }
+
+        lock_.lock();
+        try {
+            if (maxSizeInBytes_ == 0 && maxSizeInBytes > 0) {
+                // the entries added without a limit were not weighed
+                sizeInBytes_ = 0;
+                for (final Entry entry : accessOrder_.values()) {
+                    entry.weight_ = weigh(entry.key_, entry.response_, entry.value_);
+                    sizeInBytes_ += entry.weight_;
+                }
+            }
+            maxSizeInBytes_ = maxSizeInBytes;
+        }
+        finally {
+            lock_.unlock();
+        }
+        deleteOverflow();
+    }
+
+    /**
+     * Returns whether stale responses having an <tt>ETag</tt> or <tt>Last-Modified</tt> header
+     * are kept and revalidated using a conditional request. The default is <tt>false</tt>.
+     *
+     * @return whether revalidation is enabled
+     */
+    public boolean isRevalidationEnabled() {
+        return revalidationEnabled_;
+    }
+
+    /**
+     * Sets whether stale responses having an <tt>ETag</tt> or <tt>Last-Modified</tt> header
+     * are kept and revalidated using a conditional request (<tt>If-None-Match</tt> /
+     * <tt>If-Modified-Since</tt>). On a <tt>304 Not Modified</tt> answer the cached response
+     * is reused together with the compiled script or parsed style sheet.
+     * The default is <tt>false</tt>.
+     *
+     * @param revalidationEnabled whether revalidation is enabled
+     */
+    public void setRevalidationEnabled(final boolean revalidationEnabled) {
+        revalidationEnabled_ = revalidationEnabled;
+    }
+
+    /**
+     * Returns the second level cache shared with other clients.
+     *
+     * @return the shared cache or {@code null} (the default)
+     */
+    public SharedCache getSharedCache() {
+        return sharedCache_;
+    }
+
+    /**
+     * Sets a second level cache, usually shared by the caches of all clients of this JVM.
+     * Responses that are publicly cacheable are stored there as well and responses not
+     * found in this cache are looked up there.
+     *
+     * @param sharedCache the shared cache or {@code null}
+     */
+    public void setSharedCache(final SharedCache sharedCache) {
+        sharedCache_ = sharedCache;
+    }
+
     /**
      * Returns the number of entries in the cache.
      *
@@ -401,17 +766,79 @@ public class Cache implements Serializable {
         return entries_.size();
     }
 
+    /**
+     * Returns the estimated size of all entries in bytes. This is only tracked
+     * while a maximum size in bytes is set.
+     *
+     * @return the estimated size of the cache in bytes
+     */
+    public long getSizeInBytes() {
+        lock_.lock();
+        try {
+            return sizeInBytes_;
+        }
+        finally {
+            lock_.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount_.get();
+    }
+
+    /**
+     * Returns the number of lookups that were not answered from the cache
+     * (including lookups of entries that were no longer fresh).
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount_.get();
+    }
+
+    /**
+     * Returns the number of stale entries reused after a <tt>304 Not Modified</tt> answer.
+     *
+     * @return the revalidation count
+     */
+    public long getRevalidationCount() {
+        return revalidationCount_.get();
+    }
+
+    /**
+     * Returns the number of entries removed because the cache was full.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount_.get();
+    }
+
     /**
      * Clears the cache.
      */
     public void clear() {
-        synchronized (entries_) {
-            for (final Entry entry : entries_.values()) {
+        lock_.lock();
+        try {
+            for (final Entry entry : accessOrder_.values()) {
                 if (entry.response_ != null) {
                     entry.response_.cleanUp();
                 }
             }
+            accessOrder_.clear();
             entries_.clear();
+            sizeInBytes_ = 0;
+        }
+        finally {
+            lock_.unlock();
+        }
+        synchronized (this) {
+            attachments_ = null;
         }
     }
 
@@ -419,17 +846,22 @@ public class Cache implements Serializable {
      * Removes outdated entries from the cache.
      */
     public void clearOutdated() {
-        synchronized (entries_) {
+        lock_.lock();
+        try {
             final long now = getCurrentTimestamp();
 
-            final Iterator<Map.Entry<String, Entry>> iter = entries_.entrySet().iterator();
+            final Iterator<Entry> iter = accessOrder_.values().iterator();
             while (iter.hasNext()) {
-                final Map.Entry<String, Entry> entry = iter.next();
-                if (entry.getValue().response_ == null
-                        || !entry.getValue().isStillFresh(now)) {
+                final Entry entry = iter.next();
+                if (entry.response_ == null || !entry.isStillFresh(now)) {
                     iter.remove();
+                    entries_.remove(entry.key_);
+                    sizeInBytes_ -= entry.weight_;
                 }
             }
         }
+        finally {
+            lock_.unlock();
+        }
     }
 }
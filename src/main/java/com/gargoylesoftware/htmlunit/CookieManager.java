@@ -17,11 +17,18 @@ package com.gargoylesoftware.htmlunit;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.cookie.CookieOrigin;
@@ -36,6 +43,12 @@ import com.gargoylesoftware.htmlunit.util.UrlUtils;
  * CookieManager itself takes care of this and ignores all cookie request if
  * disabled. If you override this your methods have to do the same.
  *
+ * <p>The cookies are stored by the last two labels of their domain (which is the registrable domain for
+ * most hosts), this way looking up the cookies for a host only has to check the cookies of this domain.
+ * Every domain holds an immutable array of cookies that is replaced on change, therefore reading
+ * the cookies doesn't need any lock. Expired cookies are only removed when the earliest expiration
+ * date is reached.</p>
+ *
  * @author Daniel Gredler
  * @author Ahmed Ashour
  * @author Nicolas Belisle
@@ -43,24 +56,53 @@ import com.gargoylesoftware.htmlunit.util.UrlUtils;
  */
 public class CookieManager implements Serializable {
 
+    private static final StoredCookie[] NO_COOKIES = new StoredCookie[0];
+
+    private static final Comparator<StoredCookie> SEQUENCE_COMPARATOR =
+            (c1, c2) -> Long.compare(c1.sequence_, c2.sequence_);
+
     /** Whether or not cookies are enabled. */
-    private boolean cookiesEnabled_;
+    private volatile boolean cookiesEnabled_;
+
+    /** The cookies added to this cookie manager by domain key; each array is ordered by addition. */
+    private final Map<String, StoredCookie[]> cookies_ = new ConcurrentHashMap<>();
+
+    /** Incremented after every change of the cookies. */
+    private final AtomicLong modCount_ = new AtomicLong();
 
-    /** The cookies added to this cookie manager. */
-    private final Set<Cookie> cookies_ = new LinkedHashSet<>();
+    /** The sequence number of the next cookie added, guarded by this. */
+    private long sequence_;
+
+    /** No cookie expires before this time; a lower bound only. */
+    private volatile long nextExpiration_ = Long.MAX_VALUE;
+
+    private transient volatile Snapshot snapshot_;
+
+    /** Whether a subclass overrides {@link #getCookies()}; the candidates are taken from there in this case. */
+    private final boolean getCookiesOverridden_;
 
     /**
      * Creates a new instance.
      */
     public CookieManager() {
         cookiesEnabled_ = true;
+        getCookiesOverridden_ = isGetCookiesOverridden(getClass());
+    }
+
+    private static boolean isGetCookiesOverridden(final Class<?> clazz) {
+        try {
+            return clazz.getMethod("getCookies").getDeclaringClass() != CookieManager.class;
+        }
+        catch (final NoSuchMethodException e) {
+            return false;
+        }
     }
 
     /**
      * Enables/disables cookie support. Cookies are enabled by default.
      * @param enabled {@code true} to enable cookie support, {@code false} otherwise
      */
-    public synchronized void setCookiesEnabled(final boolean enabled) {
+    public void setCookiesEnabled(final boolean enabled) {
         cookiesEnabled_ = enabled;
     }
 
@@ -68,7 +110,7 @@ public class CookieManager implements Serializable {
      * Returns {@code true} if cookies are enabled. Cookies are enabled by default.
      * @return {@code true} if cookies are enabled, {@code false} otherwise
      */
-    public synchronized boolean isCookiesEnabled() {
+    public boolean isCookiesEnabled() {
         return cookiesEnabled_;
     }
 
@@ -77,14 +119,103 @@ public class CookieManager implements Serializable {
      * If disabled, this returns an empty set.
      * @return the currently configured cookies, in an unmodifiable set
      */
-    public synchronized Set<Cookie> getCookies() {
+    public Set<Cookie> getCookies() {
         if (!isCookiesEnabled()) {
             return Collections.<Cookie>emptySet();
         }
 
-        final Set<Cookie> copy = new LinkedHashSet<>();
-        copy.addAll(cookies_);
-        return Collections.unmodifiableSet(copy);
+        final long modCount = modCount_.get();
+        Snapshot snapshot = snapshot_;
+        if (snapshot == null || snapshot.modCount_ != modCount) {
+            final List<StoredCookie> all = new ArrayList<>();
+            for (final StoredCookie[] stored : cookies_.values()) {
+                all.addAll(Arrays.asList(stored));
+            }
+            all.sort(SEQUENCE_COMPARATOR);
+
+            final Set<Cookie> cookies = new LinkedHashSet<>(all.size());
+            for (final StoredCookie stored : all) {
+                cookies.add(stored.cookie_);
+            }
+            snapshot = new Snapshot(modCount, Collections.unmodifiableSet(cookies));
+            snapshot_ = snapshot;
+        }
+        return snapshot.cookies_;
+    }
+
+    /**
+     * Returns the currently configured cookies whose domain may match the given host, in the order
+     * they were added. The caller still has to check the cookies using the cookie spec.
+     * If disabled, this returns an empty list.
+     * If a subclass overrides {@link #getCookies()}, all the cookies returned from there are candidates.
+     * @param host the host
+     * @return the cookies whose domain may match the given host
+     */
+    public List<Cookie> getCookieCandidates(final String host) {
+        if (getCookiesOverridden_) {
+            return new ArrayList<>(getCookies());
+        }
+        if (!isCookiesEnabled()) {
+            return Collections.emptyList();
+        }
+
+        final String hostLC = host.toLowerCase(Locale.ROOT);
+        final String domainKey = getDomainKey(hostLC);
+        final StoredCookie[] domainCookies = cookies_.get(domainKey);
+
+        // cookies for single label domains (e.g. 'localhost') match all hosts ending with this label
+        StoredCookie[] labelCookies = null;
+        final int lastDot = hostLC.lastIndexOf('.');
+        if (lastDot > -1) {
+            final String labelKey = hostLC.substring(lastDot + 1);
+            if (!labelKey.equals(domainKey)) {
+                labelCookies = cookies_.get(labelKey);
+            }
+        }
+
+        if (domainCookies == null && labelCookies == null) {
+            return Collections.emptyList();
+        }
+
+        final List<StoredCookie> stored = new ArrayList<>();
+        if (domainCookies != null) {
+            stored.addAll(Arrays.asList(domainCookies));
+        }
+        if (labelCookies != null) {
+            stored.addAll(Arrays.asList(labelCookies));
+            stored.sort(SEQUENCE_COMPARATOR);
+        }
+
+        final List<Cookie> candidates = new ArrayList<>(stored.size());
+        for (final StoredCookie cookie : stored) {
+            candidates.add(cookie.cookie_);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the key the cookies of the given domain are stored with; these are the
+     * last two labels of the domain.
+     * @param domain the domain
+     * @return the key
+     */
+    private static String getDomainKey(final String domain) {
+        if (domain == null) {
+            return "";
+        }
+
+        String key = domain.toLowerCase(Locale.ROOT);
+        int start = 0;
+        while (start < key.length() && key.charAt(start) == '.') {
+            start++;
+        }
+        key = key.substring(start);
+
+        final int lastDot = key.lastIndexOf('.');
+        if (lastDot > 0) {
+            return key.substring(key.lastIndexOf('.', lastDot - 1) + 1);
+        }
+        return key;
     }
 
     /**
@@ -108,7 +239,7 @@ public class CookieManager implements Serializable {
      * @param date the date to use for comparison when clearing expired cookies
      * @return whether any cookies were found expired, and were cleared
      */
-    public synchronized boolean clearExpired(final Date date) {
+    public boolean clearExpired(final Date date) {
         if (!isCookiesEnabled()) {
             return false;
         }
@@ -117,15 +248,36 @@ public class CookieManager implements Serializable {
             return false;
         }
 
-        boolean foundExpired = false;
-        for (final Iterator<Cookie> iter = cookies_.iterator(); iter.hasNext();) {
-            final Cookie cookie = iter.next();
-            if (cookie.getExpires() != null && date.after(cookie.getExpires())) {
-                iter.remove();
-                foundExpired = true;
+        // nothing to do before the earliest expiration date
+        if (date.getTime() <= nextExpiration_) {
+            return false;
+        }
+
+        synchronized (this) {
+            boolean foundExpired = false;
+            long nextExpiration = Long.MAX_VALUE;
+            for (final Map.Entry<String, StoredCookie[]> entry : cookies_.entrySet()) {
+                final StoredCookie[] stored = entry.getValue();
+                final List<StoredCookie> valid = new ArrayList<>(stored.length);
+                for (final StoredCookie cookie : stored) {
+                    final Date expires = cookie.cookie_.getExpires();
+                    if (expires != null && date.after(expires)) {
+                        foundExpired = true;
+                    }
+                    else {
+                        valid.add(cookie);
+                        if (expires != null) {
+                            nextExpiration = Math.min(nextExpiration, expires.getTime());
+                        }
+                    }
+                }
+                if (valid.size() != stored.length) {
+                    update(entry.getKey(), valid.toArray(NO_COOKIES));
+                }
             }
+            nextExpiration_ = nextExpiration;
+            return foundExpired;
         }
-        return foundExpired;
     }
 
     /**
@@ -172,12 +324,12 @@ public class CookieManager implements Serializable {
      * @param name the name of the cookie to return
      * @return the currently configured cookie with the specified name, or {@code null} if one does not exist
      */
-    public synchronized Cookie getCookie(final String name) {
+    public Cookie getCookie(final String name) {
         if (!isCookiesEnabled()) {
             return null;
         }
 
-        for (final Cookie cookie : cookies_) {
+        for (final Cookie cookie : getCookies()) {
             if (StringUtils.equals(cookie.getName(), name)) {
                 return cookie;
             }
@@ -195,12 +347,27 @@ public class CookieManager implements Serializable {
             return;
         }
 
-        cookies_.remove(cookie);
+        final String key = getDomainKey(cookie.getDomain());
+        StoredCookie[] stored = remove(cookies_.get(key), cookie);
 
         // don't add expired cookie
-        if (cookie.getExpires() == null || cookie.getExpires().after(new Date())) {
-            cookies_.add(cookie);
+        final Date expires = cookie.getExpires();
+        if (expires == null || expires.after(new Date())) {
+            final StoredCookie[] added;
+            if (stored == null) {
+                added = new StoredCookie[1];
+            }
+            else {
+                added = Arrays.copyOf(stored, stored.length + 1);
+            }
+            added[added.length - 1] = new StoredCookie(cookie, sequence_++);
+            stored = added;
+
+            if (expires != null) {
+                nextExpiration_ = Math.min(nextExpiration_, expires.getTime());
+            }
         }
+        update(key, stored);
     }
 
     /**
@@ -213,7 +380,12 @@ public class CookieManager implements Serializable {
             return;
         }
 
-        cookies_.remove(cookie);
+        final String key = getDomainKey(cookie.getDomain());
+        final StoredCookie[] stored = cookies_.get(key);
+        final StoredCookie[] removed = remove(stored, cookie);
+        if (removed != stored) {
+            update(key, removed);
+        }
     }
 
     /**
@@ -226,5 +398,67 @@ public class CookieManager implements Serializable {
         }
 
         cookies_.clear();
+        modCount_.incrementAndGet();
+    }
+
+    /**
+     * Returns the given cookies without the given one.
+     * @param stored the cookies, may be {@code null}
+     * @param cookie the cookie to remove
+     * @return a new array or the given one if it doesn't contain the cookie
+     */
+    private static StoredCookie[] remove(final StoredCookie[] stored, final Cookie cookie) {
+        if (stored != null) {
+            for (int i = 0; i < stored.length; i++) {
+                if (stored[i].cookie_.equals(cookie)) {
+                    final StoredCookie[] result = new StoredCookie[stored.length - 1];
+                    System.arraycopy(stored, 0, result, 0, i);
+                    System.arraycopy(stored, i + 1, result, i, result.length - i);
+                    return result;
+                }
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Replaces the cookies stored with the given key; has to be called holding the lock.
+     * @param key the domain key
+     * @param stored the new cookies
+     */
+    private void update(final String key, final StoredCookie[] stored) {
+        if (stored == null || stored.length == 0) {
+            cookies_.remove(key);
+        }
+        else {
+            cookies_.put(key, stored);
+        }
+        modCount_.incrementAndGet();
+    }
+
+    /**
+     * A cookie together with its sequence number.
+     */
+    private static final class StoredCookie implements Serializable {
+        private final Cookie cookie_;
+        private final long sequence_;
+
+        StoredCookie(final Cookie cookie, final long sequence) {
+            cookie_ = cookie;
+            sequence_ = sequence;
+        }
+    }
+
+    /**
+     * The result of {@link #getCookies()} for a modification count.
+     */
+    private static final class Snapshot {
+        private final long modCount_;
+        private final Set<Cookie> cookies_;
+
+        Snapshot(final long modCount, final Set<Cookie> cookies) {
+            modCount_ = modCount;
+            cookies_ = cookies;
+        }
     }
 }
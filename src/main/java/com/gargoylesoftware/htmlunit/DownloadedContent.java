@@ -19,7 +19,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -68,6 +72,150 @@ public interface DownloadedContent extends Serializable {
         }
     }
 
+    /**
+     * Implementation keeping content in memory, split into several chunks.
+     * All chunks except the last one are completely filled. Using chunks avoids copying
+     * everything into one array at the end of a download of unknown size.
+     */
+    class InMemoryChunks implements DownloadedContent {
+        private final byte[][] chunks_;
+        private final long length_;
+
+        /**
+         * @param chunks the chunks
+         * @param length the number of bytes used
+         */
+        InMemoryChunks(final byte[][] chunks, final long length) {
+            chunks_ = chunks;
+            length_ = length;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            if (chunks_.length == 1) {
+                return new ByteArrayInputStream(chunks_[0], 0, (int) length_);
+            }
+            return new ChunksInputStream(chunks_, length_);
+        }
+
+        @Override
+        public void cleanUp() {
+            // nothing to do
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return length() == 0;
+        }
+
+        @Override
+        public long length() {
+            return length_;
+        }
+    }
+
+    /**
+     * An {@link InputStream} reading from a list of chunks.
+     */
+    class ChunksInputStream extends InputStream {
+        private final byte[][] chunks_;
+        private final long length_;
+        private int chunk_;
+        private int offset_;
+        private long position_;
+        private int markChunk_;
+        private int markOffset_;
+        private long markPosition_;
+
+        /**
+         * @param chunks the chunks
+         * @param length the number of bytes used
+         */
+        ChunksInputStream(final byte[][] chunks, final long length) {
+            chunks_ = chunks;
+            length_ = length;
+        }
+
+        @Override
+        public int read() {
+            if (position_ >= length_) {
+                return -1;
+            }
+            if (offset_ == chunks_[chunk_].length) {
+                chunk_++;
+                offset_ = 0;
+            }
+            position_++;
+            return chunks_[chunk_][offset_++] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position_ >= length_) {
+                return -1;
+            }
+
+            final int count = (int) Math.min(len, length_ - position_);
+            int done = 0;
+            while (done < count) {
+                if (offset_ == chunks_[chunk_].length) {
+                    chunk_++;
+                    offset_ = 0;
+                }
+                final int n = Math.min(count - done, chunks_[chunk_].length - offset_);
+                System.arraycopy(chunks_[chunk_], offset_, bytes, off + done, n);
+                offset_ += n;
+                done += n;
+            }
+            position_ += count;
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            long skipped = 0;
+            while (skipped < n && position_ < length_) {
+                if (offset_ == chunks_[chunk_].length) {
+                    chunk_++;
+                    offset_ = 0;
+                }
+                final int step = (int) Math.min(Math.min(n - skipped, length_ - position_),
+                                    chunks_[chunk_].length - offset_);
+                offset_ += step;
+                position_ += step;
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, length_ - position_);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(final int readlimit) {
+            markChunk_ = chunk_;
+            markOffset_ = offset_;
+            markPosition_ = position_;
+        }
+
+        @Override
+        public synchronized void reset() {
+            chunk_ = markChunk_;
+            offset_ = markOffset_;
+            position_ = markPosition_;
+        }
+    }
+
     /**
      * Implementation keeping content on the file system.
      */
@@ -116,6 +264,117 @@ public interface DownloadedContent extends Serializable {
         }
     }
 
+    /**
+     * Implementation keeping content in a memory mapped file. The file is mapped
+     * on first access; files too large for a single mapping are streamed instead.
+     * The file is never deleted, it might be shared. Temporary files should use {@link OnFile},
+     * a mapped file can't be deleted on all platforms as long as the mapping is in use.
+     */
+    class MemoryMapped implements DownloadedContent {
+        private final File file_;
+        private transient volatile MappedByteBuffer buffer_;
+
+        /**
+         * @param file the file
+         */
+        MemoryMapped(final File file) {
+            file_ = file;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            MappedByteBuffer buffer = buffer_;
+            if (buffer == null) {
+                try (FileChannel channel = FileChannel.open(file_.toPath(), StandardOpenOption.READ)) {
+                    final long size = channel.size();
+                    if (size > Integer.MAX_VALUE) {
+                        return Files.newInputStream(file_.toPath());
+                    }
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+                buffer_ = buffer;
+            }
+            return new ByteBufferInputStream(buffer.duplicate());
+        }
+
+        @Override
+        public void cleanUp() {
+            // the file might be shared
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return length() == 0;
+        }
+
+        @Override
+        public long length() {
+            return file_.length();
+        }
+    }
+
+    /**
+     * An {@link InputStream} reading from a {@link ByteBuffer}.
+     */
+    class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer_;
+
+        /**
+         * @param buffer the buffer to read from, starting at the current position
+         */
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            buffer_ = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!buffer_.hasRemaining()) {
+                return -1;
+            }
+            return buffer_.get() & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer_.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(len, buffer_.remaining());
+            buffer_.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int count = (int) Math.max(0, Math.min(n, buffer_.remaining()));
+            buffer_.position(buffer_.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer_.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(final int readlimit) {
+            buffer_.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer_.reset();
+        }
+    }
+
     /**
      * Returns a new {@link InputStream} allowing to read the downloaded content.
      * @return the InputStream
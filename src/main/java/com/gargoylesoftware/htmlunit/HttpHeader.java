@@ -41,6 +41,15 @@ public final class HttpHeader {
     /** Expires. */
     public static final String EXPIRES = "Expires";
 
+    /** ETag. */
+    public static final String ETAG = "ETag";
+
+    /** If-None-Match. */
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    /** If-Modified-Since. */
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
     /** Accept. */
     public static final String ACCEPT = "Accept";
     /** Accept-LC. */
@@ -79,11 +88,20 @@ public final class HttpHeader {
     /** content-language. */
     public static final String CONTENT_LANGUAGE_LC = "content-language";
 
+    /** Content-Encoding. */
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
+    /** Authorization. */
+    public static final String AUTHORIZATION = "Authorization";
+
     /** Cookie. */
     public static final String COOKIE = "Cookie";
     /** cookie. */
     public static final String COOKIE_LC = "cookie";
 
+    /** Set-Cookie. */
+    public static final String SET_COOKIE = "Set-Cookie";
+
     /** Connection. */
     public static final String CONNECTION = "Connection";
     /** connection. */
@@ -130,6 +148,9 @@ public final class HttpHeader {
     /** X-Frame-Options. */
     public static final String X_FRAME_OPTIONS = "X-Frame-Options";
 
+    /** Vary. */
+    public static final String VARY = "Vary";
+
     /** Content-Security-Policy. */
     public static final String CONTENT_SECURIRY_POLICY = "Content-Security-Policy";
 
@@ -17,18 +17,18 @@ package com.gargoylesoftware.htmlunit;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.URL_AUTH_CREDENTIALS;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -42,7 +42,6 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.net.ssl.SSLSocketFactory;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.logging.Log;
@@ -82,6 +81,7 @@ import org.apache.http.client.protocol.RequestExpectContinue;
 import org.apache.http.client.protocol.ResponseProcessCookies;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Lookup;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.conn.DnsResolver;
@@ -101,6 +101,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
 import org.apache.http.protocol.HttpProcessorBuilder;
 import org.apache.http.protocol.RequestContent;
 import org.apache.http.protocol.RequestTargetHost;
@@ -137,6 +138,11 @@ public class HttpWebConnection implements WebConnection {
 
     private static final Log LOG = LogFactory.getLog(HttpWebConnection.class);
 
+    /** The size of the first chunk if the content length is unknown. */
+    static final int DOWNLOAD_CHUNK_SIZE = 8 * 1024;
+    /** The chunks are growing up to this size. */
+    static final int MAX_DOWNLOAD_CHUNK_SIZE = 256 * 1024;
+
     private static final String HACKED_COOKIE_POLICY = "mine";
 
     // have one per thread because this is (re)configured for every call (see configureHttpProcessorBuilder)
@@ -233,6 +239,24 @@ public class HttpWebConnection implements WebConnection {
     protected void onResponseGenerated(final HttpUriRequest httpMethod) {
     }
 
+    /**
+     * Returns the registry providing the cookie spec used by HtmlUnit.
+     * @return the registry
+     */
+    Lookup<CookieSpecProvider> getCookieSpecRegistry() {
+        return RegistryBuilder.<CookieSpecProvider>create()
+                    .register(HACKED_COOKIE_POLICY, htmlUnitCookieSpecProvider_)
+                    .build();
+    }
+
+    /**
+     * Returns the authentication cache shared among all requests of this connection.
+     * @return the authentication cache
+     */
+    AuthCache getSharedAuthCache() {
+        return sharedAuthCache_;
+    }
+
     /**
      * Returns the {@link HttpClientContext} for the current thread. Creates a new one if necessary.
      */
@@ -249,7 +273,8 @@ public class HttpWebConnection implements WebConnection {
         return httpClientContext;
     }
 
-    private void setProxy(final HttpRequestBase httpRequest, final WebRequest webRequest) {
+    private void setProxy(final HttpRequestBase httpRequest, final WebRequest webRequest,
+            final HttpContext httpContext) {
         final InetAddress localAddress = webClient_.getOptions().getLocalAddress();
         final RequestConfig.Builder requestBuilder = createRequestConfigBuilder(getTimeout(), localAddress);
 
@@ -260,7 +285,7 @@ public class HttpWebConnection implements WebConnection {
         else {
             final HttpHost proxy = new HttpHost(webRequest.getProxyHost(), webRequest.getProxyPort());
             if (webRequest.isSocksProxy()) {
-                SocksConnectionSocketFactory.setSocksProxy(getHttpContext(), proxy);
+                SocksConnectionSocketFactory.setSocksProxy(httpContext, proxy);
             }
             else {
                 requestBuilder.setProxy(proxy);
@@ -281,6 +306,28 @@ public class HttpWebConnection implements WebConnection {
         throws URISyntaxException {
 
         final HttpContext httpContext = getHttpContext();
+        final HttpRequestBase httpMethod = makeHttpRequest(webRequest, httpContext);
+
+        configureHttpProcessorBuilder(httpClientBuilder, webRequest);
+
+        // Tell the client where to get its credentials from
+        // (it may have changed on the webClient since last call to getHttpClientFor(...))
+        httpClientBuilder.setDefaultCredentialsProvider(getCredentialsProvider(webRequest));
+        httpContext.removeAttribute(HttpClientContext.CREDS_PROVIDER);
+        httpContext.removeAttribute(HttpClientContext.TARGET_AUTH_STATE);
+        return httpMethod;
+    }
+
+    /**
+     * Creates the HttpClient request (including the body and the proxy settings) for the specified request.
+     * @param webRequest the request
+     * @param httpContext the context used to execute the request
+     * @return the HttpClient request
+     * @throws URISyntaxException if the url is invalid
+     */
+    HttpRequestBase makeHttpRequest(final WebRequest webRequest, final HttpContext httpContext)
+        throws URISyntaxException {
+
         final Charset charset = webRequest.getCharset();
         // Make sure that the URL is fully encoded. IE actually sends some Unicode chars in request
         // URLs; because of this we allow some Unicode chars in URLs. However, at this point we're
@@ -293,7 +340,7 @@ public class HttpWebConnection implements WebConnection {
             uri = URI.create(getVirtualHost());
         }
         final HttpRequestBase httpMethod = buildHttpMethod(webRequest.getHttpMethod(), uri);
-        setProxy(httpMethod, webRequest);
+        setProxy(httpMethod, webRequest, httpContext);
 
         if (httpMethod instanceof HttpEntityEnclosingRequest) {
             // POST as well as PUT and PATCH
@@ -379,11 +426,16 @@ public class HttpWebConnection implements WebConnection {
                 httpMethod.setURI(uri);
             }
         }
+        return httpMethod;
+    }
 
-        configureHttpProcessorBuilder(httpClientBuilder, webRequest);
-
-        // Tell the client where to get its credentials from
-        // (it may have changed on the webClient since last call to getHttpClientFor(...))
+    /**
+     * Returns the credentials provider of the web client, updated with the credentials
+     * of the specified request.
+     * @param webRequest the request
+     * @return the credentials provider
+     */
+    CredentialsProvider getCredentialsProvider(final WebRequest webRequest) {
         final CredentialsProvider credentialsProvider = webClient_.getCredentialsProvider();
 
         // if the used url contains credentials, we have to add this
@@ -404,10 +456,7 @@ public class HttpWebConnection implements WebConnection {
             // updating our client to keep the credentials for the next request
             credentialsProvider.setCredentials(authScope, requestCredentials);
         }
-        httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
-        httpContext.removeAttribute(HttpClientContext.CREDS_PROVIDER);
-        httpContext.removeAttribute(HttpClientContext.TARGET_AUTH_STATE);
-        return httpMethod;
+        return credentialsProvider;
     }
 
     private static String escapeQuery(final String query) {
@@ -545,10 +594,7 @@ public class HttpWebConnection implements WebConnection {
 
             // this factory is required later
             // to be sure this is done, we do it outside the createHttpClient() call
-            final RegistryBuilder<CookieSpecProvider> registeryBuilder
-                = RegistryBuilder.<CookieSpecProvider>create()
-                            .register(HACKED_COOKIE_POLICY, htmlUnitCookieSpecProvider_);
-            builder.setDefaultCookieSpecRegistry(registeryBuilder.build());
+            builder.setDefaultCookieSpecRegistry(getCookieSpecRegistry());
 
             builder.setDefaultCookieStore(new HtmlUnitCookieStore(webClient_.getCookieManager()));
             builder.setUserAgent(webClient_.getBrowserVersion().getUserAgent());
@@ -581,7 +627,7 @@ public class HttpWebConnection implements WebConnection {
         builder.setRedirectStrategy(new HtmlUnitRedirectStrategie());
         configureTimeout(builder, getTimeout());
         configureHttpsScheme(builder);
-        builder.setMaxConnPerRoute(6);
+        builder.setMaxConnPerRoute(webClient_.getOptions().getMaxConnectionsPerRoute());
 
         builder.setConnectionManagerShared(true);
         return builder;
@@ -598,7 +644,7 @@ public class HttpWebConnection implements WebConnection {
         usedOptions_.setTimeout(timeout);
     }
 
-    private static RequestConfig.Builder createRequestConfigBuilder(final int timeout, final InetAddress localAddress) {
+    static RequestConfig.Builder createRequestConfigBuilder(final int timeout, final InetAddress localAddress) {
         final RequestConfig.Builder requestBuilder = RequestConfig.custom()
                 .setCookieSpec(HACKED_COOKIE_POLICY)
                 .setRedirectsEnabled(false)
@@ -676,6 +722,16 @@ public class HttpWebConnection implements WebConnection {
     }
 
     private void configureHttpProcessorBuilder(final HttpClientBuilder builder, final WebRequest webRequest) {
+        builder.setHttpProcessor(createHttpProcessor(webRequest));
+    }
+
+    /**
+     * Creates the processor adding the headers of the specified request in the order
+     * used by the browser and processing the cookies.
+     * @param webRequest the request
+     * @return the processor
+     */
+    HttpProcessor createHttpProcessor(final WebRequest webRequest) {
         final HttpProcessorBuilder b = HttpProcessorBuilder.create();
         for (final HttpRequestInterceptor i : getHttpRequestInterceptors(webRequest)) {
             b.add(i);
@@ -690,7 +746,7 @@ public class HttpWebConnection implements WebConnection {
         b.add(new RequestAcceptEncoding());
         b.add(new RequestAuthCache());
         b.add(new ResponseProcessCookies());
-        builder.setHttpProcessor(b.build());
+        return b.build();
     }
 
     /**
@@ -712,7 +768,7 @@ public class HttpWebConnection implements WebConnection {
     /**
      * Converts an HttpMethod into a WebResponse.
      */
-    private WebResponse makeWebResponse(final HttpResponse httpResponse,
+    WebResponse makeWebResponse(final HttpResponse httpResponse,
             final WebRequest request, final DownloadedContent responseBody, final long loadTime) {
 
         String statusMessage = httpResponse.getStatusLine().getReasonPhrase();
@@ -724,7 +780,11 @@ public class HttpWebConnection implements WebConnection {
         for (final Header header : httpResponse.getAllHeaders()) {
             headers.add(new NameValuePair(header.getName(), header.getValue()));
         }
-        final WebResponseData responseData = new WebResponseData(responseBody, statusCode, statusMessage, headers);
+        WebResponseData responseData = new WebResponseData(responseBody, statusCode, statusMessage, headers);
+        final WebClientOptions options = webClient_.getOptions();
+        if (options.isDecompressOnDownload()) {
+            responseData = responseData.decompress(options.getMaxInMemory());
+        }
         return newWebResponseInstance(responseData, loadTime, request);
     }
 
@@ -741,7 +801,7 @@ public class HttpWebConnection implements WebConnection {
         }
 
         try (InputStream is = httpEntity.getContent()) {
-            return downloadContent(is, webClient_.getOptions().getMaxInMemory());
+            return downloadContent(is, webClient_.getOptions().getMaxInMemory(), httpEntity.getContentLength());
         }
     }
 
@@ -753,39 +813,129 @@ public class HttpWebConnection implements WebConnection {
      * @throws IOException in case of read issues
      */
     public static DownloadedContent downloadContent(final InputStream is, final int maxInMemory) throws IOException {
+        return downloadContent(is, maxInMemory, -1);
+    }
+
+    /**
+     * Reads the content of the stream and saves it in memory or on the file system.
+     *
+     * <p>If the content length is known, the content is read into one buffer of exactly this size.
+     * Otherwise it is read into chunks of growing size; the chunks are used as they are, without copying
+     * them into one array at the end. Content exceeding <code>maxInMemory</code> is written to a temporary
+     * file which is streamed when accessed.</p>
+     *
+     * @param is the stream to read
+     * @param maxInMemory the maximumBytes to store in memory, after which save to a local file
+     * @param contentLength the expected length of the content or a negative value if unknown
+     * @return a wrapper around the downloaded content
+     * @throws IOException in case of read issues
+     */
+    public static DownloadedContent downloadContent(final InputStream is, final int maxInMemory,
+            final long contentLength) throws IOException {
         if (is == null) {
             return new DownloadedContent.InMemory(null);
         }
 
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            final byte[] buffer = new byte[1024];
-            int nbRead;
-            try {
-                while ((nbRead = is.read(buffer)) != -1) {
-                    bos.write(buffer, 0, nbRead);
-                    if (bos.size() > maxInMemory) {
-                        // we have exceeded the max for memory, let's write everything to a temporary file
-                        final File file = File.createTempFile("htmlunit", ".tmp");
-                        file.deleteOnExit();
-                        try (OutputStream fos = Files.newOutputStream(file.toPath())) {
-                            bos.writeTo(fos); // what we have already read
-                            IOUtils.copyLarge(is, fos); // what remains from the server response
+        final List<byte[]> chunks = new ArrayList<>();
+        if (contentLength > 0 && contentLength > maxInMemory) {
+            return downloadToFile(is, chunks, new byte[DOWNLOAD_CHUNK_SIZE], 0);
+        }
+
+        byte[] chunk = new byte[contentLength > 0 ? (int) contentLength : DOWNLOAD_CHUNK_SIZE];
+        int pos = 0;
+        long size = 0;
+        try {
+            while (true) {
+                if (pos == chunk.length) {
+                    if (size == contentLength) {
+                        // most probably we are done; check this without allocating a new chunk
+                        final int b = is.read();
+                        if (b == -1) {
+                            break;
                         }
-                        return new DownloadedContent.OnFile(file, true);
+                        chunks.add(chunk);
+                        chunk = new byte[DOWNLOAD_CHUNK_SIZE];
+                        chunk[0] = (byte) b;
+                        pos = 1;
+                        size++;
+                    }
+                    else {
+                        chunks.add(chunk);
+                        chunk = new byte[Math.min(chunk.length * 2, MAX_DOWNLOAD_CHUNK_SIZE)];
+                        pos = 0;
                     }
                 }
+                else {
+                    final int nbRead = is.read(chunk, pos, chunk.length - pos);
+                    if (nbRead == -1) {
+                        break;
+                    }
+                    pos += nbRead;
+                    size += nbRead;
+                }
+
+                if (size > maxInMemory) {
+                    // we have exceeded the max for memory, let's write everything to a temporary file
+                    return downloadToFile(is, chunks, chunk, pos);
+                }
             }
-            catch (final ConnectionClosedException e) {
-                LOG.warn("Connection was closed while reading from stream.", e);
-                return new DownloadedContent.InMemory(bos.toByteArray());
+        }
+        catch (final ConnectionClosedException e) {
+            LOG.warn("Connection was closed while reading from stream.", e);
+        }
+        catch (final EOFException e) {
+            // this might happen with broken gzip content
+            LOG.warn("EOFException while reading from stream.", e);
+        }
+
+        if (pos > 0) {
+            chunks.add(chunk);
+        }
+        if (chunks.isEmpty()) {
+            return new DownloadedContent.InMemory(new byte[0]);
+        }
+        if (chunks.size() == 1 && chunks.get(0).length == size) {
+            return new DownloadedContent.InMemory(chunks.get(0));
+        }
+        return new DownloadedContent.InMemoryChunks(chunks.toArray(new byte[chunks.size()][]), size);
+    }
+
+    /**
+     * Writes the chunks already read and the remaining content of the stream to a temporary file.
+     * The current chunk is reused as buffer for copying the remaining content.
+     */
+    private static DownloadedContent downloadToFile(final InputStream is, final List<byte[]> chunks,
+            final byte[] chunk, final int pos) throws IOException {
+        final File file = File.createTempFile("htmlunit", ".tmp");
+        file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            for (final byte[] full : chunks) {
+                writeFully(channel, ByteBuffer.wrap(full));
             }
-            catch (final EOFException e) {
-                // this might happen with broken gzip content
-                LOG.warn("EOFException while reading from stream.", e);
-                return new DownloadedContent.InMemory(bos.toByteArray());
+            writeFully(channel, ByteBuffer.wrap(chunk, 0, pos));
+            chunks.clear();
+
+            // what remains from the server response
+            final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            int nbRead;
+            while ((nbRead = is.read(chunk)) != -1) {
+                buffer.clear().limit(nbRead);
+                writeFully(channel, buffer);
             }
+        }
+        catch (final ConnectionClosedException e) {
+            LOG.warn("Connection was closed while reading from stream.", e);
+        }
+        catch (final EOFException e) {
+            // this might happen with broken gzip content
+            LOG.warn("EOFException while reading from stream.", e);
+        }
+        return new DownloadedContent.OnFile(file, true);
+    }
 
-            return new DownloadedContent.InMemory(bos.toByteArray());
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
     }
 
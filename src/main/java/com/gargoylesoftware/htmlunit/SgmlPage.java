@@ -290,7 +290,7 @@ public abstract class SgmlPage extends DomNode implements Page, Document, Docume
             protected List<DomElement> provideElements() {
                 final List<DomElement> res = new LinkedList<>();
                 final boolean caseSensitive = hasCaseSensitiveTagNames();
-                for (final DomElement elem : getDomElementDescendants()) {
+                for (final DomElement elem : getElementsByTagNameCandidates(tagName)) {
                     final String localName = elem.getLocalName();
                     if ("*".equals(tagName) || localName.equals(tagName)
                             || (!caseSensitive && localName.equalsIgnoreCase(tagName))) {
@@ -302,6 +302,16 @@ public abstract class SgmlPage extends DomNode implements Page, Document, Docume
         };
     }
 
+    /**
+     * Returns the elements that are checked by {@link #getElementsByTagName(String)}.
+     * The default implementation returns all elements of this page.
+     * @param tagName the tag name
+     * @return the candidates in document order
+     */
+    protected Iterable<DomElement> getElementsByTagNameCandidates(final String tagName) {
+        return getDomElementDescendants();
+    }
+
     /**
      * {@inheritDoc}
      */
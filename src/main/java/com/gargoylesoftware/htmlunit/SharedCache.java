@@ -0,0 +1,667 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpStatus;
+
+import com.gargoylesoftware.htmlunit.util.HeaderUtils;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.gargoylesoftware.htmlunit.util.UrlUtils;
+
+/**
+ * <p>A second level cache for response bodies that can be shared by many {@link Cache} instances
+ * (and therefore by many {@link WebClient}s) of the same JVM, see {@link Cache#setSharedCache(SharedCache)}.</p>
+ *
+ * <p>Bodies are stored content addressed (keyed by their SHA-256 hash), so identical content
+ * delivered from different urls is only kept once. If a directory is given, the bodies are written
+ * to this directory and read back as memory mapped files; the index is written there as well, so
+ * the content survives a restart of the JVM. The bodies stored in the directory are limited by
+ * {@link #setMaxDirectorySizeInBytes(long)}; the least recently used ones are deleted first.</p>
+ *
+ * <p>Responses are keyed by url only. To keep the cookies and credentials of the different clients isolated,
+ * only publicly cacheable responses are shared: successful GET responses without <tt>Cache-Control: private</tt>
+ * or <tt>no-store</tt>, without <tt>Set-Cookie</tt> header, without <tt>Vary</tt> header (except
+ * <tt>Vary: Accept-Encoding</tt>) and not sent in reply to a request containing cookies. A response
+ * to a request containing credentials is only shared if it is explicitly marked as
+ * <tt>Cache-Control: public</tt>.</p>
+ */
+public class SharedCache {
+
+    private static final Log LOG = LogFactory.getLog(SharedCache.class);
+
+    private static final String BODY_SUFFIX = ".body";
+    private static final String INDEX_SUFFIX = ".index";
+
+    private final File directory_;
+    private int maxSize_ = 1_000;
+    private volatile long maxDirectorySizeInBytes_ = 256L * 1024 * 1024;
+
+    private final Map<String, IndexEntry> index_ = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder_ = new ConcurrentLinkedQueue<>();
+    private final Map<String, Body> bodies_ = new ConcurrentHashMap<>();
+
+    /** The bodies stored in the directory in access order, guarded by itself. */
+    private final Map<String, Long> directoryBodies_ = new LinkedHashMap<>(16, 0.75f, true);
+    private long directorySize_;
+
+    private final AtomicLong hitCount_ = new AtomicLong();
+    private final AtomicLong missCount_ = new AtomicLong();
+
+    /**
+     * An entry of the index.
+     */
+    private static final class IndexEntry {
+        private final int statusCode_;
+        private final String statusMessage_;
+        private final List<NameValuePair> headers_;
+        private final String contentHash_;
+        private final long storedAt_;
+
+        IndexEntry(final int statusCode, final String statusMessage, final List<NameValuePair> headers,
+                final String contentHash, final long storedAt) {
+            statusCode_ = statusCode;
+            statusMessage_ = statusMessage;
+            headers_ = headers;
+            contentHash_ = contentHash;
+            storedAt_ = storedAt;
+        }
+    }
+
+    /**
+     * A body held in memory together with the number of urls referring to it. The
+     * reference count is only modified inside {@code bodies_.compute()}.
+     */
+    private static final class Body {
+        private final DownloadedContent content_;
+        private int references_ = 1;
+
+        Body(final DownloadedContent content) {
+            content_ = content;
+        }
+    }
+
+    /**
+     * Creates a new cache keeping all content in memory.
+     */
+    public SharedCache() {
+        this(null);
+    }
+
+    /**
+     * Creates a new cache storing the content in the given directory.
+     * Content already stored there by a previous run is reused.
+     *
+     * @param directory the directory to store the content in; {@code null} to keep everything in memory
+     */
+    public SharedCache(final File directory) {
+        directory_ = directory;
+        if (directory_ != null && !directory_.isDirectory() && !directory_.mkdirs()) {
+            throw new IllegalArgumentException("Can't create the directory " + directory.getAbsolutePath());
+        }
+        if (directory_ != null) {
+            final File[] files = directory_.listFiles((dir, name) -> name.endsWith(BODY_SUFFIX));
+            if (files != null) {
+                Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+                for (final File file : files) {
+                    final String name = file.getName();
+                    recordDirectoryBody(name.substring(0, name.length() - BODY_SUFFIX.length()), file.length());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of responses kept in memory. The default is <tt>1000</tt>.
+     * Responses stored in the directory are not affected by this limit.
+     *
+     * @return the maximum number of responses kept in memory
+     */
+    public int getMaxSize() {
+        return maxSize_;
+    }
+
+    /**
+     * Sets the maximum number of responses kept in memory.
+     *
+     * @param maxSize the maximum number of responses (must be &gt;= 0)
+     */
+    public void setMaxSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Illegal value for maxSize: " + maxSize);
+        }
+        maxSize_ = maxSize;
+        deleteOverflow();
+    }
+
+    /**
+     * Returns the maximum number of bytes the bodies stored in the directory may use.
+     * The default is <tt>256 MiB</tt>.
+     *
+     * @return the maximum size of the directory in bytes
+     */
+    public long getMaxDirectorySizeInBytes() {
+        return maxDirectorySizeInBytes_;
+    }
+
+    /**
+     * Sets the maximum number of bytes the bodies stored in the directory may use. If the
+     * limit is exceeded, the least recently used bodies not held in memory are deleted;
+     * index entries referring to a deleted body are dropped the next time they are read.
+     *
+     * @param maxDirectorySizeInBytes the maximum size of the directory in bytes (must be &gt;= 0)
+     */
+    public void setMaxDirectorySizeInBytes(final long maxDirectorySizeInBytes) {
+        if (maxDirectorySizeInBytes < 0) {
+            throw new IllegalArgumentException("Illegal value for maxDirectorySizeInBytes: "
+                    + maxDirectorySizeInBytes);
+        }
+        maxDirectorySizeInBytes_ = maxDirectorySizeInBytes;
+        trimDirectory();
+    }
+
+    /**
+     * Returns the number of bytes used by the bodies stored in the directory.
+     *
+     * @return the size of the directory in bytes
+     */
+    public long getDirectorySizeInBytes() {
+        synchronized (directoryBodies_) {
+            return directorySize_;
+        }
+    }
+
+    /**
+     * Returns whether the specified response may be shared between clients. The cookies added
+     * by the {@link WebConnection} are not part of the request; {@link #store(WebRequest, WebResponse, boolean)}
+     * is told about them separately.
+     *
+     * @param request the performed request
+     * @param response the received response
+     * @return {@code true} if the response is publicly cacheable
+     */
+    protected boolean isShareable(final WebRequest request, final WebResponse response) {
+        if (HttpMethod.GET != request.getHttpMethod()
+                || response.getStatusCode() != HttpStatus.SC_OK
+                || HeaderUtils.containsPrivate(response)
+                || HeaderUtils.containsNoStore(response)) {
+            return false;
+        }
+
+        // the response may be personalized
+        if (request.isAdditionalHeader(HttpHeader.COOKIE)) {
+            return false;
+        }
+        if ((request.getCredentials() != null
+                || request.getUrlCredentials() != null
+                || request.isAdditionalHeader(HttpHeader.AUTHORIZATION))
+                && !HeaderUtils.containsPublic(response)) {
+            return false;
+        }
+
+        for (final NameValuePair header : response.getResponseHeaders()) {
+            final String name = header.getName();
+            if (HttpHeader.SET_COOKIE.equalsIgnoreCase(name)
+                    || "Set-Cookie2".equalsIgnoreCase(name)) {
+                return false;
+            }
+            if (HttpHeader.VARY.equalsIgnoreCase(name) && !isVaryAcceptEncoding(header.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the <tt>Vary</tt> header only lists <tt>Accept-Encoding</tt>; the body is stored decoded,
+     * so the response doesn't depend on the request headers in this case.
+     */
+    private static boolean isVaryAcceptEncoding(final String value) {
+        for (final String token : value.split(",")) {
+            if (!HttpHeader.ACCEPT_ENCODING.equalsIgnoreCase(token.trim())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the specified response, if it is publicly cacheable. The request is assumed
+     * to be sent without cookies.
+     *
+     * @param request the performed request
+     * @param response the received response
+     * @return whether the response was stored or not
+     */
+    public boolean store(final WebRequest request, final WebResponse response) {
+        return store(request, response, false);
+    }
+
+    /**
+     * Stores the specified response, if it is publicly cacheable.
+     *
+     * @param request the performed request
+     * @param response the received response
+     * @param withCookies whether the {@link WebConnection} sent cookies together with the request
+     * @return whether the response was stored or not
+     */
+    public boolean store(final WebRequest request, final WebResponse response, final boolean withCookies) {
+        if (withCookies || request.getUrl() == null || !isShareable(request, response)) {
+            return false;
+        }
+
+        try {
+            final byte[] body;
+            try (InputStream in = response.getContentAsStream()) {
+                body = IOUtils.toByteArray(in);
+            }
+            final String hash = hash(body);
+
+            // the body is stored decoded
+            final List<NameValuePair> headers = new ArrayList<>();
+            for (final NameValuePair header : response.getResponseHeaders()) {
+                final String name = header.getName();
+                if (!HttpHeader.CONTENT_ENCODING.equalsIgnoreCase(name)
+                        && !HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                    headers.add(header);
+                }
+            }
+
+            final String url = UrlUtils.normalize(request.getUrl());
+            final IndexEntry entry = new IndexEntry(response.getStatusCode(), response.getStatusMessage(),
+                    headers, hash, System.currentTimeMillis());
+
+            acquire(hash, body);
+            if (directory_ != null) {
+                try {
+                    writeIndex(url, entry);
+                }
+                catch (final IOException e) {
+                    release(hash);
+                    throw e;
+                }
+            }
+            add(url, entry);
+            trimDirectory();
+            return true;
+        }
+        catch (final IOException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Failed to store " + request.getUrl() + " in the shared cache.", e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the stored response for the specified request or {@code null}. The caller is
+     * responsible for checking whether the response is still fresh.
+     *
+     * @param request the request whose corresponding response is sought
+     * @return the response or {@code null}
+     */
+    public WebResponse getResponse(final WebRequest request) {
+        if (HttpMethod.GET != request.getHttpMethod() || request.getUrl() == null) {
+            return null;
+        }
+
+        final String url = UrlUtils.normalize(request.getUrl());
+        IndexEntry entry = index_.get(url);
+        Body body = null;
+        if (entry != null) {
+            // null if the entry was removed concurrently
+            body = bodies_.get(entry.contentHash_);
+        }
+        else if (directory_ != null) {
+            entry = readIndex(url);
+            if (entry != null) {
+                body = acquire(entry.contentHash_, null);
+                if (body == null) {
+                    // the body was deleted to keep the directory within its limit
+                    deleteIndex(url);
+                }
+                else {
+                    add(url, entry);
+                }
+            }
+        }
+        if (body == null) {
+            missCount_.incrementAndGet();
+            return null;
+        }
+
+        hitCount_.incrementAndGet();
+        final WebResponseData data = new WebResponseData(body.content_, entry.statusCode_, entry.statusMessage_,
+                entry.headers_);
+        return new WebResponse(data, request, 0);
+    }
+
+    /**
+     * Returns the time the response for the specified request was stored.
+     *
+     * @param request the request
+     * @return the time in milliseconds or <tt>-1</tt> if nothing is stored for this request
+     */
+    public long getStoredAt(final WebRequest request) {
+        if (request.getUrl() == null) {
+            return -1;
+        }
+        final IndexEntry entry = index_.get(UrlUtils.normalize(request.getUrl()));
+        if (entry == null) {
+            return -1;
+        }
+        return entry.storedAt_;
+    }
+
+    /**
+     * Returns the number of responses held in memory.
+     * @return the number of responses
+     */
+    public int getSize() {
+        return index_.size();
+    }
+
+    /**
+     * Returns the number of distinct bodies held in memory.
+     * @return the number of bodies
+     */
+    public int getContentCount() {
+        return bodies_.size();
+    }
+
+    /**
+     * Returns the number of lookups that were answered from this cache.
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount_.get();
+    }
+
+    /**
+     * Returns the number of lookups that were not answered from this cache.
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount_.get();
+    }
+
+    /**
+     * Removes all responses from memory; the content stored in the directory is not deleted.
+     */
+    public void clear() {
+        index_.clear();
+        insertionOrder_.clear();
+        bodies_.clear();
+    }
+
+    /**
+     * Adds the entry to the index; the caller has already acquired a reference to its body.
+     */
+    private void add(final String url, final IndexEntry entry) {
+        final IndexEntry previous = index_.put(url, entry);
+        if (previous == null) {
+            insertionOrder_.add(url);
+        }
+        else {
+            release(previous.contentHash_);
+        }
+        deleteOverflow();
+    }
+
+    /**
+     * Adds a reference to the body with the specified hash, storing the given body or loading it
+     * from the directory if it isn't held in memory yet.
+     *
+     * @param hash the hash of the body
+     * @param body the body to store or {@code null} to load it from the directory
+     * @return the body or {@code null} if it isn't available
+     */
+    private Body acquire(final String hash, final byte[] body) {
+        return bodies_.compute(hash, (h, existing) -> {
+            if (existing != null) {
+                existing.references_++;
+                return existing;
+            }
+            final DownloadedContent content = body == null ? loadBody(h) : storeBody(h, body);
+            if (content == null) {
+                return null;
+            }
+            return new Body(content);
+        });
+    }
+
+    /**
+     * Drops the body from memory once no url refers to it anymore.
+     */
+    private void release(final String hash) {
+        bodies_.computeIfPresent(hash, (h, body) -> --body.references_ == 0 ? null : body);
+    }
+
+    private void deleteOverflow() {
+        while (index_.size() > maxSize_) {
+            final String url = insertionOrder_.poll();
+            if (url == null) {
+                return;
+            }
+            final IndexEntry removed = index_.remove(url);
+            if (removed != null) {
+                release(removed.contentHash_);
+            }
+        }
+    }
+
+    private DownloadedContent loadBody(final String hash) {
+        final File file = new File(directory_, hash + BODY_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        touch(file);
+        recordDirectoryBody(hash, file.length());
+        return new DownloadedContent.MemoryMapped(file);
+    }
+
+    private DownloadedContent storeBody(final String hash, final byte[] body) {
+        if (directory_ == null) {
+            return new DownloadedContent.InMemory(body);
+        }
+
+        final File file = new File(directory_, hash + BODY_SUFFIX);
+        if (!file.isFile()) {
+            try {
+                final File tmp = File.createTempFile(hash, ".tmp", directory_);
+                Files.write(tmp.toPath(), body);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (final IOException e) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn("Failed to write " + file.getAbsolutePath() + ", keeping the content in memory.", e);
+                }
+                return new DownloadedContent.InMemory(body);
+            }
+        }
+        else {
+            touch(file);
+        }
+        recordDirectoryBody(hash, file.length());
+        return new DownloadedContent.MemoryMapped(file);
+    }
+
+    /**
+     * Updates the modification time, which keeps the access order across restarts.
+     */
+    private static void touch(final File file) {
+        if (!file.setLastModified(System.currentTimeMillis()) && LOG.isDebugEnabled()) {
+            LOG.debug("Failed to update the modification time of " + file.getAbsolutePath() + ".");
+        }
+    }
+
+    private void recordDirectoryBody(final String hash, final long length) {
+        synchronized (directoryBodies_) {
+            final Long previous = directoryBodies_.put(hash, length);
+            directorySize_ += length - (previous == null ? 0 : previous);
+        }
+    }
+
+    /**
+     * Deletes the least recently used bodies from the directory until it fits into its limit.
+     * Bodies held in memory are in use and therefore kept.
+     */
+    private void trimDirectory() {
+        if (directory_ == null) {
+            return;
+        }
+
+        final List<String> candidates = new ArrayList<>();
+        synchronized (directoryBodies_) {
+            long size = directorySize_;
+            for (final Map.Entry<String, Long> entry : directoryBodies_.entrySet()) {
+                if (size <= maxDirectorySizeInBytes_) {
+                    break;
+                }
+                candidates.add(entry.getKey());
+                size -= entry.getValue();
+            }
+        }
+
+        for (final String hash : candidates) {
+            // inside compute() to not race with acquire()
+            bodies_.compute(hash, (h, existing) -> {
+                synchronized (directoryBodies_) {
+                    if (existing != null) {
+                        directoryBodies_.get(h);
+                    }
+                    else {
+                        final Long length = directoryBodies_.remove(h);
+                        if (length != null) {
+                            directorySize_ -= length;
+                        }
+                    }
+                }
+                if (existing == null) {
+                    final File file = new File(directory_, h + BODY_SUFFIX);
+                    if (!file.delete() && file.exists() && LOG.isWarnEnabled()) {
+                        LOG.warn("Failed to delete " + file.getAbsolutePath() + ".");
+                    }
+                }
+                return existing;
+            });
+        }
+    }
+
+    private void writeIndex(final String url, final IndexEntry entry) throws IOException {
+        final File file = new File(directory_, hash(url.getBytes(UTF_8)) + INDEX_SUFFIX);
+        final File tmp = File.createTempFile("index", ".tmp", directory_);
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), UTF_8)) {
+            writer.write(url);
+            writer.newLine();
+            writer.write(Long.toString(entry.storedAt_));
+            writer.newLine();
+            writer.write(entry.contentHash_);
+            writer.newLine();
+            writer.write(Integer.toString(entry.statusCode_));
+            writer.newLine();
+            writer.write(entry.statusMessage_ == null ? "" : entry.statusMessage_);
+            writer.newLine();
+            for (final NameValuePair header : entry.headers_) {
+                writer.write(header.getName());
+                writer.write(": ");
+                writer.write(header.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteIndex(final String url) {
+        final File file = new File(directory_, hash(url.getBytes(UTF_8)) + INDEX_SUFFIX);
+        if (!file.delete() && file.exists() && LOG.isWarnEnabled()) {
+            LOG.warn("Failed to delete " + file.getAbsolutePath() + ".");
+        }
+    }
+
+    private IndexEntry readIndex(final String url) {
+        final File file = new File(directory_, hash(url.getBytes(UTF_8)) + INDEX_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+            if (!url.equals(reader.readLine())) {
+                return null;
+            }
+            final long storedAt = Long.parseLong(reader.readLine());
+            final String contentHash = reader.readLine();
+            final int statusCode = Integer.parseInt(reader.readLine());
+            final String statusMessage = reader.readLine();
+
+            final List<NameValuePair> headers = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int colon = line.indexOf(": ");
+                if (colon > 0) {
+                    headers.add(new NameValuePair(line.substring(0, colon), line.substring(colon + 2)));
+                }
+            }
+            return new IndexEntry(statusCode, statusMessage, headers, contentHash, storedAt);
+        }
+        catch (final IOException | RuntimeException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Failed to read " + file.getAbsolutePath() + ", ignoring it.", e);
+            }
+            return null;
+        }
+    }
+
+    private static String hash(final byte[] bytes) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        }
+        catch (final NoSuchAlgorithmException e) {
+            // every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
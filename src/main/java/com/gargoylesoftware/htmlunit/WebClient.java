@@ -51,9 +51,12 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -103,6 +106,7 @@ import com.gargoylesoftware.htmlunit.util.MimeType;
 import com.gargoylesoftware.htmlunit.util.NameValuePair;
 import com.gargoylesoftware.htmlunit.util.TextUtils;
 import com.gargoylesoftware.htmlunit.util.UrlUtils;
+import com.gargoylesoftware.htmlunit.util.WebResponseWrapper;
 import com.gargoylesoftware.htmlunit.webstart.WebStartHandler;
 import com.shapesecurity.salvation2.Policy;
 import com.shapesecurity.salvation2.URLs.URI;
@@ -1366,7 +1370,7 @@ public class WebClient implements Serializable, AutoCloseable {
                 DateUtils.formatDate(new Date(file.lastModified()))));
         final WebResponseData responseData = new WebResponseData(content, 200, "OK", compiledHeaders);
         final WebResponse webResponse = new WebResponse(responseData, webRequest, 0);
-        getCache().cacheIfPossible(webRequest, webResponse, null);
+        getCache().cacheIfPossible(webRequest, webResponse, null, false);
         return webResponse;
     }
 
@@ -1460,6 +1464,84 @@ public class WebClient implements Serializable, AutoCloseable {
         }
     }
 
+    /**
+     * Loads a {@link WebResponse} from the server without blocking the calling thread while
+     * waiting for the response, see {@link WebConnection#getResponseAsync(WebRequest)}.
+     * The request is prepared and the cache is consulted by the calling thread; the response is processed
+     * (revalidation, caching) by the {@link #getExecutor() executor} of this client. Redirects are
+     * followed by the executor like {@link #loadWebResponse(WebRequest)} does.
+     * <code>about:</code>, <code>file:</code> and <code>data:</code> urls are loaded by the calling thread.
+     *
+     * @param webRequest the request
+     * @return the future response; completed exceptionally if an IO problem occurs
+     */
+    public CompletableFuture<WebResponse> loadWebResponseAsync(final WebRequest webRequest) {
+        final CompletableFuture<WebResponse> result = new CompletableFuture<>();
+        try {
+            switch (webRequest.getUrl().getProtocol()) {
+                case "about":
+                case "file":
+                case "data":
+                    result.complete(loadWebResponse(webRequest));
+                    return result;
+
+                default:
+            }
+
+            prepareWebRequest(webRequest);
+            final WebResponse fromCache = getCache().getCachedResponse(webRequest);
+            if (fromCache != null) {
+                result.complete(processWebResponse(webRequest, null,
+                        new WebResponseFromCache(fromCache, webRequest), true, ALLOWED_REDIRECTIONS_SAME_URL));
+                return result;
+            }
+
+            final WebRequest conditionalRequest = createConditionalRequest(webRequest);
+            getWebConnection().getResponseAsync(conditionalRequest == null ? webRequest : conditionalRequest)
+                .whenComplete((webResponse, throwable) -> {
+                    // not in the io thread of the connection, following a redirect waits for the response
+                    try {
+                        getExecutor().execute(() ->
+                            processWebResponse(webRequest, conditionalRequest, webResponse, throwable, result));
+                    }
+                    catch (final RejectedExecutionException e) {
+                        if (webResponse != null) {
+                            webResponse.cleanUp();
+                        }
+                        result.completeExceptionally(e);
+                    }
+                });
+        }
+        catch (final IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void processWebResponse(final WebRequest webRequest, final WebRequest conditionalRequest,
+            final WebResponse webResponse, final Throwable throwable, final CompletableFuture<WebResponse> result) {
+        Throwable cause = throwable;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        try {
+            if (cause == null) {
+                result.complete(processWebResponse(webRequest, conditionalRequest, webResponse,
+                        false, ALLOWED_REDIRECTIONS_SAME_URL));
+            }
+            else if (cause instanceof NoHttpResponseException) {
+                result.complete(new WebResponse(responseDataNoHttpResponse_, webRequest, 0));
+            }
+            else {
+                result.completeExceptionally(cause);
+            }
+        }
+        catch (final IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
     /**
      * Loads a {@link WebResponse} from the server through the WebConnection.
      * @param webRequest the request
@@ -1470,6 +1552,33 @@ public class WebClient implements Serializable, AutoCloseable {
     private WebResponse loadWebResponseFromWebConnection(final WebRequest webRequest,
         final int allowedRedirects) throws IOException {
 
+        prepareWebRequest(webRequest);
+
+        // Retrieve the response, either from the cache or from the server.
+        final WebResponse fromCache = getCache().getCachedResponse(webRequest);
+        if (fromCache != null) {
+            return processWebResponse(webRequest, null, new WebResponseFromCache(fromCache, webRequest), true,
+                    allowedRedirects);
+        }
+
+        final WebRequest conditionalRequest = createConditionalRequest(webRequest);
+        final WebResponse webResponse;
+        try {
+            webResponse = getWebConnection().getResponse(
+                    conditionalRequest == null ? webRequest : conditionalRequest);
+        }
+        catch (final NoHttpResponseException e) {
+            return new WebResponse(responseDataNoHttpResponse_, webRequest, 0);
+        }
+        return processWebResponse(webRequest, conditionalRequest, webResponse, false, allowedRedirects);
+    }
+
+    /**
+     * Encodes the url of the request and adds the proxy settings and the default headers.
+     * @param webRequest the request
+     * @throws IOException if an IO problem occurs
+     */
+    private void prepareWebRequest(final WebRequest webRequest) throws IOException {
         URL url = webRequest.getUrl();
         final HttpMethod method = webRequest.getHttpMethod();
         final List<NameValuePair> parameters = webRequest.getRequestParameters();
@@ -1528,19 +1637,45 @@ public class WebClient implements Serializable, AutoCloseable {
 
         // Add the headers that are sent with every request.
         addDefaultHeaders(webRequest);
+    }
 
-        // Retrieve the response, either from the cache or from the server.
-        final WebResponse fromCache = getCache().getCachedResponse(webRequest);
-        final WebResponse webResponse;
-        if (fromCache != null) {
-            webResponse = new WebResponseFromCache(fromCache, webRequest);
-        }
-        else {
-            try {
-                webResponse = getWebConnection().getResponse(webRequest);
+    /**
+     * Returns the conditional request to revalidate the stale cached response for the specified request.
+     * @param webRequest the request
+     * @return the conditional request or {@code null} if there is nothing to revalidate
+     */
+    private WebRequest createConditionalRequest(final WebRequest webRequest) {
+        final WebResponse toRevalidate = getCache().getCachedResponseToRevalidate(webRequest);
+        return toRevalidate == null ? null : createConditionalRequest(webRequest, toRevalidate);
+    }
+
+    /**
+     * Processes the response of the web connection (or from the cache): handles the revalidation,
+     * follows redirects and caches the response.
+     * @param webRequest the request
+     * @param conditionalRequest the conditional request sent instead of the request or {@code null}
+     * @param response the response
+     * @param isFromCache whether the response was taken from the cache
+     * @param allowedRedirects the number of allowed redirects remaining
+     * @throws IOException if an IO problem occurs
+     * @return the resultant {@link WebResponse}
+     */
+    private WebResponse processWebResponse(final WebRequest webRequest, final WebRequest conditionalRequest,
+            final WebResponse response, final boolean isFromCache, final int allowedRedirects) throws IOException {
+        final URL url = webRequest.getUrl();
+        final List<NameValuePair> parameters = webRequest.getRequestParameters();
+
+        WebResponse fromCache = null;
+        WebResponse webResponse = response;
+        if (conditionalRequest != null) {
+            fromCache = getCache().revalidated(webRequest, webResponse);
+            if (fromCache != null) {
+                webResponse.cleanUp();
+                webResponse = new WebResponseFromCache(fromCache, webRequest);
             }
-            catch (final NoHttpResponseException e) {
-                return new WebResponse(responseDataNoHttpResponse_, webRequest, 0);
+            else {
+                // don't expose the validators through the response
+                webResponse = new UnconditionalWebResponse(webResponse, webRequest);
             }
         }
 
@@ -1610,12 +1745,61 @@ public class WebClient implements Serializable, AutoCloseable {
             }
         }
 
-        if (fromCache == null) {
-            getCache().cacheIfPossible(webRequest, webResponse, null);
+        if (!isFromCache && fromCache == null) {
+            final boolean withCookies = getCache().getSharedCache() != null
+                    && getCookieManager().isCookiesEnabled()
+                    && !getCookies(webRequest.getUrl()).isEmpty();
+            getCache().cacheIfPossible(webRequest, webResponse, null, withCookies);
         }
         return webResponse;
     }
 
+    /**
+     * Creates a copy of the specified request with the <tt>If-None-Match</tt> and <tt>If-Modified-Since</tt>
+     * headers needed to revalidate the specified cached response. The specified request is not modified,
+     * so the validators are neither sent again if the request is reused nor copied into redirects.
+     * @param webRequest the request
+     * @param cachedResponse the stale response from the cache
+     * @return the conditional request or {@code null} if the request is already a conditional one
+     *         or the cached response has no validator
+     */
+    private static WebRequest createConditionalRequest(final WebRequest webRequest,
+            final WebResponse cachedResponse) {
+        if (webRequest.isAdditionalHeader(HttpHeader.IF_NONE_MATCH)
+                || webRequest.isAdditionalHeader(HttpHeader.IF_MODIFIED_SINCE)) {
+            return null;
+        }
+
+        final String etag = cachedResponse.getResponseHeaderValue(HttpHeader.ETAG);
+        final String lastModified = cachedResponse.getResponseHeaderValue(HttpHeader.LAST_MODIFIED);
+        if (etag == null && lastModified == null) {
+            return null;
+        }
+
+        final WebRequest conditional = new WebRequest(webRequest.getUrl(), webRequest.getHttpMethod());
+        conditional.setAdditionalHeaders(new HashMap<>(webRequest.getAdditionalHeaders()));
+        conditional.setCharset(webRequest.getCharset());
+        conditional.setProxyHost(webRequest.getProxyHost());
+        conditional.setProxyPort(webRequest.getProxyPort());
+        conditional.setSocksProxy(webRequest.isSocksProxy());
+        conditional.setEncodingType(webRequest.getEncodingType());
+        conditional.setCredentials(webRequest.getCredentials());
+        conditional.setRequestParameters(webRequest.getRequestParameters());
+        for (final WebRequest.HttpHint hint : WebRequest.HttpHint.values()) {
+            if (webRequest.hasHint(hint)) {
+                conditional.addHint(hint);
+            }
+        }
+
+        if (etag != null) {
+            conditional.setAdditionalHeader(HttpHeader.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            conditional.setAdditionalHeader(HttpHeader.IF_MODIFIED_SINCE, lastModified);
+        }
+        return conditional;
+    }
+
     /**
      * Adds the headers that are sent with every request to the specified {@link WebRequest} instance.
      * @param wrs the <tt>WebRequestSettings</tt> instance to modify
@@ -1971,6 +2155,24 @@ public class WebClient implements Serializable, AutoCloseable {
         cache_ = cache;
     }
 
+    /**
+     * A response received for a conditional request (see {@link #createConditionalRequest(WebRequest, WebResponse)})
+     * that reports the original request instead of the conditional copy.
+     */
+    private static final class UnconditionalWebResponse extends WebResponseWrapper {
+        private final WebRequest request_;
+
+        UnconditionalWebResponse(final WebResponse webResponse, final WebRequest request) {
+            super(webResponse);
+            request_ = request;
+        }
+
+        @Override
+        public WebRequest getWebRequest() {
+            return request_;
+        }
+    }
+
     /**
      * Keeps track of the current window. Inspired by WebTest's logic to track the current response.
      */
@@ -2521,21 +2723,20 @@ public class WebClient implements Serializable, AutoCloseable {
         // discard expired cookies
         cookieManager.clearExpired(new Date());
 
-        final List<org.apache.http.cookie.Cookie> all = Cookie.toHttpClient(cookieManager.getCookies());
-        final List<org.apache.http.cookie.Cookie> matches = new ArrayList<>();
-
-        if (all.size() > 0) {
-            final CookieOrigin cookieOrigin = new CookieOrigin(host, port, path, secure);
-            final CookieSpec cookieSpec = new HtmlUnitBrowserCompatCookieSpec(getBrowserVersion());
-            for (final org.apache.http.cookie.Cookie cookie : all) {
-                if (cookieSpec.match(cookie, cookieOrigin)) {
-                    matches.add(cookie);
-                }
-            }
+        // only the cookies stored for the domain of the host have to be checked
+        final List<Cookie> candidates = cookieManager.getCookieCandidates(host);
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
         }
 
         final Set<Cookie> cookies = new LinkedHashSet<>();
-        cookies.addAll(Cookie.fromHttpClient(matches));
+        final CookieOrigin cookieOrigin = new CookieOrigin(host, port, path, secure);
+        final CookieSpec cookieSpec = new HtmlUnitBrowserCompatCookieSpec(getBrowserVersion());
+        for (final Cookie cookie : candidates) {
+            if (cookieSpec.match(cookie.toHttpClient(), cookieOrigin)) {
+                cookies.add(cookie);
+            }
+        }
         return Collections.unmodifiableSet(cookies);
     }
 
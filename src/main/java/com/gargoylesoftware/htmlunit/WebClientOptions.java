@@ -67,6 +67,14 @@ public class WebClientOptions implements Serializable {
     private int webSocketMaxBinaryMessageSize_ = -1;
     private int webSocketMaxBinaryMessageBufferSize_ = -1;
 
+    private boolean preloadEnabled_;
+    private boolean decompressOnDownload_;
+    private boolean sharedJavaScriptExecutor_;
+    private boolean nonBlockingXMLHttpRequest_;
+    private boolean parallelWorkers_;
+    private boolean elementIndexes_;
+    private int maxConnectionsPerRoute_ = 6;
+
     /**
      * If set to {@code true}, the client will accept connections to any host, regardless of
      * whether they have valid certificates or not. This is especially useful when you are trying to
@@ -760,4 +768,166 @@ public class WebClientOptions implements Serializable {
     public void setWebSocketMaxBinaryMessageBufferSize(final int webSocketMaxBinaryMessageBufferSize) {
         webSocketMaxBinaryMessageBufferSize_ = webSocketMaxBinaryMessageBufferSize;
     }
+
+    /**
+     * Enables/disables the speculative preloading of external scripts and stylesheets.
+     * If enabled, the html source of a page is scanned for external scripts and stylesheets
+     * before parsing and all of them are requested in parallel using the {@link WebClient#getExecutor() executor}
+     * of the client. The parser still processes and executes everything in document order but does not
+     * have to wait for every single download. If images are downloaded (see {@link #setDownloadImages(boolean)}),
+     * the images are requested in parallel as well. By default, this property is disabled.
+     *
+     * @param enabled {@code true} to enable preloading
+     */
+    public void setPreloadEnabled(final boolean enabled) {
+        preloadEnabled_ = enabled;
+    }
+
+    /**
+     * Returns {@code true} if the speculative preloading of external scripts and stylesheets is enabled.
+     *
+     * @return {@code true} if preloading is enabled
+     */
+    public boolean isPreloadEnabled() {
+        return preloadEnabled_;
+    }
+
+    /**
+     * Sets whether compressed (gzip, brotli or deflate) response bodies are decompressed once directly
+     * after the download instead of every time the content is read. The decompressed content is stored
+     * in memory or in a temporary file (see {@link #setMaxInMemory(int)}); as a side effect
+     * {@link WebResponse#getContentLength()} returns the length of the decompressed content.
+     * By default, this property is disabled.
+     *
+     * @param decompressOnDownload whether to decompress the content directly after the download
+     */
+    public void setDecompressOnDownload(final boolean decompressOnDownload) {
+        decompressOnDownload_ = decompressOnDownload;
+    }
+
+    /**
+     * Returns whether compressed response bodies are decompressed once directly after the download.
+     *
+     * @return whether to decompress the content directly after the download
+     */
+    public boolean isDecompressOnDownload() {
+        return decompressOnDownload_;
+    }
+
+    /**
+     * Sets whether the JavaScript jobs (timeouts, intervals, async requests...) of this client are executed
+     * by a small pool of threads shared by all clients instead of a polling thread per client.
+     * The jobs of one client are still executed one after the other.
+     * This has to be set before the first page is loaded. By default, this property is disabled.
+     *
+     * @param sharedJavaScriptExecutor whether to use the shared executor
+     * @see com.gargoylesoftware.htmlunit.javascript.background.SharedJavaScriptExecutor
+     */
+    public void setSharedJavaScriptExecutor(final boolean sharedJavaScriptExecutor) {
+        sharedJavaScriptExecutor_ = sharedJavaScriptExecutor;
+    }
+
+    /**
+     * Returns whether the JavaScript jobs of this client are executed by the shared executor.
+     *
+     * @return whether to use the shared executor
+     */
+    public boolean isSharedJavaScriptExecutor() {
+        return sharedJavaScriptExecutor_;
+    }
+
+    /**
+     * Sets whether the network part of asynchronous XMLHttpRequests is done using the
+     * {@link WebClient#getExecutor() executor} of the client instead of the thread executing the JavaScript jobs.
+     * The requests are sent using {@link WebClient#loadWebResponseAsync(WebRequest)}; together with a
+     * {@link AsyncHttpWebConnection} no thread is blocked while waiting for the response.
+     * The job processing the response (state changes, event handlers) is scheduled when the response
+     * has arrived; until then the request is counted as background job, therefore
+     * {@link WebClient#waitForBackgroundJavaScript(long)} still waits for it.
+     * Synchronous requests (including the ones made synchronous by the {@link AjaxController}) are not affected.
+     * By default, this property is disabled.
+     *
+     * @param nonBlockingXMLHttpRequest whether to load the response of async requests in the background
+     */
+    public void setNonBlockingXMLHttpRequest(final boolean nonBlockingXMLHttpRequest) {
+        nonBlockingXMLHttpRequest_ = nonBlockingXMLHttpRequest;
+    }
+
+    /**
+     * Returns whether the network part of asynchronous XMLHttpRequests is done in the background.
+     *
+     * @return whether to load the response of async requests in the background
+     */
+    public boolean isNonBlockingXMLHttpRequest() {
+        return nonBlockingXMLHttpRequest_;
+    }
+
+    /**
+     * Sets whether every Web Worker runs on its own thread, in parallel to the JavaScript of the page
+     * and of other workers. Messages are passed as structured clones; the worker and the page never
+     * share an object. The jobs of a worker are still counted by
+     * {@link WebClient#waitForBackgroundJavaScript(long)}. By default, this property is disabled
+     * and the workers are executed by the thread executing the JavaScript jobs of the owning window.
+     *
+     * @param parallelWorkers whether to run every worker on its own thread
+     */
+    public void setParallelWorkers(final boolean parallelWorkers) {
+        parallelWorkers_ = parallelWorkers;
+    }
+
+    /**
+     * Returns whether every Web Worker runs on its own thread.
+     *
+     * @return whether to run every worker on its own thread
+     */
+    public boolean isParallelWorkers() {
+        return parallelWorkers_;
+    }
+
+    /**
+     * Sets whether the html pages maintain indexes of their elements by tag name and by class name.
+     * The indexes are used by {@code getElementsByTagName()}, {@code getElementsByClassName()} and
+     * {@code querySelectorAll()} to avoid walking the whole document tree; they cost one index entry
+     * per element and per class name of the element (see
+     * {@link com.gargoylesoftware.htmlunit.html.HtmlPage#getElementIndexEntryCount()}).
+     * This has to be set before the page is loaded. By default, this property is disabled.
+     *
+     * @param elementIndexes whether to maintain the element indexes
+     */
+    public void setElementIndexes(final boolean elementIndexes) {
+        elementIndexes_ = elementIndexes;
+    }
+
+    /**
+     * Returns whether the html pages maintain indexes of their elements by tag name and by class name.
+     *
+     * @return whether to maintain the element indexes
+     */
+    public boolean isElementIndexes() {
+        return elementIndexes_;
+    }
+
+    /**
+     * Sets the maximum number of connections kept per route (scheme, host and port) by the
+     * {@link HttpWebConnection} and the {@link AsyncHttpWebConnection}. The value is read when the
+     * connection creates its http client. The default is <tt>6</tt>, like in the browsers.
+     *
+     * @param maxConnectionsPerRoute the maximum number of connections per route (must be &gt; 0)
+     */
+    public void setMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("Illegal value for maxConnectionsPerRoute: "
+                    + maxConnectionsPerRoute);
+        }
+        maxConnectionsPerRoute_ = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Returns the maximum number of connections kept per route.
+     *
+     * @return the maximum number of connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute_;
+    }
 }
@@ -15,6 +15,7 @@
 package com.gargoylesoftware.htmlunit;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An object which handles the actual communication portion of page retrieval/submission.
@@ -34,6 +35,24 @@ public interface WebConnection extends AutoCloseable {
      */
     WebResponse getResponse(WebRequest request) throws IOException;
 
+    /**
+     * Submits a request and retrieves the response without blocking the calling thread.
+     * The default implementation calls {@link #getResponse(WebRequest)} and returns an
+     * already completed future; implementations based on non blocking io override this.
+     * @param request the request
+     * @return the future response to the request; completed exceptionally if an IO error occurs
+     */
+    default CompletableFuture<WebResponse> getResponseAsync(final WebRequest request) {
+        final CompletableFuture<WebResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(getResponse(request));
+        }
+        catch (final IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     @Override
     void close() throws IOException;
 }
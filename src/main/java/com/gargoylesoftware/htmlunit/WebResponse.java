@@ -22,9 +22,12 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.IOUtils;
@@ -59,6 +62,11 @@ public class WebResponse implements Serializable {
     private WebRequest request_;
     private boolean defaultCharsetUtf8_;
 
+    // the content never changes, so it is enough to sniff and decode it once
+    private transient volatile boolean contentCharsetSniffed_;
+    private transient volatile Charset contentCharset_;
+    private transient Map<String, SoftReference<String>> contentStrings_;
+
     /**
      * Constructs with all data.
      *
@@ -156,8 +164,14 @@ public class WebResponse implements Serializable {
      *         or {@code null} if none was specified
      */
     public Charset getContentCharsetOrNull() {
+        if (contentCharsetSniffed_) {
+            return contentCharset_;
+        }
         try (InputStream is = getContentAsStream()) {
-            return EncodingSniffer.sniffEncoding(getResponseHeaders(), is);
+            final Charset charset = EncodingSniffer.sniffEncoding(getResponseHeaders(), is);
+            contentCharset_ = charset;
+            contentCharsetSniffed_ = true;
+            return charset;
         }
         catch (final IOException e) {
             LOG.warn("Error trying to sniff encoding.", e);
@@ -219,11 +233,38 @@ public class WebResponse implements Serializable {
      * Returns the response content as a string, using the specified charset,
      * rather than the charset/encoding specified in the server response.
      * If there is a bom header the charset parameter will be overwritten by the bom.
+     * The decoded string is remembered (per charset) as long as there is enough memory.
      * @param encoding the charset/encoding to use to convert the response content into a string
      * @param ignoreUtf8Bom if true utf8 bom header will be ignored
      * @return the response content as a string or null if the content retrieval was failing
      */
     public String getContentAsString(final Charset encoding, final boolean ignoreUtf8Bom) {
+        final String key = ignoreUtf8Bom ? encoding + ";ignoreUtf8Bom" : String.valueOf(encoding);
+        synchronized (this) {
+            if (contentStrings_ != null) {
+                final SoftReference<String> reference = contentStrings_.get(key);
+                if (reference != null) {
+                    final String content = reference.get();
+                    if (content != null) {
+                        return content;
+                    }
+                }
+            }
+        }
+
+        final String content = readContentAsString(encoding, ignoreUtf8Bom);
+        if (content != null) {
+            synchronized (this) {
+                if (contentStrings_ == null) {
+                    contentStrings_ = new HashMap<>(2);
+                }
+                contentStrings_.put(key, new SoftReference<>(content));
+            }
+        }
+        return content;
+    }
+
+    private String readContentAsString(final Charset encoding, final boolean ignoreUtf8Bom) {
         if (responseData_ != null) {
             try (InputStream in = responseData_.getInputStreamWithBomIfApplicable(BOM_HEADERS)) {
                 if (in instanceof BOMInputStream) {
@@ -302,6 +343,9 @@ public class WebResponse implements Serializable {
         if (responseData_ != null) {
             responseData_.cleanUp();
         }
+        synchronized (this) {
+            contentStrings_ = null;
+        }
     }
 
     /**
@@ -52,6 +52,7 @@ public class WebResponseData implements Serializable {
     private final String statusMessage_;
     private final List<NameValuePair> responseHeaders_;
     private final DownloadedContent downloadedContent_;
+    private final boolean contentDecompressed_;
 
     /**
      * Constructs with a raw byte[] (mostly for testing).
@@ -87,10 +88,64 @@ public class WebResponseData implements Serializable {
      */
     public WebResponseData(final DownloadedContent downloadedContent, final int statusCode, final String statusMessage,
             final List<NameValuePair> responseHeaders) {
+        this(downloadedContent, statusCode, statusMessage, responseHeaders, false);
+    }
+
+    /**
+     * Constructor.
+     * @param downloadedContent the downloaded content
+     * @param statusCode        Status code from the server
+     * @param statusMessage     Status message from the server
+     * @param responseHeaders   Headers in this response
+     * @param contentDecompressed if {@code true} the downloaded content is already decompressed
+     *        and the <tt>Content-Encoding</tt> header is ignored when reading it
+     */
+    public WebResponseData(final DownloadedContent downloadedContent, final int statusCode, final String statusMessage,
+            final List<NameValuePair> responseHeaders, final boolean contentDecompressed) {
         statusCode_ = statusCode;
         statusMessage_ = statusMessage;
         responseHeaders_ = Collections.unmodifiableList(responseHeaders);
         downloadedContent_ = downloadedContent;
+        contentDecompressed_ = contentDecompressed;
+    }
+
+    /**
+     * Decompresses the content once, instead of every time the content is read.
+     * If the content is compressed, the decompressed content is stored in memory or in a temporary file
+     * (depending on the size), the compressed content is cleaned up and a new data object is returned.
+     * Otherwise (or if decompressing fails) this object is returned.
+     *
+     * @param maxInMemory the maximum number of bytes to store in memory
+     * @return the data with the decompressed content
+     */
+    public WebResponseData decompress(final int maxInMemory) {
+        if (contentDecompressed_ || downloadedContent_.isEmpty()
+                || !isCompressed(getHeader(responseHeaders_, "content-encoding"))) {
+            return this;
+        }
+
+        final DownloadedContent decompressed;
+        try (InputStream is = getInputStream()) {
+            decompressed = HttpWebConnection.downloadContent(is, maxInMemory);
+        }
+        catch (final IOException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Decompressing the content failed, the content stays compressed.", e);
+            }
+            return this;
+        }
+
+        downloadedContent_.cleanUp();
+        return new WebResponseData(decompressed, statusCode_, statusMessage_, responseHeaders_, true);
+    }
+
+    private static boolean isCompressed(final String encoding) {
+        // gzip-only-text/html depends on the content type, simply leave it as it is
+        return encoding != null
+                && (StringUtils.contains(encoding, "gzip") && !"no-gzip".equals(encoding)
+                        && !"gzip-only-text/html".equals(encoding)
+                    || "br".equals(encoding)
+                    || StringUtils.contains(encoding, "deflate"));
     }
 
     private InputStream getStream(final DownloadedContent downloadedContent,
@@ -99,6 +154,10 @@ public class WebResponseData implements Serializable {
         if (downloadedContent.isEmpty()) {
             return stream;
         }
+        if (contentDecompressed_) {
+            // same as for the compressed content below, no bom handling
+            return stream;
+        }
 
         final String encoding = getHeader(headers, "content-encoding");
         if (encoding != null) {
@@ -24,6 +24,7 @@ import com.gargoylesoftware.htmlunit.util.WebResponseWrapper;
  */
 class WebResponseFromCache extends WebResponseWrapper {
 
+    private final WebResponse cachedResponse_;
     private final WebRequest request_;
 
     /**
@@ -33,9 +34,18 @@ class WebResponseFromCache extends WebResponseWrapper {
      */
     WebResponseFromCache(final WebResponse cachedResponse, final WebRequest currentRequest) {
         super(cachedResponse);
+        cachedResponse_ = cachedResponse;
         request_ = currentRequest;
     }
 
+    /**
+     * Returns the wrapped response as stored in the cache.
+     * @return the cached response
+     */
+    WebResponse getCachedResponse() {
+        return cachedResponse_;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -15,7 +15,7 @@
 package com.gargoylesoftware.htmlunit.activex.javascript.msxml;
 
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.HashMap;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.javascript.configuration.AbstractJavaScriptConfiguration;
@@ -40,8 +40,8 @@ public final class MSXMLConfiguration extends AbstractJavaScriptConfiguration {
         XMLHTTPRequest.class, XSLProcessor.class, XSLTemplate.class
     };
 
-    /** Cache of browser versions and their corresponding JavaScript configurations. */
-    private static final Map<String, MSXMLConfiguration> CONFIGURATION_MAP_ = new WeakHashMap<>();
+    /** Cache of browser versions and their corresponding JavaScript configurations; there are only a few. */
+    private static final Map<String, MSXMLConfiguration> CONFIGURATION_MAP_ = new HashMap<>();
 
     /**
      * Constructor is only called from {@link #getInstance(BrowserVersion)} which is synchronized.
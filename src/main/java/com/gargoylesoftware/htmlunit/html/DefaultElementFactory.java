@@ -18,7 +18,6 @@ import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.KEYGEN_AS_BLO
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.KEYGEN_AS_SELECT;
 
 import java.util.Arrays;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -783,7 +782,8 @@ public class DefaultElementFactory implements ElementFactory {
             return null;
         }
 
-        final Map<String, DomAttr> attributeMap = new LinkedHashMap<>(attributes.getLength());
+        // the attribute nodes are created on demand
+        final ParsedAttributeMap attributeMap = new ParsedAttributeMap(page, attributes.getLength());
         for (int i = 0; i < attributes.getLength(); i++) {
             final String qName = attributes.getQName(i);
             // browsers consider only first attribute (ex: <div id='foo' id='something'>...</div>)
@@ -792,8 +792,7 @@ public class DefaultElementFactory implements ElementFactory {
                 if (namespaceURI != null && namespaceURI.isEmpty()) {
                     namespaceURI = null;
                 }
-                final DomAttr newAttr = new DomAttr(page, namespaceURI, qName, attributes.getValue(i), true);
-                attributeMap.put(qName, newAttr);
+                attributeMap.add(namespaceURI, qName, attributes.getValue(i));
             }
         }
         return attributeMap;
@@ -109,8 +109,25 @@ public class DomAttr extends DomNamespaceNode implements Attr {
      */
     @Override
     public void setValue(final String value) {
+        final DomElement owner = getOwnerElement();
+        if (owner == null) {
+            value_ = value;
+            specified_ = true;
+            return;
+        }
+
+        final HtmlPage indexingPage = owner.getClassIndexingPage(getName());
+        if (indexingPage != null) {
+            indexingPage.removeClassIndexEntries(owner);
+        }
+
         value_ = value;
         specified_ = true;
+        increaseAttributeModCount();
+
+        if (indexingPage != null) {
+            indexingPage.addClassIndexEntries(owner);
+        }
     }
 
     /**
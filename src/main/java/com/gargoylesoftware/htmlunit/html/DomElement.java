@@ -21,6 +21,11 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -30,6 +35,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -87,8 +93,8 @@ public class DomElement extends DomNamespaceNode implements Element {
     /** The map holding the attributes, keyed by name. */
     private NamedAttrNodeMapImpl attributes_ = new NamedAttrNodeMapImpl(this, isAttributeCaseSensitive());
 
-    /** The map holding the namespaces, keyed by URI. */
-    private final Map<String, String> namespaces_ = new HashMap<>();
+    /** The map holding the namespaces, keyed by URI; created on demand. */
+    private Map<String, String> namespaces_;
 
     /** Cache for the styles. */
     private String styleString_;
@@ -113,12 +119,13 @@ public class DomElement extends DomNamespaceNode implements Element {
         super(namespaceURI, qualifiedName, page);
         if (attributes != null && !attributes.isEmpty()) {
             attributes_ = new NamedAttrNodeMapImpl(this, isAttributeCaseSensitive(), attributes);
-            for (final DomAttr entry : attributes_.values()) {
+            // the attributes kept as plain values don't have a namespace
+            for (final DomAttr entry : attributes_.getCreatedAttributes()) {
                 entry.setParentNode(this);
                 final String attrNamespaceURI = entry.getNamespaceURI();
                 final String prefix = entry.getPrefix();
                 if (attrNamespaceURI != null && prefix != null) {
-                    namespaces_.put(attrNamespaceURI, prefix);
+                    putNamespace(attrNamespaceURI, prefix);
                 }
             }
         }
@@ -303,11 +310,11 @@ public class DomElement extends DomNamespaceNode implements Element {
      */
     protected void printOpeningTagContentAsXml(final PrintWriter printWriter) {
         printWriter.print(getTagName());
-        for (final Map.Entry<String, DomAttr> entry : attributes_.entrySet()) {
+        for (int i = 0; i < attributes_.size(); i++) {
             printWriter.print(" ");
-            printWriter.print(entry.getKey());
+            printWriter.print(attributes_.getName(i));
             printWriter.print("=\"");
-            printWriter.print(StringUtils.escapeXmlAttributeValue(entry.getValue().getNodeValue()));
+            printWriter.print(StringUtils.escapeXmlAttributeValue(attributes_.getValue(i)));
             printWriter.print("\"");
         }
     }
@@ -346,6 +353,18 @@ public class DomElement extends DomNamespaceNode implements Element {
         return false;
     }
 
+    /**
+     * Remembers the prefix used for the given namespace.
+     * @param namespaceURI the URI that identifies an XML namespace
+     * @param prefix the prefix
+     */
+    private void putNamespace(final String namespaceURI, final String prefix) {
+        if (namespaces_ == null) {
+            namespaces_ = new HashMap<>(4);
+        }
+        namespaces_.put(namespaceURI, prefix);
+    }
+
     /**
      * Returns the qualified name (prefix:local) for the specified namespace and local name,
      * or {@code null} if the specified namespace URI does not exist.
@@ -360,7 +379,7 @@ public class DomElement extends DomNamespaceNode implements Element {
             qualifiedName = localName;
         }
         else {
-            final String prefix = namespaces_.get(namespaceURI);
+            final String prefix = namespaces_ == null ? null : namespaces_.get(namespaceURI);
             if (prefix == null) {
                 qualifiedName = null;
             }
@@ -382,9 +401,9 @@ public class DomElement extends DomNamespaceNode implements Element {
      */
     @Override
     public String getAttribute(final String attributeName) {
-        final DomAttr attr = attributes_.get(attributeName);
-        if (attr != null) {
-            return attr.getNodeValue();
+        final String value = attributes_.getValue(attributeName);
+        if (value != null) {
+            return value;
         }
         return ATTRIBUTE_NOT_DEFINED;
     }
@@ -396,9 +415,9 @@ public class DomElement extends DomNamespaceNode implements Element {
      * @return the value of the attribute or {@link #ATTRIBUTE_NOT_DEFINED} or {@link #ATTRIBUTE_VALUE_EMPTY}
      */
     public String getAttributeDirect(final String attributeName) {
-        final DomAttr attr = attributes_.getDirect(attributeName);
-        if (attr != null) {
-            return attr.getNodeValue();
+        final String value = attributes_.getValueDirect(attributeName);
+        if (value != null) {
+            return value;
         }
         return ATTRIBUTE_NOT_DEFINED;
     }
@@ -412,6 +431,21 @@ public class DomElement extends DomNamespaceNode implements Element {
         attributes_.remove(attributeName);
     }
 
+    /**
+     * Returns the page whose class name index has to be updated if the given attribute changes.
+     * @param attributeName the name of the attribute
+     * @return the page or {@code null}
+     */
+    HtmlPage getClassIndexingPage(final String attributeName) {
+        if ("class".equals(attributeName) && isAttachedToPage()) {
+            final Page page = getPage();
+            if (page instanceof HtmlPage && ((HtmlPage) page).isElementIndexed()) {
+                return (HtmlPage) page;
+            }
+        }
+        return null;
+    }
+
     /**
      * Removes an attribute specified by namespace and local name from this element.
      * @param namespaceURI the URI that identifies an XML namespace
@@ -509,7 +543,7 @@ public class DomElement extends DomNamespaceNode implements Element {
         attributes_.put(qualifiedName, newAttr);
 
         if (namespaceURI != null) {
-            namespaces_.put(namespaceURI, newAttr.getPrefix());
+            putNamespace(namespaceURI, newAttr.getPrefix());
         }
     }
 
@@ -606,6 +640,20 @@ public class DomElement extends DomNamespaceNode implements Element {
             @SuppressWarnings("unchecked")
             protected List<E> provideElements() {
                 final List<E> res = new LinkedList<>();
+                final Page page = getPage();
+                if (page instanceof HtmlPage) {
+                    final List<DomElement> candidates =
+                            ((HtmlPage) page).getIndexedElementsByTagName(DomElement.this, tagName);
+                    if (candidates != null) {
+                        for (final DomElement elem : candidates) {
+                            if (elem instanceof HtmlElement && elem.getLocalName().equalsIgnoreCase(tagName)) {
+                                res.add((E) elem);
+                            }
+                        }
+                        return res;
+                    }
+                }
+
                 for (final HtmlElement elem : getDomNode().getHtmlElementDescendants()) {
                     if (elem.getLocalName().equalsIgnoreCase(tagName)) {
                         res.add((E) elem);
@@ -686,7 +734,10 @@ public class DomElement extends DomNamespaceNode implements Element {
     public DomNode cloneNode(final boolean deep) {
         final DomElement clone = (DomElement) super.cloneNode(deep);
         clone.attributes_ = new NamedAttrNodeMapImpl(clone, isAttributeCaseSensitive());
-        clone.attributes_.putAll(attributes_);
+        clone.attributes_.putAllOf(attributes_);
+        if (namespaces_ != null) {
+            clone.namespaces_ = new HashMap<>(namespaces_);
+        }
         return clone;
     }
 
@@ -1580,14 +1631,22 @@ public class DomElement extends DomNamespaceNode implements Element {
 
 /**
  * The {@link NamedNodeMap} to store the node attributes.
+ * The attributes are stored in two small arrays (names and attributes) in insertion order;
+ * elements have only a few attributes and looking them up linearly is fast and needs
+ * much less memory than a hash map.
  */
 class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serializable {
     protected static final NamedAttrNodeMapImpl EMPTY_MAP = new NamedAttrNodeMapImpl();
-    private static final DomAttr[] EMPTY_ARRAY = new DomAttr[0];
+    private static final String[] EMPTY_NAMES = new String[0];
+    private static final Object[] EMPTY_ARRAY = new Object[0];
 
-    private final Map<String, DomAttr> map_ = new LinkedHashMap<>();
-    private boolean dirty_ = false;
-    private DomAttr[] attrPositions_ = EMPTY_ARRAY;
+    private String[] names_ = EMPTY_NAMES;
+    /**
+     * A {@link DomAttr} or, for an attribute without namespace that was never requested as node,
+     * the value of the attribute; see {@link #attributeAt(int)}.
+     */
+    private Object[] values_ = EMPTY_ARRAY;
+    private int size_;
     private final DomElement domNode_;
     private final boolean caseSensitive_;
 
@@ -1609,7 +1668,116 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
     NamedAttrNodeMapImpl(final DomElement domNode, final boolean caseSensitive,
             final Map<String, DomAttr> attributes) {
         this(domNode, caseSensitive);
-        putAll(attributes);
+        names_ = new String[attributes.size()];
+        values_ = new Object[attributes.size()];
+        if (attributes instanceof ParsedAttributeMap) {
+            // take over the plain values, don't create the nodes
+            final ParsedAttributeMap parsed = (ParsedAttributeMap) attributes;
+            for (int i = 0; i < parsed.size(); i++) {
+                final String name = parsed.getName(i);
+                final Object value = parsed.getRaw(i);
+                if (value instanceof DomAttr) {
+                    put(name, (DomAttr) value);
+                }
+                else if (fixName(name).equals(name)) {
+                    set(name, value);
+                }
+                else {
+                    // the node has to keep the name as written
+                    put(name, parsed.get(name));
+                }
+            }
+        }
+        else {
+            putAll(attributes);
+        }
+    }
+
+    /**
+     * Returns the attribute at the given index; creates the {@link DomAttr} if the attribute is only
+     * stored as value so far. The node is kept, every call returns the same node.
+     * @param index the index
+     * @return the attribute
+     */
+    private DomAttr attributeAt(final int index) {
+        final Object value = values_[index];
+        if (value instanceof DomAttr) {
+            return (DomAttr) value;
+        }
+        final DomAttr attr = new DomAttr(domNode_.getPage(), null, names_[index], (String) value, true);
+        attr.setParentNode(domNode_);
+        values_[index] = attr;
+        return attr;
+    }
+
+    private String valueAt(final int index) {
+        final Object value = values_[index];
+        if (value instanceof DomAttr) {
+            return ((DomAttr) value).getNodeValue();
+        }
+        return (String) value;
+    }
+
+    /**
+     * @param index the index
+     * @return the name of the attribute at the given index
+     */
+    String getName(final int index) {
+        return names_[index];
+    }
+
+    /**
+     * Returns the value of the attribute at the given index without creating the attribute node.
+     * @param index the index
+     * @return the value
+     */
+    String getValue(final int index) {
+        return valueAt(index);
+    }
+
+    /**
+     * Returns the value of the attribute without creating the attribute node.
+     * @param name the name of the attribute
+     * @return the value or {@code null} if the attribute is not defined
+     */
+    String getValue(final String name) {
+        return getValueDirect(fixName(name));
+    }
+
+    /**
+     * Like {@link #getValue(String)} but the name has to be in the case used by this map.
+     * @param name the name of the attribute
+     * @return the value or {@code null} if the attribute is not defined
+     */
+    String getValueDirect(final String name) {
+        final int index = indexOf(name);
+        if (index > -1) {
+            return valueAt(index);
+        }
+        return null;
+    }
+
+    /**
+     * Copies all attributes of the given map; the attributes stored as values are not created as nodes.
+     * @param other the map to copy, using the same case sensitivity
+     */
+    void putAllOf(final NamedAttrNodeMapImpl other) {
+        for (int i = 0; i < other.size_; i++) {
+            set(other.names_[i], other.values_[i]);
+        }
+    }
+
+    /**
+     * @return the attributes whose nodes were already created
+     */
+    List<DomAttr> getCreatedAttributes() {
+        final List<DomAttr> attributes = new ArrayList<>(size_);
+        for (int i = 0; i < size_; i++) {
+            if (values_[i] instanceof DomAttr) {
+                attributes.add((DomAttr) values_[i]);
+            }
+        }
+        return attributes;
     }
 
     /**
@@ -1635,6 +1803,29 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
         return name.toLowerCase(Locale.ROOT);
     }
 
+    private int indexOf(final String name) {
+        for (int i = 0; i < size_; i++) {
+            final String n = names_[i];
+            if (n == name || n.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private DomAttr removeAt(final int index) {
+        final DomAttr old = attributeAt(index);
+        final int moved = size_ - index - 1;
+        if (moved > 0) {
+            System.arraycopy(names_, index + 1, names_, index, moved);
+            System.arraycopy(values_, index + 1, values_, index, moved);
+        }
+        size_--;
+        names_[size_] = null;
+        values_[size_] = null;
+        return old;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1651,14 +1842,10 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public Node item(final int index) {
-        if (index < 0 || index >= map_.size()) {
+        if (index < 0 || index >= size_) {
             return null;
         }
-        if (dirty_) {
-            attrPositions_ = map_.values().toArray(attrPositions_);
-            dirty_ = false;
-        }
-        return attrPositions_[index];
+        return attributeAt(index);
     }
 
     /**
@@ -1701,9 +1888,39 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public DomAttr put(final String key, final DomAttr value) {
-        final String name = fixName(key);
-        dirty_ = true;
-        return map_.put(name, value);
+        return set(fixName(key), value);
+    }
+
+    /**
+     * @param name the fixed name
+     * @param value the {@link DomAttr} or the value of an attribute without namespace
+     * @return the replaced attribute
+     */
+    private DomAttr set(final String name, final Object value) {
+        final HtmlPage indexingPage = getClassIndexingPage(name);
+        if (indexingPage != null) {
+            indexingPage.removeClassIndexEntries(domNode_);
+        }
+
+        final DomAttr old;
+        final int index = indexOf(name);
+        if (index > -1) {
+            old = attributeAt(index);
+            values_[index] = value;
+        }
+        else {
+            if (size_ == names_.length) {
+                final int capacity = size_ + (size_ >> 1) + 1;
+                names_ = Arrays.copyOf(names_, capacity);
+                values_ = Arrays.copyOf(values_, capacity);
+            }
+            names_[size_] = DomNamespaceNode.canonicalName(name);
+            values_[size_] = value;
+            size_++;
+            old = null;
+        }
+        attributeChanged(indexingPage);
+        return old;
     }
 
     /**
@@ -1713,19 +1930,51 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
     public DomAttr remove(final Object key) {
         if (key instanceof String) {
             final String name = fixName((String) key);
-            dirty_ = true;
-            return map_.remove(name);
+            final int index = indexOf(name);
+            if (index > -1) {
+                final HtmlPage indexingPage = getClassIndexingPage(name);
+                if (indexingPage != null) {
+                    indexingPage.removeClassIndexEntries(domNode_);
+                }
+                final DomAttr old = removeAt(index);
+                attributeChanged(indexingPage);
+                return old;
+            }
         }
         return null;
     }
 
+    /**
+     * Every change of the attributes (no matter if done by the element, the JavaScript
+     * {@code NamedNodeMap} or anyone else) has to update the class name index of the page
+     * and the attribute modification count.
+     * @param name the (fixed) name of the attribute that will be changed
+     * @return the page whose index has to be updated or {@code null}
+     */
+    private HtmlPage getClassIndexingPage(final String name) {
+        if (domNode_ == null) {
+            return null;
+        }
+        return domNode_.getClassIndexingPage(name);
+    }
+
+    private void attributeChanged(final HtmlPage indexingPage) {
+        if (domNode_ != null) {
+            domNode_.increaseAttributeModCount();
+        }
+        if (indexingPage != null) {
+            indexingPage.addClassIndexEntries(domNode_);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void clear() {
-        dirty_ = true;
-        map_.clear();
+        names_ = EMPTY_NAMES;
+        values_ = EMPTY_ARRAY;
+        size_ = 0;
     }
 
     /**
@@ -1745,8 +1994,7 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
     @Override
     public boolean containsKey(final Object key) {
         if (key instanceof String) {
-            final String name = fixName((String) key);
-            return map_.containsKey(name);
+            return indexOf(fixName((String) key)) > -1;
         }
         return false;
     }
@@ -1757,26 +2005,25 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
     @Override
     public DomAttr get(final Object key) {
         if (key instanceof String) {
-            final String name = fixName((String) key);
-            return map_.get(name);
+            final int index = indexOf(fixName((String) key));
+            if (index > -1) {
+                return attributeAt(index);
+            }
         }
         return null;
     }
 
-    /**
-     * Fast access.
-     * @param key the key
-     */
-    protected DomAttr getDirect(final String key) {
-        return map_.get(key);
-    }
-
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean containsValue(final Object value) {
-        return map_.containsValue(value);
+        for (int i = 0; i < size_; i++) {
+            if (Objects.equals(values_[i], value)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -1784,7 +2031,22 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public Set<Map.Entry<String, DomAttr>> entrySet() {
-        return map_.entrySet();
+        return new AbstractSet<Map.Entry<String, DomAttr>>() {
+            @Override
+            public Iterator<Map.Entry<String, DomAttr>> iterator() {
+                return new AttributeIterator<Map.Entry<String, DomAttr>>() {
+                    @Override
+                    Map.Entry<String, DomAttr> get(final int index) {
+                        return new AbstractMap.SimpleImmutableEntry<>(names_[index], attributeAt(index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size_;
+            }
+        };
     }
 
     /**
@@ -1792,7 +2054,7 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public boolean isEmpty() {
-        return map_.isEmpty();
+        return size_ == 0;
     }
 
     /**
@@ -1800,7 +2062,22 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public Set<String> keySet() {
-        return map_.keySet();
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new AttributeIterator<String>() {
+                    @Override
+                    String get(final int index) {
+                        return names_[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size_;
+            }
+        };
     }
 
     /**
@@ -1808,7 +2085,7 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public int size() {
-        return map_.size();
+        return size_;
     }
 
     /**
@@ -1816,6 +2093,57 @@ class NamedAttrNodeMapImpl implements Map<String, DomAttr>, NamedNodeMap, Serial
      */
     @Override
     public Collection<DomAttr> values() {
-        return map_.values();
+        return new AbstractCollection<DomAttr>() {
+            @Override
+            public Iterator<DomAttr> iterator() {
+                return new AttributeIterator<DomAttr>() {
+                    @Override
+                    DomAttr get(final int index) {
+                        return attributeAt(index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size_;
+            }
+        };
+    }
+
+    /**
+     * Iterates over the attributes in insertion order; supports removal.
+     * @param <E> the type of the elements returned
+     */
+    private abstract class AttributeIterator<E> implements Iterator<E> {
+        private int next_;
+        private int last_ = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next_ < size_;
+        }
+
+        @Override
+        public E next() {
+            if (next_ >= size_) {
+                throw new NoSuchElementException();
+            }
+            last_ = next_++;
+            return get(last_);
+        }
+
+        @Override
+        public void remove() {
+            if (last_ < 0) {
+                throw new IllegalStateException();
+            }
+            // like remove(Object), this updates the class name index and the modification count
+            NamedAttrNodeMapImpl.this.remove(names_[last_]);
+            next_ = last_;
+            last_ = -1;
+        }
+
+        abstract E get(int index);
     }
 }
@@ -14,7 +14,10 @@
  */
 package com.gargoylesoftware.htmlunit.html;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import com.gargoylesoftware.htmlunit.SgmlPage;
 import com.gargoylesoftware.htmlunit.WebAssert;
@@ -31,6 +34,36 @@ import com.gargoylesoftware.htmlunit.javascript.host.dom.Document;
  */
 public abstract class DomNamespaceNode extends DomNode {
 
+    /** Frequently used attribute names, shared by {@link #CANONICAL_NAMES}. */
+    private static final String[] KNOWN_ATTRIBUTE_NAMES = {"accept", "accesskey", "action", "align", "alt",
+        "async", "autocomplete", "autofocus", "bgcolor", "border", "cellpadding", "cellspacing", "charset",
+        "checked", "class", "color", "cols", "colspan", "content", "contenteditable", "coords", "crossorigin",
+        "data", "datetime", "defer", "dir", "disabled", "download", "draggable", "enctype", "for", "form",
+        "frameborder", "headers", "height", "hidden", "href", "hreflang", "http-equiv", "id", "integrity", "label",
+        "lang", "language", "list", "loading", "max", "maxlength", "media", "method", "min", "minlength", "multiple",
+        "name", "novalidate", "onblur", "onchange", "onclick", "onfocus", "onkeydown", "onkeypress", "onkeyup",
+        "onload", "onmousedown", "onmouseout", "onmouseover", "onmouseup", "onsubmit", "onunload", "pattern",
+        "placeholder", "readonly", "referrerpolicy", "rel", "required", "role", "rows", "rowspan", "sandbox",
+        "scope", "scrolling", "selected", "shape", "size", "sizes", "span", "src", "srcset", "start", "step",
+        "style", "tabindex", "target", "title", "type", "usemap", "valign", "value", "width", "wrap", "xmlns"};
+
+    /**
+     * The shared instances of the known element and attribute names. The map is filled once and never
+     * changes; the names used by a page are controlled by the page, unknown names are not shared.
+     */
+    private static final Map<String, String> CANONICAL_NAMES;
+
+    static {
+        final Map<String, String> names = new HashMap<>();
+        for (final String tagName : DefaultElementFactory.SUPPORTED_TAGS_) {
+            names.put(tagName, tagName);
+        }
+        for (final String attributeName : KNOWN_ATTRIBUTE_NAMES) {
+            names.put(attributeName, attributeName);
+        }
+        CANONICAL_NAMES = Collections.unmodifiableMap(names);
+    }
+
     private String namespaceURI_;
     private String qualifiedName_;
     private final String localName_;
@@ -47,7 +80,8 @@ public abstract class DomNamespaceNode extends DomNode {
     protected DomNamespaceNode(final String namespaceURI, final String qualifiedName, final SgmlPage page) {
         super(page);
         WebAssert.notNull("qualifiedName", qualifiedName);
-        qualifiedName_ = qualifiedName;
+        // pages have many elements and attributes sharing the same few names
+        qualifiedName_ = canonicalName(qualifiedName);
 
         if (qualifiedName.indexOf(':') == -1) {
             namespaceURI_ = namespaceURI;
@@ -57,11 +91,24 @@ public abstract class DomNamespaceNode extends DomNode {
         else {
             namespaceURI_ = namespaceURI;
             final int colonPosition = qualifiedName_.indexOf(':');
-            localName_ = qualifiedName_.substring(colonPosition + 1);
-            prefix_ = qualifiedName_.substring(0, colonPosition);
+            localName_ = canonicalName(qualifiedName_.substring(colonPosition + 1));
+            prefix_ = canonicalName(qualifiedName_.substring(0, colonPosition));
         }
 
-        localNameLC_ = localName_.toLowerCase(Locale.ROOT);
+        localNameLC_ = canonicalName(localName_.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the shared instance of the given element or attribute name if it is a known name.
+     * @param name the name
+     * @return the shared instance of the name or the name itself
+     */
+    static String canonicalName(final String name) {
+        final String canonical = CANONICAL_NAMES.get(name);
+        if (canonical != null) {
+            return canonical;
+        }
+        return name;
     }
 
     /**
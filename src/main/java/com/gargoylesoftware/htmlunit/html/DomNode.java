@@ -16,6 +16,7 @@ package com.gargoylesoftware.htmlunit.html;
 
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.DOM_NORMALIZE_REMOVE_CHILDREN;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.QUERYSELECTORALL_NOT_IN_QUIRKS;
+import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.QUERYSELECTOR_CSS3_PSEUDO_REQUIRE_ATTACHED_NODE;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.XPATH_SELECTION_NAMESPACES;
 
 import java.io.IOException;
@@ -54,9 +55,11 @@ import com.gargoylesoftware.htmlunit.Page;
 import com.gargoylesoftware.htmlunit.SgmlPage;
 import com.gargoylesoftware.htmlunit.WebAssert;
 import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebWindow;
 import com.gargoylesoftware.htmlunit.html.HtmlElement.DisplayStyle;
 import com.gargoylesoftware.htmlunit.html.xpath.XPathHelper;
 import com.gargoylesoftware.htmlunit.javascript.SimpleScriptable;
+import com.gargoylesoftware.htmlunit.javascript.host.Window;
 import com.gargoylesoftware.htmlunit.javascript.host.css.CSSStyleDeclaration;
 import com.gargoylesoftware.htmlunit.javascript.host.css.CSSStyleSheet;
 import com.gargoylesoftware.htmlunit.javascript.host.css.StyleAttributes;
@@ -118,6 +121,10 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
     /** The name of the "element" property. Used when watching property change events. */
     public static final String PROPERTY_ELEMENT = "element";
 
+    private static final byte DISPLAY_STATE_VISIBLE = 1;
+    private static final byte DISPLAY_STATE_HIDDEN = 2;
+    private static final byte DISPLAY_STATE_NONE = 3;
+
     /** The owning page of this node. */
     private SgmlPage page_;
 
@@ -169,6 +176,17 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
 
     private boolean attachedToPage_;
 
+    /**
+     * The effective display state and the {@link Window#getComputedStylesGeneration() generation}
+     * of the computed styles it was determined for.
+     */
+    private byte displayState_;
+    private int displayStateGeneration_;
+
+    /** The modification counters of the subtree rooted at this node. */
+    private int structureModCount_;
+    private int attributeModCount_;
+
     private transient Object listeners_lock_ = new Object();
 
     /** The listeners which are to be notified of characterData change. */
@@ -737,45 +755,73 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         }
 
         final Page page = getPage();
-        final WebClient webClient = page.getEnclosingWindow().getWebClient();
+        final WebWindow webWindow = page.getEnclosingWindow();
+        final WebClient webClient = webWindow.getWebClient();
         if (webClient.getOptions().isCssEnabled() && webClient.isJavaScriptEnabled()) {
-            // display: iterate top to bottom, because if a parent is display:none,
-            // there's nothing that a child can do to override it
-            final List<Node> ancestors = getAncestors();
-            final ArrayList<CSSStyleDeclaration> styles = new ArrayList<>(ancestors.size());
-
-            for (final Node node : ancestors) {
-                if (node instanceof HtmlElement && ((HtmlElement) node).isHidden()) {
-                    return false;
-                }
+            // the state is cached only for nodes of the page the window listens to,
+            // mutations of all other nodes are not tracked
+            final Object window = webWindow.getScriptableObject();
+            if (window instanceof Window && isAttachedToPage() && webWindow.getEnclosedPage() == page) {
+                final int generation = ((Window) window).getComputedStylesGeneration();
+                return getDisplayState(generation, true) == DISPLAY_STATE_VISIBLE;
+            }
+            return getDisplayState(0, false) == DISPLAY_STATE_VISIBLE;
+        }
+        return true;
+    }
 
-                final Object scriptableObject = ((DomNode) node).getScriptableObject();
+    /**
+     * Determines the effective display state of this node top down; the state of the parent
+     * is determined (or taken from the cache) first.
+     * Display 'none' of a parent can't be overridden by a child; the visibility is inherited but can be
+     * overridden by every child.
+     * @param generation the current generation of the computed styles
+     * @param useCache whether to use and update the cached state
+     * @return the display state
+     */
+    private byte getDisplayState(final int generation, final boolean useCache) {
+        if (useCache && displayStateGeneration_ == generation && displayState_ != 0) {
+            return displayState_;
+        }
+
+        byte state = DISPLAY_STATE_VISIBLE;
+        final DomNode parent = getParentNode();
+        if (parent != null) {
+            state = parent.getDisplayState(generation, useCache);
+        }
+
+        if (state != DISPLAY_STATE_NONE) {
+            if (this instanceof HtmlElement && ((HtmlElement) this).isHidden()) {
+                state = DISPLAY_STATE_NONE;
+            }
+            else {
+                final Object scriptableObject = getScriptableObject();
                 if (scriptableObject instanceof HTMLElement) {
                     final HTMLElement elem = (HTMLElement) scriptableObject;
                     final CSSStyleDeclaration style = elem.getWindow().getComputedStyle(elem, null);
                     if (DisplayStyle.NONE.value().equals(style.getDisplay())) {
-                        return false;
+                        state = DISPLAY_STATE_NONE;
                     }
-                    styles.add(style);
-                }
-            }
-
-            // visibility: iterate bottom to top, because children can override
-            // the visibility used by parent nodes
-            for (int i = styles.size() - 1; i >= 0; i--) {
-                final CSSStyleDeclaration style = styles.get(i);
-                final String visibility = style.getStyleAttribute(StyleAttributes.Definition.VISIBILITY);
-                if (visibility.length() > 5) {
-                    if ("visible".equals(visibility)) {
-                        return true;
-                    }
-                    if ("hidden".equals(visibility) || "collapse".equals(visibility)) {
-                        return false;
+                    else {
+                        final String visibility = style.getStyleAttribute(StyleAttributes.Definition.VISIBILITY);
+                        if (visibility.length() > 5) {
+                            if ("visible".equals(visibility)) {
+                                state = DISPLAY_STATE_VISIBLE;
+                            }
+                            else if ("hidden".equals(visibility) || "collapse".equals(visibility)) {
+                                state = DISPLAY_STATE_HIDDEN;
+                            }
+                        }
                     }
                 }
             }
         }
-        return true;
+
+        if (useCache) {
+            displayState_ = state;
+            displayStateGeneration_ = generation;
+        }
+        return state;
     }
 
     /**
@@ -900,6 +946,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         newnode.scriptObject_ = null;
         newnode.firstChild_ = null;
         newnode.attachedToPage_ = false;
+        newnode.displayState_ = 0;
 
         // if deep, clone the children too.
         if (deep) {
@@ -1651,13 +1698,8 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @see #getByXPath(String)
      * @see #getCanonicalXPath()
      */
-    @SuppressWarnings("unchecked")
     public <X> X getFirstByXPath(final String xpathExpr, final PrefixResolver resolver) {
-        final List<?> results = getByXPath(xpathExpr, resolver);
-        if (results.isEmpty()) {
-            return null;
-        }
-        return (X) results.get(0);
+        return XPathHelper.getFirstByXPath(this, xpathExpr, resolver);
     }
 
     /**
@@ -1731,6 +1773,8 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @param event the DomChangeEvent to be propagated
      */
     protected void fireNodeAdded(final DomChangeEvent event) {
+        structureModCount_++;
+
         final List<DomChangeListener> listeners = safeGetDomListeners();
         if (listeners != null) {
             for (final DomChangeListener listener : listeners) {
@@ -1742,6 +1786,38 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         }
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the number of nodes added to or removed from the subtree rooted at this node so far.
+     * Live collections compare this value instead of listening for changes.
+     * @return the structure modification count
+     * @see #getAttributeModCount()
+     */
+    public int getStructureModCount() {
+        return structureModCount_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the number of attribute changes of the elements of the subtree rooted at this node so far.
+     * @return the attribute modification count
+     * @see #getStructureModCount()
+     */
+    public int getAttributeModCount() {
+        return attributeModCount_;
+    }
+
+    /**
+     * Increments the attribute modification count of this node and all its ancestors.
+     */
+    void increaseAttributeModCount() {
+        for (DomNode node = this; node != null; node = node.parent_) {
+            node.attributeModCount_++;
+        }
+    }
+
     /**
      * Adds a {@link CharacterDataChangeListener} to the listener list. The listener is registered for
      * all descendants of this node.
@@ -1807,6 +1883,8 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @param event the DomChangeEvent to be propagated
      */
     protected void fireNodeDeleted(final DomChangeEvent event) {
+        structureModCount_++;
+
         final List<DomChangeListener> listeners = safeGetDomListeners();
         if (listeners != null) {
             for (final DomChangeListener listener : listeners) {
@@ -1849,22 +1927,85 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @return list of all found nodes
      */
     public DomNodeList<DomNode> querySelectorAll(final String selectors) {
+        return new StaticDomNodeList(querySelectorAll(selectors, false));
+    }
+
+    /**
+     * Returns the elements matching the specified group of selectors in document order.
+     * Elements are only tested against the full selectors if the rightmost simple selector
+     * (tag name, id and class) matches; for a single selector with an id, only the elements
+     * with this id are tested.
+     * @param selectors one or more CSS selectors separated by commas
+     * @param firstOnly if true, the search stops at the first match
+     * @return the matching elements
+     */
+    private List<DomNode> querySelectorAll(final String selectors, final boolean firstOnly) {
         try {
             final BrowserVersion browserVersion = getPage().getWebClient().getBrowserVersion();
-            final SelectorList selectorList = getSelectorList(selectors, browserVersion);
+            final SelectorCache.Entry entry = getSelectorCacheEntry(selectors, browserVersion);
 
             final List<DomNode> elements = new ArrayList<>();
-            if (selectorList != null) {
-                for (final DomElement child : getDomElementDescendants()) {
-                    for (final Selector selector : selectorList) {
-                        if (CSSStyleSheet.selects(browserVersion, selector, child, null, true)) {
-                            elements.add(child);
+            if (entry == null) {
+                return elements;
+            }
+
+            final SelectorList selectorList = entry.getSelectorList();
+            final String id = entry.getId();
+            final SgmlPage page = getPage();
+            if (id != null && page instanceof HtmlPage && (page == this || isAttachedToPage())) {
+                final Selector selector = selectorList.get(0);
+                for (final DomElement candidate : ((HtmlPage) page).getElementsById(id)) {
+                    if (candidate != this && isAncestorOf(candidate)
+                            && CSSStyleSheet.selects(browserVersion, selector, candidate, null, true)) {
+                        elements.add(candidate);
+                        if (firstOnly) {
                             break;
                         }
                     }
                 }
+                return elements;
             }
-            return new StaticDomNodeList(elements);
+
+            if (page instanceof HtmlPage && ((HtmlPage) page).isElementIndexed()) {
+                final HtmlPage htmlPage = (HtmlPage) page;
+                List<DomElement> candidates = null;
+                final String className = entry.getKeyClass();
+                if (className != null) {
+                    candidates = htmlPage.getIndexedElementsByClassName(this, className);
+                }
+                final String name = entry.getKeyName();
+                if (candidates == null && name != null && !"*".equals(name)) {
+                    candidates = htmlPage.getIndexedElementsByTagName(this, name);
+                }
+                if (candidates != null) {
+                    final Selector selector = selectorList.get(0);
+                    for (final DomElement candidate : candidates) {
+                        if (entry.mayMatch(0, candidate)
+                                && CSSStyleSheet.selects(browserVersion, selector, candidate, null, true)) {
+                            elements.add(candidate);
+                            if (firstOnly) {
+                                break;
+                            }
+                        }
+                    }
+                    return elements;
+                }
+            }
+
+            final int size = selectorList.size();
+            for (final DomElement child : getDomElementDescendants()) {
+                for (int i = 0; i < size; i++) {
+                    if (entry.mayMatch(i, child)
+                            && CSSStyleSheet.selects(browserVersion, selectorList.get(i), child, null, true)) {
+                        elements.add(child);
+                        break;
+                    }
+                }
+                if (firstOnly && !elements.isEmpty()) {
+                    break;
+                }
+            }
+            return elements;
         }
         catch (final IOException e) {
             throw new CSSException("Error parsing CSS selectors from '" + selectors + "': " + e.getMessage());
@@ -1880,6 +2021,39 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      */
     protected SelectorList getSelectorList(final String selectors, final BrowserVersion browserVersion)
             throws IOException {
+        final SelectorCache.Entry entry = getSelectorCacheEntry(selectors, browserVersion);
+        if (entry == null) {
+            return null;
+        }
+        return entry.getSelectorList();
+    }
+
+    /**
+     * Returns the parsed and validated selectors from the {@link SelectorCache}; the selectors
+     * are parsed and cached if not already done.
+     * @param selectors the selectors
+     * @param browserVersion the {@link BrowserVersion}
+     * @return the cache entry or {@code null} if there are no selectors
+     * @throws IOException if an error occurs
+     */
+    private SelectorCache.Entry getSelectorCacheEntry(final String selectors, final BrowserVersion browserVersion)
+            throws IOException {
+        int documentMode = 9;
+        if (browserVersion.hasFeature(QUERYSELECTORALL_NOT_IN_QUIRKS)) {
+            final Object sobj = getPage().getScriptableObject();
+            if (sobj instanceof HTMLDocument) {
+                documentMode = ((HTMLDocument) sobj).getDocumentMode();
+            }
+        }
+
+        SelectorCache.Entry entry = SelectorCache.get(browserVersion, documentMode, selectors);
+        if (entry != null) {
+            if (entry.isRevalidate()) {
+                CSSStyleSheet.validateSelectors(entry.getSelectorList(), documentMode, this);
+            }
+            return entry;
+        }
+
         final CSSOMParser parser = new CSSOMParser(new CSS3Parser());
         final CheckErrorHandler errorHandler = new CheckErrorHandler();
         parser.setErrorHandler(errorHandler);
@@ -1890,18 +2064,17 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
             throw new CSSException("Invalid selectors: " + selectors);
         }
 
-        if (selectorList != null) {
-            int documentMode = 9;
-            if (browserVersion.hasFeature(QUERYSELECTORALL_NOT_IN_QUIRKS)) {
-                final Object sobj = getPage().getScriptableObject();
-                if (sobj instanceof HTMLDocument) {
-                    documentMode = ((HTMLDocument) sobj).getDocumentMode();
-                }
-            }
-            CSSStyleSheet.validateSelectors(selectorList, documentMode, this);
-
+        if (selectorList == null) {
+            return null;
         }
-        return selectorList;
+        CSSStyleSheet.validateSelectors(selectorList, documentMode, this);
+
+        // the validation of pseudo classes may depend on the node
+        final boolean revalidate = browserVersion.hasFeature(QUERYSELECTOR_CSS3_PSEUDO_REQUIRE_ATTACHED_NODE)
+                && selectors.indexOf(':') != -1;
+        entry = new SelectorCache.Entry(selectorList, revalidate);
+        SelectorCache.put(browserVersion, documentMode, selectors, entry);
+        return entry;
     }
 
     /**
@@ -1912,7 +2085,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      */
     @SuppressWarnings("unchecked")
     public <N extends DomNode> N querySelector(final String selectors) {
-        final DomNodeList<DomNode> list = querySelectorAll(selectors);
+        final List<DomNode> list = querySelectorAll(selectors, true);
         if (!list.isEmpty()) {
             return (N) list.get(0);
         }
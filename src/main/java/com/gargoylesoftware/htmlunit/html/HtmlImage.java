@@ -42,6 +42,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpStatus;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.Cache;
 import com.gargoylesoftware.htmlunit.HttpHeader;
 import com.gargoylesoftware.htmlunit.Page;
 import com.gargoylesoftware.htmlunit.SgmlPage;
@@ -51,6 +52,7 @@ import com.gargoylesoftware.htmlunit.WebResponse;
 import com.gargoylesoftware.htmlunit.javascript.PostponedAction;
 import com.gargoylesoftware.htmlunit.javascript.host.dom.Document;
 import com.gargoylesoftware.htmlunit.javascript.host.event.Event;
+import com.gargoylesoftware.htmlunit.util.ImageSizeProbe;
 import com.gargoylesoftware.htmlunit.util.UrlUtils;
 
 /**
@@ -98,14 +100,7 @@ public class HtmlImage extends HtmlElement {
         super(unifyLocalName(qualifiedName), page, attributes);
         originalQualifiedName_ = qualifiedName;
         if (page.getWebClient().getOptions().isDownloadImages()) {
-            try {
-                downloadImageIfNeeded();
-            }
-            catch (final IOException e) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Unable to download image for element " + this);
-                }
-            }
+            downloadOrPreloadImageIfNeeded();
         }
     }
 
@@ -220,14 +215,7 @@ public class HtmlImage extends HtmlElement {
         }
 
         if (htmlPage.getWebClient().getOptions().isDownloadImages()) {
-            try {
-                downloadImageIfNeeded();
-            }
-            catch (final IOException e) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Unable to download image for element " + this);
-                }
-            }
+            downloadOrPreloadImageIfNeeded();
         }
     }
 
@@ -261,7 +249,6 @@ public class HtmlImage extends HtmlElement {
         final boolean hasEventHandler = hasEventHandlers("onload") || hasEventHandlers("onerror");
         if (((hasEventHandler && client.isJavaScriptEnabled())
                 || client.getOptions().isDownloadImages()) && hasAttribute(SRC_ATTRIBUTE)) {
-            boolean loadSuccessful = false;
             final boolean tryDownload;
             if (hasFeature(HTMLIMAGE_BLANK_SRC_AS_EMPTY)) {
                 tryDownload = !StringUtils.isBlank(getSrcAttribute());
@@ -269,52 +256,66 @@ public class HtmlImage extends HtmlElement {
             else {
                 tryDownload = !getSrcAttribute().isEmpty();
             }
-            if (tryDownload) {
-                // We need to download the image and then call the resulting handler.
-                try {
-                    downloadImageIfNeeded();
-                    final int i = imageWebResponse_.getStatusCode();
-                    // if the download was a success
-                    if ((i >= HttpStatus.SC_OK && i < HttpStatus.SC_MULTIPLE_CHOICES)
-                            || i == HttpStatus.SC_USE_PROXY) {
-                        loadSuccessful = true; // Trigger the onload handler
-                    }
+
+            if (!client.isJavaScriptEnabled() || !hasEventHandler) {
+                if (tryDownload) {
+                    downloadOrPreloadImageIfNeeded();
                 }
-                catch (final IOException e) {
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("IOException while downloading image for '" + this + "' : " + e.getMessage());
-                    }
+                if (!client.isJavaScriptEnabled()) {
+                    onloadProcessed_ = true;
                 }
-            }
-
-            if (!client.isJavaScriptEnabled()) {
-                onloadProcessed_ = true;
-                return;
-            }
-
-            if (!hasEventHandler) {
                 return;
             }
 
             onloadProcessed_ = true;
-            final Event event = new Event(this, loadSuccessful ? Event.TYPE_LOAD : Event.TYPE_ERROR);
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Firing the " + event.getType() + " event for '" + this + "'.");
-            }
-
             if (READY_STATE_LOADING.equals(htmlPage.getReadyState())) {
+                // if the download runs in the background, wait for it when the page is loaded
+                final Event event = tryDownload && preloadImageIfNeeded() ? null : createLoadEvent(tryDownload);
                 final PostponedAction action = new PostponedAction(getPage()) {
                     @Override
                     public void execute() throws Exception {
-                        HtmlImage.this.fireEvent(event);
+                        HtmlImage.this.fireEvent(event == null ? createLoadEvent(true) : event);
                     }
                 };
                 htmlPage.addAfterLoadAction(action);
             }
             else {
-                fireEvent(event);
+                fireEvent(createLoadEvent(tryDownload));
+            }
+        }
+    }
+
+    /**
+     * Downloads the image (if requested) and creates the <tt>load</tt> or <tt>error</tt> event
+     * depending on the result.
+     * @param tryDownload whether to download the image
+     * @return the event
+     */
+    private Event createLoadEvent(final boolean tryDownload) {
+        boolean loadSuccessful = false;
+        if (tryDownload) {
+            // We need to download the image and then call the resulting handler.
+            try {
+                downloadImageIfNeeded();
+                final int i = imageWebResponse_.getStatusCode();
+                // if the download was a success
+                if ((i >= HttpStatus.SC_OK && i < HttpStatus.SC_MULTIPLE_CHOICES)
+                        || i == HttpStatus.SC_USE_PROXY) {
+                    loadSuccessful = true; // Trigger the onload handler
+                }
+            }
+            catch (final IOException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("IOException while downloading image for '" + this + "' : " + e.getMessage());
+                }
             }
         }
+
+        final Event event = new Event(this, loadSuccessful ? Event.TYPE_LOAD : Event.TYPE_ERROR);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Firing the " + event.getType() + " event for '" + this + "'.");
+        }
+        return event;
     }
 
     /**
@@ -493,6 +494,16 @@ public class HtmlImage extends HtmlElement {
     }
 
     private void determineWidthAndHeight() throws IOException {
+        downloadImageIfNeeded();
+        if (imageWebResponse_ != null) {
+            final ImageSizeProbe.ImageInfo info = getImageInfo(imageWebResponse_);
+            if (info != null) {
+                width_ = info.getWidth();
+                height_ = info.getHeight();
+                return;
+            }
+        }
+
         final ImageReader imgReader = getImageReader();
         width_ = imgReader.getWidth(0);
         height_ = imgReader.getHeight(0);
@@ -505,6 +516,32 @@ public class HtmlImage extends HtmlElement {
         }
     }
 
+    /**
+     * Determines the size of the image from the header of the response without decoding the image.
+     * The result is attached to the response in the cache of the client (see
+     * {@link Cache#attach(WebResponse, Object)}); this way the header is read only once per response,
+     * also for responses that are not cacheable, and the cache entry of the response stays untouched.
+     * @param response the response of the image
+     * @return the image info or {@code null} if the format is not supported
+     * @throws IOException if an error occurs while reading the response
+     */
+    private ImageSizeProbe.ImageInfo getImageInfo(final WebResponse response) throws IOException {
+        final Cache cache = getPage().getWebClient().getCache();
+        final Object attached = cache.getAttachment(response);
+        if (attached instanceof ImageSizeProbe.ImageInfo) {
+            return (ImageSizeProbe.ImageInfo) attached;
+        }
+
+        final ImageSizeProbe.ImageInfo info;
+        try (InputStream in = response.getContentAsStream()) {
+            info = ImageSizeProbe.probe(in);
+        }
+        if (info != null) {
+            cache.attach(response, info);
+        }
+        return info;
+    }
+
     /**
      * <p>Returns the <tt>WebResponse</tt> for the image contained by this image element.</p>
      * <p><span style="color:red">POTENTIAL PERFORMANCE KILLER - DOWNLOADS THE IMAGE - USE AT YOUR OWN RISK</span></p>
@@ -532,23 +569,9 @@ public class HtmlImage extends HtmlElement {
      */
     private void downloadImageIfNeeded() throws IOException {
         if (!downloaded_) {
-            // HTMLIMAGE_BLANK_SRC_AS_EMPTY
-            final String src = getSrcAttribute();
-
-            if (!"".equals(src)) {
-                final HtmlPage page = (HtmlPage) getPage();
-                final WebClient webClient = page.getWebClient();
-                final BrowserVersion browser = webClient.getBrowserVersion();
-
-                if (!(browser.hasFeature(HTMLIMAGE_BLANK_SRC_AS_EMPTY)
-                        && StringUtils.isBlank(src))) {
-                    final URL url = page.getFullyQualifiedUrl(src);
-                    final WebRequest request = new WebRequest(url, browser.getImgAcceptHeader(),
-                                                                    browser.getAcceptEncodingHeader());
-                    request.setCharset(page.getCharset());
-                    request.setAdditionalHeader(HttpHeader.REFERER, page.getUrl().toExternalForm());
-                    imageWebResponse_ = webClient.loadWebResponse(request);
-                }
+            final WebRequest request = createImageRequest();
+            if (request != null) {
+                imageWebResponse_ = ((HtmlPage) getPage()).loadSubresource(request);
             }
 
             if (imageData_ != null) {
@@ -564,6 +587,91 @@ public class HtmlImage extends HtmlElement {
         }
     }
 
+    /**
+     * Creates the request for the image.
+     * @return the request or {@code null} if there is nothing to download
+     * @throws MalformedURLException if the src attribute is not a valid url
+     */
+    private WebRequest createImageRequest() throws MalformedURLException {
+        // HTMLIMAGE_BLANK_SRC_AS_EMPTY
+        final String src = getSrcAttribute();
+        if ("".equals(src)) {
+            return null;
+        }
+
+        final HtmlPage page = (HtmlPage) getPage();
+        final BrowserVersion browser = page.getWebClient().getBrowserVersion();
+        if (browser.hasFeature(HTMLIMAGE_BLANK_SRC_AS_EMPTY) && StringUtils.isBlank(src)) {
+            return null;
+        }
+
+        final URL url = page.getFullyQualifiedUrl(src);
+        final WebRequest request = new WebRequest(url, browser.getImgAcceptHeader(),
+                                                        browser.getAcceptEncodingHeader());
+        request.setCharset(page.getCharset());
+        request.setAdditionalHeader(HttpHeader.REFERER, page.getUrl().toExternalForm());
+        return request;
+    }
+
+    /**
+     * Starts the download of the image in the background, if preloading is enabled
+     * (see {@link com.gargoylesoftware.htmlunit.WebClientOptions#setPreloadEnabled(boolean)}).
+     * The response is taken from the preloader by the next {@link #downloadImageIfNeeded()}.
+     * @return {@code true} if the download runs in the background
+     */
+    private boolean preloadImageIfNeeded() {
+        final SgmlPage page = getPage();
+        if (downloaded_ || !(page instanceof HtmlPage) || !page.getWebClient().getOptions().isPreloadEnabled()) {
+            return false;
+        }
+
+        try {
+            final WebRequest request = createImageRequest();
+            if (request == null) {
+                return false;
+            }
+            ((HtmlPage) page).preloadSubresource(request);
+            return true;
+        }
+        catch (final MalformedURLException e) {
+            // downloadImageIfNeeded() reports this
+            return false;
+        }
+    }
+
+    private void downloadOrPreloadImageIfNeeded() {
+        if (preloadImageIfNeeded()) {
+            final HtmlPage htmlPage = (HtmlPage) getPage();
+            if (READY_STATE_LOADING.equals(htmlPage.getReadyState())) {
+                // take the response from the preloader when the page is loaded, this way
+                // the state (e.g. isComplete()) is up to date afterwards
+                htmlPage.addAfterLoadAction(new PostponedAction(htmlPage) {
+                    @Override
+                    public void execute() throws Exception {
+                        try {
+                            downloadImageIfNeeded();
+                        }
+                        catch (final IOException e) {
+                            if (LOG.isDebugEnabled()) {
+                                LOG.debug("Unable to download image for element " + HtmlImage.this);
+                            }
+                        }
+                    }
+                });
+            }
+            return;
+        }
+
+        try {
+            downloadImageIfNeeded();
+        }
+        catch (final IOException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Unable to download image for element " + this);
+            }
+        }
+    }
+
     private void readImageIfNeeded() throws IOException {
         downloadImageIfNeeded();
         if (imageData_ == null) {
@@ -198,7 +198,7 @@ public class HtmlLink extends HtmlElement {
 
         if (downloadIfNeeded) {
             try {
-                final WebResponse response = webclient.loadWebResponse(request);
+                final WebResponse response = ((HtmlPage) getPage()).loadSubresource(request);
                 final int statusCode = response.getStatusCode();
                 final boolean successful = statusCode >= HttpStatus.SC_OK
                                                 && statusCode < HttpStatus.SC_MULTIPLE_CHOICES;
@@ -228,7 +228,16 @@ public class HtmlLink extends HtmlElement {
     public WebRequest getWebRequest() throws MalformedURLException {
         final HtmlPage page = (HtmlPage) getPage();
         final URL url = page.getFullyQualifiedUrl(getHrefAttribute());
+        return createWebRequest(page, url);
+    }
 
+    /**
+     * Creates the request used to retrieve the stylesheet at the specified url.
+     * @param page the page containing the link
+     * @param url the url of the stylesheet
+     * @return the request
+     */
+    static WebRequest createWebRequest(final HtmlPage page, final URL url) {
         final BrowserVersion browser = page.getWebClient().getBrowserVersion();
         final WebRequest request = new WebRequest(url, browser.getCssAcceptHeader(), browser.getAcceptEncodingHeader());
         // use the page encoding even if this is a GET requests
@@ -43,6 +43,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -153,6 +154,9 @@ public class HtmlPage extends SgmlPage {
 
     private static final Comparator<DomElement> documentPositionComparator = new DocumentPositionComparator();
 
+    /** The maximal number of indexed elements checked for a lookup below an element. */
+    private static final int MAX_INDEXED_CANDIDATES = 64;
+
     private HTMLParserDOMBuilder domBuilder_;
     private transient Charset originalCharset_;
     private transient Object lock_ = new Object(); // used for synchronization
@@ -161,6 +165,8 @@ public class HtmlPage extends SgmlPage {
             = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
     private Map<String, SortedSet<DomElement>> nameMap_
             = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
+    private Map<String, IndexEntry> tagNameMap_;
+    private Map<String, IndexEntry> classNameMap_;
 
     private SortedSet<BaseFrameElement> frameElements_ = new TreeSet<>(documentPositionComparator);
     private int parserCount_;
@@ -173,6 +179,7 @@ public class HtmlPage extends SgmlPage {
     private URL baseUrl_;
     private List<AutoCloseable> autoCloseableList_;
     private ElementFromPointHandler elementFromPointHandler_;
+    private transient SubresourcePreloader preloader_;
     private DomElement elementWithFocus_;
     private List<Range> selectionRanges_ = new ArrayList<>(3);
 
@@ -205,6 +212,12 @@ public class HtmlPage extends SgmlPage {
      */
     public HtmlPage(final WebResponse webResponse, final WebWindow webWindow) {
         super(webResponse, webWindow);
+
+        final WebClient webClient = getWebClient();
+        if (webClient != null && webClient.getOptions().isElementIndexes()) {
+            tagNameMap_ = Collections.synchronizedMap(new HashMap<String, IndexEntry>());
+            classNameMap_ = Collections.synchronizedMap(new HashMap<String, IndexEntry>());
+        }
     }
 
     /**
@@ -1024,6 +1037,66 @@ public class HtmlPage extends SgmlPage {
         return JavaScriptLoadResult.SUCCESS;
     }
 
+    /**
+     * Creates the request used to load the external JavaScript file at the specified url.
+     * @param url the URL of the script
+     * @return the request
+     */
+    WebRequest createJavaScriptRequest(final URL url) {
+        final WebRequest referringRequest = getWebResponse().getWebRequest();
+
+        final WebRequest request = new WebRequest(url);
+        // copy all headers from the referring request
+        request.setAdditionalHeaders(new HashMap<>(referringRequest.getAdditionalHeaders()));
+        // at least overwrite this headers
+        request.setAdditionalHeader(HttpHeader.ACCEPT, getWebClient().getBrowserVersion().getScriptAcceptHeader());
+        request.setAdditionalHeader(HttpHeader.REFERER, referringRequest.getUrl().toString());
+        return request;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Starts the speculative preloading of the external scripts and stylesheets referenced
+     * by the specified html source of this page.
+     * @param html the html source
+     * @see com.gargoylesoftware.htmlunit.WebClientOptions#setPreloadEnabled(boolean)
+     */
+    public void preloadSubresources(final String html) {
+        getPreloader().scan(html);
+    }
+
+    /**
+     * Starts the preloading of a single subresource like an image; the response is taken
+     * by the next {@link #loadSubresource(WebRequest)} for the same request.
+     * @param request the request
+     */
+    void preloadSubresource(final WebRequest request) {
+        getPreloader().preload(request);
+    }
+
+    private SubresourcePreloader getPreloader() {
+        if (preloader_ == null) {
+            preloader_ = new SubresourcePreloader(this);
+            addAutoCloseable(preloader_);
+        }
+        return preloader_;
+    }
+
+    /**
+     * Loads the response for an external script, stylesheet or image, preferring the
+     * preloaded response if there is one.
+     * @param request the request
+     * @return the response
+     * @throws IOException if an IO problem occurs
+     */
+    WebResponse loadSubresource(final WebRequest request) throws IOException {
+        if (preloader_ == null) {
+            return getWebClient().loadWebResponse(request);
+        }
+        return preloader_.loadWebResponse(request);
+    }
+
     /**
      * Loads JavaScript from the specified URL. This method may return {@code null} if
      * there is a problem loading the code from the specified URL.
@@ -1039,25 +1112,18 @@ public class HtmlPage extends SgmlPage {
     private Object loadJavaScriptFromUrl(final URL url, final Charset scriptCharset) throws IOException,
         FailingHttpStatusCodeException {
 
-        final WebRequest referringRequest = getWebResponse().getWebRequest();
-
         final WebClient client = getWebClient();
-        final WebRequest request = new WebRequest(url);
-        // copy all headers from the referring request
-        request.setAdditionalHeaders(new HashMap<>(referringRequest.getAdditionalHeaders()));
-        // at least overwrite this headers
-        request.setAdditionalHeader(HttpHeader.ACCEPT, client.getBrowserVersion().getScriptAcceptHeader());
-        request.setAdditionalHeader(HttpHeader.REFERER, referringRequest.getUrl().toString());
+        final WebRequest request = createJavaScriptRequest(url);
 
         // our cache is a bit strange;
         // loadWebResponse check the cache for the web response
         // AND also fixes the request url for the following cache lookups
-        final WebResponse response = client.loadWebResponse(request);
+        final WebResponse response = loadSubresource(request);
 
         // now we can look into the cache with the fixed request for
         // a cached script
         final Cache cache = client.getCache();
-        final Object cachedScript = cache.getCachedObject(request);
+        final Object cachedScript = cache.getCachedObject(request, response);
         if (cachedScript instanceof Script) {
             return cachedScript;
         }
@@ -1750,6 +1816,9 @@ public class HtmlPage extends SgmlPage {
     void notifyNodeAdded(final DomNode node) {
         if (node instanceof DomElement) {
             addMappedElement((DomElement) node, true);
+            if (tagNameMap_ != null) {
+                addIndexedElement((DomElement) node);
+            }
 
             if (node instanceof BaseFrameElement) {
                 frameElements_.add((BaseFrameElement) node);
@@ -1773,6 +1842,10 @@ public class HtmlPage extends SgmlPage {
      * @param node the node that has just been removed from the tree
      */
     void notifyNodeRemoved(final DomNode node) {
+        if (tagNameMap_ != null && node instanceof DomElement) {
+            removeIndexedElement((DomElement) node);
+        }
+
         if (node instanceof HtmlElement) {
             removeMappedElement((HtmlElement) node, true, true);
 
@@ -1898,6 +1971,232 @@ public class HtmlPage extends SgmlPage {
         }
     }
 
+    /**
+     * Adds the element and its descendants to the tag name and class name indexes.
+     * @param element the element
+     */
+    private void addIndexedElement(final DomElement element) {
+        addIndexEntry(tagNameMap_, element.getLowercaseName(), element);
+        addClassIndexEntries(element);
+        for (final DomElement child : element.getChildElements()) {
+            addIndexedElement(child);
+        }
+    }
+
+    /**
+     * Removes the element and its descendants from the tag name and class name indexes.
+     * @param element the element
+     */
+    private void removeIndexedElement(final DomElement element) {
+        removeIndexEntry(tagNameMap_, element.getLowercaseName(), element);
+        removeClassIndexEntries(element);
+        for (final DomElement child : element.getChildElements()) {
+            removeIndexedElement(child);
+        }
+    }
+
+    /**
+     * Adds the element to the class name index for every class name of its class attribute;
+     * has to be called after the class attribute of an element attached to this page was changed.
+     * @param element the element
+     */
+    void addClassIndexEntries(final DomElement element) {
+        if (classNameMap_ != null) {
+            for (final String className : StringUtils.split(element.getAttributeDirect("class"))) {
+                addIndexEntry(classNameMap_, className, element);
+            }
+        }
+    }
+
+    /**
+     * Removes the element from the class name index for every class name of its class attribute;
+     * has to be called before the class attribute of an element attached to this page is changed.
+     * @param element the element
+     */
+    void removeClassIndexEntries(final DomElement element) {
+        if (classNameMap_ != null) {
+            for (final String className : StringUtils.split(element.getAttributeDirect("class"))) {
+                removeIndexEntry(classNameMap_, className, element);
+            }
+        }
+    }
+
+    private static void addIndexEntry(final Map<String, IndexEntry> map, final String key,
+            final DomElement element) {
+        synchronized (map) {
+            IndexEntry entry = map.get(key);
+            if (entry == null) {
+                entry = new IndexEntry();
+                map.put(key, entry);
+            }
+            entry.add(element);
+        }
+    }
+
+    private static void removeIndexEntry(final Map<String, IndexEntry> map, final String key,
+            final DomElement element) {
+        synchronized (map) {
+            final IndexEntry entry = map.get(key);
+            if (entry != null && entry.remove(element)) {
+                map.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The elements of one key of the tag name or class name index. The elements are kept in insertion
+     * order (adding and removing doesn't compare document positions) and are sorted in document order
+     * when requested. Most elements are added by the parser in document order, sorting that almost
+     * sorted list only needs a few comparisons. The sorted list is kept until the next change.
+     */
+    private static final class IndexEntry implements Serializable {
+        private final Set<DomElement> elements_ = new LinkedHashSet<>();
+        private transient List<DomElement> sorted_;
+
+        void add(final DomElement element) {
+            if (elements_.add(element)) {
+                sorted_ = null;
+            }
+        }
+
+        /**
+         * @param element the element to remove
+         * @return whether this entry is empty now
+         */
+        boolean remove(final DomElement element) {
+            if (elements_.remove(element)) {
+                sorted_ = null;
+            }
+            return elements_.isEmpty();
+        }
+
+        int size() {
+            return elements_.size();
+        }
+
+        List<DomElement> getSorted() {
+            if (sorted_ == null) {
+                final List<DomElement> sorted = new ArrayList<>(elements_);
+                sorted.sort(documentPositionComparator);
+                sorted_ = sorted;
+            }
+            return sorted_;
+        }
+    }
+
+    /**
+     * Returns whether this page maintains the tag name and class name indexes.
+     * @return whether this page maintains the element indexes
+     * @see com.gargoylesoftware.htmlunit.WebClientOptions#setElementIndexes(boolean)
+     */
+    public boolean isElementIndexed() {
+        return tagNameMap_ != null;
+    }
+
+    /**
+     * Returns the number of entries of the tag name and class name indexes; every entry
+     * refers to one element. Returns 0 if this page doesn't maintain the indexes.
+     * @return the number of entries of the element indexes
+     * @see com.gargoylesoftware.htmlunit.WebClientOptions#setElementIndexes(boolean)
+     */
+    public int getElementIndexEntryCount() {
+        if (tagNameMap_ == null) {
+            return 0;
+        }
+        return getEntryCount(tagNameMap_) + getEntryCount(classNameMap_);
+    }
+
+    private static int getEntryCount(final Map<String, IndexEntry> map) {
+        int count = 0;
+        synchronized (map) {
+            for (final IndexEntry entry : map.values()) {
+                count += entry.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the descendants of the given node whose local name is the given one, ignoring the case,
+     * in document order. The result may contain more elements (e.g. elements with a namespace prefix),
+     * the caller still has to check every element.
+     * @param root the node whose descendants are requested
+     * @param localName the local name
+     * @return the candidates or {@code null} if the index can't be used for this node
+     */
+    public List<DomElement> getIndexedElementsByTagName(final DomNode root, final String localName) {
+        if (localName.indexOf(':') != -1) {
+            return null;
+        }
+        return getIndexedElements(tagNameMap_, root, localName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the descendants of the given node having the given class name, in document order.
+     * @param root the node whose descendants are requested
+     * @param className the class name
+     * @return the candidates or {@code null} if the index can't be used for this node
+     */
+    public List<DomElement> getIndexedElementsByClassName(final DomNode root, final String className) {
+        return getIndexedElements(classNameMap_, root, className);
+    }
+
+    private List<DomElement> getIndexedElements(final Map<String, IndexEntry> map,
+            final DomNode root, final String key) {
+        if (map == null || key.isEmpty() || root.getPage() != this || (root != this && !root.isAttachedToPage())) {
+            return null;
+        }
+
+        synchronized (map) {
+            final IndexEntry entry = map.get(key);
+            if (entry == null) {
+                return Collections.emptyList();
+            }
+
+            // walking a small subtree is cheaper than checking the ancestors of many elements
+            if (root != this && root != getDocumentElement() && entry.size() > MAX_INDEXED_CANDIDATES) {
+                return null;
+            }
+
+            final List<DomElement> elements = entry.getSorted();
+            if (root == this || root == getDocumentElement()) {
+                final List<DomElement> result = new ArrayList<>(elements.size());
+                for (final DomElement element : elements) {
+                    if (element != root) {
+                        result.add(element);
+                    }
+                }
+                return result;
+            }
+
+            final List<DomElement> result = new ArrayList<>();
+            for (final DomElement element : elements) {
+                if (element != root && root.isAncestorOf(element)) {
+                    result.add(element);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Iterable<DomElement> getElementsByTagNameCandidates(final String tagName) {
+        if (!"*".equals(tagName)) {
+            final List<DomElement> candidates = getIndexedElementsByTagName(this, tagName);
+            if (candidates != null) {
+                return candidates;
+            }
+        }
+        return super.getElementsByTagNameCandidates(tagName);
+    }
+
     /**
      * Indicates if the attribute name indicates that the owning element is mapped.
      * @param document the owning document
@@ -1992,6 +2291,10 @@ public class HtmlPage extends SgmlPage {
 
         result.idMap_ = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
         result.nameMap_ = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
+        if (tagNameMap_ != null) {
+            result.tagNameMap_ = Collections.synchronizedMap(new HashMap<String, IndexEntry>());
+            result.classNameMap_ = Collections.synchronizedMap(new HashMap<String, IndexEntry>());
+        }
 
         return result;
     }
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.gargoylesoftware.htmlunit.SgmlPage;
+
+/**
+ * The attributes of an element created by the parser, in source order. Attributes without a
+ * namespace are kept as plain values; the {@link DomAttr} is only created if the attribute is
+ * requested from this map. {@link NamedAttrNodeMapImpl} takes over the plain values, most
+ * attributes of a page are never accessed as nodes.
+ *
+ * @see DefaultElementFactory#toMap(SgmlPage, org.xml.sax.Attributes)
+ */
+class ParsedAttributeMap extends AbstractMap<String, DomAttr> {
+
+    private final SgmlPage page_;
+    private String[] names_;
+    /** A {@link DomAttr} or the value of an attribute without namespace. */
+    private Object[] values_;
+    private int size_;
+
+    ParsedAttributeMap(final SgmlPage page, final int capacity) {
+        page_ = page;
+        names_ = new String[capacity];
+        values_ = new Object[capacity];
+    }
+
+    /**
+     * Adds an attribute read by the parser.
+     * @param namespaceURI the namespace, may be {@code null}
+     * @param qualifiedName the qualified name
+     * @param value the value
+     */
+    void add(final String namespaceURI, final String qualifiedName, final String value) {
+        if (namespaceURI != null || value == null || qualifiedName.indexOf(':') != -1) {
+            append(qualifiedName, new DomAttr(page_, namespaceURI, qualifiedName, value, true));
+        }
+        else {
+            append(qualifiedName, value.isEmpty() ? DomElement.ATTRIBUTE_VALUE_EMPTY : value);
+        }
+    }
+
+    private void append(final String name, final Object value) {
+        if (size_ == names_.length) {
+            final int capacity = size_ + (size_ >> 1) + 1;
+            names_ = Arrays.copyOf(names_, capacity);
+            values_ = Arrays.copyOf(values_, capacity);
+        }
+        names_[size_] = name;
+        values_[size_] = value;
+        size_++;
+    }
+
+    private int indexOf(final Object name) {
+        for (int i = 0; i < size_; i++) {
+            if (names_[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param index the index
+     * @return the name of the attribute at the given index
+     */
+    String getName(final int index) {
+        return names_[index];
+    }
+
+    /**
+     * @param index the index
+     * @return the {@link DomAttr} or the value of the attribute at the given index, without creating the node
+     */
+    Object getRaw(final int index) {
+        return values_[index];
+    }
+
+    private DomAttr attributeAt(final int index) {
+        final Object value = values_[index];
+        if (value instanceof DomAttr) {
+            return (DomAttr) value;
+        }
+        final DomAttr attr = new DomAttr(page_, null, names_[index], (String) value, true);
+        values_[index] = attr;
+        return attr;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size_;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) > -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DomAttr get(final Object key) {
+        final int index = indexOf(key);
+        if (index > -1) {
+            return attributeAt(index);
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DomAttr put(final String key, final DomAttr value) {
+        final int index = indexOf(key);
+        if (index > -1) {
+            final DomAttr old = attributeAt(index);
+            values_[index] = value;
+            return old;
+        }
+        append(key, value);
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DomAttr remove(final Object key) {
+        final int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        final DomAttr old = attributeAt(index);
+        final int moved = size_ - index - 1;
+        if (moved > 0) {
+            System.arraycopy(names_, index + 1, names_, index, moved);
+            System.arraycopy(values_, index + 1, values_, index, moved);
+        }
+        size_--;
+        names_[size_] = null;
+        values_[size_] = null;
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The nodes are created when the values of the entries are requested.
+     */
+    @Override
+    public Set<Map.Entry<String, DomAttr>> entrySet() {
+        return new AbstractSet<Map.Entry<String, DomAttr>>() {
+            @Override
+            public Iterator<Map.Entry<String, DomAttr>> iterator() {
+                return new Iterator<Map.Entry<String, DomAttr>>() {
+                    private int next_;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next_ < size_;
+                    }
+
+                    @Override
+                    public Map.Entry<String, DomAttr> next() {
+                        if (next_ >= size_) {
+                            throw new NoSuchElementException();
+                        }
+                        final int index = next_++;
+                        return new Map.Entry<String, DomAttr>() {
+                            @Override
+                            public String getKey() {
+                                return names_[index];
+                            }
+
+                            @Override
+                            public DomAttr getValue() {
+                                return attributeAt(index);
+                            }
+
+                            @Override
+                            public DomAttr setValue(final DomAttr value) {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size_;
+            }
+        };
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gargoylesoftware.css.parser.condition.Condition;
+import com.gargoylesoftware.css.parser.selector.ChildSelector;
+import com.gargoylesoftware.css.parser.selector.DescendantSelector;
+import com.gargoylesoftware.css.parser.selector.DirectAdjacentSelector;
+import com.gargoylesoftware.css.parser.selector.ElementSelector;
+import com.gargoylesoftware.css.parser.selector.GeneralAdjacentSelector;
+import com.gargoylesoftware.css.parser.selector.Selector;
+import com.gargoylesoftware.css.parser.selector.SelectorList;
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+
+/**
+ * A bounded cache of the parsed and validated selectors used by
+ * {@link DomNode#querySelectorAll(String)}, {@link DomNode#querySelector(String)}
+ * and {@link DomElement#matches(String)}, keyed by the selector string, the document mode
+ * and the browser version. The cache is shared by all pages.
+ */
+final class SelectorCache {
+
+    private static final int MAX_SIZE = 500;
+
+    private static final Map<Key, Entry> ENTRIES_ = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private SelectorCache() {
+    }
+
+    /**
+     * Returns the cached entry or {@code null}.
+     * @param browserVersion the browser version
+     * @param documentMode the document mode
+     * @param selectors the selector string
+     * @return the cached entry or {@code null}
+     */
+    static Entry get(final BrowserVersion browserVersion, final int documentMode, final String selectors) {
+        synchronized (ENTRIES_) {
+            return ENTRIES_.get(new Key(browserVersion, documentMode, selectors));
+        }
+    }
+
+    /**
+     * Caches the parsed and validated selectors.
+     * @param browserVersion the browser version
+     * @param documentMode the document mode
+     * @param selectors the selector string
+     * @param entry the entry
+     */
+    static void put(final BrowserVersion browserVersion, final int documentMode, final String selectors,
+            final Entry entry) {
+        synchronized (ENTRIES_) {
+            ENTRIES_.put(new Key(browserVersion, documentMode, selectors), entry);
+        }
+    }
+
+    /**
+     * The cache key.
+     */
+    private static final class Key {
+        private final BrowserVersion browserVersion_;
+        private final int documentMode_;
+        private final String selectors_;
+        private final int hash_;
+
+        Key(final BrowserVersion browserVersion, final int documentMode, final String selectors) {
+            browserVersion_ = browserVersion;
+            documentMode_ = documentMode;
+            selectors_ = selectors;
+            hash_ = 31 * selectors.hashCode() + documentMode;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash_;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash_ == other.hash_
+                    && documentMode_ == other.documentMode_
+                    && browserVersion_ == other.browserVersion_
+                    && selectors_.equals(other.selectors_);
+        }
+    }
+
+    /**
+     * The parsed selectors together with the simple conditions of the rightmost (key) selectors;
+     * the conditions are used to reject most of the elements before doing the full match.
+     */
+    static final class Entry {
+        private final SelectorList selectorList_;
+        private final boolean revalidate_;
+        private final String[] keyNames_;
+        private final String[] keyIds_;
+        private final String[] keyClasses_;
+
+        /**
+         * Ctor.
+         * @param selectorList the parsed and validated selectors
+         * @param revalidate whether the validation depends on the node the selectors are used for
+         */
+        Entry(final SelectorList selectorList, final boolean revalidate) {
+            selectorList_ = selectorList;
+            revalidate_ = revalidate;
+
+            final int size = selectorList.size();
+            keyNames_ = new String[size];
+            keyIds_ = new String[size];
+            keyClasses_ = new String[size];
+            for (int i = 0; i < size; i++) {
+                final Selector key = getKeySelector(selectorList.get(i));
+                if (key instanceof ElementSelector) {
+                    final ElementSelector es = (ElementSelector) key;
+                    keyNames_[i] = es.getLocalNameLowerCase();
+
+                    final List<Condition> conditions = es.getConditions();
+                    if (conditions != null) {
+                        for (final Condition condition : conditions) {
+                            final String value = condition.getValue();
+                            switch (condition.getConditionType()) {
+                                case ID_CONDITION:
+                                    keyIds_[i] = value;
+                                    break;
+                                case CLASS_CONDITION:
+                                    if (value.indexOf('\\') == -1) {
+                                        keyClasses_[i] = value;
+                                    }
+                                    break;
+                                default:
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private static Selector getKeySelector(final Selector selector) {
+            switch (selector.getSelectorType()) {
+                case CHILD_SELECTOR:
+                    return ((ChildSelector) selector).getSimpleSelector();
+                case DESCENDANT_SELECTOR:
+                    return ((DescendantSelector) selector).getSimpleSelector();
+                case DIRECT_ADJACENT_SELECTOR:
+                    return ((DirectAdjacentSelector) selector).getSimpleSelector();
+                case GENERAL_ADJACENT_SELECTOR:
+                    return ((GeneralAdjacentSelector) selector).getSimpleSelector();
+                default:
+                    return selector;
+            }
+        }
+
+        /**
+         * @return the parsed and validated selectors
+         */
+        SelectorList getSelectorList() {
+            return selectorList_;
+        }
+
+        /**
+         * @return whether the selectors have to be validated again for every node
+         */
+        boolean isRevalidate() {
+            return revalidate_;
+        }
+
+        /**
+         * Returns the id all matching elements have, if there is only one selector whose
+         * key selector has an id condition.
+         * @return the id or {@code null}
+         */
+        String getId() {
+            if (keyIds_.length == 1) {
+                return keyIds_[0];
+            }
+            return null;
+        }
+
+        /**
+         * Returns the class all matching elements have, if there is only one selector whose
+         * key selector has a class condition.
+         * @return the class name or {@code null}
+         */
+        String getKeyClass() {
+            if (keyClasses_.length == 1) {
+                return keyClasses_[0];
+            }
+            return null;
+        }
+
+        /**
+         * Returns the lower case local name all matching elements have, if there is only one selector whose
+         * key selector has an element name.
+         * @return the lower case local name or {@code null}
+         */
+        String getKeyName() {
+            if (keyNames_.length == 1) {
+                return keyNames_[0];
+            }
+            return null;
+        }
+
+        /**
+         * Checks the conditions of the key selector; returns {@code false} if the
+         * selector at the given index can't match the element.
+         * @param index the index of the selector
+         * @param element the element
+         * @return {@code false} if the selector can't match
+         */
+        boolean mayMatch(final int index, final DomElement element) {
+            final String name = keyNames_[index];
+            if (name != null && !name.equals(element.getLowercaseName())) {
+                return false;
+            }
+            final String id = keyIds_[index];
+            if (id != null && !id.equals(element.getId())) {
+                return false;
+            }
+            final String className = keyClasses_[index];
+            if (className != null && element.getAttributeDirect("class").indexOf(className) == -1) {
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.text.StringEscapeUtils;
+
+import com.gargoylesoftware.htmlunit.HttpHeader;
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.util.Cookie;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * Speculative preloader for the external scripts and stylesheets of a page.
+ *
+ * <p>Before the parser starts, the html source is scanned for <code>&lt;script src&gt;</code> and
+ * <code>&lt;link rel="stylesheet"&gt;</code> elements (skipping comments and the content of elements like
+ * <code>&lt;script&gt;</code> or <code>&lt;style&gt;</code> that is not markup) and the requests for them are
+ * started in parallel using the {@link WebClient#getExecutor() executor} of the client. When the parser
+ * reaches one of these elements, the response is taken from here instead of doing the request again. If there
+ * is no preloaded response (or the request differs from the preloaded one) or the preload failed, the
+ * response is loaded as usual; this way errors are reported exactly as without preloading. The same is done
+ * if the preload has not been started so far (the parser never waits for a request queued behind other work)
+ * or if the cookies for the url have changed since the preloaded request was sent.</p>
+ *
+ * <p>Images are preloaded the same way as soon as the image element is created, if
+ * images are downloaded at all (see
+ * {@link com.gargoylesoftware.htmlunit.WebClientOptions#setDownloadImages(boolean)}).</p>
+ *
+ * @see com.gargoylesoftware.htmlunit.WebClientOptions#setPreloadEnabled(boolean)
+ */
+public final class SubresourcePreloader implements AutoCloseable {
+
+    private static final Log LOG = LogFactory.getLog(SubresourcePreloader.class);
+
+    // comments, cdata sections, doctype and processing instructions or a start tag with its attributes
+    private static final Pattern TOKEN_PATTERN = Pattern.compile(
+            "<!--.*?(?:-->|\\z)|<!\\[CDATA\\[.*?(?:]]>|\\z)|<[!?][^>]*>"
+            + "|<([a-zA-Z][^\\s/>]*)((?:[^>\"']|\"[^\"]*\"|'[^']*')*)>",
+            Pattern.DOTALL);
+    private static final Pattern ATTRIBUTE_PATTERN =
+            Pattern.compile("([^\\s=/]+)\\s*=\\s*(\"[^\"]*\"|'[^']*'|[^\\s\"'>]+)");
+
+    private final HtmlPage page_;
+    private final Map<String, Preload> preloads_ = new ConcurrentHashMap<>();
+
+    /**
+     * A request running (or done) in the background.
+     */
+    private static final class Preload {
+        private final WebRequest request_;
+        private final Map<String, String> headers_;
+        private final FutureTask<WebResponse> future_;
+        private final AtomicBoolean started_ = new AtomicBoolean();
+        private volatile boolean discarded_;
+        // the cookies sent with the request and, if the response sets cookies, the ones present afterwards
+        private volatile String sentCookies_;
+        private volatile String receivedCookies_;
+
+        Preload(final WebClient client, final WebRequest request) {
+            request_ = request;
+            // snapshot, the request is modified while loading
+            headers_ = new HashMap<>(request.getAdditionalHeaders());
+            future_ = new FutureTask<>(() -> {
+                if (!started_.compareAndSet(false, true)) {
+                    // taken over by the parser
+                    return null;
+                }
+                sentCookies_ = getCookieString(client, request_.getUrl());
+                final WebResponse response = client.loadWebResponse(request_);
+                if (response.getResponseHeaderValue(HttpHeader.SET_COOKIE) != null) {
+                    receivedCookies_ = getCookieString(client, request_.getUrl());
+                }
+                if (discarded_) {
+                    discard(client, response);
+                }
+                return response;
+            });
+        }
+
+        boolean matches(final WebRequest request) {
+            return request.getHttpMethod() == HttpMethod.GET
+                    && request.getRequestParameters().isEmpty()
+                    && Objects.equals(request.getCharset(), request_.getCharset())
+                    && headers_.equals(request.getAdditionalHeaders());
+        }
+
+        /**
+         * Cancels the preload if the request was not started so far (e.g. because the
+         * executor is busy with other work).
+         * @return {@code true} if the request was not started and will never be
+         */
+        boolean cancelIfNotStarted() {
+            if (started_.compareAndSet(false, true)) {
+                future_.cancel(false);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns whether the cookies for the url are still the ones the request was sent with;
+         * otherwise the cookies were changed (e.g. by a script) after the preload was started.
+         * @param client the client
+         * @return {@code true} if the same cookies would be sent now
+         */
+        boolean isCookiesUnchanged(final WebClient client) {
+            final String cookies = getCookieString(client, request_.getUrl());
+            return cookies.equals(sentCookies_) || cookies.equals(receivedCookies_);
+        }
+
+        void discard(final WebClient client) {
+            discarded_ = true;
+            if (future_.cancel(false) || !future_.isDone()) {
+                return;
+            }
+            try {
+                discard(client, future_.get());
+            }
+            catch (final ExecutionException | CancellationException e) {
+                // nothing to clean up
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void discard(final WebClient client, final WebResponse response) {
+            // responses stored in the cache are still in use
+            if (response != null && client.getCache().getCachedResponse(request_) != response) {
+                response.cleanUp();
+            }
+        }
+    }
+
+    /**
+     * Ctor.
+     * @param page the page to preload the resources for
+     */
+    public SubresourcePreloader(final HtmlPage page) {
+        page_ = page;
+    }
+
+    /**
+     * Scans the given html source and starts the requests for all external scripts
+     * and stylesheets found.
+     * @param html the html source of the page
+     */
+    public void scan(final String html) {
+        final WebClient client = page_.getWebClient();
+        final boolean javaScriptEnabled = client.isJavaScriptEnabled();
+        final boolean cssEnabled = client.getOptions().isCssEnabled() && client.isJavaScriptEngineEnabled();
+        if (StringUtils.isEmpty(html) || !javaScriptEnabled && !cssEnabled) {
+            return;
+        }
+
+        URL baseUrl = page_.getUrl();
+        boolean baseSeen = false;
+        final Matcher matcher = TOKEN_PATTERN.matcher(html);
+        int position = 0;
+        while (position < html.length() && matcher.find(position)) {
+            position = matcher.end();
+            final String tagName = matcher.group(1);
+            if (tagName == null) {
+                // comment, cdata section, doctype or processing instruction
+                continue;
+            }
+
+            final String name = tagName.toLowerCase(Locale.ROOT);
+            final Map<String, String> attributes = parseAttributes(matcher.group(2));
+            try {
+                switch (name) {
+                    case "base":
+                        final String href = attributes.get("href");
+                        if (!baseSeen && href != null) {
+                            baseSeen = true;
+                            baseUrl = WebClient.expandUrl(baseUrl, href);
+                        }
+                        break;
+
+                    case "script":
+                        final String src = attributes.get("src");
+                        if (javaScriptEnabled && StringUtils.isNotBlank(src)) {
+                            preload(page_.createJavaScriptRequest(WebClient.expandUrl(baseUrl, src)));
+                        }
+                        break;
+
+                    case "link":
+                        final String rel = attributes.get("rel");
+                        final String linkHref = attributes.get("href");
+                        if (cssEnabled && StringUtils.isNotBlank(linkHref) && isStyleSheet(rel)) {
+                            preload(HtmlLink.createWebRequest(page_, WebClient.expandUrl(baseUrl, linkHref)));
+                        }
+                        break;
+
+                    default:
+                }
+            }
+            catch (final MalformedURLException e) {
+                // the parser will report this
+            }
+
+            // the content of these elements is not markup, e.g. '<script src=...>' inside a string
+            if (isRawText(name, javaScriptEnabled)) {
+                position = skipRawText(html, position, name);
+            }
+        }
+    }
+
+    private static boolean isRawText(final String name, final boolean javaScriptEnabled) {
+        switch (name) {
+            case "script":
+            case "style":
+            case "textarea":
+            case "title":
+            case "xmp":
+            case "iframe":
+            case "noembed":
+            case "noframes":
+                return true;
+
+            case "noscript":
+                return javaScriptEnabled;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the position of the end tag of the given element, or the end of the source.
+     */
+    private static int skipRawText(final String html, final int start, final String name) {
+        final int length = html.length();
+        int position = html.indexOf("</", start);
+        while (position != -1) {
+            final int end = position + 2 + name.length();
+            if (end <= length && html.regionMatches(true, position + 2, name, 0, name.length())
+                    && (end == length || !Character.isLetterOrDigit(html.charAt(end)))) {
+                return position;
+            }
+            position = html.indexOf("</", position + 2);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the preloaded response for the given request, or loads it as usual if there
+     * is no (usable) preloaded response.
+     * @param request the request
+     * @return the response
+     * @throws IOException if an IO problem occurs
+     */
+    public WebResponse loadWebResponse(final WebRequest request) throws IOException {
+        final WebClient client = page_.getWebClient();
+        final Preload preload = preloads_.remove(request.getUrl().toExternalForm());
+        if (preload != null && preload.matches(request) && !preload.cancelIfNotStarted()) {
+            try {
+                // the request is already running, waiting for it is not slower than loading again
+                final WebResponse response = preload.future_.get();
+                if (preload.isCookiesUnchanged(client)) {
+                    // loadWebResponse fixes the url for the following cache lookups
+                    request.setUrl(preload.request_.getUrl());
+                    return response;
+                }
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Cookies changed while preloading '" + request.getUrl() + "', loading again");
+                }
+                preload.discard(client);
+            }
+            catch (final ExecutionException | CancellationException e) {
+                // load again; this reports the problem as usual
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Preloading '" + request.getUrl() + "' failed", e);
+                }
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else if (preload != null) {
+            preload.discard(client);
+        }
+        return client.loadWebResponse(request);
+    }
+
+    /**
+     * Returns the number of preloaded responses not consumed so far.
+     * @return the number of pending preloads
+     */
+    public int getPendingCount() {
+        return preloads_.size();
+    }
+
+    /**
+     * Discards all preloaded responses not consumed so far.
+     */
+    @Override
+    public void close() {
+        final WebClient client = page_.getWebClient();
+        for (final String url : preloads_.keySet()) {
+            final Preload preload = preloads_.remove(url);
+            if (preload != null) {
+                preload.discard(client);
+            }
+        }
+    }
+
+    /**
+     * Starts the request in the background; only http and https requests are preloaded.
+     * @param request the request
+     */
+    public void preload(final WebRequest request) {
+        final String protocol = request.getUrl().getProtocol();
+        if (!"http".equals(protocol) && !"https".equals(protocol)) {
+            return;
+        }
+
+        final WebClient client = page_.getWebClient();
+        final Preload preload = new Preload(client, request);
+        if (preloads_.putIfAbsent(request.getUrl().toExternalForm(), preload) == null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Preloading '" + request.getUrl() + "'");
+            }
+            client.getExecutor().execute(preload.future_);
+        }
+    }
+
+    private static String getCookieString(final WebClient client, final URL url) {
+        final StringBuilder builder = new StringBuilder();
+        for (final Cookie cookie : client.getCookies(url)) {
+            builder.append(cookie.getName()).append('=').append(cookie.getValue()).append("; ");
+        }
+        return builder.toString();
+    }
+
+    private static boolean isStyleSheet(final String rel) {
+        // same as StyleSheetList.isStyleSheetLink(DomNode)
+        return rel != null && "stylesheet".equalsIgnoreCase(rel.trim());
+    }
+
+    private static Map<String, String> parseAttributes(final String text) {
+        final Map<String, String> attributes = new HashMap<>();
+        final Matcher matcher = ATTRIBUTE_PATTERN.matcher(text);
+        while (matcher.find()) {
+            final String name = matcher.group(1).toLowerCase(Locale.ROOT);
+            String value = matcher.group(2);
+            if (value.charAt(0) == '"' || value.charAt(0) == '\'') {
+                value = value.substring(1, value.length() - 1);
+            }
+            attributes.putIfAbsent(name, StringEscapeUtils.unescapeHtml4(value).trim());
+        }
+        return attributes;
+    }
+}
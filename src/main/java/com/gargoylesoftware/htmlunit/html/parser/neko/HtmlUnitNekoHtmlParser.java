@@ -177,6 +177,7 @@ public final class HtmlUnitNekoHtmlParser implements HTMLParser {
         final HtmlUnitNekoDOMBuilder domBuilder = new HtmlUnitNekoDOMBuilder(this, page, url, null);
 
         Charset charset = webResponse.getContentCharsetOrNull();
+        final boolean charsetKnown = charset != null;
         try {
             if (charset == null) {
                 charset = StandardCharsets.ISO_8859_1;
@@ -196,12 +197,25 @@ public final class HtmlUnitNekoHtmlParser implements HTMLParser {
             throw new ObjectInstantiationException("Error setting HTML parser feature", e);
         }
 
-        try (InputStream content = webResponse.getContentAsStream()) {
-            String encoding = null;
-            if (charset != null) {
-                encoding = charset.name();
+        // the preloader and the parser share the decoded source; if the charset is not known
+        // the parser has to see the bytes to switch to the charset of the meta tag
+        String source = null;
+        if (page.getWebClient().getOptions().isPreloadEnabled()) {
+            source = webResponse.getContentAsString(charset);
+            page.preloadSubresources(source);
+            if (!charsetKnown) {
+                source = null;
+            }
+        }
+
+        try (InputStream content = source == null ? webResponse.getContentAsStream() : null) {
+            final XMLInputSource in;
+            if (source == null) {
+                in = new XMLInputSource(null, url.toString(), null, content, charset.name());
+            }
+            else {
+                in = new XMLInputSource(null, url.toString(), null, new StringReader(source), charset.name());
             }
-            final XMLInputSource in = new XMLInputSource(null, url.toString(), null, content, encoding);
 
             page.registerParsingStart();
             try {
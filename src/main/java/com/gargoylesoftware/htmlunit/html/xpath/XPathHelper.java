@@ -15,10 +15,15 @@
 package com.gargoylesoftware.htmlunit.html.xpath;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.xml.transform.TransformerException;
 
+import org.apache.xml.dtm.DTM;
+import org.apache.xml.dtm.DTMIterator;
 import org.apache.xml.utils.PrefixResolver;
 import org.apache.xpath.XPathContext;
 import org.apache.xpath.objects.XBoolean;
@@ -42,6 +47,22 @@ public final class XPathHelper {
 
     private static ThreadLocal<Boolean> PROCESS_XPATH_ = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
+    private static final int MAX_CACHE_SIZE = 500;
+
+    /**
+     * The compiled expressions; shared by all threads and all clients. The compiled expressions are
+     * immutable Xalan expression trees (the ones Xalan shares between the transformers of one thread safe
+     * {@code Templates} object); every evaluation uses its own {@link XPathContext} and Xalan clones
+     * the iterators per evaluation. The expressions are compiled with a {@link RecordingPrefixResolver}
+     * that is detached afterwards, an entry does not reference any node, page or client.
+     */
+    private static final Map<CacheKey, CacheEntry> CACHE_ = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<CacheKey, CacheEntry> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
     /**
      * Private to avoid instantiation.
      */
@@ -76,17 +97,8 @@ public final class XPathHelper {
                     list.add((T) nodelist.item(i));
                 }
             }
-            else if (result instanceof XNumber) {
-                list.add((T) Double.valueOf(result.num()));
-            }
-            else if (result instanceof XBoolean) {
-                list.add((T) Boolean.valueOf(result.bool()));
-            }
-            else if (result instanceof XString) {
-                list.add((T) result.str());
-            }
             else {
-                throw new RuntimeException("Unproccessed " + result.getClass().getName());
+                list.add((T) toValue(result));
             }
         }
         catch (final Exception e) {
@@ -98,6 +110,68 @@ public final class XPathHelper {
         return list;
     }
 
+    /**
+     * Evaluates an XPath expression from the specified node, returning the first result.
+     * Unlike {@link #getByXPath(DomNode, String, PrefixResolver)} the evaluation stops
+     * at the first node found (in document order).
+     *
+     * @param <T> the type class
+     * @param node the node to start searching from
+     * @param xpathExpr the XPath expression
+     * @param resolver the prefix resolver to use for resolving namespace prefixes, or null
+     * @return the first object found or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getFirstByXPath(final DomNode node, final String xpathExpr,
+            final PrefixResolver resolver) {
+        if (xpathExpr == null) {
+            throw new IllegalArgumentException("Null is not a valid XPath expression");
+        }
+
+        PROCESS_XPATH_.set(Boolean.TRUE);
+        try {
+            final XObject result = evaluateXPath(node, xpathExpr, resolver);
+
+            if (result instanceof XNodeSet) {
+                final DTMIterator iterator = result.iter();
+                if (!iterator.isDocOrdered()) {
+                    // only the node list is sorted
+                    final NodeList nodelist = ((XNodeSet) result).nodelist();
+                    if (nodelist.getLength() == 0) {
+                        return null;
+                    }
+                    return (T) nodelist.item(0);
+                }
+
+                final int handle = iterator.nextNode();
+                if (handle == DTM.NULL) {
+                    return null;
+                }
+                return (T) iterator.getDTM(handle).getNode(handle);
+            }
+            return (T) toValue(result);
+        }
+        catch (final Exception e) {
+            throw new RuntimeException("Could not retrieve XPath >" + xpathExpr + "< on " + node, e);
+        }
+        finally {
+            PROCESS_XPATH_.set(Boolean.FALSE);
+        }
+    }
+
+    private static Object toValue(final XObject result) throws TransformerException {
+        if (result instanceof XNumber) {
+            return Double.valueOf(result.num());
+        }
+        if (result instanceof XBoolean) {
+            return Boolean.valueOf(result.bool());
+        }
+        if (result instanceof XString) {
+            return result.str();
+        }
+        throw new RuntimeException("Unproccessed " + result.getClass().getName());
+    }
+
     /**
      * Returns whether the thread is currently evaluating XPath expression or no.
      * @return whether the thread is currently evaluating XPath expression or no
@@ -132,9 +206,147 @@ public final class XPathHelper {
 
         final boolean caseSensitive = contextNode.getPage().hasCaseSensitiveTagNames();
 
-        final XPathAdapter xpath = new XPathAdapter(str, null, resolver, null, caseSensitive);
+        final XPathAdapter xpath = getXPath(str, resolver, caseSensitive);
         final int ctxtNode = xpathSupport.getDTMHandleFromNode(contextNode);
         return xpath.execute(xpathSupport, ctxtNode, prefixResolver);
     }
 
+    /**
+     * Returns the compiled expression from the cache; the expression is compiled and cached if not
+     * already done or if the prefixes used by the expression are resolved to different namespaces now.
+     * @param str a valid XPath string
+     * @param resolver the prefix resolver to use for resolving namespace prefixes
+     * @param caseSensitive whether or not the XPath expression should be case-sensitive
+     * @return the compiled expression
+     * @throws TransformerException if a syntax or other error occurs
+     */
+    private static XPathAdapter getXPath(final String str, final PrefixResolver resolver,
+            final boolean caseSensitive) throws TransformerException {
+        final CacheKey key = new CacheKey(str, caseSensitive);
+        final CacheEntry cached;
+        synchronized (CACHE_) {
+            cached = CACHE_.get(key);
+        }
+        if (cached != null && cached.isValidFor(resolver)) {
+            return cached.xpath_;
+        }
+
+        final RecordingPrefixResolver recordingResolver = new RecordingPrefixResolver(resolver);
+        final XPathAdapter xpath = new XPathAdapter(str, null, recordingResolver, null, caseSensitive);
+        recordingResolver.detach();
+        synchronized (CACHE_) {
+            CACHE_.put(key, new CacheEntry(xpath, recordingResolver.namespaces_));
+        }
+        return xpath;
+    }
+
+    /**
+     * The cache key.
+     */
+    private static final class CacheKey {
+        private final String expression_;
+        private final boolean caseSensitive_;
+
+        CacheKey(final String expression, final boolean caseSensitive) {
+            expression_ = expression;
+            caseSensitive_ = caseSensitive;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expression_.hashCode() + (caseSensitive_ ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) obj;
+            return caseSensitive_ == other.caseSensitive_ && expression_.equals(other.expression_);
+        }
+    }
+
+    /**
+     * A compiled expression together with the namespaces its prefixes were resolved to.
+     */
+    private static final class CacheEntry {
+        private final XPathAdapter xpath_;
+        private final Map<String, String> namespaces_;
+
+        CacheEntry(final XPathAdapter xpath, final Map<String, String> namespaces) {
+            xpath_ = xpath;
+            namespaces_ = namespaces;
+        }
+
+        boolean isValidFor(final PrefixResolver resolver) {
+            for (final Map.Entry<String, String> entry : namespaces_.entrySet()) {
+                if (!Objects.equals(entry.getValue(), resolver.getNamespaceForPrefix(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Remembers all the prefixes resolved while compiling an expression. After {@link #detach()}
+     * the prefixes are answered from the recorded namespaces only and the resolver given to the
+     * constructor (which references the context node) is released.
+     */
+    private static final class RecordingPrefixResolver implements PrefixResolver {
+        private PrefixResolver resolver_;
+        private final Map<String, String> namespaces_ = new LinkedHashMap<>();
+        private String baseIdentifier_;
+        private boolean handlesNullPrefixes_;
+
+        RecordingPrefixResolver(final PrefixResolver resolver) {
+            resolver_ = resolver;
+        }
+
+        /**
+         * Releases the wrapped resolver; called once the expression is compiled.
+         */
+        void detach() {
+            baseIdentifier_ = resolver_.getBaseIdentifier();
+            handlesNullPrefixes_ = resolver_.handlesNullPrefixes();
+            resolver_ = null;
+        }
+
+        @Override
+        public String getNamespaceForPrefix(final String prefix) {
+            if (resolver_ == null) {
+                return namespaces_.get(prefix);
+            }
+            final String namespace = resolver_.getNamespaceForPrefix(prefix);
+            namespaces_.put(prefix, namespace);
+            return namespace;
+        }
+
+        @Override
+        public String getNamespaceForPrefix(final String prefix, final Node context) {
+            if (resolver_ == null) {
+                return namespaces_.get(prefix);
+            }
+            final String namespace = resolver_.getNamespaceForPrefix(prefix, context);
+            namespaces_.put(prefix, namespace);
+            return namespace;
+        }
+
+        @Override
+        public String getBaseIdentifier() {
+            if (resolver_ == null) {
+                return baseIdentifier_;
+            }
+            return resolver_.getBaseIdentifier();
+        }
+
+        @Override
+        public boolean handlesNullPrefixes() {
+            if (resolver_ == null) {
+                return handlesNullPrefixes_;
+            }
+            return resolver_.handlesNullPrefixes();
+        }
+    }
 }
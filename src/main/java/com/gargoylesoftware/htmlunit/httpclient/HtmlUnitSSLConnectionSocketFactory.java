@@ -217,7 +217,7 @@ public final class HtmlUnitSSLConnectionSocketFactory extends SSLConnectionSocke
         }
     }
 
-    private static KeyManager[] getKeyManagers(final WebClientOptions options) {
+    static KeyManager[] getKeyManagers(final WebClientOptions options) {
         if (options.getSSLClientCertificateStore() == null) {
             return null;
         }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.httpclient;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.ssl.SSLContexts;
+
+import com.gargoylesoftware.htmlunit.WebClientOptions;
+
+/**
+ * Builds the SSLIOSessionStrategy of the non blocking client using the same settings as
+ * {@link HtmlUnitSSLConnectionSocketFactory#buildSSLSocketFactory(WebClientOptions)}.
+ *
+ * <p>This is a class of its own because the HttpAsyncClient is an optional dependency; only
+ * {@link com.gargoylesoftware.htmlunit.AsyncHttpWebConnection} loads it.</p>
+ */
+public final class HtmlUnitSSLIOSessionStrategyFactory {
+
+    private HtmlUnitSSLIOSessionStrategyFactory() {
+    }
+
+    /**
+     * Factory method that builds a new SSLIOSessionStrategy.
+     * SOCKS proxies are not supported by the non blocking client.
+     * @param options the current WebClientOptions
+     * @return the SSLIOSessionStrategy
+     */
+    public static SSLIOSessionStrategy buildSSLIOSessionStrategy(final WebClientOptions options) {
+        try {
+            final String[] sslClientProtocols = options.getSSLClientProtocols();
+            final String[] sslClientCipherSuites = options.getSSLClientCipherSuites();
+
+            if (!options.isUseInsecureSSL()) {
+                final KeyStore keyStore = options.getSSLClientCertificateStore();
+                final SSLContext sslContext = SSLContexts.custom()
+                        .loadKeyMaterial(keyStore, keyStore == null ? null : options.getSSLClientCertificatePassword())
+                        .loadTrustMaterial(options.getSSLTrustStore(), null)
+                        .build();
+                return new SSLIOSessionStrategy(sslContext, sslClientProtocols, sslClientCipherSuites,
+                        new DefaultHostnameVerifier());
+            }
+
+            String protocol = options.getSSLInsecureProtocol();
+            if (protocol == null) {
+                protocol = "SSL";
+            }
+            final SSLContext sslContext = SSLContext.getInstance(protocol);
+            sslContext.init(HtmlUnitSSLConnectionSocketFactory.getKeyManagers(options),
+                    new X509ExtendedTrustManager[] {new InsecureTrustManager()}, null);
+            return new SSLIOSessionStrategy(sslContext, sslClientProtocols, sslClientCipherSuites,
+                    NoopHostnameVerifier.INSTANCE);
+        }
+        catch (final GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+
+import net.sourceforge.htmlunit.corejs.javascript.Script;
+
+/**
+ * A bounded cache of compiled scripts, keyed by the source code, the source name, the start line,
+ * the browser version and the context settings used for the compilation (optimization level and
+ * language version). This is used for inline scripts, <code>javascript:</code> urls and
+ * <code>eval()</code>, where the same source is often compiled again and again for every page.
+ *
+ * <p>The cache is limited by the number of scripts and by the size of their sources, as the
+ * source is kept as part of the key. The size of a source is estimated as two bytes per char;
+ * sources larger than the limit are not cached at all.</p>
+ *
+ * <p>By default every {@link HtmlUnitContextFactory} (and therefore every window of a client)
+ * shares one instance; an instance can also be shared by several clients using
+ * {@link HtmlUnitContextFactory#setCompiledScriptCache(CompiledScriptCache)}.</p>
+ */
+public class CompiledScriptCache {
+
+    private int maxSize_;
+    private long maxSizeInBytes_ = 16L * 1024 * 1024;
+    private long sizeInBytes_;
+
+    /** Access ordered, guarded by itself. */
+    private final Map<Key, Script> entries_ = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hitCount_ = new AtomicLong();
+    private final AtomicLong missCount_ = new AtomicLong();
+    private final AtomicLong evictionCount_ = new AtomicLong();
+
+    /**
+     * The cache key.
+     */
+    private static final class Key {
+        private final BrowserVersion browserVersion_;
+        private final int optimizationLevel_;
+        private final int languageVersion_;
+        private final String sourceName_;
+        private final int startLine_;
+        private final boolean eval_;
+        private final String source_;
+        private final int hash_;
+
+        Key(final BrowserVersion browserVersion, final int optimizationLevel, final int languageVersion,
+                final String sourceName, final int startLine, final boolean eval, final String source) {
+            browserVersion_ = browserVersion;
+            optimizationLevel_ = optimizationLevel;
+            languageVersion_ = languageVersion;
+            sourceName_ = sourceName;
+            startLine_ = startLine;
+            eval_ = eval;
+            source_ = source;
+
+            int hash = source.hashCode();
+            hash = 31 * hash + (sourceName == null ? 0 : sourceName.hashCode());
+            hash = 31 * hash + startLine;
+            hash = 31 * hash + optimizationLevel;
+            hash = 31 * hash + languageVersion;
+            hash_ = 31 * hash + (eval ? 1 : 0);
+        }
+
+        long getSizeInBytes() {
+            return 2L * source_.length();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash_;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash_ == other.hash_
+                    && startLine_ == other.startLine_
+                    && eval_ == other.eval_
+                    && optimizationLevel_ == other.optimizationLevel_
+                    && languageVersion_ == other.languageVersion_
+                    && browserVersion_ == other.browserVersion_
+                    && (sourceName_ == null ? other.sourceName_ == null : sourceName_.equals(other.sourceName_))
+                    && source_.equals(other.source_);
+        }
+    }
+
+    /**
+     * Creates a new cache holding at most 200 scripts with sources of at most 16 MiB.
+     */
+    public CompiledScriptCache() {
+        this(200);
+    }
+
+    /**
+     * Creates a new cache holding scripts with sources of at most 16 MiB.
+     * @param maxSize the maximum number of scripts to hold
+     */
+    public CompiledScriptCache(final int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the compiled script for the given source or {@code null}.
+     *
+     * @param browserVersion the browser version the script was compiled for
+     * @param optimizationLevel the optimization level the script was compiled with
+     * @param languageVersion the language version the script was compiled with
+     * @param sourceName the name of the source
+     * @param startLine the line at which the script source starts
+     * @param eval whether the source was passed to <code>eval()</code>
+     * @param source the source code
+     * @return the compiled script or {@code null}
+     */
+    public Script get(final BrowserVersion browserVersion, final int optimizationLevel, final int languageVersion,
+            final String sourceName, final int startLine, final boolean eval, final String source) {
+        final Script script;
+        synchronized (entries_) {
+            script = entries_.get(new Key(browserVersion, optimizationLevel, languageVersion,
+                    sourceName, startLine, eval, source));
+        }
+        if (script == null) {
+            missCount_.incrementAndGet();
+        }
+        else {
+            hitCount_.incrementAndGet();
+        }
+        return script;
+    }
+
+    /**
+     * Caches a compiled script.
+     *
+     * @param browserVersion the browser version the script was compiled for
+     * @param optimizationLevel the optimization level the script was compiled with
+     * @param languageVersion the language version the script was compiled with
+     * @param sourceName the name of the source
+     * @param startLine the line at which the script source starts
+     * @param eval whether the source was passed to <code>eval()</code>
+     * @param source the source code
+     * @param script the compiled script
+     */
+    public void put(final BrowserVersion browserVersion, final int optimizationLevel, final int languageVersion,
+            final String sourceName, final int startLine, final boolean eval, final String source,
+            final Script script) {
+        final Key key = new Key(browserVersion, optimizationLevel, languageVersion,
+                sourceName, startLine, eval, source);
+        synchronized (entries_) {
+            if (key.getSizeInBytes() > maxSizeInBytes_) {
+                return;
+            }
+            if (entries_.put(key, script) == null) {
+                sizeInBytes_ += key.getSizeInBytes();
+            }
+            deleteOverflow();
+        }
+    }
+
+    /**
+     * Removes the least recently used scripts until both limits are met.
+     * The caller has to hold the lock of {@code entries_}.
+     */
+    private void deleteOverflow() {
+        final Iterator<Key> iterator = entries_.keySet().iterator();
+        while (iterator.hasNext() && (entries_.size() > maxSize_ || sizeInBytes_ > maxSizeInBytes_)) {
+            sizeInBytes_ -= iterator.next().getSizeInBytes();
+            iterator.remove();
+            evictionCount_.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the maximum number of scripts to hold.
+     * @return the maximum number of scripts to hold
+     */
+    public int getMaxSize() {
+        return maxSize_;
+    }
+
+    /**
+     * Sets the maximum number of scripts to hold.
+     * @param maxSize the maximum number of scripts to hold (must be &gt;= 0)
+     */
+    public void setMaxSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Illegal value for maxSize: " + maxSize);
+        }
+        synchronized (entries_) {
+            maxSize_ = maxSize;
+            deleteOverflow();
+        }
+    }
+
+    /**
+     * Returns the maximum size of the sources of the scripts to hold, in bytes.
+     * The default is <tt>16 MiB</tt>.
+     * @return the maximum size in bytes
+     */
+    public long getMaxSizeInBytes() {
+        synchronized (entries_) {
+            return maxSizeInBytes_;
+        }
+    }
+
+    /**
+     * Sets the maximum size of the sources of the scripts to hold, in bytes.
+     * @param maxSizeInBytes the maximum size in bytes (must be &gt;= 0)
+     */
+    public void setMaxSizeInBytes(final long maxSizeInBytes) {
+        if (maxSizeInBytes < 0) {
+            throw new IllegalArgumentException("Illegal value for maxSizeInBytes: " + maxSizeInBytes);
+        }
+        synchronized (entries_) {
+            maxSizeInBytes_ = maxSizeInBytes;
+            deleteOverflow();
+        }
+    }
+
+    /**
+     * Returns the number of cached scripts.
+     * @return the number of cached scripts
+     */
+    public int getSize() {
+        synchronized (entries_) {
+            return entries_.size();
+        }
+    }
+
+    /**
+     * Returns the estimated size of the sources of the cached scripts, in bytes.
+     * @return the size in bytes
+     */
+    public long getSizeInBytes() {
+        synchronized (entries_) {
+            return sizeInBytes_;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found a compiled script.
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount_.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find a compiled script.
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount_.get();
+    }
+
+    /**
+     * Returns the number of scripts removed because the cache was full.
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount_.get();
+    }
+
+    /**
+     * Removes all scripts.
+     */
+    public void clear() {
+        synchronized (entries_) {
+            entries_.clear();
+            sizeInBytes_ = 0;
+        }
+    }
+}
@@ -59,6 +59,7 @@ import net.sourceforge.htmlunit.corejs.javascript.debug.Debugger;
 public class HtmlUnitContextFactory extends ContextFactory {
 
     private static final int INSTRUCTION_COUNT_THRESHOLD = 10_000;
+    private static final int COMPILED_OPTIMIZATION_LEVEL = 9;
 
     private final WebClient webClient_;
     private final BrowserVersion browserVersion_;
@@ -66,6 +67,8 @@ public class HtmlUnitContextFactory extends ContextFactory {
     private Debugger debugger_;
     private final WrapFactory wrapFactory_ = new HtmlUnitWrapFactory();
     private boolean deminifyFunctionCode_;
+    private CompiledScriptCache compiledScriptCache_ = new CompiledScriptCache();
+    private boolean compiledMode_;
 
     /**
      * Creates a new instance of HtmlUnitContextFactory.
@@ -136,6 +139,45 @@ public class HtmlUnitContextFactory extends ContextFactory {
         return deminifyFunctionCode_;
     }
 
+    /**
+     * Sets the cache used for compiled inline and <code>eval()</code> scripts. The cache can be shared
+     * by several clients. Setting it to {@code null} disables the caching.
+     * @param compiledScriptCache the new cache, may be {@code null}
+     */
+    public void setCompiledScriptCache(final CompiledScriptCache compiledScriptCache) {
+        compiledScriptCache_ = compiledScriptCache;
+    }
+
+    /**
+     * Returns the cache used for compiled inline and <code>eval()</code> scripts.
+     * @return the cache, may be {@code null}
+     */
+    public CompiledScriptCache getCompiledScriptCache() {
+        return compiledScriptCache_;
+    }
+
+    /**
+     * Configures if scripts are compiled to JVM bytecode instead of being interpreted.
+     * This speeds up the execution of CPU heavy scripts but the compilation itself is more expensive;
+     * therefore code usually executed only once (<code>eval()</code>, event handlers and
+     * <code>new Function("...some code...")</code>) is still interpreted.
+     * The timeout is still enforced; the generated code checks it at loop back-edges and function entries.
+     * The compiled mode is ignored if a debugger is set. This only affects contexts created after this call.
+     * By default, this property is disabled.
+     * @param compiledMode the new value
+     */
+    public void setCompiledMode(final boolean compiledMode) {
+        compiledMode_ = compiledMode;
+    }
+
+    /**
+     * Indicates if scripts are compiled to JVM bytecode instead of being interpreted.
+     * @return the compiled mode status
+     */
+    public boolean isCompiledMode() {
+        return compiledMode_;
+    }
+
     /**
      * Custom context to store execution time and handle timeouts.
      */
@@ -162,7 +204,7 @@ public class HtmlUnitContextFactory extends ContextFactory {
         }
 
         @Override
-        protected Script compileString(String source, final Evaluator compiler,
+        protected Script compileString(final String source, final Evaluator compiler,
                 final ErrorReporter compilationErrorReporter, final String sourceName,
                 final int lineno, final Object securityDomain) {
 
@@ -170,6 +212,40 @@ public class HtmlUnitContextFactory extends ContextFactory {
             // which is used for window.eval. We have to take care in which case we are.
             final boolean isWindowEval = compiler != null;
 
+            // the pre processor and the debugger have to see every compilation
+            final CompiledScriptCache cache = compiledScriptCache_;
+            if (cache == null || webClient_.getScriptPreProcessor() != null || debugger_ != null) {
+                return compileStringUncached(source, compiler, compilationErrorReporter,
+                        sourceName, lineno, securityDomain);
+            }
+
+            // eval'd code inherits the strict mode of the caller, don't mix them up
+            if (isWindowEval && isStrictMode()) {
+                return compileStringUncached(source, compiler, compilationErrorReporter,
+                        sourceName, lineno, securityDomain);
+            }
+
+            // the compiled code depends on the settings of the context
+            final int optimizationLevel = isWindowEval ? -1 : getOptimizationLevel();
+            final int languageVersion = getLanguageVersion();
+            Script script = cache.get(browserVersion_, optimizationLevel, languageVersion,
+                    sourceName, lineno, isWindowEval, source);
+            if (script == null) {
+                script = compileStringUncached(source, compiler, compilationErrorReporter,
+                        sourceName, lineno, securityDomain);
+                if (script != null) {
+                    cache.put(browserVersion_, optimizationLevel, languageVersion,
+                            sourceName, lineno, isWindowEval, source, script);
+                }
+            }
+            return script;
+        }
+
+        private Script compileStringUncached(String source, final Evaluator compiler,
+                final ErrorReporter compilationErrorReporter, final String sourceName,
+                final int lineno, final Object securityDomain) {
+            final boolean isWindowEval = compiler != null;
+
             // Remove HTML comments around the source if needed
             if (!isWindowEval) {
 
@@ -221,8 +297,21 @@ public class HtmlUnitContextFactory extends ContextFactory {
                 .getThreadLocal(JavaScriptEngine.KEY_STARTING_PAGE);
             source = preProcess(page, source, sourceName, lineno, null);
 
-            return super.compileString(source, compiler, compilationErrorReporter,
-                    sourceName, lineno, securityDomain);
+            if (!isWindowEval) {
+                return super.compileString(source, compiler, compilationErrorReporter,
+                        sourceName, lineno, securityDomain);
+            }
+
+            // eval'd code is usually executed only once, interpreting is cheaper than generating bytecode
+            final int optimizationLevel = getOptimizationLevel();
+            setOptimizationLevel(-1);
+            try {
+                return super.compileString(source, compiler, compilationErrorReporter,
+                        sourceName, lineno, securityDomain);
+            }
+            finally {
+                setOptimizationLevel(optimizationLevel);
+            }
         }
 
         @Override
@@ -230,13 +319,22 @@ public class HtmlUnitContextFactory extends ContextFactory {
                 final Evaluator compiler, final ErrorReporter compilationErrorReporter,
                 final String sourceName, final int lineno, final Object securityDomain) {
 
-            if (deminifyFunctionCode_) {
-                final Function f = super.compileFunction(scope, source, compiler,
+            // functions compiled from strings (event handlers, new Function()) are usually small
+            // and executed only a few times, interpreting is cheaper than generating bytecode
+            final int optimizationLevel = getOptimizationLevel();
+            setOptimizationLevel(-1);
+            try {
+                if (deminifyFunctionCode_) {
+                    final Function f = super.compileFunction(scope, source, compiler,
+                            compilationErrorReporter, sourceName, lineno, securityDomain);
+                    source = decompileFunction(f, 4).trim().replace("\n    ", "\n");
+                }
+                return super.compileFunction(scope, source, compiler,
                         compilationErrorReporter, sourceName, lineno, securityDomain);
-                source = decompileFunction(f, 4).trim().replace("\n    ", "\n");
             }
-            return super.compileFunction(scope, source, compiler,
-                    compilationErrorReporter, sourceName, lineno, securityDomain);
+            finally {
+                setOptimizationLevel(optimizationLevel);
+            }
         }
     }
 
@@ -310,6 +408,13 @@ public class HtmlUnitContextFactory extends ContextFactory {
 
         cx.setMaximumInterpreterStackDepth(10_000);
 
+        if (compiledMode_ && debugger_ == null) {
+            // the generated code calls observeInstructionCount() at loop back-edges and
+            // function entries, scripts exceeding the timeout are still terminated
+            cx.setGenerateObserverCount(true);
+            cx.setOptimizationLevel(COMPILED_OPTIMIZATION_LEVEL);
+        }
+
         return cx;
     }
 
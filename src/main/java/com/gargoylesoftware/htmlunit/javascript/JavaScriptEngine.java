@@ -623,7 +623,7 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
             for (final Entry<String, Method> functionInfo : functionMap.entrySet()) {
                 final String functionName = functionInfo.getKey();
                 final Method method = functionInfo.getValue();
-                final FunctionObject functionObject = new FunctionObject(functionName, method, scriptable);
+                final FunctionObject functionObject = new MethodHandleFunctionObject(functionName, method, scriptable);
                 scriptable.defineProperty(functionName, functionObject, attributes);
             }
         }
@@ -683,7 +683,7 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         final Map<Symbol, Method> symbolMap = config.getSymbolMap();
         if (symbolMap != null) {
             for (final Entry<Symbol, Method> symbolInfo : symbolMap.entrySet()) {
-                final Callable symbolFunction = new FunctionObject(
+                final Callable symbolFunction = new MethodHandleFunctionObject(
                                     symbolInfo.getKey().toString(), symbolInfo.getValue(), scriptable);
                 scriptable.defineProperty(symbolInfo.getKey(), symbolFunction, ScriptableObject.DONTENUM);
             }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import net.sourceforge.htmlunit.corejs.javascript.Context;
+import net.sourceforge.htmlunit.corejs.javascript.ContinuationPending;
+import net.sourceforge.htmlunit.corejs.javascript.FunctionObject;
+import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
+import net.sourceforge.htmlunit.corejs.javascript.Undefined;
+
+/**
+ * A {@link FunctionObject} for the functions of the host objects that invokes the method through
+ * a {@link MethodHandle} linked once when the function is defined, instead of using reflection for every call.
+ *
+ * <p>The handle is used for instance methods with a fixed number of arguments that are called on an
+ * instance of the declaring class; the arguments and the result are converted exactly like
+ * {@link FunctionObject} does. Calls with up to three arguments are dispatched without creating
+ * an argument array. Everything else (static and var args methods, incompatible <tt>this</tt> objects,
+ * arguments not matching a host object parameter) is left to {@link FunctionObject}.</p>
+ */
+class MethodHandleFunctionObject extends FunctionObject {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final int MAX_UNSPREAD_ARGS = 3;
+
+    private final Class<?> declaringClass_;
+    private final Class<?>[] parameterTypes_;
+    private final int[] typeTags_;
+    private final boolean voidReturn_;
+    private final boolean wrapResult_;
+    // not serializable; deserialized functions use the reflective path
+    private final transient MethodHandle handle_;
+
+    /**
+     * Ctor.
+     * @param name the name of the function
+     * @param method the method
+     * @param scope the enclosing scope of the function
+     */
+    MethodHandleFunctionObject(final String name, final Method method, final Scriptable scope) {
+        super(name, method, scope);
+
+        declaringClass_ = method.getDeclaringClass();
+        parameterTypes_ = method.getParameterTypes();
+        typeTags_ = new int[parameterTypes_.length];
+        for (int i = 0; i < parameterTypes_.length; i++) {
+            typeTags_[i] = getTypeTag(parameterTypes_[i]);
+        }
+
+        final Class<?> returnType = method.getReturnType();
+        voidReturn_ = returnType == Void.TYPE;
+        wrapResult_ = !voidReturn_ && getTypeTag(returnType) == JAVA_UNSUPPORTED_TYPE;
+        handle_ = createHandle(method, typeTags_);
+    }
+
+    private static MethodHandle createHandle(final Method method, final int[] typeTags) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        for (final int typeTag : typeTags) {
+            // var args methods (Context, Scriptable, Object[], Function)
+            if (typeTag == JAVA_UNSUPPORTED_TYPE) {
+                return null;
+            }
+        }
+
+        try {
+            final MethodHandle handle = LOOKUP.unreflect(method)
+                    .asType(MethodType.genericMethodType(typeTags.length + 1));
+            if (typeTags.length > MAX_UNSPREAD_ARGS) {
+                return handle.asSpreader(Object[].class, typeTags.length);
+            }
+            return handle;
+        }
+        catch (final IllegalAccessException e) {
+            // e.g. a public method of a non public class
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object call(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args) {
+        if (handle_ == null || !declaringClass_.isInstance(thisObj) || !isHostObjectArgs(args)) {
+            return super.call(cx, scope, thisObj, args);
+        }
+
+        final Object result;
+        try {
+            switch (typeTags_.length) {
+                case 0:
+                    result = (Object) handle_.invokeExact((Object) thisObj);
+                    break;
+
+                case 1:
+                    result = (Object) handle_.invokeExact((Object) thisObj, convert(cx, scope, args, 0));
+                    break;
+
+                case 2:
+                    result = (Object) handle_.invokeExact((Object) thisObj,
+                            convert(cx, scope, args, 0), convert(cx, scope, args, 1));
+                    break;
+
+                case 3:
+                    result = (Object) handle_.invokeExact((Object) thisObj,
+                            convert(cx, scope, args, 0), convert(cx, scope, args, 1), convert(cx, scope, args, 2));
+                    break;
+
+                default:
+                    final Object[] invokeArgs = new Object[typeTags_.length];
+                    for (int i = 0; i < invokeArgs.length; i++) {
+                        invokeArgs[i] = convert(cx, scope, args, i);
+                    }
+                    result = (Object) handle_.invokeExact((Object) thisObj, invokeArgs);
+            }
+        }
+        catch (final ContinuationPending e) {
+            throw e;
+        }
+        catch (final Throwable e) {
+            throw Context.throwAsScriptRuntimeEx(e);
+        }
+
+        if (voidReturn_) {
+            return Undefined.instance;
+        }
+        if (wrapResult_) {
+            return cx.getWrapFactory().wrap(cx, scope, result, null);
+        }
+        return result;
+    }
+
+    /**
+     * Checks that all arguments for host object parameters (like {@code Node}) are instances
+     * of the parameter type; otherwise the reflective path reports the mismatch as usual.
+     */
+    private boolean isHostObjectArgs(final Object[] args) {
+        for (int i = 0; i < typeTags_.length && i < args.length; i++) {
+            if (typeTags_[i] == JAVA_SCRIPTABLE_TYPE) {
+                final Object arg = args[i];
+                if (arg != null && !Undefined.isUndefined(arg) && !parameterTypes_[i].isInstance(arg)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Object convert(final Context cx, final Scriptable scope, final Object[] args, final int index) {
+        final Object arg = index < args.length ? args[index] : Undefined.instance;
+        return convertArg(cx, scope, arg, typeTags_[index]);
+    }
+}
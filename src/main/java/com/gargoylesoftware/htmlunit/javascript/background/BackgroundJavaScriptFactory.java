@@ -132,6 +132,9 @@ public class BackgroundJavaScriptFactory {
      * @return the executor.
      */
     public JavaScriptExecutor createJavaScriptExecutor(final WebClient webClient) {
+        if (webClient.getOptions().isSharedJavaScriptExecutor()) {
+            return new SharedJavaScriptExecutor(webClient);
+        }
         return new DefaultJavaScriptExecutor(webClient);
     }
 
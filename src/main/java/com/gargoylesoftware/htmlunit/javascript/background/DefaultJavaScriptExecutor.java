@@ -105,12 +105,22 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
      * @return the JobExectuor with the earliest job.
      */
     protected JavaScriptJobManager getJobManagerWithEarliestJob() {
+        return getJobManagerWithEarliestJob(jobManagerList_);
+    }
+
+    /**
+     * Returns the JobExecutor corresponding to the earliest job of the given job managers.
+     * @param jobManagerList the job managers, guarded by itself
+     * @return the JobExectuor with the earliest job or {@code null}
+     */
+    static JavaScriptJobManager getJobManagerWithEarliestJob(
+            final List<WeakReference<JavaScriptJobManager>> jobManagerList) {
         JavaScriptJobManager javaScriptJobManager = null;
         JavaScriptJob earliestJob = null;
 
-        synchronized (jobManagerList_) {
+        synchronized (jobManagerList) {
             // iterate over the list and find the earliest job to run.
-            for (final WeakReference<JavaScriptJobManager> weakReference : jobManagerList_) {
+            for (final WeakReference<JavaScriptJobManager> weakReference : jobManagerList) {
                 final JavaScriptJobManager jobManager = weakReference.get();
                 if (jobManager != null) {
                     final JavaScriptJob newJob = jobManager.getEarliestJob();
@@ -35,4 +35,13 @@ public interface JavaScriptExecutor extends Runnable {
      * Notes that this thread has been shutdown.
      */
     void shutdown();
+
+    /**
+     * Notifies the event loop that a job was added to one of the registered windows.
+     * The default implementation does nothing; it is only required by implementations that
+     * do not poll for new jobs.
+     */
+    default void jobsChanged() {
+        // nothing
+    }
 }
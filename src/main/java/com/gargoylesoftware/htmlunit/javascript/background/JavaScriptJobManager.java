@@ -64,6 +64,27 @@ public interface JavaScriptJobManager extends Serializable {
      */
     int addJob(JavaScriptJob job, Page page);
 
+    /**
+     * Adds the specified job to this job manager, assigning it an ID, but does not schedule it for execution;
+     * the job is executed after it was released using {@link #releasePendingJob(int)}. Until then the job is
+     * counted as active job and the various wait methods are waiting for it. This is useful for jobs
+     * waiting for some work done outside of the JavaScript thread (e.g. the response of a request).
+     * If the specified page is not currently loaded in the window which owns this job manager, the operation
+     * fails and this method returns <tt>0</tt>.
+     * @param job the job to add to the job manager
+     * @param page the page which is trying to add the job
+     * @return the ID assigned to the job
+     */
+    int addPendingJob(JavaScriptJob job, Page page);
+
+    /**
+     * Schedules the specified pending job for immediate execution. The job keeps the target execution time
+     * it got when it was added, so it runs before the jobs added after it. Does nothing if the job
+     * was removed or stopped in the meantime.
+     * @param id the ID of the pending job
+     */
+    void releasePendingJob(int id);
+
     /**
      * Removes the specified job from the execution queue. This doesn't interrupt the job if it is currently running.
      * @param id the ID of the job to be removed from the execution queue
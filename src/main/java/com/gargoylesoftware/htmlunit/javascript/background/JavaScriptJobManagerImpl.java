@@ -18,6 +18,8 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -25,7 +27,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.WebClient;
 import com.gargoylesoftware.htmlunit.WebWindow;
+import com.gargoylesoftware.htmlunit.javascript.AbstractJavaScriptEngine;
+import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 
 /**
  * <p>Default implementation of {@link JavaScriptJobManager}.</p>
@@ -56,6 +61,9 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
 
     private transient ArrayList<Integer> cancelledJobs_ = new ArrayList<>();
 
+    /** Jobs added but not yet released for execution; see {@link #addPendingJob(JavaScriptJob, Page)}. */
+    private transient List<JavaScriptJob> pendingJobs_ = new ArrayList<>();
+
     private transient JavaScriptJob currentlyRunningJob_;
 
     /** A counter used to generate the IDs assigned to {@link JavaScriptJob}s. */
@@ -76,14 +84,14 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
     /** {@inheritDoc} */
     @Override
     public synchronized int getJobCount() {
-        return scheduledJobsQ_.size() + (currentlyRunningJob_ != null ? 1 : 0);
+        return scheduledJobsQ_.size() + pendingJobs_.size() + (currentlyRunningJob_ != null ? 1 : 0);
     }
 
     /** {@inheritDoc} */
     @Override
     public synchronized int getJobCount(final JavaScriptJobFilter filter) {
         if (filter == null) {
-            return scheduledJobsQ_.size() + (currentlyRunningJob_ != null ? 1 : 0);
+            return scheduledJobsQ_.size() + pendingJobs_.size() + (currentlyRunningJob_ != null ? 1 : 0);
         }
 
         int count = 0;
@@ -95,12 +103,27 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                 count++;
             }
         }
+        for (final JavaScriptJob job : pendingJobs_) {
+            if (filter.passes(job)) {
+                count++;
+            }
+        }
         return count;
     }
 
     /** {@inheritDoc} */
     @Override
     public int addJob(final JavaScriptJob job, final Page page) {
+        return addJob(job, page, false);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int addPendingJob(final JavaScriptJob job, final Page page) {
+        return addJob(job, page, true);
+    }
+
+    private int addJob(final JavaScriptJob job, final Page page, final boolean pending) {
         final WebWindow w = getWindow();
         if (w == null) {
             /*
@@ -120,6 +143,15 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         job.setId(Integer.valueOf(id));
 
         synchronized (this) {
+            if (pending) {
+                pendingJobs_.add(job);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("pending job added: " + job.toString());
+                }
+                notify();
+                return id;
+            }
+
             scheduledJobsQ_.add(job);
 
             if (LOG.isDebugEnabled()) {
@@ -133,9 +165,77 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
             notify();
         }
 
+        jobsChanged(w);
         return id;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void releasePendingJob(final int id) {
+        synchronized (this) {
+            final Iterator<JavaScriptJob> iterator = pendingJobs_.iterator();
+            JavaScriptJob job = null;
+            while (iterator.hasNext()) {
+                final JavaScriptJob pendingJob = iterator.next();
+                if (pendingJob.getId().intValue() == id) {
+                    iterator.remove();
+                    job = pendingJob;
+                    break;
+                }
+            }
+            if (job == null) {
+                // removed in the meantime
+                return;
+            }
+
+            // the job keeps the target execution time it got when it was added; this way
+            // it is ordered before all jobs added later and waitForJobsStartingBefore()
+            // treats it the same way as long as it was pending
+            scheduledJobsQ_.add(job);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("pending job released: " + job.toString());
+            }
+            notify();
+        }
+
+        final WebWindow w = getWindow();
+        if (w != null) {
+            jobsChanged(w);
+        }
+    }
+
+    /**
+     * Informs the executor of the client about new jobs.
+     * @param window the window
+     */
+    private static void jobsChanged(final WebWindow window) {
+        final WebClient webClient = window.getWebClient();
+        if (webClient == null) {
+            return;
+        }
+        final AbstractJavaScriptEngine<?> engine = webClient.getJavaScriptEngine();
+        if (engine instanceof JavaScriptEngine) {
+            final JavaScriptExecutor executor = ((JavaScriptEngine) engine).getJavaScriptExecutor();
+            if (executor != null) {
+                executor.jobsChanged();
+            }
+        }
+    }
+
+    /**
+     * Removes the job with the given id from the pending jobs.
+     * @param id the job id
+     */
+    private void removePendingJob(final int id) {
+        final Iterator<JavaScriptJob> iterator = pendingJobs_.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getId().intValue() == id) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public synchronized void removeJob(final int id) {
@@ -146,6 +246,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                 break;
             }
         }
+        removePendingJob(id);
         cancelledJobs_.add(Integer.valueOf(id));
         notify();
     }
@@ -161,6 +262,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                 break;
             }
         }
+        removePendingJob(id);
         cancelledJobs_.add(Integer.valueOf(id));
         notify();
     }
@@ -174,7 +276,11 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         for (final JavaScriptJob job : scheduledJobsQ_) {
             cancelledJobs_.add(job.getId());
         }
+        for (final JavaScriptJob job : pendingJobs_) {
+            cancelledJobs_.add(job.getId());
+        }
         scheduledJobsQ_.clear();
+        pendingJobs_.clear();
         notify();
     }
 
@@ -237,6 +343,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                             && (filter == null || filter.passes(currentlyRunningJob_))
                             && currentlyRunningJob_.getTargetExecutionTime() < latestExecutionTime
                        );
+            pending = pending || hasPendingJob(filter, latestExecutionTime);
 
             while (pending) {
                 try {
@@ -254,6 +361,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                                 && (filter == null || filter.passes(currentlyRunningJob_))
                                 && currentlyRunningJob_.getTargetExecutionTime() < latestExecutionTime
                            );
+                pending = pending || hasPendingJob(filter, latestExecutionTime);
             }
         }
 
@@ -265,10 +373,25 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         return jobs;
     }
 
+    /**
+     * @param filter the filter, may be {@code null}
+     * @param latestExecutionTime the latest target execution time
+     * @return whether there is a pending job passing the filter that was added before the given time
+     */
+    private boolean hasPendingJob(final JavaScriptJobFilter filter, final long latestExecutionTime) {
+        for (final JavaScriptJob job : pendingJobs_) {
+            if ((filter == null || filter.passes(job)) && job.getTargetExecutionTime() < latestExecutionTime) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** {@inheritDoc} */
     @Override
     public synchronized void shutdown() {
         scheduledJobsQ_.clear();
+        pendingJobs_.clear();
         notify();
     }
 
@@ -347,6 +470,18 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                 count++;
             }
         }
+        if (!pendingJobs_.isEmpty()) {
+            status.append("  number of pending jobs: ")
+                .append(Integer.toString(pendingJobs_.size()))
+                .append(lineSeparator);
+            for (final JavaScriptJob job : pendingJobs_) {
+                if (filter == null || filter.passes(job)) {
+                    status.append("      pending job: ").append(job.toString())
+                        .append("      job id: " + job.getId())
+                        .append(lineSeparator);
+                }
+            }
+        }
         status.append("------------------------------------------")
             .append(lineSeparator);
 
@@ -458,6 +593,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         // we do not store the jobs (at the moment)
         scheduledJobsQ_ = new PriorityQueue<>();
         cancelledJobs_ = new ArrayList<>();
+        pendingJobs_ = new ArrayList<>();
         currentlyRunningJob_ = null;
     }
 }
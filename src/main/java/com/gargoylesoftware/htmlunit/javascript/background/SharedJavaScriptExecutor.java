@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebWindow;
+
+/**
+ * An event loop to execute all the JavaScript jobs, using a small pool of threads shared
+ * by all clients instead of one polling thread per client.
+ *
+ * <p>Nothing runs as long as there is no job; otherwise the loop is scheduled exactly for the target
+ * execution time of the earliest job and rescheduled whenever a job is added. The jobs of one client
+ * are never executed in parallel and always in the order of their target execution time, like
+ * with the {@link DefaultJavaScriptExecutor}. Be aware that long running jobs of one client block
+ * one thread of the pool.</p>
+ *
+ * <p>The pool has <tt>max(2, min(4, number of processors))</tt> threads by default;
+ * use {@link #setPoolSize(int)} to change this.</p>
+ *
+ * @see com.gargoylesoftware.htmlunit.WebClientOptions#setSharedJavaScriptExecutor(boolean)
+ */
+public class SharedJavaScriptExecutor implements JavaScriptExecutor {
+
+    /** Logging support. */
+    private static final Log LOG = LogFactory.getLog(SharedJavaScriptExecutor.class);
+
+    private static final ScheduledThreadPoolExecutor POOL;
+
+    static {
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        final int size = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        POOL = new ScheduledThreadPoolExecutor(size, r -> {
+            final Thread thread = new Thread(r, "Shared JS executor " + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        POOL.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Returns the number of threads of the pool shared by all instances.
+     * @return the number of threads
+     */
+    public static int getPoolSize() {
+        return POOL.getCorePoolSize();
+    }
+
+    /**
+     * Sets the number of threads of the pool shared by all instances. This affects all clients
+     * using this executor; additional threads are started when needed, superfluous ones terminate
+     * when they become idle.
+     * @param poolSize the number of threads (must be &gt; 0)
+     */
+    public static void setPoolSize(final int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Illegal value for poolSize: " + poolSize);
+        }
+        POOL.setCorePoolSize(poolSize);
+    }
+
+    private final transient WeakReference<WebClient> webClient_;
+    private final transient List<WeakReference<JavaScriptJobManager>> jobManagerList_;
+
+    private final transient AtomicBoolean shutdown_;
+
+    // guarded by this
+    private transient ScheduledFuture<?> scheduled_;
+    private transient long scheduledTime_;
+    private transient Thread runningThread_;
+
+    /**
+     * Creates an EventLoop for the webClient.
+     *
+     * @param webClient the provided webClient
+     */
+    public SharedJavaScriptExecutor(final WebClient webClient) {
+        webClient_ = new WeakReference<>(webClient);
+        jobManagerList_ = new LinkedList<>();
+        shutdown_ = new AtomicBoolean();
+    }
+
+    /**
+     * Register a window with the eventLoop.
+     * @param newWindow the new web window
+     */
+    @Override
+    public void addWindow(final WebWindow newWindow) {
+        final JavaScriptJobManager jobManager = newWindow.getJobManager();
+        if (jobManager != null) {
+            synchronized (jobManagerList_) {
+                final Iterator<WeakReference<JavaScriptJobManager>> iterator = jobManagerList_.iterator();
+                while (iterator.hasNext()) {
+                    final JavaScriptJobManager manager = iterator.next().get();
+                    if (manager == jobManager) {
+                        return;
+                    }
+                    if (manager == null) {
+                        iterator.remove();
+                    }
+                }
+                jobManagerList_.add(new WeakReference<>(jobManager));
+            }
+            schedule();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void jobsChanged() {
+        schedule();
+    }
+
+    /**
+     * Schedules the next run of the loop for the target execution time of the earliest job.
+     * If the loop is running at the moment, it will schedule itself when done.
+     */
+    protected synchronized void schedule() {
+        if (runningThread_ != null || shutdown_.get()) {
+            return;
+        }
+
+        final JavaScriptJob earliestJob = getEarliestJob();
+        if (earliestJob == null) {
+            return;
+        }
+
+        final long targetTime = earliestJob.getTargetExecutionTime();
+        if (scheduled_ != null && !scheduled_.isDone()) {
+            if (scheduledTime_ <= targetTime) {
+                return;
+            }
+            scheduled_.cancel(false);
+        }
+
+        scheduledTime_ = targetTime;
+        scheduled_ = POOL.schedule(this, Math.max(0, targetTime - System.currentTimeMillis()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the JobExecutor corresponding to the earliest job.
+     * @return the JobExectuor with the earliest job.
+     */
+    protected JavaScriptJobManager getJobManagerWithEarliestJob() {
+        return DefaultJavaScriptExecutor.getJobManagerWithEarliestJob(jobManagerList_);
+    }
+
+    private JavaScriptJob getEarliestJob() {
+        final JavaScriptJobManager jobManager = getJobManagerWithEarliestJob();
+        if (jobManager == null) {
+            return null;
+        }
+        return jobManager.getEarliestJob();
+    }
+
+    /**
+     * Executes all jobs that are due and schedules the next run.
+     */
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (runningThread_ != null || shutdown_.get()) {
+                return;
+            }
+            runningThread_ = Thread.currentThread();
+            scheduled_ = null;
+        }
+
+        final boolean trace = LOG.isTraceEnabled();
+        try {
+            while (!shutdown_.get() && webClient_.get() != null) {
+                final JavaScriptJobManager jobManager = getJobManagerWithEarliestJob();
+                if (jobManager == null) {
+                    break;
+                }
+                final JavaScriptJob earliestJob = jobManager.getEarliestJob();
+                if (earliestJob == null || earliestJob.getTargetExecutionTime() > System.currentTimeMillis()) {
+                    break;
+                }
+
+                if (trace) {
+                    LOG.trace("started executing job at " + System.currentTimeMillis());
+                }
+                jobManager.runSingleJob(earliestJob);
+                if (trace) {
+                    LOG.trace("stopped executing job at " + System.currentTimeMillis());
+                }
+            }
+        }
+        catch (final RuntimeException e) {
+            LOG.error("Running the JavaScript jobs failed: " + e.getMessage(), e);
+        }
+        finally {
+            synchronized (this) {
+                runningThread_ = null;
+                notifyAll();
+            }
+        }
+
+        if (webClient_.get() != null) {
+            schedule();
+        }
+    }
+
+    /**
+     * Stops the loop; waits up to 10 seconds for a running job to finish.
+     */
+    @Override
+    public void shutdown() {
+        shutdown_.set(true);
+
+        synchronized (this) {
+            if (scheduled_ != null) {
+                scheduled_.cancel(false);
+                scheduled_ = null;
+            }
+
+            final long end = System.currentTimeMillis() + 10_000;
+            while (runningThread_ != null && runningThread_ != Thread.currentThread()) {
+                final long waitTime = end - System.currentTimeMillis();
+                if (waitTime <= 0) {
+                    if (LOG.isWarnEnabled()) {
+                        LOG.warn("Job still running in " + runningThread_.getName() + " at "
+                                + System.currentTimeMillis());
+                    }
+                    break;
+                }
+                try {
+                    wait(waitTime);
+                }
+                catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        webClient_.clear();
+        synchronized (jobManagerList_) {
+            jobManagerList_.clear();
+        }
+    }
+}
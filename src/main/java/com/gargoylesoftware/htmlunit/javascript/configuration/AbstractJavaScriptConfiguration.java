@@ -21,12 +21,17 @@ import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBr
 import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBrowser.IE;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -54,6 +59,13 @@ public abstract class AbstractJavaScriptConfiguration {
 
     private static final Map<String, String> CLASS_NAME_MAP_ = new ConcurrentHashMap<>();
 
+    /** The annotated members of the host classes, shared by all browsers. */
+    private static final Map<Class<?>, List<AnnotatedMember>> MEMBERS_ = new ConcurrentHashMap<>();
+
+    /** The class configurations per browser family; {@code Optional.empty()} if the class is not supported. */
+    private static final Map<SupportedBrowser, Map<Class<?>, Optional<ClassConfiguration>>> CONFIGURATIONS_
+            = new ConcurrentHashMap<>();
+
     private Map<Class<?>, Class<? extends HtmlUnitScriptable>> domJavaScriptMap_;
 
     private final Map<String, ClassConfiguration> configuration_;
@@ -92,7 +104,8 @@ public abstract class AbstractJavaScriptConfiguration {
     }
 
     /**
-     * Returns the class configuration of the given {@code klass}.
+     * Returns the class configuration of the given {@code klass}. The configurations are
+     * created only once per browser family and host class.
      *
      * @param klass the class
      * @param browser the browser version
@@ -100,117 +113,135 @@ public abstract class AbstractJavaScriptConfiguration {
      */
     public static ClassConfiguration getClassConfiguration(final Class<? extends HtmlUnitScriptable> klass,
         final BrowserVersion browser) {
-        if (browser != null) {
-            final SupportedBrowser expectedBrowser;
-            if (browser.isChrome()) {
-                expectedBrowser = CHROME;
-            }
-            else if (browser.isEdge()) {
-                expectedBrowser = EDGE;
+        if (browser == null) {
+            return null;
+        }
+
+        final SupportedBrowser expectedBrowser = getSupportedBrowser(browser);
+        final Map<Class<?>, Optional<ClassConfiguration>> configurations =
+                CONFIGURATIONS_.computeIfAbsent(expectedBrowser, key -> new ConcurrentHashMap<>());
+
+        Optional<ClassConfiguration> config = configurations.get(klass);
+        if (config == null) {
+            config = Optional.ofNullable(createClassConfiguration(klass, expectedBrowser));
+            final Optional<ClassConfiguration> existing = configurations.putIfAbsent(klass, config);
+            if (existing != null) {
+                config = existing;
             }
-            else if (browser.isIE()) {
-                expectedBrowser = IE;
+        }
+        return config.orElse(null);
+    }
+
+    private static SupportedBrowser getSupportedBrowser(final BrowserVersion browser) {
+        if (browser.isChrome()) {
+            return CHROME;
+        }
+        if (browser.isEdge()) {
+            return EDGE;
+        }
+        if (browser.isIE()) {
+            return IE;
+        }
+        if (browser.isFirefox68()) {
+            return FF68;
+        }
+        if (browser.isFirefox()) {
+            return FF;
+        }
+        return CHROME;  // our current fallback
+    }
+
+    private static ClassConfiguration createClassConfiguration(final Class<? extends HtmlUnitScriptable> klass,
+            final SupportedBrowser expectedBrowser) {
+        final String hostClassName = klass.getName();
+        final JsxClasses jsxClasses = klass.getAnnotation(JsxClasses.class);
+        if (jsxClasses != null) {
+            if (klass.getAnnotation(JsxClass.class) != null) {
+                throw new RuntimeException("Invalid JsxClasses/JsxClass annotation; class '"
+                    + hostClassName + "' has both.");
             }
-            else if (browser.isFirefox68()) {
-                expectedBrowser = FF68;
+            final JsxClass[] jsxClassValues = jsxClasses.value();
+            if (jsxClassValues.length == 1) {
+                throw new RuntimeException("No need to specify JsxClasses with a single JsxClass for "
+                        + hostClassName);
             }
-            else if (browser.isFirefox()) {
-                expectedBrowser = FF;
+            final Set<Class<?>> domClasses = new HashSet<>();
+
+            boolean isJsObject = false;
+            String className = null;
+            String extendedClassName = "";
+
+            final Class<?> superClass = klass.getSuperclass();
+            if (superClass == SimpleScriptable.class) {
+                extendedClassName = "";
             }
             else {
-                expectedBrowser = CHROME;  // our current fallback
+                extendedClassName = superClass.getSimpleName();
             }
 
-            final String hostClassName = klass.getName();
-            final JsxClasses jsxClasses = klass.getAnnotation(JsxClasses.class);
-            if (jsxClasses != null) {
-                if (klass.getAnnotation(JsxClass.class) != null) {
-                    throw new RuntimeException("Invalid JsxClasses/JsxClass annotation; class '"
-                        + hostClassName + "' has both.");
-                }
-                final JsxClass[] jsxClassValues = jsxClasses.value();
-                if (jsxClassValues.length == 1) {
-                    throw new RuntimeException("No need to specify JsxClasses with a single JsxClass for "
-                            + hostClassName);
-                }
-                final Set<Class<?>> domClasses = new HashSet<>();
-
-                boolean isJsObject = false;
-                String className = null;
-                String extendedClassName = "";
-
-                final Class<?> superClass = klass.getSuperclass();
-                if (superClass == SimpleScriptable.class) {
-                    extendedClassName = "";
-                }
-                else {
-                    extendedClassName = superClass.getSimpleName();
-                }
-
-                for (final JsxClass jsxClass : jsxClassValues) {
-                    if (jsxClass != null && isSupported(jsxClass.value(), expectedBrowser)) {
-                        domClasses.add(jsxClass.domClass());
-                        if (jsxClass.isJSObject()) {
-                            isJsObject = true;
-                        }
-                        if (!jsxClass.className().isEmpty()) {
-                            className = jsxClass.className();
+            for (final JsxClass jsxClass : jsxClassValues) {
+                if (jsxClass != null && isSupported(jsxClass.value(), expectedBrowser)) {
+                    domClasses.add(jsxClass.domClass());
+                    if (jsxClass.isJSObject()) {
+                        isJsObject = true;
+                    }
+                    if (!jsxClass.className().isEmpty()) {
+                        className = jsxClass.className();
+                    }
+                    if (jsxClass.extendedClass() != Object.class) {
+                        if (jsxClass.extendedClass() == SimpleScriptable.class) {
+                            extendedClassName = "";
                         }
-                        if (jsxClass.extendedClass() != Object.class) {
-                            if (jsxClass.extendedClass() == SimpleScriptable.class) {
-                                extendedClassName = "";
-                            }
-                            else {
-                                extendedClassName = jsxClass.extendedClass().getSimpleName();
-                            }
+                        else {
+                            extendedClassName = jsxClass.extendedClass().getSimpleName();
                         }
                     }
                 }
-
-                final ClassConfiguration classConfiguration =
-                        new ClassConfiguration(klass, domClasses.toArray(new Class<?>[domClasses.size()]), isJsObject,
-                                className, extendedClassName);
-
-                process(classConfiguration, hostClassName, expectedBrowser);
-                return classConfiguration;
             }
 
-            final JsxClass jsxClass = klass.getAnnotation(JsxClass.class);
-            if (jsxClass != null && isSupported(jsxClass.value(), expectedBrowser)) {
+            final ClassConfiguration classConfiguration =
+                    new ClassConfiguration(klass, domClasses.toArray(new Class<?>[domClasses.size()]), isJsObject,
+                            className, extendedClassName);
 
-                final Set<Class<?>> domClasses = new HashSet<>();
-                final Class<?> domClass = jsxClass.domClass();
-                if (domClass != null && domClass != Object.class) {
-                    domClasses.add(domClass);
-                }
+            process(classConfiguration, hostClassName, expectedBrowser);
+            return classConfiguration;
+        }
 
-                String className = jsxClass.className();
-                if (className.isEmpty()) {
-                    className = null;
-                }
-                String extendedClassName = "";
+        final JsxClass jsxClass = klass.getAnnotation(JsxClass.class);
+        if (jsxClass != null && isSupported(jsxClass.value(), expectedBrowser)) {
 
-                final Class<?> superClass = klass.getSuperclass();
-                if (superClass != SimpleScriptable.class) {
-                    extendedClassName = superClass.getSimpleName();
-                }
-                else {
-                    extendedClassName = "";
-                }
-                if (jsxClass.extendedClass() != Object.class) {
-                    extendedClassName = jsxClass.extendedClass().getSimpleName();
-                }
+            final Set<Class<?>> domClasses = new HashSet<>();
+            final Class<?> domClass = jsxClass.domClass();
+            if (domClass != null && domClass != Object.class) {
+                domClasses.add(domClass);
+            }
 
-                final ClassConfiguration classConfiguration
-                    = new ClassConfiguration(klass,
-                            domClasses.toArray(new Class<?>[domClasses.size()]),
-                            jsxClass.isJSObject(),
-                            className,
-                            extendedClassName);
+            String className = jsxClass.className();
+            if (className.isEmpty()) {
+                className = null;
+            }
+            String extendedClassName = "";
 
-                process(classConfiguration, hostClassName, expectedBrowser);
-                return classConfiguration;
+            final Class<?> superClass = klass.getSuperclass();
+            if (superClass != SimpleScriptable.class) {
+                extendedClassName = superClass.getSimpleName();
+            }
+            else {
+                extendedClassName = "";
+            }
+            if (jsxClass.extendedClass() != Object.class) {
+                extendedClassName = jsxClass.extendedClass().getSimpleName();
             }
+
+            final ClassConfiguration classConfiguration
+                = new ClassConfiguration(klass,
+                        domClasses.toArray(new Class<?>[domClasses.size()]),
+                        jsxClass.isJSObject(),
+                        className,
+                        extendedClassName);
+
+            process(classConfiguration, hostClassName, expectedBrowser);
+            return classConfiguration;
         }
         return null;
     }
@@ -222,112 +253,107 @@ public abstract class AbstractJavaScriptConfiguration {
         CLASS_NAME_MAP_.put(hostClassName, simpleClassName);
         final Map<String, Method> allGetters = new ConcurrentHashMap<>();
         final Map<String, Method> allSetters = new ConcurrentHashMap<>();
-        for (final Constructor<?> constructor : classConfiguration.getHostClass().getDeclaredConstructors()) {
-            for (final Annotation annotation : constructor.getAnnotations()) {
-                if (annotation instanceof JsxConstructor && isSupported(((JsxConstructor) annotation).value(),
-                        expectedBrowser)) {
-                    classConfiguration.setJSConstructor(constructor);
+        for (final AnnotatedMember annotated : getAnnotatedMembers(classConfiguration.getHostClass())) {
+            final Annotation annotation = annotated.annotation_;
+            if (annotation instanceof JsxConstructor) {
+                if (isSupported(((JsxConstructor) annotation).value(), expectedBrowser)) {
+                    classConfiguration.setJSConstructor((Executable) annotated.member_);
                 }
+                continue;
             }
-        }
-        for (final Method method : classConfiguration.getHostClass().getDeclaredMethods()) {
-            for (final Annotation annotation : method.getAnnotations()) {
-                if (annotation instanceof JsxGetter) {
-                    final JsxGetter jsxGetter = (JsxGetter) annotation;
-                    if (isSupported(jsxGetter.value(), expectedBrowser)) {
-                        String property;
-                        if (jsxGetter.propertyName().isEmpty()) {
-                            final int prefix = method.getName().startsWith("is") ? 2 : 3;
-                            property = method.getName().substring(prefix);
-                            property = Character.toLowerCase(property.charAt(0)) + property.substring(1);
-                        }
-                        else {
-                            property = jsxGetter.propertyName();
-                        }
-                        allGetters.put(property, method);
+            if (annotation instanceof JsxConstant) {
+                if (isSupported(((JsxConstant) annotation).value(), expectedBrowser)) {
+                    classConfiguration.addConstant(((Field) annotated.member_).getName());
+                }
+                continue;
+            }
+
+            final Method method = (Method) annotated.member_;
+            if (annotation instanceof JsxGetter) {
+                final JsxGetter jsxGetter = (JsxGetter) annotation;
+                if (isSupported(jsxGetter.value(), expectedBrowser)) {
+                    String property;
+                    if (jsxGetter.propertyName().isEmpty()) {
+                        final int prefix = method.getName().startsWith("is") ? 2 : 3;
+                        property = method.getName().substring(prefix);
+                        property = Character.toLowerCase(property.charAt(0)) + property.substring(1);
                     }
+                    else {
+                        property = jsxGetter.propertyName();
+                    }
+                    allGetters.put(property, method);
                 }
-                else if (annotation instanceof JsxSetter) {
-                    final JsxSetter jsxSetter = (JsxSetter) annotation;
-                    if (isSupported(jsxSetter.value(), expectedBrowser)) {
-                        String property;
-                        if (jsxSetter.propertyName().isEmpty()) {
-                            property = method.getName().substring(3);
-                            property = Character.toLowerCase(property.charAt(0)) + property.substring(1);
-                        }
-                        else {
-                            property = jsxSetter.propertyName();
-                        }
-                        allSetters.put(property, method);
+            }
+            else if (annotation instanceof JsxSetter) {
+                final JsxSetter jsxSetter = (JsxSetter) annotation;
+                if (isSupported(jsxSetter.value(), expectedBrowser)) {
+                    String property;
+                    if (jsxSetter.propertyName().isEmpty()) {
+                        property = method.getName().substring(3);
+                        property = Character.toLowerCase(property.charAt(0)) + property.substring(1);
+                    }
+                    else {
+                        property = jsxSetter.propertyName();
                     }
+                    allSetters.put(property, method);
                 }
-                if (annotation instanceof JsxSymbol) {
-                    final JsxSymbol jsxSymbol = (JsxSymbol) annotation;
-                    if (isSupported(jsxSymbol.value(), expectedBrowser)) {
-                        final String symbolKeyName;
-                        if (jsxSymbol.symbolName().isEmpty()) {
-                            symbolKeyName = method.getName();
-                        }
-                        else {
-                            symbolKeyName = jsxSymbol.symbolName();
-                        }
+            }
+            if (annotation instanceof JsxSymbol) {
+                final JsxSymbol jsxSymbol = (JsxSymbol) annotation;
+                if (isSupported(jsxSymbol.value(), expectedBrowser)) {
+                    final String symbolKeyName;
+                    if (jsxSymbol.symbolName().isEmpty()) {
+                        symbolKeyName = method.getName();
+                    }
+                    else {
+                        symbolKeyName = jsxSymbol.symbolName();
+                    }
 
-                        final SymbolKey symbolKey;
-                        if ("iterator".equalsIgnoreCase(symbolKeyName)) {
-                            symbolKey = SymbolKey.ITERATOR;
-                        }
-                        else {
-                            throw new RuntimeException("Invalid JsxSymbol annotation; unsupported '"
-                                    + symbolKeyName + "' symbol name.");
-                        }
-                        classConfiguration.addSymbol(symbolKey, method);
+                    final SymbolKey symbolKey;
+                    if ("iterator".equalsIgnoreCase(symbolKeyName)) {
+                        symbolKey = SymbolKey.ITERATOR;
                     }
-                }
-                else if (annotation instanceof JsxFunction) {
-                    final JsxFunction jsxFunction = (JsxFunction) annotation;
-                    if (isSupported(jsxFunction.value(), expectedBrowser)) {
-                        final String name;
-                        if (jsxFunction.functionName().isEmpty()) {
-                            name = method.getName();
-                        }
-                        else {
-                            name = jsxFunction.functionName();
-                        }
-                        classConfiguration.addFunction(name, method);
+                    else {
+                        throw new RuntimeException("Invalid JsxSymbol annotation; unsupported '"
+                                + symbolKeyName + "' symbol name.");
                     }
+                    classConfiguration.addSymbol(symbolKey, method);
                 }
-                else if (annotation instanceof JsxStaticGetter) {
-                    final JsxStaticGetter jsxStaticGetter = (JsxStaticGetter) annotation;
-                    if (isSupported(jsxStaticGetter.value(), expectedBrowser)) {
-                        final int prefix = method.getName().startsWith("is") ? 2 : 3;
-                        String property = method.getName().substring(prefix);
-                        property = Character.toLowerCase(property.charAt(0)) + property.substring(1);
-                        classConfiguration.addStaticProperty(property, method, null);
+            }
+            else if (annotation instanceof JsxFunction) {
+                final JsxFunction jsxFunction = (JsxFunction) annotation;
+                if (isSupported(jsxFunction.value(), expectedBrowser)) {
+                    final String name;
+                    if (jsxFunction.functionName().isEmpty()) {
+                        name = method.getName();
                     }
-                }
-                else if (annotation instanceof JsxStaticFunction) {
-                    final JsxStaticFunction jsxStaticFunction = (JsxStaticFunction) annotation;
-                    if (isSupported(jsxStaticFunction.value(), expectedBrowser)) {
-                        final String name;
-                        if (jsxStaticFunction.functionName().isEmpty()) {
-                            name = method.getName();
-                        }
-                        else {
-                            name = jsxStaticFunction.functionName();
-                        }
-                        classConfiguration.addStaticFunction(name, method);
+                    else {
+                        name = jsxFunction.functionName();
                     }
+                    classConfiguration.addFunction(name, method);
                 }
-                else if (annotation instanceof JsxConstructor && isSupported(((JsxConstructor) annotation).value(),
-                        expectedBrowser)) {
-                    classConfiguration.setJSConstructor(method);
+            }
+            else if (annotation instanceof JsxStaticGetter) {
+                final JsxStaticGetter jsxStaticGetter = (JsxStaticGetter) annotation;
+                if (isSupported(jsxStaticGetter.value(), expectedBrowser)) {
+                    final int prefix = method.getName().startsWith("is") ? 2 : 3;
+                    String property = method.getName().substring(prefix);
+                    property = Character.toLowerCase(property.charAt(0)) + property.substring(1);
+                    classConfiguration.addStaticProperty(property, method, null);
                 }
             }
-        }
-        for (final Field field : classConfiguration.getHostClass().getDeclaredFields()) {
-            final JsxConstant jsxConstant = field.getAnnotation(JsxConstant.class);
-            if (jsxConstant != null && isSupported(jsxConstant.value(), expectedBrowser)) {
-                classConfiguration.addConstant(field.getName());
+            else if (annotation instanceof JsxStaticFunction) {
+                final JsxStaticFunction jsxStaticFunction = (JsxStaticFunction) annotation;
+                if (isSupported(jsxStaticFunction.value(), expectedBrowser)) {
+                    final String name;
+                    if (jsxStaticFunction.functionName().isEmpty()) {
+                        name = method.getName();
+                    }
+                    else {
+                        name = jsxStaticFunction.functionName();
+                    }
+                    classConfiguration.addStaticFunction(name, method);
+                }
             }
         }
         for (final Entry<String, Method> getterEntry : allGetters.entrySet()) {
@@ -336,6 +362,58 @@ public abstract class AbstractJavaScriptConfiguration {
         }
     }
 
+    /**
+     * Returns the annotated constructors, methods and fields of the given host class; the
+     * declared members are scanned only once per class and shared by all browsers.
+     */
+    private static List<AnnotatedMember> getAnnotatedMembers(final Class<?> hostClass) {
+        List<AnnotatedMember> members = MEMBERS_.get(hostClass);
+        if (members == null) {
+            members = new ArrayList<>();
+            for (final Constructor<?> constructor : hostClass.getDeclaredConstructors()) {
+                final JsxConstructor jsxConstructor = constructor.getAnnotation(JsxConstructor.class);
+                if (jsxConstructor != null) {
+                    members.add(new AnnotatedMember(constructor, jsxConstructor));
+                }
+            }
+            for (final Method method : hostClass.getDeclaredMethods()) {
+                for (final Annotation annotation : method.getAnnotations()) {
+                    if (annotation instanceof JsxGetter || annotation instanceof JsxSetter
+                            || annotation instanceof JsxSymbol || annotation instanceof JsxFunction
+                            || annotation instanceof JsxStaticGetter || annotation instanceof JsxStaticFunction
+                            || annotation instanceof JsxConstructor) {
+                        members.add(new AnnotatedMember(method, annotation));
+                    }
+                }
+            }
+            for (final Field field : hostClass.getDeclaredFields()) {
+                final JsxConstant jsxConstant = field.getAnnotation(JsxConstant.class);
+                if (jsxConstant != null) {
+                    members.add(new AnnotatedMember(field, jsxConstant));
+                }
+            }
+
+            final List<AnnotatedMember> existing = MEMBERS_.putIfAbsent(hostClass, members);
+            if (existing != null) {
+                members = existing;
+            }
+        }
+        return members;
+    }
+
+    /**
+     * A constructor, method or field together with one of its Jsx annotations.
+     */
+    private static final class AnnotatedMember {
+        private final AccessibleObject member_;
+        private final Annotation annotation_;
+
+        AnnotatedMember(final AccessibleObject member, final Annotation annotation) {
+            member_ = member;
+            annotation_ = annotation;
+        }
+    }
+
     private static boolean isSupported(final SupportedBrowser[] browsers, final SupportedBrowser expectedBrowser) {
         for (final SupportedBrowser browser : browsers) {
             if (isCompatible(browser, expectedBrowser)) {
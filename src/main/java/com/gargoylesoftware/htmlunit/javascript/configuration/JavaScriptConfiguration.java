@@ -15,7 +15,7 @@
 package com.gargoylesoftware.htmlunit.javascript.configuration;
 
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.HashMap;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.javascript.NamedNodeMap;
@@ -584,8 +584,8 @@ public final class JavaScriptConfiguration extends AbstractJavaScriptConfigurati
         XPathNSResolver.class, XPathResult.class, XSLTProcessor.class
     };
 
-    /** Cache of browser versions and their corresponding JavaScript configurations. */
-    private static final Map<String, JavaScriptConfiguration> CONFIGURATION_MAP_ = new WeakHashMap<>();
+    /** Cache of browser versions and their corresponding JavaScript configurations; there are only a few. */
+    private static final Map<String, JavaScriptConfiguration> CONFIGURATION_MAP_ = new HashMap<>();
 
     /**
      * Constructor is only called from {@link #getInstance(BrowserVersion)} which is synchronized.
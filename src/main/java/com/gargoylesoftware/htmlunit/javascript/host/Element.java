@@ -244,6 +244,11 @@ public class Element extends Node {
                 protected boolean isMatching(final DomNode nodeToMatch) {
                     return tagNameLC.equalsIgnoreCase(nodeToMatch.getNodeName());
                 }
+
+                @Override
+                protected Iterable<DomNode> getCandidates() {
+                    return getTagNameCandidates(tagNameLC);
+                }
             };
         }
 
@@ -669,6 +674,16 @@ public class Element extends Node {
                 }
                 return true;
             }
+
+            @Override
+            protected Iterable<DomNode> getCandidates() {
+                for (final String aClassName : classNames) {
+                    if (!aClassName.isEmpty()) {
+                        return getClassNameCandidates(aClassName);
+                    }
+                }
+                return super.getCandidates();
+            }
         };
 
         return collection;
@@ -192,6 +192,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
     private Crypto crypto_;
 
     private CSSPropertiesCache cssPropertiesCache_ = new CSSPropertiesCache();
+    private int computedStylesGeneration_ = 1;
 
     private final EnumMap<Type, Storage> storages_ = new EnumMap<>(Type.class);
 
@@ -211,15 +212,17 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
      * Cache computed styles when possible, because their calculation is very expensive.
      * We use a weak hash map because we don't want this cache to be the only reason
      * nodes are kept around in the JVM, if all other references to them are gone.
+     * The cache is keyed by the dom node; this way the invalidation can walk the
+     * affected part of the dom tree without creating the scriptable objects.
      */
     private static final class CSSPropertiesCache implements Serializable {
-        private transient WeakHashMap<Element, Map<String, CSS2Properties>> computedStyles_ = new WeakHashMap<>();
+        private transient WeakHashMap<DomNode, Map<String, CSS2Properties>> computedStyles_ = new WeakHashMap<>();
 
         CSSPropertiesCache() {
         }
 
         public synchronized CSS2Properties get(final Element element, final String normalizedPseudo) {
-            final Map<String, CSS2Properties> elementMap = computedStyles_.get(element);
+            final Map<String, CSS2Properties> elementMap = computedStyles_.get(element.getDomNodeOrDie());
             if (elementMap != null) {
                 return elementMap.get(normalizedPseudo);
             }
@@ -227,54 +230,48 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
         }
 
         public synchronized void put(final Element element, final String normalizedPseudo, final CSS2Properties style) {
-            Map<String, CSS2Properties> elementMap = computedStyles_.get(element);
+            final DomNode node = element.getDomNodeOrDie();
+            Map<String, CSS2Properties> elementMap = computedStyles_.get(node);
             if (elementMap == null) {
                 elementMap = new WeakHashMap<>();
-                computedStyles_.put(element, elementMap);
+                computedStyles_.put(node, elementMap);
             }
             elementMap.put(normalizedPseudo, style);
         }
 
-        public synchronized void nodeChanged(final DomNode changed, final boolean clearParents) {
-            final Iterator<Map.Entry<Element, Map<String, CSS2Properties>>> i = computedStyles_.entrySet().iterator();
-            while (i.hasNext()) {
-                final Map.Entry<Element, Map<String, CSS2Properties>> entry = i.next();
-                final DomNode node = entry.getKey().getDomNodeOrDie();
-                if (changed == node
-                    || changed.getParentNode() == node.getParentNode()
-                    || changed.isAncestorOf(node)
-                    || clearParents && node.isAncestorOf(changed)) {
-                    i.remove();
-                }
+        /**
+         * Evicts the styles affected by a change of the given node: the node itself and all
+         * descendants, all siblings (adjacent sibling selectors, :first-child...) and if
+         * required all ancestors. The cost depends on the size of the changed part of the tree,
+         * not on the size of the cache.
+         * @param changed the changed node
+         * @param parent the parent of the changed node; for removed nodes the former parent
+         * @param clearParents whether to evict the ancestors also
+         */
+        public synchronized void nodeChanged(final DomNode changed, final DomNode parent,
+                final boolean clearParents) {
+            if (computedStyles_.isEmpty()) {
+                return;
             }
 
-            // maybe this is a better solution but i have to think a bit more about this
-            //
-            //            if (computedStyles_.isEmpty()) {
-            //                return;
-            //            }
-            //
-            //            // remove all siblings
-            //            DomNode parent = changed.getParentNode();
-            //            if (parent != null) {
-            //                for (DomNode sibling : parent.getChildNodes()) {
-            //                    computedStyles_.remove(sibling.getScriptableObject());
-            //                }
-            //
-            //                if (clearParents) {
-            //                    // remove all parents
-            //                    while (parent != null) {
-            //                        computedStyles_.remove(parent.getScriptableObject());
-            //                        parent = parent.getParentNode();
-            //                    }
-            //                }
-            //            }
-            //
-            //            // remove changed itself and all descendants
-            //            computedStyles_.remove(changed.getScriptableObject());
-            //            for (DomNode descendant : changed.getDescendants()) {
-            //                computedStyles_.remove(descendant.getScriptableObject());
-            //            }
+            // the changed node and all descendants
+            computedStyles_.remove(changed);
+            for (final DomNode descendant : changed.getDescendants()) {
+                computedStyles_.remove(descendant);
+            }
+
+            if (parent != null) {
+                // all siblings
+                for (DomNode sibling = parent.getFirstChild(); sibling != null; sibling = sibling.getNextSibling()) {
+                    computedStyles_.remove(sibling);
+                }
+
+                if (clearParents) {
+                    for (DomNode ancestor = parent; ancestor != null; ancestor = ancestor.getParentNode()) {
+                        computedStyles_.remove(ancestor);
+                    }
+                }
+            }
         }
 
         public synchronized void clear() {
@@ -282,7 +279,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
         }
 
         public synchronized Map<String, CSS2Properties> remove(final Element element) {
-            return computedStyles_.remove(element);
+            return computedStyles_.remove(element.getDomNodeOrDie());
         }
 
         private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -1959,6 +1956,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
      * Clears the computed styles.
      */
     public void clearComputedStyles() {
+        computedStylesGeneration_++;
         cssPropertiesCache_.clear();
     }
 
@@ -1967,6 +1965,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
      * @param element the element to clear its cache
      */
     public void clearComputedStyles(final Element element) {
+        computedStylesGeneration_++;
         cssPropertiesCache_.remove(element);
     }
 
@@ -1976,6 +1975,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
      * @param element the element to clear its cache
      */
     public void clearComputedStylesUpToRoot(final Element element) {
+        computedStylesGeneration_++;
         cssPropertiesCache_.remove(element);
 
         Element parent = element.getParentElement();
@@ -1985,6 +1985,18 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
         }
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the generation of the computed styles. The generation changes whenever the document changes
+     * or some computed styles are cleared; values derived from the computed styles (like the display state
+     * cached by {@link DomNode#isDisplayed()}) are valid as long as the generation does not change.
+     * @return the generation of the computed styles
+     */
+    public int getComputedStylesGeneration() {
+        return computedStylesGeneration_;
+    }
+
     /**
      * <p>Listens for changes anywhere in the document and evicts cached computed styles whenever something relevant
      * changes. Note that the very lazy way of doing this (completely clearing the cache every time something happens)
@@ -2028,7 +2040,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void nodeAdded(final DomChangeEvent event) {
-            nodeChanged(event.getChangedNode(), null);
+            nodeChanged(event.getChangedNode(), event.getParentNode(), null);
         }
 
         /**
@@ -2036,7 +2048,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void nodeDeleted(final DomChangeEvent event) {
-            nodeChanged(event.getChangedNode(), null);
+            nodeChanged(event.getChangedNode(), event.getParentNode(), null);
         }
 
         /**
@@ -2044,7 +2056,8 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void attributeAdded(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
         /**
@@ -2052,7 +2065,8 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void attributeRemoved(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
         /**
@@ -2060,10 +2074,13 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
          */
         @Override
         public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
-        private void nodeChanged(final DomNode changed, final String attribName) {
+        private void nodeChanged(final DomNode changed, final DomNode parent, final String attribName) {
+            computedStylesGeneration_++;
+
             // If a stylesheet was changed, all of our calculations could be off; clear the cache.
             if (changed instanceof HtmlStyle) {
                 clearComputedStyles();
@@ -2079,7 +2096,7 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Fu
 
             // Apparently it wasn't a stylesheet that changed; be semi-smart about what we evict and when.
             final boolean clearParents = ATTRIBUTES_AFFECTING_PARENT.contains(attribName);
-            cssPropertiesCache_.nodeChanged(changed, clearParents);
+            cssPropertiesCache_.nodeChanged(changed, parent, clearParents);
         }
     }
 
@@ -328,7 +328,7 @@ public class CSSStyleSheet extends StyleSheet {
             // now we can look into the cache with the fixed request for
             // a cached script
             final Cache cache = client.getCache();
-            final Object fromCache = cache.getCachedObject(request);
+            final Object fromCache = cache.getCachedObject(request, response);
             if (fromCache instanceof CSSStyleSheetImpl) {
                 uri = request.getUrl().toExternalForm();
                 return new CSSStyleSheet(element, (CSSStyleSheetImpl) fromCache, uri);
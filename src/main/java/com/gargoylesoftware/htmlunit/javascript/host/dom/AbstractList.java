@@ -19,10 +19,10 @@ import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.HTMLCOLLECTIO
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import com.gargoylesoftware.htmlunit.html.DomChangeEvent;
-import com.gargoylesoftware.htmlunit.html.DomChangeListener;
+import com.gargoylesoftware.htmlunit.Page;
 import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.HtmlAttributeChangeEvent;
@@ -67,11 +67,38 @@ public class AbstractList extends SimpleScriptable implements Function, External
 
     private boolean attributeChangeSensitive_;
 
+    /**
+     * Whether the class overrides {@link #getEffectOnCache(HtmlAttributeChangeEvent)}; the modification counters
+     * can't tell which attribute was changed, these collections still listen for attribute changes.
+     */
+    private static final ClassValue<Boolean> FILTERS_ATTRIBUTE_CHANGES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            for (Class<?> c = type; c != AbstractList.class; c = c.getSuperclass()) {
+                try {
+                    c.getDeclaredMethod("getEffectOnCache", HtmlAttributeChangeEvent.class);
+                    return Boolean.TRUE;
+                }
+                catch (final NoSuchMethodException e) {
+                    // check the super class
+                }
+            }
+            return Boolean.FALSE;
+        }
+    };
+
     /**
      * Cache collection elements when possible, so as to avoid expensive XPath expression evaluations.
      */
     private List<DomNode> cachedElements_;
 
+    /**
+     * The modification counts of the dom node the cache was computed for,
+     * see {@link DomNode#getStructureModCount()}.
+     */
+    private int cachedStructureModCount_;
+    private int cachedAttributeModCount_;
+
     private boolean listenerRegistered_;
 
     /**
@@ -122,6 +149,7 @@ public class AbstractList extends SimpleScriptable implements Function, External
         attributeChangeSensitive_ = attributeChangeSensitive;
         cachedElements_ = initialElements;
         if (initialElements != null) {
+            rememberModCounts();
             registerListener();
         }
         setExternalArrayData(this);
@@ -204,7 +232,11 @@ public class AbstractList extends SimpleScriptable implements Function, External
         // a bit strange but we like to avoid sync
         List<DomNode> cachedElements = cachedElements_;
 
+        if (cachedElements != null && isModified()) {
+            cachedElements = null;
+        }
         if (cachedElements == null) {
+            rememberModCounts();
             if (getParentScope() == null) {
                 cachedElements = new ArrayList<>();
             }
@@ -220,13 +252,40 @@ public class AbstractList extends SimpleScriptable implements Function, External
         return cachedElements;
     }
 
+    /**
+     * Returns whether the subtree of the dom node was modified since the cache was computed.
+     * @return whether the cache is outdated
+     */
+    private boolean isModified() {
+        final DomNode domNode = getDomNodeOrNull();
+        if (domNode == null) {
+            return false;
+        }
+        if (domNode.getStructureModCount() != cachedStructureModCount_) {
+            return true;
+        }
+        return attributeChangeSensitive_
+                && !FILTERS_ATTRIBUTE_CHANGES.get(getClass()).booleanValue()
+                && domNode.getAttributeModCount() != cachedAttributeModCount_;
+    }
+
+    private void rememberModCounts() {
+        final DomNode domNode = getDomNodeOrNull();
+        if (domNode != null) {
+            cachedStructureModCount_ = domNode.getStructureModCount();
+            cachedAttributeModCount_ = domNode.getAttributeModCount();
+        }
+    }
+
+    /**
+     * Collections filtering the attribute changes still have to listen for them.
+     */
     private void registerListener() {
         if (!listenerRegistered_) {
             final DomNode domNode = getDomNodeOrNull();
             if (domNode != null) {
-                final DomHtmlAttributeChangeListenerImpl listener = new DomHtmlAttributeChangeListenerImpl(this);
-                domNode.addDomChangeListener(listener);
-                if (attributeChangeSensitive_) {
+                if (attributeChangeSensitive_ && FILTERS_ATTRIBUTE_CHANGES.get(getClass()).booleanValue()) {
+                    final AttributeChangeListenerImpl listener = new AttributeChangeListenerImpl(this);
                     if (domNode instanceof HtmlElement) {
                         ((HtmlElement) domNode).addHtmlAttributeChangeListener(listener);
                     }
@@ -267,6 +326,42 @@ public class AbstractList extends SimpleScriptable implements Function, External
         return domNode.getDescendants();
     }
 
+    /**
+     * Returns the descendants of the reference node that may have the given tag name, taken from the
+     * tag name index of the page if available; can be used as implementation of {@link #getCandidates()}.
+     * @param tagName the tag name
+     * @return the nodes
+     */
+    protected Iterable<DomNode> getTagNameCandidates(final String tagName) {
+        final DomNode domNode = getDomNodeOrNull();
+        final Page page = domNode.getPage();
+        if (page instanceof HtmlPage) {
+            final List<DomElement> candidates = ((HtmlPage) page).getIndexedElementsByTagName(domNode, tagName);
+            if (candidates != null) {
+                return Collections.<DomNode>unmodifiableList(candidates);
+            }
+        }
+        return domNode.getDescendants();
+    }
+
+    /**
+     * Returns the descendants of the reference node that may have the given class name, taken from the
+     * class name index of the page if available; can be used as implementation of {@link #getCandidates()}.
+     * @param className the class name
+     * @return the nodes
+     */
+    protected Iterable<DomNode> getClassNameCandidates(final String className) {
+        final DomNode domNode = getDomNodeOrNull();
+        final Page page = domNode.getPage();
+        if (page instanceof HtmlPage) {
+            final List<DomElement> candidates = ((HtmlPage) page).getIndexedElementsByClassName(domNode, className);
+            if (candidates != null) {
+                return Collections.<DomNode>unmodifiableList(candidates);
+            }
+        }
+        return domNode.getDescendants();
+    }
+
     /**
      * Indicates if the node should belong to the collection.
      * Belongs to the refactoring effort to improve HTMLCollection's performance.
@@ -417,33 +512,16 @@ public class AbstractList extends SimpleScriptable implements Function, External
         return super.equivalentValues(other);
     }
 
-    private static final class DomHtmlAttributeChangeListenerImpl
-                                    implements DomChangeListener, HtmlAttributeChangeListener {
+    private static final class AttributeChangeListenerImpl implements HtmlAttributeChangeListener {
 
         private transient WeakReference<AbstractList> nodeList_;
 
-        DomHtmlAttributeChangeListenerImpl(final AbstractList nodeList) {
+        AttributeChangeListenerImpl(final AbstractList nodeList) {
             super();
 
             nodeList_ = new WeakReference<>(nodeList);
         }
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeAdded(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeDeleted(final DomChangeEvent event) {
-            clearCache();
-        }
-
         /**
          * {@inheritDoc}
          */
@@ -465,13 +543,7 @@ public class AbstractList extends SimpleScriptable implements Function, External
          */
         @Override
         public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            final AbstractList nodes = nodeList_.get();
-            if (null == nodes) {
-                return;
-            }
-            if (nodes.attributeChangeSensitive_) {
-                handleChangeOnCache(event);
-            }
+            handleChangeOnCache(event);
         }
 
         private void handleChangeOnCache(final HtmlAttributeChangeEvent event) {
@@ -485,13 +557,6 @@ public class AbstractList extends SimpleScriptable implements Function, External
                 return;
             }
             if (EffectOnCache.RESET == effectOnCache) {
-                clearCache();
-            }
-        }
-
-        private void clearCache() {
-            final AbstractList nodes = nodeList_.get();
-            if (null != nodes) {
                 nodes.cachedElements_ = null;
             }
         }
@@ -773,6 +773,11 @@ public class Document extends Node {
                 protected boolean isMatching(final DomNode node) {
                     return tagName.equalsIgnoreCase(node.getNodeName());
                 }
+
+                @Override
+                protected Iterable<DomNode> getCandidates() {
+                    return getTagNameCandidates(tagName);
+                }
             };
         }
 
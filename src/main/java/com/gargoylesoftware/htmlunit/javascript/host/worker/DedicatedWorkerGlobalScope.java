@@ -23,6 +23,7 @@ import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBr
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -56,7 +57,9 @@ import net.sourceforge.htmlunit.corejs.javascript.ContextAction;
 import net.sourceforge.htmlunit.corejs.javascript.ContextFactory;
 import net.sourceforge.htmlunit.corejs.javascript.Function;
 import net.sourceforge.htmlunit.corejs.javascript.Script;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptRuntime;
 import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptableObject;
 import net.sourceforge.htmlunit.corejs.javascript.Undefined;
 
 /**
@@ -74,6 +77,9 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
     private final Window owningWindow_;
     private final String origin_;
     private final Worker worker_;
+    private final transient WorkerExecutor workerExecutor_;
+    private final HtmlUnitScriptable messageEventPrototype_;
+    private URL workerUrl_;
 
     /**
      * For prototype instantiation.
@@ -83,6 +89,8 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
         owningWindow_ = null;
         origin_ = null;
         worker_ = null;
+        workerExecutor_ = null;
+        messageEventPrototype_ = null;
     }
 
     /**
@@ -111,6 +119,24 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
         origin_ = currentURL.getProtocol() + "://" + currentURL.getHost() + ':' + currentURL.getPort();
 
         worker_ = worker;
+
+        if (owningWindow.getWebWindow().getWebClient().getOptions().isParallelWorkers()) {
+            workerExecutor_ = new WorkerExecutor(owningWindow.getWebWindow().getJobManager(),
+                    owningWindow.getDocument().getPage());
+            // the events of the worker thread must not reference any object of the window
+            final HtmlUnitScriptable eventPrototype = JavaScriptEngine.configureClass(
+                    AbstractJavaScriptConfiguration.getClassConfiguration(Event.class, browserVersion),
+                    this, browserVersion);
+            eventPrototype.setPrototype(ScriptableObject.getObjectPrototype(this));
+            messageEventPrototype_ = JavaScriptEngine.configureClass(
+                    AbstractJavaScriptConfiguration.getClassConfiguration(MessageEvent.class, browserVersion),
+                    this, browserVersion);
+            messageEventPrototype_.setPrototype(eventPrototype);
+        }
+        else {
+            workerExecutor_ = null;
+            messageEventPrototype_ = null;
+        }
     }
 
     /**
@@ -168,20 +194,26 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
      */
     @JsxFunction
     public void postMessage(final Object message) {
-        final MessageEvent event = new MessageEvent();
-        event.initMessageEvent(Event.TYPE_MESSAGE, false, false, message, origin_, "",
-                                    owningWindow_, Undefined.instance);
-        event.setParentScope(owningWindow_);
-        event.setPrototype(owningWindow_.getPrototype(event.getClass()));
-
         if (LOG.isDebugEnabled()) {
             LOG.debug("[DedicatedWorker] postMessage: {}" + message);
         }
+
+        // running on the thread of the worker; the window gets a copy
+        final Object data = workerExecutor_ == null ? message : StructuredClone.serialize(message);
+
         final JavaScriptEngine jsEngine =
                 (JavaScriptEngine) owningWindow_.getWebWindow().getWebClient().getJavaScriptEngine();
         final ContextAction<Object> action = new ContextAction<Object>() {
             @Override
             public Object run(final Context cx) {
+                final MessageEvent event;
+                if (workerExecutor_ == null) {
+                    event = createMessageEvent(data);
+                }
+                else {
+                    event = createMessageEvent(StructuredClone.deserialize(cx, owningWindow_, data));
+                }
+
                 worker_.getEventListenersContainer().executeCapturingListeners(event, null);
                 final Object[] args = {event};
                 worker_.getEventListenersContainer().executeBubblingListeners(event, args);
@@ -198,14 +230,27 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
     }
 
     void messagePosted(final Object message) {
-        final MessageEvent event = new MessageEvent();
-        event.initMessageEvent(Event.TYPE_MESSAGE, false, false, message, origin_, "",
-                                    owningWindow_, Undefined.instance);
-        event.setParentScope(owningWindow_);
-        event.setPrototype(owningWindow_.getPrototype(event.getClass()));
-
         final JavaScriptEngine jsEngine =
                 (JavaScriptEngine) owningWindow_.getWebWindow().getWebClient().getJavaScriptEngine();
+        final ContextFactory cf = jsEngine.getContextFactory();
+        final String description = "messagePosted: " + Context.toString(message);
+
+        if (workerExecutor_ != null) {
+            // running on the thread of the window; the worker gets a copy
+            final Object data = StructuredClone.serialize(message);
+            final DedicatedWorkerGlobalScope thisScope = this;
+            final ContextAction<Object> action = new ContextAction<Object>() {
+                @Override
+                public Object run(final Context cx) {
+                    executeEvent(cx, createWorkerMessageEvent(StructuredClone.deserialize(cx, thisScope, data)));
+                    return null;
+                }
+            };
+            workerExecutor_.execute(cf, action, description, 0, false);
+            return;
+        }
+
+        final MessageEvent event = createMessageEvent(message);
         final ContextAction<Object> action = new ContextAction<Object>() {
             @Override
             public Object run(final Context cx) {
@@ -214,14 +259,32 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
             }
         };
 
-        final ContextFactory cf = jsEngine.getContextFactory();
-
-        final JavaScriptJob job = new WorkerJob(cf, action, "messagePosted: " + Context.toString(message));
+        final JavaScriptJob job = new WorkerJob(cf, action, description);
 
         final HtmlPage page = (HtmlPage) owningWindow_.getDocument().getPage();
         owningWindow_.getWebWindow().getJobManager().addJob(job, page);
     }
 
+    private MessageEvent createMessageEvent(final Object message) {
+        final MessageEvent event = new MessageEvent();
+        event.initMessageEvent(Event.TYPE_MESSAGE, false, false, message, origin_, "",
+                                    owningWindow_, Undefined.instance);
+        event.setParentScope(owningWindow_);
+        event.setPrototype(owningWindow_.getPrototype(event.getClass()));
+        return event;
+    }
+
+    /**
+     * Creates the event for the thread of the worker inside the scope of the worker.
+     */
+    private MessageEvent createWorkerMessageEvent(final Object message) {
+        final MessageEvent event = new MessageEvent();
+        event.initMessageEvent(Event.TYPE_MESSAGE, false, false, message, origin_, "", null, Undefined.instance);
+        event.setParentScope(this);
+        event.setPrototype(messageEventPrototype_);
+        return event;
+    }
+
     void executeEvent(final Context cx, final MessageEvent event) {
         final List<Scriptable> handlers = getEventListenersContainer().getListeners(Event.TYPE_MESSAGE, false);
         if (handlers != null) {
@@ -267,6 +330,32 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
     void loadAndExecute(final WebClient webClient, final String url,
             final Context context, final boolean checkMimeType) throws IOException {
         final HtmlPage page = (HtmlPage) owningWindow_.getDocument().getPage();
+
+        if (workerExecutor_ != null) {
+            if (context != null) {
+                // importScripts() on the thread of the worker; resolved against the url of the worker
+                loadAndExecute(webClient, new URL(workerUrl_, url), context, checkMimeType);
+                return;
+            }
+
+            workerUrl_ = page.getFullyQualifiedUrl(url);
+            final ContextAction<Object> action = new ContextAction<Object>() {
+                @Override
+                public Object run(final Context cx) {
+                    try {
+                        loadAndExecute(webClient, workerUrl_, cx, checkMimeType);
+                    }
+                    catch (final IOException e) {
+                        throw Context.throwAsScriptRuntimeEx(e);
+                    }
+                    return null;
+                }
+            };
+            workerExecutor_.execute(javaScriptEngine(webClient).getContextFactory(), action,
+                    "loadAndExecute " + url, 0, false);
+            return;
+        }
+
         final URL fullUrl = page.getFullyQualifiedUrl(url);
 
         final WebRequest webRequest = new WebRequest(fullUrl);
@@ -301,6 +390,60 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
         }
     }
 
+    /**
+     * Loads and executes the script on the thread of the worker. The JavaScript engine is not used
+     * because it serializes all executions for the page.
+     */
+    private void loadAndExecute(final WebClient webClient, final URL fullUrl,
+            final Context context, final boolean checkMimeType) throws IOException {
+        final WebResponse response = webClient.loadWebResponse(new WebRequest(fullUrl));
+        if (checkMimeType && !MimeType.isJavascriptMimeType(response.getContentType())) {
+            throw Context.reportRuntimeError(
+                    "NetworkError: importScripts response is not a javascript response");
+        }
+
+        final Script script = context.compileString(response.getContentAsString(), fullUrl.toExternalForm(), 1, null);
+        if (script != null) {
+            script.exec(context, this);
+        }
+    }
+
+    private static JavaScriptEngine javaScriptEngine(final WebClient webClient) {
+        return (JavaScriptEngine) webClient.getJavaScriptEngine();
+    }
+
+    /**
+     * Runs the timer on the thread of the worker.
+     */
+    private int setTimeoutIntervalImpl(final Object[] args, final boolean isTimeout) {
+        if (args.length < 1) {
+            throw ScriptRuntime.typeError("Function not provided");
+        }
+
+        // same minimum as for the window
+        final int timeout = Math.max(1, ScriptRuntime.toInt32((args.length > 1) ? args[1] : Undefined.instance));
+        final Object[] params = (args.length > 2)
+                ? Arrays.copyOfRange(args, 2, args.length)
+                : ScriptRuntime.emptyArgs;
+        final Object code = args[0];
+
+        final DedicatedWorkerGlobalScope thisScope = this;
+        final ContextAction<Object> action = new ContextAction<Object>() {
+            @Override
+            public Object run(final Context cx) {
+                if (code instanceof Function) {
+                    return ((Function) code).call(cx, thisScope, thisScope, params);
+                }
+                return cx.evaluateString(thisScope, Context.toString(code), "worker timer", 1, null);
+            }
+        };
+
+        final String description = "worker.set" + (isTimeout ? "Timeout" : "Interval") + "(" + timeout + ")";
+        final WebClient webClient = owningWindow_.getWebWindow().getWebClient();
+        return workerExecutor_.execute(javaScriptEngine(webClient).getContextFactory(), action,
+                description, timeout, !isTimeout);
+    }
+
     /**
      * Sets a chunk of JavaScript to be invoked at some specified time later.
      * The invocation occurs only if the window is opened after the delay
@@ -318,8 +461,11 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
     @JsxFunction
     public static Object setTimeout(final Context context, final Scriptable thisObj,
             final Object[] args, final Function function) {
-        return WindowOrWorkerGlobalScopeMixin.setTimeout(context,
-                ((DedicatedWorkerGlobalScope) thisObj).owningWindow_, args, function);
+        final DedicatedWorkerGlobalScope scope = (DedicatedWorkerGlobalScope) thisObj;
+        if (scope.workerExecutor_ != null) {
+            return scope.setTimeoutIntervalImpl(args, true);
+        }
+        return WindowOrWorkerGlobalScopeMixin.setTimeout(context, scope.owningWindow_, args, function);
     }
 
     /**
@@ -336,8 +482,11 @@ public class DedicatedWorkerGlobalScope extends EventTarget implements WindowOrW
     @JsxFunction
     public static Object setInterval(final Context context, final Scriptable thisObj,
             final Object[] args, final Function function) {
-        return WindowOrWorkerGlobalScopeMixin.setInterval(context,
-                ((DedicatedWorkerGlobalScope) thisObj).owningWindow_, args, function);
+        final DedicatedWorkerGlobalScope scope = (DedicatedWorkerGlobalScope) thisObj;
+        if (scope.workerExecutor_ != null) {
+            return scope.setTimeoutIntervalImpl(args, false);
+        }
+        return WindowOrWorkerGlobalScopeMixin.setInterval(context, scope.owningWindow_, args, function);
     }
 }
 
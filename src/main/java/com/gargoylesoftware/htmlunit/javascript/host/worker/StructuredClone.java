@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.worker;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.htmlunit.corejs.javascript.Context;
+import net.sourceforge.htmlunit.corejs.javascript.Function;
+import net.sourceforge.htmlunit.corejs.javascript.NativeArray;
+import net.sourceforge.htmlunit.corejs.javascript.NativeObject;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptRuntime;
+import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptableObject;
+import net.sourceforge.htmlunit.corejs.javascript.Undefined;
+import net.sourceforge.htmlunit.corejs.javascript.typedarrays.NativeArrayBuffer;
+import net.sourceforge.htmlunit.corejs.javascript.typedarrays.NativeArrayBufferView;
+import net.sourceforge.htmlunit.corejs.javascript.typedarrays.NativeTypedArrayView;
+
+/**
+ * A simplified implementation of the
+ * <a href="https://html.spec.whatwg.org/multipage/structured-data.html">structured clone</a> algorithm
+ * used to pass messages between workers running on their own thread and the owning window.
+ *
+ * <p>The value is converted into plain java objects by the thread of the sender and back into JavaScript
+ * objects of the scope of the receiver by the thread of the receiver; sender and receiver never share
+ * an object. Supported are primitives, strings, arrays, dates, plain objects (including cycles),
+ * array buffers and their views; the bytes are copied. Functions and all other (host) objects
+ * can't be cloned and raise a <tt>DataCloneError</tt>.</p>
+ */
+final class StructuredClone {
+
+    private StructuredClone() {
+    }
+
+    /**
+     * Converts the given JavaScript value into plain java objects.
+     * @param value the value
+     * @return the serialized value
+     */
+    static Object serialize(final Object value) {
+        return serialize(value, new IdentityHashMap<>());
+    }
+
+    private static Object serialize(final Object value, final Map<Object, Object> seen) {
+        if (value == null || value instanceof Boolean || value instanceof Number || Undefined.isUndefined(value)) {
+            return value;
+        }
+        if (value instanceof CharSequence) {
+            return value.toString();
+        }
+
+        final Object known = seen.get(value);
+        if (known != null) {
+            return known;
+        }
+
+        if (value instanceof NativeArray) {
+            final NativeArray array = (NativeArray) value;
+            final List<Object> list = new ArrayList<>();
+            seen.put(value, list);
+
+            final long length = array.getLength();
+            for (int i = 0; i < length; i++) {
+                final Object element = array.get(i, array);
+                list.add(element == Scriptable.NOT_FOUND ? Undefined.instance : serialize(element, seen));
+            }
+            return list;
+        }
+
+        if (value instanceof NativeObject) {
+            final NativeObject object = (NativeObject) value;
+            final Map<Object, Object> map = new LinkedHashMap<>();
+            seen.put(value, map);
+
+            for (final Object id : object.getIds()) {
+                final Object property;
+                if (id instanceof Integer) {
+                    property = object.get(((Integer) id).intValue(), object);
+                }
+                else {
+                    property = object.get(id.toString(), object);
+                }
+                map.put(id, serialize(property, seen));
+            }
+            return map;
+        }
+
+        if (value instanceof Function) {
+            throw Context.reportRuntimeError("DataCloneError: function could not be cloned.");
+        }
+
+        if (value instanceof ScriptableObject && "Date".equals(((ScriptableObject) value).getClassName())) {
+            final DateValue date = new DateValue(ScriptRuntime.toNumber(value));
+            seen.put(value, date);
+            return date;
+        }
+
+        if (value instanceof NativeArrayBuffer) {
+            final BufferValue buffer = new BufferValue(((NativeArrayBuffer) value).getBuffer().clone());
+            seen.put(value, buffer);
+            return buffer;
+        }
+
+        if (value instanceof NativeArrayBufferView) {
+            final NativeArrayBufferView view = (NativeArrayBufferView) value;
+            int length = view.getByteLength();
+            if (view instanceof NativeTypedArrayView) {
+                length = length / ((NativeTypedArrayView<?>) view).getBytesPerElement();
+            }
+            final ViewValue viewValue = new ViewValue(view.getClassName(),
+                    (BufferValue) serialize(view.getBuffer(), seen), view.getByteOffset(), length);
+            seen.put(value, viewValue);
+            return viewValue;
+        }
+
+        final String className = value instanceof Scriptable ? ((Scriptable) value).getClassName() : "object";
+        throw Context.reportRuntimeError("DataCloneError: " + className + " could not be cloned.");
+    }
+
+    /**
+     * Converts the result of {@link #serialize(Object)} into JavaScript objects of the given scope.
+     * @param cx the current context
+     * @param scope the scope of the receiver
+     * @param value the serialized value
+     * @return the JavaScript value
+     */
+    static Object deserialize(final Context cx, final Scriptable scope, final Object value) {
+        return deserialize(cx, scope, value, new IdentityHashMap<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object deserialize(final Context cx, final Scriptable scope, final Object value,
+            final Map<Object, Object> seen) {
+        // primitives
+        if (!(value instanceof List || value instanceof Map
+                || value instanceof DateValue || value instanceof BufferValue || value instanceof ViewValue)) {
+            return value;
+        }
+
+        final Object known = seen.get(value);
+        if (known != null) {
+            return known;
+        }
+
+        if (value instanceof DateValue) {
+            final Scriptable date = cx.newObject(scope, "Date", new Object[] {((DateValue) value).time_});
+            seen.put(value, date);
+            return date;
+        }
+
+        if (value instanceof BufferValue) {
+            final byte[] bytes = ((BufferValue) value).bytes_;
+            final NativeArrayBuffer buffer =
+                    (NativeArrayBuffer) cx.newObject(scope, "ArrayBuffer", new Object[] {bytes.length});
+            System.arraycopy(bytes, 0, buffer.getBuffer(), 0, bytes.length);
+            seen.put(value, buffer);
+            return buffer;
+        }
+
+        if (value instanceof ViewValue) {
+            final ViewValue viewValue = (ViewValue) value;
+            final Object buffer = deserialize(cx, scope, viewValue.buffer_, seen);
+            final Scriptable view = cx.newObject(scope, viewValue.className_,
+                    new Object[] {buffer, viewValue.byteOffset_, viewValue.length_});
+            seen.put(value, view);
+            return view;
+        }
+
+        if (value instanceof List) {
+            final List<Object> list = (List<Object>) value;
+            final Scriptable array = cx.newArray(scope, 0);
+            seen.put(value, array);
+            for (int i = 0; i < list.size(); i++) {
+                array.put(i, array, deserialize(cx, scope, list.get(i), seen));
+            }
+            return array;
+        }
+
+        final Scriptable object = cx.newObject(scope);
+        seen.put(value, object);
+        for (final Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+            final Object id = entry.getKey();
+            final Object property = deserialize(cx, scope, entry.getValue(), seen);
+            if (id instanceof Integer) {
+                object.put(((Integer) id).intValue(), object, property);
+            }
+            else {
+                object.put(id.toString(), object, property);
+            }
+        }
+        return object;
+    }
+
+    /**
+     * The serialized form of a date.
+     */
+    private static final class DateValue {
+        private final double time_;
+
+        DateValue(final double time) {
+            time_ = time;
+        }
+    }
+
+    /**
+     * The serialized form of an array buffer; a copy of the bytes.
+     */
+    private static final class BufferValue {
+        private final byte[] bytes_;
+
+        BufferValue(final byte[] bytes) {
+            bytes_ = bytes;
+        }
+    }
+
+    /**
+     * The serialized form of a typed array or a data view.
+     */
+    private static final class ViewValue {
+        private final String className_;
+        private final BufferValue buffer_;
+        private final int byteOffset_;
+        private final int length_;
+
+        ViewValue(final String className, final BufferValue buffer, final int byteOffset, final int length) {
+            className_ = className;
+            buffer_ = buffer;
+            byteOffset_ = byteOffset;
+            length_ = length;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.worker;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.javascript.TimeoutError;
+import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJobManager;
+
+import net.sourceforge.htmlunit.corejs.javascript.ContextAction;
+import net.sourceforge.htmlunit.corejs.javascript.ContextFactory;
+
+/**
+ * Executes the jobs of one {@link Worker} on a thread of its own.
+ *
+ * <p>Every job is registered as pending job at the job manager of the owning window
+ * (see {@link JavaScriptJobManager#addPendingJob(com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJob,
+ * Page)}) and removed from there when done; this way the jobs of the worker are taken into account
+ * when waiting for the background JavaScript and are dropped together with the jobs of the page.
+ * The thread terminates if there is nothing to do for a second.</p>
+ */
+final class WorkerExecutor {
+
+    private static final Log LOG = LogFactory.getLog(WorkerExecutor.class);
+
+    private static final AtomicInteger THREAD_NUMBER_ = new AtomicInteger(1);
+
+    private final ScheduledThreadPoolExecutor executor_;
+    private final JavaScriptJobManager jobManager_;
+    private final Page page_;
+
+    /**
+     * Ctor.
+     * @param jobManager the job manager of the owning window
+     * @param page the page that created the worker
+     */
+    WorkerExecutor(final JavaScriptJobManager jobManager, final Page page) {
+        jobManager_ = jobManager;
+        page_ = page;
+
+        executor_ = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "JS Worker " + THREAD_NUMBER_.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor_.setKeepAliveTime(1, TimeUnit.SECONDS);
+        executor_.allowCoreThreadTimeOut(true);
+        executor_.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Runs the given action on the thread of the worker.
+     * @param contextFactory the context factory
+     * @param action the action to run
+     * @param description the description of the job
+     * @param delay the delay in milliseconds
+     * @param periodic if true the action is executed again and again every delay milliseconds
+     *        until the job is removed
+     * @return the id of the job or 0 if the page is no longer active
+     */
+    int execute(final ContextFactory contextFactory, final ContextAction<Object> action,
+            final String description, final int delay, final boolean periodic) {
+        final WorkerJob job = new WorkerJob(contextFactory, action, description);
+        job.setTargetExecutionTime(System.currentTimeMillis() + delay);
+        final int id = jobManager_.addPendingJob(job, page_);
+        if (id == 0) {
+            return 0;
+        }
+
+        final AtomicReference<Future<?>> future = new AtomicReference<>();
+        final Runnable task = () -> {
+            if (jobManager_.getJobCount(j -> j == job) == 0) {
+                // removed in the meantime
+                final Future<?> scheduled = future.get();
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                return;
+            }
+
+            try {
+                contextFactory.call(action);
+            }
+            catch (final RuntimeException | TimeoutError e) {
+                LOG.error("Worker job failed: " + e.getMessage(), e);
+            }
+            finally {
+                if (periodic) {
+                    job.setTargetExecutionTime(System.currentTimeMillis() + delay);
+                }
+                else {
+                    jobManager_.removeJob(id);
+                }
+            }
+        };
+
+        try {
+            if (periodic) {
+                future.set(executor_.scheduleWithFixedDelay(task, delay, delay, TimeUnit.MILLISECONDS));
+            }
+            else {
+                executor_.schedule(task, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        catch (final RejectedExecutionException e) {
+            jobManager_.removeJob(id);
+            return 0;
+        }
+        return id;
+    }
+}
@@ -44,6 +44,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -63,6 +67,7 @@ import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 import com.gargoylesoftware.htmlunit.javascript.background.BackgroundJavaScriptFactory;
 import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJob;
+import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJobManager;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxClass;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxConstant;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxConstructor;
@@ -618,6 +623,9 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
                 setState(OPENED, Context.getCurrentContext());
             }
 
+            // the response is loaded in the background (see loadAsync()) and processed later by the job
+            final LoadResult loadResult = client.getOptions().isNonBlockingXMLHttpRequest() ? new LoadResult() : null;
+
             // Create and start a thread in which to execute the request.
             final Scriptable startingScope = w;
             final ContextFactory cf = ((JavaScriptEngine) client.getJavaScriptEngine()).getContextFactory();
@@ -635,7 +643,12 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
                     stack.push(startingScope);
 
                     try {
-                        doSend(cx);
+                        if (loadResult == null) {
+                            doSend(cx);
+                        }
+                        else {
+                            processResponse(cx, loadResult);
+                        }
                     }
                     finally {
                         stack.pop();
@@ -650,10 +663,45 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
             };
             final JavaScriptJob job = BackgroundJavaScriptFactory.theFactory().
                     createJavascriptXMLHttpRequestJob(cf, action);
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Starting XMLHttpRequest thread for asynchronous request");
+            if (loadResult == null) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Starting XMLHttpRequest thread for asynchronous request");
+                }
+                jobID_ = ww.getJobManager().addJob(job, page);
+            }
+            else {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Loading the response of the asynchronous request in the background");
+                }
+                final JavaScriptJobManager jobManager = ww.getJobManager();
+                final int jobId = jobManager.addPendingJob(job, page);
+                jobID_ = jobId;
+                if (jobId != 0) {
+                    final WebRequest request = webRequest_;
+                    try {
+                        // the executor only sends the request if the web connection supports non blocking io
+                        CompletableFuture
+                            .supplyAsync(() -> loadAsync(client, request, loadResult), client.getExecutor())
+                            .thenCompose(Function.identity())
+                            .whenComplete((result, throwable) -> {
+                                if (throwable != null && !loadResult.setFailure(throwable)) {
+                                    if (LOG.isDebugEnabled()) {
+                                        LOG.debug("Executor rejected the request, client is closed", throwable);
+                                    }
+                                    jobManager.removeJob(jobId);
+                                    return;
+                                }
+                                jobManager.releasePendingJob(jobId);
+                            });
+                    }
+                    catch (final RejectedExecutionException e) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Executor rejected the request, client is closed", e);
+                        }
+                        jobManager.removeJob(jobId);
+                    }
+                }
             }
-            jobID_ = ww.getJobManager().addJob(job, page);
         }
     }
 
@@ -707,54 +755,138 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
      * @param context the current context
      */
     void doSend(final Context context) {
-        final WebClient wc = getWindow().getWebWindow().getWebClient();
-        try {
-            final String originHeaderValue = webRequest_.getAdditionalHeaders().get(HttpHeader.ORIGIN);
-            if (originHeaderValue != null && isPreflight()) {
-                final WebRequest preflightRequest = new WebRequest(webRequest_.getUrl(), HttpMethod.OPTIONS);
-
-                // header origin
-                preflightRequest.setAdditionalHeader(HttpHeader.ORIGIN, originHeaderValue);
-
-                // header request-method
-                preflightRequest.setAdditionalHeader(
-                        HttpHeader.ACCESS_CONTROL_REQUEST_METHOD,
-                        webRequest_.getHttpMethod().name());
-
-                // header request-headers
-                final StringBuilder builder = new StringBuilder();
-                for (final Entry<String, String> header
-                        : new TreeMap<>(webRequest_.getAdditionalHeaders()).entrySet()) {
-                    final String name = header.getKey().toLowerCase(Locale.ROOT);
-                    if (isPreflightHeader(name, header.getValue())) {
-                        if (builder.length() != 0) {
-                            builder.append(',');
-                        }
-                        builder.append(name);
-                    }
-                }
-                preflightRequest.setAdditionalHeader(HttpHeader.ACCESS_CONTROL_REQUEST_HEADERS, builder.toString());
+        final LoadResult loadResult = new LoadResult();
+        load(getWindow().getWebWindow().getWebClient(), webRequest_, loadResult);
+        processResponse(context, loadResult);
+    }
 
-                // do the preflight request
+    /**
+     * The network part of the send job; does the preflight request (if needed) and loads the response.
+     * This does not touch the state of this object, therefore it is safe to call this from any thread.
+     * @param wc the web client
+     * @param request the request
+     * @param loadResult the result to fill
+     */
+    private static void load(final WebClient wc, final WebRequest request, final LoadResult loadResult) {
+        try {
+            final WebRequest preflightRequest = createPreflightRequest(request);
+            if (preflightRequest != null) {
                 final WebResponse preflightResponse = wc.loadWebResponse(preflightRequest);
-                if (!isPreflightAuthorized(preflightResponse)) {
-                    setState(HEADERS_RECEIVED, context);
-                    setState(LOADING, context);
-                    setState(DONE, context);
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("No permitted request for URL " + webRequest_.getUrl());
-                    }
-                    Context.throwAsScriptRuntimeEx(
-                            new RuntimeException("No permitted \"Access-Control-Allow-Origin\" header."));
+                if (!isPreflightAuthorized(request, preflightResponse)) {
+                    loadResult.preflightRejected_ = true;
                     return;
                 }
             }
-            final WebResponse webResponse = wc.loadWebResponse(webRequest_);
+            loadResult.setWebResponse(wc.loadWebResponse(request));
+        }
+        catch (final IOException e) {
+            loadResult.exception_ = e;
+        }
+        catch (final RuntimeException e) {
+            // rethrown by processResponse() on the JavaScript thread
+            loadResult.runtimeException_ = e;
+        }
+    }
+
+    /**
+     * The non blocking variant of {@link #load(WebClient, WebRequest, LoadResult)}; the requests are sent using
+     * {@link WebClient#loadWebResponseAsync(WebRequest)}, no thread waits for the responses.
+     * @param wc the web client
+     * @param request the request
+     * @param loadResult the result to fill
+     * @return the future completed when the result is filled; completed exceptionally if loading fails
+     */
+    private static CompletableFuture<Void> loadAsync(final WebClient wc, final WebRequest request,
+            final LoadResult loadResult) {
+        final CompletableFuture<Boolean> preflight;
+        try {
+            final WebRequest preflightRequest = createPreflightRequest(request);
+            if (preflightRequest == null) {
+                preflight = CompletableFuture.completedFuture(Boolean.TRUE);
+            }
+            else {
+                preflight = wc.loadWebResponseAsync(preflightRequest)
+                        .thenApply(preflightResponse -> isPreflightAuthorized(request, preflightResponse));
+            }
+        }
+        catch (final RuntimeException e) {
+            final CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        return preflight.thenCompose(authorized -> {
+            if (!authorized.booleanValue()) {
+                loadResult.preflightRejected_ = true;
+                return CompletableFuture.completedFuture(null);
+            }
+            return wc.loadWebResponseAsync(request).thenAccept(loadResult::setWebResponse);
+        });
+    }
+
+    /**
+     * Creates the preflight request for the given request.
+     * @param request the request
+     * @return the preflight request or {@code null} if no preflight is needed
+     */
+    private static WebRequest createPreflightRequest(final WebRequest request) {
+        final String originHeaderValue = request.getAdditionalHeaders().get(HttpHeader.ORIGIN);
+        if (originHeaderValue == null || !isPreflight(request)) {
+            return null;
+        }
+        final WebRequest preflightRequest = new WebRequest(request.getUrl(), HttpMethod.OPTIONS);
+
+        // header origin
+        preflightRequest.setAdditionalHeader(HttpHeader.ORIGIN, originHeaderValue);
+
+        // header request-method
+        preflightRequest.setAdditionalHeader(
+                HttpHeader.ACCESS_CONTROL_REQUEST_METHOD,
+                request.getHttpMethod().name());
+
+        // header request-headers
+        final StringBuilder builder = new StringBuilder();
+        for (final Entry<String, String> header
+                : new TreeMap<>(request.getAdditionalHeaders()).entrySet()) {
+            final String name = header.getKey().toLowerCase(Locale.ROOT);
+            if (isPreflightHeader(name, header.getValue())) {
+                if (builder.length() != 0) {
+                    builder.append(',');
+                }
+                builder.append(name);
+            }
+        }
+        preflightRequest.setAdditionalHeader(HttpHeader.ACCESS_CONTROL_REQUEST_HEADERS, builder.toString());
+        return preflightRequest;
+    }
+
+    /**
+     * The JavaScript part of the send job; processes the response and fires the state changes.
+     * @param context the current context
+     * @param loadResult the result of {@link #load(WebClient, WebRequest, LoadResult)}
+     */
+    private void processResponse(final Context context, final LoadResult loadResult) {
+        if (loadResult.runtimeException_ != null) {
+            throw loadResult.runtimeException_;
+        }
+        if (loadResult.preflightRejected_) {
+            setState(HEADERS_RECEIVED, context);
+            setState(LOADING, context);
+            setState(DONE, context);
             if (LOG.isDebugEnabled()) {
-                LOG.debug("Web response loaded successfully.");
+                LOG.debug("No permitted request for URL " + webRequest_.getUrl());
             }
-            // this kind of web responses using UTF-8 as default encoding
-            webResponse.defaultCharsetUtf8();
+            Context.throwAsScriptRuntimeEx(
+                    new RuntimeException("No permitted \"Access-Control-Allow-Origin\" header."));
+            return;
+        }
+
+        try {
+            if (loadResult.exception_ != null) {
+                throw loadResult.exception_;
+            }
+            final WebResponse webResponse = loadResult.webResponse_;
+            final String originHeaderValue = webRequest_.getAdditionalHeaders().get(HttpHeader.ORIGIN);
 
             boolean allowOriginResponse = true;
             if (originHeaderValue != null) {
@@ -831,12 +963,12 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
         }
     }
 
-    private boolean isPreflight() {
-        final HttpMethod method = webRequest_.getHttpMethod();
+    private static boolean isPreflight(final WebRequest request) {
+        final HttpMethod method = request.getHttpMethod();
         if (method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.POST) {
             return true;
         }
-        for (final Entry<String, String> header : webRequest_.getAdditionalHeaders().entrySet()) {
+        for (final Entry<String, String> header : request.getAdditionalHeaders().entrySet()) {
             if (isPreflightHeader(header.getKey().toLowerCase(Locale.ROOT), header.getValue())) {
                 return true;
             }
@@ -844,10 +976,10 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
         return false;
     }
 
-    private boolean isPreflightAuthorized(final WebResponse preflightResponse) {
+    private static boolean isPreflightAuthorized(final WebRequest request, final WebResponse preflightResponse) {
         final String originHeader = preflightResponse.getResponseHeaderValue(HttpHeader.ACCESS_CONTROL_ALLOW_ORIGIN);
         if (!ALLOW_ORIGIN_ALL.equals(originHeader)
-                && !webRequest_.getAdditionalHeaders().get(HttpHeader.ORIGIN).equals(originHeader)) {
+                && !request.getAdditionalHeaders().get(HttpHeader.ORIGIN).equals(originHeader)) {
             return false;
         }
         String headersHeader = preflightResponse.getResponseHeaderValue(HttpHeader.ACCESS_CONTROL_ALLOW_HEADERS);
@@ -857,7 +989,7 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
         else {
             headersHeader = headersHeader.toLowerCase(Locale.ROOT);
         }
-        for (final Entry<String, String> header : webRequest_.getAdditionalHeaders().entrySet()) {
+        for (final Entry<String, String> header : request.getAdditionalHeaders().entrySet()) {
             final String key = header.getKey().toLowerCase(Locale.ROOT);
             if (isPreflightHeader(key, header.getValue())
                     && !headersHeader.contains(key)) {
@@ -1022,6 +1154,51 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
         return upload;
     }
 
+    /**
+     * The result of the network part of the send job.
+     */
+    private static final class LoadResult {
+        // written by the thread loading the response, read by the JavaScript thread
+        private volatile boolean preflightRejected_;
+        private volatile WebResponse webResponse_;
+        private volatile IOException exception_;
+        private volatile RuntimeException runtimeException_;
+
+        void setWebResponse(final WebResponse webResponse) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Web response loaded successfully.");
+            }
+            // this kind of web responses using UTF-8 as default encoding
+            webResponse.defaultCharsetUtf8();
+            webResponse_ = webResponse;
+        }
+
+        /**
+         * Stores the failure of a non blocking load.
+         * @param throwable the failure, maybe wrapped in a {@link CompletionException}
+         * @return {@code false} if the client rejected the request because it is closed
+         */
+        boolean setFailure(final Throwable throwable) {
+            Throwable cause = throwable;
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RejectedExecutionException) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                exception_ = (IOException) cause;
+            }
+            else if (cause instanceof RuntimeException) {
+                runtimeException_ = (RuntimeException) cause;
+            }
+            else {
+                runtimeException_ = new RuntimeException(cause);
+            }
+            return true;
+        }
+    }
+
     private static final class NetworkErrorWebResponse extends WebResponse {
         private final WebRequest request_;
         private final IOException error_;
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * Determines the size of PNG, GIF, JPEG and WebP images by reading only the header of the image;
+ * in contrast to an {@link javax.imageio.ImageReader} no pixels are decoded and no temp files are created.
+ * Like the <tt>ImageReader</tt> the size of the first frame is reported for GIF images.
+ */
+public final class ImageSizeProbe {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * The size and the content type of an image.
+     */
+    public static final class ImageInfo implements Serializable {
+        private final int width_;
+        private final int height_;
+        private final String contentType_;
+
+        ImageInfo(final int width, final int height, final String contentType) {
+            width_ = width;
+            height_ = height;
+            contentType_ = contentType;
+        }
+
+        /**
+         * @return the width of the image
+         */
+        public int getWidth() {
+            return width_;
+        }
+
+        /**
+         * @return the height of the image
+         */
+        public int getHeight() {
+            return height_;
+        }
+
+        /**
+         * @return the content type matching the detected image format
+         */
+        public String getContentType() {
+            return contentType_;
+        }
+    }
+
+    private ImageSizeProbe() {
+    }
+
+    /**
+     * Reads the header of the image from the given stream.
+     * @param in the stream to read from; the stream is not closed
+     * @return the image info or {@code null} if the format is not supported or the header is invalid
+     * @throws IOException if an error occurs while reading
+     */
+    public static ImageInfo probe(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in, 512));
+        try {
+            final int first = data.readUnsignedByte();
+            switch (first) {
+                case 0x89:
+                    return probePng(data);
+                case 'G':
+                    return probeGif(data);
+                case 0xFF:
+                    return probeJpeg(data);
+                case 'R':
+                    return probeWebp(data);
+                default:
+                    return null;
+            }
+        }
+        catch (final EOFException e) {
+            // truncated
+            return null;
+        }
+    }
+
+    private static ImageInfo probePng(final DataInputStream data) throws IOException {
+        final byte[] signature = new byte[PNG_SIGNATURE.length - 1];
+        data.readFully(signature);
+        for (int i = 0; i < signature.length; i++) {
+            if (signature[i] != PNG_SIGNATURE[i + 1]) {
+                return null;
+            }
+        }
+
+        // the IHDR chunk has to be the first one
+        data.readInt();
+        if (data.readInt() != 0x49484452) {
+            return null;
+        }
+        return create(data.readInt(), data.readInt(), "image/png");
+    }
+
+    private static ImageInfo probeGif(final DataInputStream data) throws IOException {
+        final byte[] signature = new byte[5];
+        data.readFully(signature);
+        if (signature[0] != 'I' || signature[1] != 'F' || signature[2] != '8'
+                || (signature[3] != '7' && signature[3] != '9') || signature[4] != 'a') {
+            return null;
+        }
+
+        // logical screen descriptor
+        IOUtils.skipFully(data, 4);
+        final int flags = data.readUnsignedByte();
+        IOUtils.skipFully(data, 2);
+        if ((flags & 0x80) != 0) {
+            IOUtils.skipFully(data, 3L << ((flags & 0x07) + 1));
+        }
+
+        while (true) {
+            final int blockType = data.readUnsignedByte();
+            if (blockType == 0x2C) {
+                // image descriptor
+                IOUtils.skipFully(data, 4);
+                return create(readLittleEndian(data, 2), readLittleEndian(data, 2), "image/gif");
+            }
+            if (blockType != 0x21) {
+                // trailer or garbage
+                return null;
+            }
+
+            // extension: label followed by data sub-blocks
+            data.readUnsignedByte();
+            int size = data.readUnsignedByte();
+            while (size != 0) {
+                IOUtils.skipFully(data, size);
+                size = data.readUnsignedByte();
+            }
+        }
+    }
+
+    private static ImageInfo probeJpeg(final DataInputStream data) throws IOException {
+        if (data.readUnsignedByte() != 0xD8) {
+            return null;
+        }
+
+        while (true) {
+            if (data.readUnsignedByte() != 0xFF) {
+                return null;
+            }
+            int marker = data.readUnsignedByte();
+            while (marker == 0xFF) {
+                // fill bytes
+                marker = data.readUnsignedByte();
+            }
+
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                // markers without a segment
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // end of image or start of scan without a frame header
+                return null;
+            }
+
+            final int length = data.readUnsignedShort();
+            if (length < 2) {
+                return null;
+            }
+            if (isStartOfFrame(marker)) {
+                // precision
+                data.readUnsignedByte();
+                final int height = data.readUnsignedShort();
+                final int width = data.readUnsignedShort();
+                return create(width, height, "image/jpeg");
+            }
+            IOUtils.skipFully(data, length - 2);
+        }
+    }
+
+    private static boolean isStartOfFrame(final int marker) {
+        return marker >= 0xC0 && marker <= 0xCF
+                && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static ImageInfo probeWebp(final DataInputStream data) throws IOException {
+        final byte[] header = new byte[15];
+        data.readFully(header);
+        if (header[0] != 'I' || header[1] != 'F' || header[2] != 'F'
+                || header[7] != 'W' || header[8] != 'E' || header[9] != 'B' || header[10] != 'P'
+                || header[11] != 'V' || header[12] != 'P' || header[13] != '8') {
+            return null;
+        }
+
+        // chunk size
+        IOUtils.skipFully(data, 4);
+        switch (header[14]) {
+            case ' ':
+                // lossy: frame tag and start code
+                IOUtils.skipFully(data, 3);
+                if (data.readUnsignedByte() != 0x9D || data.readUnsignedByte() != 0x01
+                        || data.readUnsignedByte() != 0x2A) {
+                    return null;
+                }
+                final int width = readLittleEndian(data, 2) & 0x3FFF;
+                final int height = readLittleEndian(data, 2) & 0x3FFF;
+                return create(width, height, "image/webp");
+
+            case 'L':
+                // lossless: signature and 14 bits per dimension
+                if (data.readUnsignedByte() != 0x2F) {
+                    return null;
+                }
+                final int bits = readLittleEndian(data, 4);
+                return create((bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1, "image/webp");
+
+            case 'X':
+                // extended: flags, reserved and the canvas size
+                IOUtils.skipFully(data, 4);
+                final int canvasWidth = readLittleEndian(data, 3) + 1;
+                final int canvasHeight = readLittleEndian(data, 3) + 1;
+                return create(canvasWidth, canvasHeight, "image/webp");
+
+            default:
+                return null;
+        }
+    }
+
+    private static int readLittleEndian(final DataInputStream data, final int bytes) throws IOException {
+        int value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value |= data.readUnsignedByte() << (8 * i);
+        }
+        return value;
+    }
+
+    private static ImageInfo create(final int width, final int height, final String contentType) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        return new ImageInfo(width, height, contentType);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.Servlet;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+/**
+ * Tests for {@link AsyncHttpWebConnection}.
+ */
+@RunWith(BrowserRunner.class)
+public class AsyncHttpWebConnectionTest extends WebServerTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void getResponseAsync() throws Exception {
+        startWebServer("./");
+
+        final WebClient webClient = getWebClient();
+        try (AsyncHttpWebConnection webConnection = new AsyncHttpWebConnection(webClient)) {
+            final List<CompletableFuture<WebResponse>> futures = new ArrayList<>();
+            for (final String file : new String[] {"LICENSE.txt", "pom.xml", "LICENSE.txt"}) {
+                futures.add(webConnection.getResponseAsync(new WebRequest(new URL(URL_FIRST, file))));
+            }
+            for (final CompletableFuture<WebResponse> future : futures) {
+                final WebResponse response = future.get();
+                assertEquals(200, response.getStatusCode());
+                assertTrue(response.getContentLength() > 0);
+            }
+        }
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void loadWebResponseAsync() throws Exception {
+        startWebServer("./");
+
+        final WebClient webClient = getWebClient();
+        webClient.getOptions().setMaxConnectionsPerRoute(1);
+        try (AsyncHttpWebConnection webConnection = new AsyncHttpWebConnection(webClient)) {
+            webClient.setWebConnection(webConnection);
+
+            final CompletableFuture<WebResponse> license =
+                    webClient.loadWebResponseAsync(new WebRequest(new URL(URL_FIRST, "LICENSE.txt")));
+            final CompletableFuture<WebResponse> missing =
+                    webClient.loadWebResponseAsync(new WebRequest(new URL(URL_FIRST, "missing.txt")));
+
+            assertEquals(200, license.get().getStatusCode());
+            assertTrue(license.get().getContentAsString().contains("Apache License"));
+            assertEquals(404, missing.get().getStatusCode());
+        }
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void maxInMemory() throws Exception {
+        startWebServer("./");
+
+        final byte[] expected = Files.readAllBytes(new File("pom.xml").toPath());
+        final WebClient webClient = getWebClient();
+        try (AsyncHttpWebConnection webConnection = new AsyncHttpWebConnection(webClient)) {
+            for (final int maxInMemory : new int[] {0, 1000, expected.length + 1}) {
+                webClient.getOptions().setMaxInMemory(maxInMemory);
+                final WebResponse response = webConnection.getResponse(new WebRequest(new URL(URL_FIRST, "pom.xml")));
+                try (InputStream in = response.getContentAsStream()) {
+                    assertArrayEquals(expected, IOUtils.toByteArray(in));
+                }
+                response.cleanUp();
+            }
+        }
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void cookies() throws Exception {
+        final Map<String, Class<? extends Servlet>> servlets = new HashMap<>();
+        servlets.put("/test1", HttpWebConnectionTest.Cookie1Servlet.class);
+        servlets.put("/test2", HttpWebConnectionTest.Cookie2Servlet.class);
+        startWebServer("./", null, servlets);
+
+        final WebClient webClient = getWebClient();
+        try (AsyncHttpWebConnection webConnection = new AsyncHttpWebConnection(webClient)) {
+            webClient.setWebConnection(webConnection);
+
+            final HtmlPage page = webClient.getPage(URL_FIRST + "test1");
+            assertTrue(page.asText().contains("key1=value1"));
+            assertEquals(1, webClient.getCookieManager().getCookies().size());
+        }
+    }
+}
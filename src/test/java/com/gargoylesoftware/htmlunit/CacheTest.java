@@ -24,6 +24,7 @@ import static org.easymock.EasyMock.verify;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -641,6 +642,224 @@ public class CacheTest extends SimpleWebTestCase {
         verify(response1);
     }
 
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws Exception {
+        final Cache cache = new Cache();
+        cache.setMaxSize(2);
+
+        final WebRequest request1 = new WebRequest(URL_FIRST);
+        final WebRequest request2 = new WebRequest(URL_SECOND);
+        final WebRequest request3 = new WebRequest(URL_THIRD);
+        assertTrue(cache.cacheIfPossible(request1, createCacheableResponse(request1, "1"), null));
+        assertTrue(cache.cacheIfPossible(request2, createCacheableResponse(request2, "2"), null));
+
+        assertNotNull(cache.getCachedResponse(request1));
+        assertTrue(cache.cacheIfPossible(request3, createCacheableResponse(request3, "3"), null));
+
+        assertEquals(2, cache.getSize());
+        assertNotNull(cache.getCachedResponse(request1));
+        assertNull(cache.getCachedResponse(request2));
+        assertNotNull(cache.getCachedResponse(request3));
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void maxSizeInBytes() throws Exception {
+        final Cache cache = new Cache();
+        cache.setMaxSizeInBytes(15);
+
+        final WebRequest request1 = new WebRequest(URL_FIRST);
+        final WebRequest request2 = new WebRequest(URL_SECOND);
+        assertTrue(cache.cacheIfPossible(request1, createCacheableResponse(request1, "0123456789"), null));
+        assertEquals(1, cache.getSize());
+        assertEquals(10, cache.getSizeInBytes());
+
+        assertTrue(cache.cacheIfPossible(request2, createCacheableResponse(request2, "abcdefghij"), null));
+        assertEquals(1, cache.getSize());
+        assertEquals(10, cache.getSizeInBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.getCachedResponse(request1));
+        assertNotNull(cache.getCachedResponse(request2));
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    /**
+     * Enabling the limit later weighs the entries already cached.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void maxSizeInBytesEnabledLater() throws Exception {
+        final Cache cache = new Cache();
+
+        final WebRequest request1 = new WebRequest(URL_FIRST);
+        final WebRequest request2 = new WebRequest(URL_SECOND);
+        assertTrue(cache.cacheIfPossible(request1, createCacheableResponse(request1, "0123456789"), null));
+        assertTrue(cache.cacheIfPossible(request2, createCacheableResponse(request2, "abcdefghij"), null));
+        assertEquals(2, cache.getSize());
+
+        cache.setMaxSizeInBytes(15);
+        assertEquals(1, cache.getSize());
+        assertEquals(10, cache.getSizeInBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.getCachedResponse(request1));
+        assertNotNull(cache.getCachedResponse(request2));
+    }
+
+    /**
+     * Attachments work for responses that are not cached and leave the cache entries untouched.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void attachment() throws Exception {
+        final Cache cache = new Cache();
+
+        final WebRequest request1 = new WebRequest(URL_FIRST);
+        final WebResponse response1 = createCacheableResponse(request1, "1");
+        assertTrue(cache.cacheIfPossible(request1, response1, null));
+        cache.attach(new WebResponseFromCache(cache.getCachedResponse(request1), request1), "info1");
+        assertEquals("info1", cache.getAttachment(response1));
+        assertEquals("info1", cache.getAttachment(new WebResponseFromCache(response1, request1)));
+        assertEquals(1, cache.getSize());
+
+        final WebRequest request2 = new WebRequest(URL_SECOND, HttpMethod.POST);
+        final WebResponse response2 = createCacheableResponse(request2, "2");
+        assertFalse(cache.cacheIfPossible(request2, response2, null));
+        assertNull(cache.getAttachment(response2));
+        cache.attach(response2, "info2");
+        assertEquals("info2", cache.getAttachment(response2));
+        assertEquals(1, cache.getSize());
+
+        cache.clear();
+        assertNull(cache.getAttachment(response2));
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void revalidation() throws Exception {
+        final String html = "<html><head><title>page 1</title>\n"
+            + "<script src='foo.js'></script>\n"
+            + "</head><body></body></html>";
+
+        final WebClient client = getWebClient();
+        client.getCache().setRevalidationEnabled(true);
+
+        final MockWebConnection connection = new MockWebConnection();
+        client.setWebConnection(connection);
+
+        final URL pageUrl = new URL(URL_FIRST, "page1.html");
+        connection.setResponse(pageUrl, html);
+
+        final URL scriptUrl = new URL(URL_FIRST, "foo.js");
+        final List<NameValuePair> headers = Collections.singletonList(new NameValuePair(HttpHeader.ETAG, "\"abc\""));
+        connection.setResponse(scriptUrl, "alert('foo');", 200, "ok", MimeType.APPLICATION_JAVASCRIPT, headers);
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        client.getPage(pageUrl);
+        assertEquals(new String[] {"foo"}, collectedAlerts);
+        assertEquals(1, client.getCache().getSize());
+
+        connection.setResponse(scriptUrl, "", 304, "Not Modified", MimeType.APPLICATION_JAVASCRIPT, headers);
+        client.getPage(pageUrl);
+        assertEquals(new String[] {"foo", "foo"}, collectedAlerts);
+        assertEquals(4, connection.getRequestCount());
+        assertEquals("\"abc\"", connection.getLastAdditionalHeaders().get(HttpHeader.IF_NONE_MATCH));
+        assertEquals(1, client.getCache().getSize());
+        assertEquals(1, client.getCache().getRevalidationCount());
+
+        // fresh again after the revalidation
+        client.getPage(pageUrl);
+        assertEquals(new String[] {"foo", "foo", "foo"}, collectedAlerts);
+        assertEquals(5, connection.getRequestCount());
+        assertEquals(1, client.getCache().getRevalidationCount());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void revalidationDoesNotModifyRequest() throws Exception {
+        final WebClient client = getWebClient();
+        client.getCache().setRevalidationEnabled(true);
+
+        final MockWebConnection connection = new MockWebConnection();
+        client.setWebConnection(connection);
+
+        final URL scriptUrl = new URL(URL_FIRST, "foo.js");
+        final List<NameValuePair> headers = Collections.singletonList(new NameValuePair(HttpHeader.ETAG, "\"abc\""));
+        connection.setResponse(scriptUrl, "alert('foo');", 200, "ok", MimeType.APPLICATION_JAVASCRIPT, headers);
+
+        final WebRequest request = new WebRequest(scriptUrl);
+        client.loadWebResponse(request);
+        assertEquals(1, client.getCache().getSize());
+
+        connection.setResponse(scriptUrl, "alert('bar');", 200, "ok", MimeType.APPLICATION_JAVASCRIPT, headers);
+        final WebResponse response = client.loadWebResponse(request);
+        assertEquals("\"abc\"", connection.getLastAdditionalHeaders().get(HttpHeader.IF_NONE_MATCH));
+        assertEquals("alert('bar');", response.getContentAsString());
+        assertSame(request, response.getWebRequest());
+        assertFalse(request.isAdditionalHeader(HttpHeader.IF_NONE_MATCH));
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void revalidationModified() throws Exception {
+        final String html = "<html><head><title>page 1</title>\n"
+            + "<script src='foo.js'></script>\n"
+            + "</head><body></body></html>";
+
+        final WebClient client = getWebClient();
+        client.getCache().setRevalidationEnabled(true);
+
+        final MockWebConnection connection = new MockWebConnection();
+        client.setWebConnection(connection);
+
+        final URL pageUrl = new URL(URL_FIRST, "page1.html");
+        connection.setResponse(pageUrl, html);
+
+        final URL scriptUrl = new URL(URL_FIRST, "foo.js");
+        final List<NameValuePair> headers = Collections.singletonList(
+                new NameValuePair(HttpHeader.LAST_MODIFIED, formatDate(new Date())));
+        connection.setResponse(scriptUrl, "alert('foo');", 200, "ok", MimeType.APPLICATION_JAVASCRIPT, headers);
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        client.getPage(pageUrl);
+        assertEquals(new String[] {"foo"}, collectedAlerts);
+
+        connection.setResponse(scriptUrl, "alert('bar');", 200, "ok", MimeType.APPLICATION_JAVASCRIPT, headers);
+        client.getPage(pageUrl);
+        assertEquals(new String[] {"foo", "bar"}, collectedAlerts);
+        assertNotNull(connection.getLastAdditionalHeaders().get(HttpHeader.IF_MODIFIED_SINCE));
+        assertEquals(0, client.getCache().getRevalidationCount());
+    }
+
+    private static WebResponse createCacheableResponse(final WebRequest request, final String content) {
+        final List<NameValuePair> headers = Collections.singletonList(
+                new NameValuePair(HttpHeader.LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        final WebResponseData data = new WebResponseData(content.getBytes(StandardCharsets.ISO_8859_1),
+                200, "OK", headers);
+        return new WebResponse(data, request, 0);
+    }
+
     /**
      * Ensures {@link WebResponse#cleanUp()} is called on calling {@link Cache#clear()}.
      */
@@ -16,10 +16,15 @@ package com.gargoylesoftware.htmlunit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.net.URL;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.http.Header;
 import org.apache.http.cookie.CookieOrigin;
@@ -97,6 +102,74 @@ public class CookieManager3Test {
         assertEquals(1, mgr.getCookies().size());
     }
 
+    /**
+     * Verifies the lookup of the cookies by domain.
+     */
+    @Test
+    public void cookieCandidates() {
+        final CookieManager mgr = new CookieManager();
+        mgr.addCookie(new Cookie("www.example.com", "a", "1"));
+        mgr.addCookie(new Cookie(".example.com", "b", "2"));
+        mgr.addCookie(new Cookie("other.org", "c", "3"));
+        mgr.addCookie(new Cookie("localhost", "d", "4"));
+        mgr.addCookie(new Cookie("www.example.com", "a", "5"));
+
+        assertEquals("b=2 a=5", format(mgr.getCookieCandidates("WWW.Example.com")));
+        assertEquals("b=2 a=5", format(mgr.getCookieCandidates("example.com")));
+        assertEquals("d=4", format(mgr.getCookieCandidates("localhost")));
+        assertEquals("d=4", format(mgr.getCookieCandidates("foo.localhost")));
+        assertEquals("", format(mgr.getCookieCandidates("example.net")));
+
+        final Set<Cookie> cookies = mgr.getCookies();
+        assertEquals("b=2 c=3 d=4 a=5", format(cookies));
+        assertSame(cookies, mgr.getCookies());
+
+        mgr.removeCookie(new Cookie(".example.com", "b", "x"));
+        assertEquals("a=5", format(mgr.getCookieCandidates("www.example.com")));
+        assertEquals("c=3 d=4 a=5", format(mgr.getCookies()));
+
+        final long now = System.currentTimeMillis();
+        mgr.addCookie(new Cookie("www.example.com", "e", "6", "/", new Date(now + 5000), false));
+        assertFalse(mgr.clearExpired(new Date(now)));
+        assertEquals("a=5 e=6", format(mgr.getCookieCandidates("www.example.com")));
+        assertTrue(mgr.clearExpired(new Date(now + 10_000)));
+        assertEquals("a=5", format(mgr.getCookieCandidates("www.example.com")));
+    }
+
+    /**
+     * The cookies of a subclass overriding {@link CookieManager#getCookies()} are still used.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void getCookiesOverridden() throws Exception {
+        final Set<Cookie> fixed = new HashSet<>();
+        fixed.add(new Cookie("www.example.com", "a", "1"));
+        fixed.add(new Cookie("example.net", "b", "2"));
+        final CookieManager mgr = new CookieManager() {
+            @Override
+            public Set<Cookie> getCookies() {
+                return fixed;
+            }
+        };
+        assertEquals(2, mgr.getCookieCandidates("www.example.com").size());
+
+        try (WebClient client = new WebClient()) {
+            client.setCookieManager(mgr);
+            assertEquals("a=1", format(client.getCookies(new URL("http://www.example.com/"))));
+        }
+    }
+
+    private static String format(final Collection<Cookie> cookies) {
+        final StringBuilder builder = new StringBuilder();
+        for (final Cookie cookie : cookies) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(cookie.getName()).append('=').append(cookie.getValue());
+        }
+        return builder.toString();
+    }
+
     /**
      * Test that " are not discarded.
      * Once this test passes, our hack in HttpWebConnection.HtmlUnitBrowserCompatCookieSpec can safely be removed.
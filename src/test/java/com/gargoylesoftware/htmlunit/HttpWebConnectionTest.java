@@ -14,6 +14,7 @@
  */
 package com.gargoylesoftware.htmlunit;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedInputStream;
@@ -599,6 +600,57 @@ public class HttpWebConnectionTest extends WebServerTestCase {
         assertEquals(webClient.getBrowserVersion().getUserAgent(), userAgent);
     }
 
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void downloadContent() throws Exception {
+        final byte[] bytes = new byte[100_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i % 251);
+        }
+
+        // known length, one buffer of the right size
+        DownloadedContent content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes),
+                500_000, bytes.length);
+        assertTrue(content instanceof DownloadedContent.InMemory);
+        assertArrayEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+
+        // unknown length, several chunks
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), 500_000, -1);
+        assertTrue(content instanceof DownloadedContent.InMemoryChunks);
+        assertEquals(bytes.length, content.length());
+        try (InputStream is = content.getInputStream()) {
+            assertTrue(is.markSupported());
+            is.mark(bytes.length);
+            assertEquals(20_000, is.skip(20_000));
+            assertEquals(bytes[20_000] & 0xFF, is.read());
+            is.reset();
+            assertArrayEquals(bytes, IOUtils.toByteArray(is));
+        }
+
+        // wrong length
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), 500_000, 1_000);
+        assertArrayEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), 500_000, 200_000);
+        assertArrayEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+
+        // too large for memory
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), 1_000, -1);
+        assertTrue(content instanceof DownloadedContent.OnFile);
+        assertEquals(bytes.length, content.length());
+        assertArrayEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+        content.cleanUp();
+
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), 1_000, bytes.length);
+        assertTrue(content instanceof DownloadedContent.OnFile);
+        assertArrayEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+        content.cleanUp();
+
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(new byte[0]), 1_000, -1);
+        assertTrue(content.isEmpty());
+    }
+
     @SuppressWarnings("unchecked")
     private static <T> T get(final Object o, final String fieldName) throws Exception {
         final Field field = o.getClass().getDeclaredField(fieldName);
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.util.Cookie;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+
+/**
+ * Tests for {@link SharedCache}.
+ */
+@RunWith(BrowserRunner.class)
+public class SharedCacheTest extends SimpleWebTestCase {
+
+    /**
+     * Utility for temporary folders.
+     * Has to be public due to JUnit's constraints for @Rule.
+     */
+    @Rule
+    public final TemporaryFolder tmpFolderProvider_ = new TemporaryFolder();
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void sharedBetweenClients() throws Exception {
+        final SharedCache sharedCache = new SharedCache();
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        try (WebClient client = new WebClient(getBrowserVersion())) {
+            client.getCache().setSharedCache(sharedCache);
+            client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+            final MockWebConnection connection = new MockWebConnection();
+            client.setWebConnection(connection);
+            connection.setResponse(URL_FIRST, "<html><head><script src='foo.js'></script></head></html>");
+            connection.setResponse(new URL(URL_FIRST, "foo.js"), "alert('foo');", 200, "OK",
+                    MimeType.APPLICATION_JAVASCRIPT, headers);
+
+            client.getPage(URL_FIRST);
+            assertEquals(2, connection.getRequestCount());
+        }
+        assertEquals(1, sharedCache.getSize());
+
+        try (WebClient client = new WebClient(getBrowserVersion())) {
+            client.getCache().setSharedCache(sharedCache);
+            client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+            final MockWebConnection connection = new MockWebConnection();
+            client.setWebConnection(connection);
+            connection.setResponse(URL_FIRST, "<html><head><script src='foo.js'></script></head></html>");
+
+            client.getPage(URL_FIRST);
+            assertEquals(1, connection.getRequestCount());
+        }
+        assertEquals(new String[] {"foo", "foo"}, collectedAlerts);
+        assertEquals(1, sharedCache.getHitCount());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void privateNotShared() throws Exception {
+        final SharedCache sharedCache = new SharedCache();
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        headers.add(new NameValuePair(HttpHeader.CACHE_CONTROL, "private"));
+
+        try (WebClient client = new WebClient(getBrowserVersion())) {
+            client.getCache().setSharedCache(sharedCache);
+
+            final MockWebConnection connection = new MockWebConnection();
+            client.setWebConnection(connection);
+            connection.setResponse(URL_FIRST, "<html><head><script src='foo.js'></script></head></html>");
+            connection.setResponse(new URL(URL_FIRST, "foo.js"), ";", 200, "OK",
+                    MimeType.APPLICATION_JAVASCRIPT, headers);
+
+            client.getPage(URL_FIRST);
+            assertEquals(1, client.getCache().getSize());
+        }
+        assertEquals(0, sharedCache.getSize());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void personalizedNotShared() throws Exception {
+        final SharedCache sharedCache = new SharedCache();
+        final URL url = new URL(URL_FIRST, "foo.css");
+
+        assertFalse(sharedCache.store(new WebRequest(url), createResponse(url, "Vary", "Cookie")));
+        assertFalse(sharedCache.store(new WebRequest(url), createResponse(url, "Vary", "Accept-Encoding, *")));
+        assertTrue(sharedCache.store(new WebRequest(url), createResponse(url, "Vary", "accept-encoding")));
+
+        WebRequest request = new WebRequest(url);
+        request.setAdditionalHeader(HttpHeader.AUTHORIZATION, "Basic Zm9vOmJhcg==");
+        assertFalse(sharedCache.store(request, createResponse(url, HttpHeader.CACHE_CONTROL, "max-age=60")));
+        assertTrue(sharedCache.store(request, createResponse(url, HttpHeader.CACHE_CONTROL, "public")));
+
+        request = new WebRequest(url);
+        request.setAdditionalHeader(HttpHeader.COOKIE, "session=1");
+        assertFalse(sharedCache.store(request, createResponse(url, HttpHeader.CACHE_CONTROL, "public")));
+
+        assertFalse(sharedCache.store(new WebRequest(url), createResponse(url, HttpHeader.CACHE_CONTROL, "public"),
+                true));
+        assertEquals(1, sharedCache.getSize());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void withCookiesNotShared() throws Exception {
+        final SharedCache sharedCache = new SharedCache();
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+
+        try (WebClient client = new WebClient(getBrowserVersion())) {
+            client.getCache().setSharedCache(sharedCache);
+            client.getCookieManager().addCookie(new Cookie(URL_FIRST.getHost(), "session", "1"));
+
+            final MockWebConnection connection = new MockWebConnection();
+            client.setWebConnection(connection);
+            connection.setResponse(URL_FIRST, "<html><head><script src='foo.js'></script></head></html>");
+            connection.setResponse(new URL(URL_FIRST, "foo.js"), ";", 200, "OK",
+                    MimeType.APPLICATION_JAVASCRIPT, headers);
+
+            client.getPage(URL_FIRST);
+            assertEquals(1, client.getCache().getSize());
+        }
+        assertEquals(0, sharedCache.getSize());
+    }
+
+    private static WebResponse createResponse(final URL url, final String name, final String value) {
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        headers.add(new NameValuePair(HttpHeader.CONTENT_TYPE, MimeType.TEXT_CSS));
+        headers.add(new NameValuePair(name, value));
+        final WebResponseData data = new WebResponseData("body { color: red }".getBytes(UTF_8), 200, "OK", headers);
+        return new WebResponse(data, new WebRequest(url), 0);
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void persistent() throws Exception {
+        final File directory = tmpFolderProvider_.newFolder("shared");
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        headers.add(new NameValuePair(HttpHeader.CONTENT_TYPE, MimeType.TEXT_CSS));
+
+        final WebRequest request = new WebRequest(new URL(URL_FIRST, "foo.css"));
+        final WebResponseData data = new WebResponseData("body { color: red }".getBytes(UTF_8), 200, "OK", headers);
+        assertTrue(new SharedCache(directory).store(request, new WebResponse(data, request, 0)));
+
+        final SharedCache sharedCache = new SharedCache(directory);
+        final WebResponse response = sharedCache.getResponse(new WebRequest(new URL(URL_FIRST, "foo.css")));
+        assertNotNull(response);
+        assertEquals("body { color: red }", response.getContentAsString());
+        assertEquals(MimeType.TEXT_CSS, response.getContentType());
+        assertNull(sharedCache.getResponse(new WebRequest(new URL(URL_FIRST, "bar.css"))));
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void persistentMaxDirectorySize() throws Exception {
+        final File directory = tmpFolderProvider_.newFolder("shared");
+        final URL foo = new URL(URL_FIRST, "foo.css");
+        final URL bar = new URL(URL_FIRST, "bar.css");
+
+        final SharedCache sharedCache = new SharedCache(directory);
+        sharedCache.setMaxSize(1);
+        assertTrue(sharedCache.store(new WebRequest(foo), createResponse(foo, "X-Test", "foo")));
+        final long size = sharedCache.getDirectorySizeInBytes();
+        assertEquals("body { color: red }".length(), size);
+
+        // the same content is stored only once
+        assertTrue(sharedCache.store(new WebRequest(bar), createResponse(bar, "X-Test", "bar")));
+        assertEquals(size, sharedCache.getDirectorySizeInBytes());
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        final WebRequest request = new WebRequest(new URL(URL_FIRST, "baz.css"));
+        final WebResponseData data = new WebResponseData("body { color: blue }".getBytes(UTF_8), 200, "OK",
+                headers);
+        sharedCache.setMaxDirectorySizeInBytes(size + 1);
+        assertTrue(sharedCache.store(request, new WebResponse(data, request, 0)));
+
+        // the least recently used body isn't held in memory anymore and was deleted
+        assertEquals("body { color: blue }".length(), sharedCache.getDirectorySizeInBytes());
+        assertNull(sharedCache.getResponse(new WebRequest(foo)));
+        assertNull(sharedCache.getResponse(new WebRequest(bar)));
+        assertNotNull(sharedCache.getResponse(request));
+
+        // the limit survives a restart
+        final SharedCache restarted = new SharedCache(directory);
+        assertEquals("body { color: blue }".length(), restarted.getDirectorySizeInBytes());
+        assertNull(restarted.getResponse(new WebRequest(foo)));
+        assertNotNull(restarted.getResponse(new WebRequest(request.getUrl())));
+    }
+}
@@ -73,6 +73,33 @@ public class WebResponseDataTest extends WebServerTestCase {
         assertEquals(body, response.getContentAsString(UTF_8));
     }
 
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void gZippedContentDecompressedOnce() throws Exception {
+        final InputStream stream = getClass().getClassLoader().getResourceAsStream(GZIPPED_FILE);
+        final byte[] zippedContent = IOUtils.toByteArray(stream);
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair("Content-Encoding", "gzip"));
+
+        final WebResponseData zipped = new WebResponseData(zippedContent, HttpStatus.SC_OK, "OK", headers);
+        final String body = new String(zipped.getBody(), UTF_8);
+
+        final WebResponseData data = zipped.decompress(500 * 1024);
+        assertNotSame(zipped, data);
+        assertSame(data, data.decompress(500 * 1024));
+        assertEquals(body, new String(data.getBody(), UTF_8));
+        assertEquals(body.getBytes(UTF_8).length, data.getContentLength());
+        assertEquals("gzip", data.getResponseHeaders().get(0).getValue());
+
+        final WebResponse response = new WebResponse(data, new URL("http://test.com"), HttpMethod.GET, 1000);
+        final String content = response.getContentAsString(UTF_8);
+        assertEquals(body, content);
+        assertSame(content, response.getContentAsString(UTF_8));
+    }
+
     /**
      * Tests that empty gzipped content is handled correctly (bug 3566999).
      * @throws Exception if the test fails
@@ -55,4 +55,32 @@ public class DomAttrTest extends SimpleWebTestCase {
 
         assertEquals(page.getDocumentElement(), page.getHtmlElementById("hello"));
     }
+
+    /**
+     * The attribute nodes of parsed elements are created on demand; once created the same node is used.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void createdOnDemand() throws Exception {
+        final String html = "<html><body><div id='d1' class='red' title=''></div></body></html>";
+        final HtmlPage page = loadPage(html);
+        final HtmlElement div = page.getHtmlElementById("d1");
+        final NamedAttrNodeMapImpl attributes = (NamedAttrNodeMapImpl) div.getAttributes();
+
+        assertEquals("red", div.getAttribute("class"));
+        assertSame(DomElement.ATTRIBUTE_VALUE_EMPTY, div.getAttribute("title"));
+        assertTrue(attributes.getCreatedAttributes().isEmpty());
+
+        final DomAttr attr = div.getAttributeNode("class");
+        assertSame(attr, div.getAttributeNode("class"));
+        assertSame(div, attr.getOwnerElement());
+        assertEquals("red", attr.getValue());
+        assertEquals(1, attributes.getCreatedAttributes().size());
+
+        attr.setValue("blue");
+        assertEquals("blue", div.getAttribute("class"));
+        assertEquals(3, attributes.getLength());
+        assertEquals("title", attributes.item(2).getNodeName());
+        assertEquals(2, attributes.getCreatedAttributes().size());
+    }
 }
@@ -38,4 +38,20 @@ public class DomNamespaceNodeTest extends SimpleWebTestCase {
         assertEquals(1, page.getByXPath("//html").size());
     }
 
+    /**
+     * Known names are shared, unknown names are not added.
+     */
+    @Test
+    public void canonicalName() {
+        final String div = new StringBuilder("div").toString();
+        assertSame(HtmlDivision.TAG_NAME, DomNamespaceNode.canonicalName(div));
+        final String href = new StringBuilder("href").toString();
+        assertSame(DomNamespaceNode.canonicalName("href"), DomNamespaceNode.canonicalName(href));
+
+        final String name = new StringBuilder("never-seen-name").toString();
+        assertSame(name, DomNamespaceNode.canonicalName(name));
+        final String name2 = new StringBuilder("never-seen-name").toString();
+        assertSame(name2, DomNamespaceNode.canonicalName(name2));
+    }
+
 }
@@ -793,6 +793,48 @@ public class DomNodeTest extends SimpleWebTestCase {
         assertTrue(page.getElementById("d3").isDisplayed());
     }
 
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void isDisplayedAfterChanges() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + ".hidden { visibility: hidden; }\n"
+            + "</style>\n"
+            + "<div id='d1'><div id='d1-1'><span id='s1'>hello</span></div></div>\n"
+            + "<div id='d2' style='display: none'></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        final HtmlElement outer = page.getHtmlElementById("d1");
+        final HtmlElement span = page.getHtmlElementById("s1");
+        assertTrue(span.isDisplayed());
+
+        outer.setAttribute("class", "hidden");
+        assertFalse(span.isDisplayed());
+        span.setAttribute("style", "visibility: visible");
+        assertTrue(span.isDisplayed());
+        outer.removeAttribute("class");
+        span.removeAttribute("style");
+        assertTrue(span.isDisplayed());
+
+        outer.setAttribute("hidden", "");
+        assertFalse(span.isDisplayed());
+        outer.removeAttribute("hidden");
+        assertTrue(span.isDisplayed());
+
+        page.getHtmlElementById("d2").appendChild(span);
+        assertFalse(span.isDisplayed());
+        outer.appendChild(span);
+        assertTrue(span.isDisplayed());
+
+        page.executeJavaScript("var s = document.createElement('style');\n"
+                + "s.innerHTML = 'div { display: none; }';\n"
+                + "document.body.appendChild(s);");
+        assertFalse(span.isDisplayed());
+    }
+
     /**
      * @throws Exception if the test fails
      */
@@ -1944,4 +1944,102 @@ public class HtmlPageTest extends SimpleWebTestCase {
         page = loadPage(getBrowserVersion(), html, null, new URL(URL_FIRST.toString() + path));
         assertEquals(URL_FIRST.toExternalForm() + path, page.getBaseURL().toExternalForm());
     }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void elementIndexes() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var divs = document.getElementsByTagName('div');\n"
+            + "    var reds = document.getElementsByClassName('red');\n"
+            + "    alert(divs.length + ' ' + reds.length);\n"
+            + "    var d = document.createElement('div');\n"
+            + "    d.className = 'red blue';\n"
+            + "    document.body.appendChild(d);\n"
+            + "    alert(divs.length + ' ' + reds.length);\n"
+            + "    document.getElementById('d1').className = 'blue';\n"
+            + "    alert(reds.length + ' ' + document.querySelectorAll('.blue').length);\n"
+            + "    document.body.removeChild(d);\n"
+            + "    alert(divs.length + ' ' + reds.length + ' ' + document.querySelectorAll('div').length);\n"
+            + "    alert(document.getElementById('d2').getElementsByTagName('span').length);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'>\n"
+            + "<div id='d1' class='red'></div>\n"
+            + "<div id='d2'><span>x</span></div>\n"
+            + "</body></html>";
+
+        getWebClient().getOptions().setElementIndexes(true);
+        final List<String> collectedAlerts = new ArrayList<>();
+        final HtmlPage page = loadPage(html, collectedAlerts);
+
+        assertEquals(new String[] {"2 1", "3 2", "1 2", "2 0 2", "1"}, collectedAlerts);
+        assertTrue(page.isElementIndexed());
+        assertEquals(1, page.getElementsByTagName("span").getLength());
+        assertEquals(1, page.getHtmlElementById("d2").getElementsByTagName("span").getLength());
+        // html, head, script, body, div, div, span and the class name of d1
+        assertEquals(8, page.getElementIndexEntryCount());
+    }
+
+    /**
+     * Changing the class through the attribute node has to update the index.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void elementIndexesAttrValue() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var attr = document.getElementById('d1').getAttributeNode('class');\n"
+            + "    attr.value = 'blue';\n"
+            + "    alert(document.getElementsByClassName('red').length + ' '\n"
+            + "        + document.getElementsByClassName('blue').length + ' '\n"
+            + "        + document.querySelectorAll('.blue').length);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'>\n"
+            + "<div id='d1' class='red'></div>\n"
+            + "</body></html>";
+
+        getWebClient().getOptions().setElementIndexes(true);
+        final List<String> collectedAlerts = new ArrayList<>();
+        loadPage(html, collectedAlerts);
+
+        assertEquals(new String[] {"0 1 1"}, collectedAlerts);
+    }
+
+    /**
+     * Changing the class through the attributes collection has to update the index.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void elementIndexesNamedNodeMap() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var d1 = document.getElementById('d1');\n"
+            + "    var d2 = document.getElementById('d2');\n"
+            + "    var byClass = document.getElementsByClassName('blue');\n"
+            + "    alert(byClass.length);\n"
+            + "    var attr = document.createAttribute('class');\n"
+            + "    attr.value = 'blue';\n"
+            + "    d1.attributes.setNamedItem(attr);\n"
+            + "    alert(document.getElementsByClassName('red').length + ' '\n"
+            + "        + document.getElementsByClassName('blue').length + ' ' + byClass.length);\n"
+            + "    d2.attributes.removeNamedItem('class');\n"
+            + "    alert(document.getElementsByClassName('blue').length + ' '\n"
+            + "        + document.querySelectorAll('.blue').length + ' ' + byClass.length);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'>\n"
+            + "<div id='d1' class='red'></div>\n"
+            + "<div id='d2' class='blue'></div>\n"
+            + "</body></html>";
+
+        getWebClient().getOptions().setElementIndexes(true);
+        final List<String> collectedAlerts = new ArrayList<>();
+        loadPage(html, collectedAlerts);
+
+        assertEquals(new String[] {"1", "0 2 2", "1 1 1"}, collectedAlerts);
+    }
 }
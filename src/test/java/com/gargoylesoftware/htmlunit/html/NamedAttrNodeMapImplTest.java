@@ -186,4 +186,47 @@ public class NamedAttrNodeMapImplTest {
         assertEquals("Key2", entry.getKey());
         assertEquals("attr2", entry.getValue().getNodeName());
     }
+
+    /**
+     * Test replacing and removing attributes.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void replaceAndRemove() throws Exception {
+        final DomElement dom = new HtmlBreak("", null, null);
+
+        final NamedAttrNodeMapImpl map = new NamedAttrNodeMapImpl(dom, false);
+        map.put("Key1", new DomAttr(null, "", "attr1", null, false));
+        map.put("Key2", new DomAttr(null, "", "attr2", null, false));
+        map.put("Key3", new DomAttr(null, "", "attr3", null, false));
+        map.put("Key4", new DomAttr(null, "", "attr4", null, false));
+        assertEquals(4, map.getLength());
+
+        // replacing keeps the position
+        map.put("KEY2", new DomAttr(null, "", "attr2b", null, false));
+        assertEquals(4, map.getLength());
+        assertEquals("attr2b", map.item(1).getNodeName());
+
+        assertEquals("attr1", map.remove("key1").getNodeName());
+        assertNull(map.remove("key1"));
+        assertEquals(3, map.getLength());
+        assertEquals("attr2b", map.item(0).getNodeName());
+        assertEquals("attr4", map.item(2).getNodeName());
+        assertNull(map.item(3));
+
+        final Iterator<DomAttr> values = map.values().iterator();
+        assertEquals("attr2b", values.next().getNodeName());
+        assertEquals("attr3", values.next().getNodeName());
+        values.remove();
+        assertEquals("attr4", values.next().getNodeName());
+        assertFalse(values.hasNext());
+
+        assertEquals(2, map.size());
+        assertFalse(map.containsKey("key3"));
+        assertEquals("attr4", map.item(1).getNodeName());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.item(0));
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
+import com.gargoylesoftware.htmlunit.CollectingAlertHandler;
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+
+/**
+ * Tests for {@link SubresourcePreloader}.
+ */
+@RunWith(BrowserRunner.class)
+public class SubresourcePreloaderTest extends SimpleWebTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"first", "inline", "second"})
+    public void preload() throws Exception {
+        getWebClientWithMockWebConnection().getOptions().setPreloadEnabled(true);
+
+        final MockWebConnection connection = getMockWebConnection();
+        connection.setResponse(new URL(URL_FIRST, "first.js"), "alert('first');", MimeType.APPLICATION_JAVASCRIPT);
+        connection.setResponse(new URL(URL_FIRST, "second.js"), "alert('second');", MimeType.APPLICATION_JAVASCRIPT);
+        connection.setResponse(new URL(URL_FIRST, "style.css"), "p { color: red }", MimeType.TEXT_CSS);
+
+        final String html = "<html><head>\n"
+            + "<script src='first.js'></script>\n"
+            + "<script>alert('inline');</script>\n"
+            + "<link rel='stylesheet' href='style.css'>\n"
+            + "<!-- <script src='commented.js'></script> -->\n"
+            + "<script src='second.js'></script>\n"
+            + "</head><body>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+
+        final List<String> requested = new ArrayList<>(connection.getRequestedUrls(URL_FIRST));
+        Collections.sort(requested);
+        assertEquals(new String[] {"", "first.js", "second.js", "style.css"}, requested);
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"<script src='string.js'></script>", "done"})
+    public void preloadSkipsRawText() throws Exception {
+        getWebClientWithMockWebConnection().getOptions().setPreloadEnabled(true);
+
+        final MockWebConnection connection = getMockWebConnection();
+        connection.setResponse(new URL(URL_FIRST, "script.js"), "alert('done');", MimeType.APPLICATION_JAVASCRIPT);
+
+        final String html = "<html><head>\n"
+            + "<script>alert(\"<script src='string.js'><\\/script>\");</script>\n"
+            + "<style>/* <link rel='stylesheet' href='style.css'> */</style>\n"
+            + "<title><script src='title.js'></script></title>\n"
+            + "</head><body>\n"
+            + "<textarea><script src='textarea.js'></script></textarea>\n"
+            + "<![CDATA[<script src='cdata.js'></script>]]>\n"
+            + "<script src='script.js'></script>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts(html);
+
+        assertEquals(new String[] {"", "script.js"}, connection.getRequestedUrls(URL_FIRST));
+    }
+
+    /**
+     * The preloaded request was sent before the inline script set the cookie.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"inline", "external"})
+    public void preloadCookiesChanged() throws Exception {
+        final WebClient client = getWebClient();
+        client.getOptions().setPreloadEnabled(true);
+
+        final URL scriptUrl = new URL(URL_FIRST, "script.js");
+        final List<String> sentCookies = Collections.synchronizedList(new ArrayList<>());
+        final MockWebConnection connection = new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                if (scriptUrl.equals(request.getUrl())) {
+                    sentCookies.add(client.getCookies(scriptUrl).toString());
+                }
+                return super.getResponse(request);
+            }
+        };
+        client.setWebConnection(connection);
+        connection.setResponse(scriptUrl, "alert('external');", MimeType.APPLICATION_JAVASCRIPT);
+
+        final String html = "<html><head>\n"
+            + "<script>document.cookie = 'session=1'; alert('inline');</script>\n"
+            + "<script src='script.js'></script>\n"
+            + "</head><body>\n"
+            + "</body></html>";
+        connection.setResponse(URL_FIRST, html);
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+        client.getPage(URL_FIRST);
+
+        assertEquals(getExpectedAlerts(), collectedAlerts);
+        assertTrue(sentCookies.get(sentCookies.size() - 1).contains("session=1"));
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"load", "error"})
+    public void preloadImages() throws Exception {
+        final WebClient client = getWebClientWithMockWebConnection();
+        client.getOptions().setPreloadEnabled(true);
+        client.getOptions().setDownloadImages(true);
+
+        final MockWebConnection connection = getMockWebConnection();
+        connection.setDefaultResponse("Error: not found", 404, "Not Found", MimeType.TEXT_HTML);
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("testfiles/4x7.jpg")) {
+            final List<NameValuePair> emptyList = Collections.emptyList();
+            connection.setResponse(new URL(URL_FIRST, "img.jpg"), IOUtils.toByteArray(is),
+                    200, "ok", "image/jpg", emptyList);
+        }
+
+        final String html = "<html><head>\n"
+            + "</head><body>\n"
+            + "  <img id='first' src='img.jpg' onload='alert(\"load\")'>\n"
+            + "  <img id='missing' src='missing.jpg' onerror='alert(\"error\")'>\n"
+            + "  <img id='second' src='img.jpg'>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPageWithAlerts(html);
+        final HtmlImage image = page.getHtmlElementById("second");
+        // taken from the preloader when the page was loaded
+        assertTrue(image.isComplete());
+        assertEquals(4, image.getWidth());
+        assertEquals(7, image.getHeight());
+    }
+}
@@ -19,6 +19,10 @@ import static org.junit.Assert.fail;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -268,4 +272,67 @@ public class HtmlUnitXPathTest extends SimpleWebTestCase {
         div.setAttribute("class", "design");
         assertSame(div, page.getFirstByXPath("//*[@class = 'design']"));
     }
+
+    /**
+     * @throws Exception if test fails
+     */
+    @Test
+    public void getFirstByXPathDocumentOrder() throws Exception {
+        final String content = "<html><head><title>foo</title></head>\n"
+            + "<body>\n"
+            + "<div id='d1'><div id='d2'><span id='s1'></span><span id='s2'></span></div></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(content);
+        final HtmlElement span = page.getHtmlElementById("s2");
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(page.getHtmlElementById("d1"), span.getFirstByXPath("ancestor::div"));
+            assertSame(page.getHtmlElementById("s1"), page.getFirstByXPath("//span | //div/span"));
+            assertSame(page.getHtmlElementById("s1"), span.getFirstByXPath("preceding-sibling::span"));
+            assertNull(span.getFirstByXPath("following-sibling::span"));
+            assertEquals(Double.valueOf(2), page.getFirstByXPath("count(//span)"));
+        }
+    }
+
+    /**
+     * The cached compiled expressions are shared by all threads.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void concurrentEvaluation() throws Exception {
+        final String content = "<html><head><title>foo</title></head>\n"
+            + "<body>\n"
+            + "<div id='d1'><div id='d2'><span id='s1'></span><span id='s2'></span></div></div>\n"
+            + "</body></html>";
+
+        final int threadCount = 4;
+        final List<HtmlPage> pages = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            pages.add(loadPage(content));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final HtmlPage page : pages) {
+                futures.add(executor.submit(() -> {
+                    final HtmlElement span = page.getHtmlElementById("s2");
+                    for (int i = 0; i < 500; i++) {
+                        assertEquals(2, page.getByXPath("//span").size());
+                        assertSame(page.getHtmlElementById("d1"), span.getFirstByXPath("ancestor::div"));
+                        assertSame(page.getHtmlElementById("s1"), span.getFirstByXPath("preceding-sibling::span"));
+                        assertEquals(Double.valueOf(2), page.getFirstByXPath("count(//div)"));
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -14,12 +14,20 @@
  */
 package com.gargoylesoftware.htmlunit.javascript;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import com.gargoylesoftware.htmlunit.BrowserRunner;
 import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.CollectingAlertHandler;
 import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+
+import net.sourceforge.htmlunit.corejs.javascript.Context;
+import net.sourceforge.htmlunit.corejs.javascript.Script;
 
 /**
  * Tests for {@link HtmlUnitContextFactory}.
@@ -45,4 +53,98 @@ public class HtmlUnitContextFactoryTest extends SimpleWebTestCase {
 
         loadPage(browserVersion, html, null, URL_FIRST);
     }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void compiledScriptCache() throws Exception {
+        final String html = "<html><head><script>alert(eval('1 + 1'));</script></head></html>";
+        getMockWebConnection().setResponse(URL_FIRST, html);
+
+        final WebClient client = getWebClientWithMockWebConnection();
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        final HtmlUnitContextFactory factory = ((JavaScriptEngine) client.getJavaScriptEngine()).getContextFactory();
+        final CompiledScriptCache cache = new CompiledScriptCache();
+        factory.setCompiledScriptCache(cache);
+
+        // the inline script and the eval'd source
+        client.getPage(URL_FIRST);
+        assertEquals(2, cache.getSize());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        client.getPage(URL_FIRST);
+        assertEquals(2, cache.getSize());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        // the inline script is compiled again with the other optimization level,
+        // eval'd code is always interpreted
+        factory.setCompiledMode(true);
+        client.getPage(URL_FIRST);
+        assertEquals(new String[] {"2", "2", "2"}, collectedAlerts);
+        assertEquals(3, cache.getSize());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void compiledScriptCacheMaxSizeInBytes() throws Exception {
+        final CompiledScriptCache cache = new CompiledScriptCache();
+        cache.setMaxSizeInBytes(20);
+        final Script script = (cx, scope) -> null;
+
+        cache.put(getBrowserVersion(), -1, Context.VERSION_ES6, "a", 1, false, "var a;", script);
+        cache.put(getBrowserVersion(), -1, Context.VERSION_ES6, "b", 1, false, "var b;", script);
+        assertEquals(1, cache.getSize());
+        assertEquals(12, cache.getSizeInBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(getBrowserVersion(), -1, Context.VERSION_ES6, "a", 1, false, "var a;"));
+        assertSame(script, cache.get(getBrowserVersion(), -1, Context.VERSION_ES6, "b", 1, false, "var b;"));
+
+        // too large to be cached at all
+        cache.put(getBrowserVersion(), -1, Context.VERSION_ES6, "c", 1, false, "var c = 'too large';", script);
+        assertNull(cache.get(getBrowserVersion(), -1, Context.VERSION_ES6, "c", 1, false, "var c = 'too large';"));
+        assertEquals(1, cache.getSize());
+        assertEquals(12, cache.getSizeInBytes());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void compiledMode() throws Exception {
+        final String html = "<html><head></head><body>\n"
+            + "<script>\n"
+            + "  function fib(n) { return n < 2 ? n : fib(n - 1) + fib(n - 2); }\n"
+            + "  alert(fib(20));\n"
+            + "  alert(eval('fib(10)'));\n"
+            + "  try {\n"
+            + "    document.body.appendChild(document.documentElement);\n"
+            + "  } catch(e) { alert('exception'); }\n"
+            + "</script>\n"
+            + "<script>while (true) {}</script>\n"
+            + "<script>alert('done');</script>\n"
+            + "</body></html>";
+        getMockWebConnection().setResponse(URL_FIRST, html);
+
+        final WebClient client = getWebClientWithMockWebConnection();
+        client.getOptions().setThrowExceptionOnScriptError(false);
+        client.setJavaScriptTimeout(500);
+        final HtmlUnitContextFactory factory = ((JavaScriptEngine) client.getJavaScriptEngine()).getContextFactory();
+        factory.setCompiledMode(true);
+        assertTrue(factory.isCompiledMode());
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        client.getPage(URL_FIRST);
+        assertEquals(new String[] {"6765", "55", "exception", "done"}, collectedAlerts);
+    }
 }
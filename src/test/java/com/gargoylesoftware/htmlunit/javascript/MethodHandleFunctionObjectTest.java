@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
+import com.gargoylesoftware.htmlunit.WebDriverTestCase;
+
+/**
+ * Tests for {@link MethodHandleFunctionObject}.
+ */
+@RunWith(BrowserRunner.class)
+public class MethodHandleFunctionObjectTest extends WebDriverTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"ell", "Jello", "0", "1", "0", "true", "false", "exception"})
+    public void call() throws Exception {
+        final String html
+            = "<html><head><script>\n"
+            + "function test() {\n"
+            + "  var text = document.createTextNode('hello');\n"
+            + "  alert(text.substringData(1, 3));\n"
+            + "  text.replaceData(0, 1, 'J');\n"
+            + "  alert(text.data);\n"
+
+            + "  var div = document.createElement('div');\n"
+            + "  div.appendChild(text);\n"
+            + "  alert(div.cloneNode().childNodes.length);\n"
+            + "  alert(div.cloneNode(true).childNodes.length);\n"
+            + "  alert(div.compareDocumentPosition(div));\n"
+            + "  alert(div.hasChildNodes());\n"
+            + "  alert(div.contains(document.body));\n"
+
+            + "  try {\n"
+            + "    div.hasChildNodes.call({});\n"
+            + "    alert('no exception');\n"
+            + "  } catch(e) { alert('exception'); }\n"
+            + "}\n"
+            + "</script></head><body onload='test()'>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
+
+    /**
+     * An exception thrown by the host method reaches the catch block of the script as usual.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"true", "3", "1"})
+    public void hostMethodThrows() throws Exception {
+        final String html
+            = "<html><head><script>\n"
+            + "function test() {\n"
+            + "  var body = document.body;\n"
+            + "  try {\n"
+            + "    body.appendChild(document.documentElement);\n"
+            + "    alert('no exception');\n"
+            + "  } catch(e) {\n"
+            + "    alert(e instanceof DOMException);\n"
+            + "    alert(e.code);\n"
+            + "  }\n"
+            + "  alert(body.childNodes.length);\n"
+            + "}\n"
+            + "</script></head><body onload='test()'><span>hi</span></body></html>";
+
+        loadPageWithAlerts2(html);
+    }
+}
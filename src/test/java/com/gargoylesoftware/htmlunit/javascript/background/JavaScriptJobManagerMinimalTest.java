@@ -351,4 +351,41 @@ public class JavaScriptJobManagerMinimalTest {
         // the call waits until both job1 and job2 finish.
         waitForComplexJobs(WaitingMode.WAIT_STARTING_BEFORE, 0);
     }
+
+    /**
+     * A released pending job keeps its target execution time and runs before the jobs added after it.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void releasePendingJob_keepsOrder() throws Exception {
+        // a manager not known to the event loop, the jobs are never executed
+        final WebWindow window = EasyMock.createNiceMock(WebWindow.class);
+        EasyMock.expect(window.getEnclosedPage()).andReturn(page_).anyTimes();
+        EasyMock.replay(window);
+        final JavaScriptJobManagerImpl manager = new JavaScriptJobManagerImpl(window);
+
+        final JavaScriptJob pendingJob = new BasicJavaScriptJob(0, null) {
+            @Override
+            public void run() {
+                // Empty.
+            }
+        };
+        final JavaScriptJob laterJob = new BasicJavaScriptJob(0, null) {
+            @Override
+            public void run() {
+                // Empty.
+            }
+        };
+
+        final int id = manager.addPendingJob(pendingJob, page_);
+        final long targetExecutionTime = pendingJob.getTargetExecutionTime();
+        Thread.sleep(20);
+        manager.addJob(laterJob, page_);
+        assertEquals(laterJob, manager.getEarliestJob());
+
+        manager.releasePendingJob(id);
+        assertEquals(2, manager.getJobCount());
+        assertEquals(targetExecutionTime, pendingJob.getTargetExecutionTime());
+        assertEquals(pendingJob, manager.getEarliestJob());
+    }
 }
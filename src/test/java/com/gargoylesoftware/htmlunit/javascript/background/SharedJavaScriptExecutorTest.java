@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.CollectingAlertHandler;
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
+
+/**
+ * Tests for {@link SharedJavaScriptExecutor}.
+ */
+@RunWith(BrowserRunner.class)
+public class SharedJavaScriptExecutorTest extends SimpleWebTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void jobsOfSeveralClients() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    setTimeout(function() { alert('second'); }, 40);\n"
+            + "    setTimeout(function() { alert('first'); }, 20);\n"
+            + "    var count = 0;\n"
+            + "    var id = setInterval(function() {\n"
+            + "      if (++count == 3) {\n"
+            + "        clearInterval(id);\n"
+            + "        setTimeout(function() { alert('interval'); }, 0);\n"
+            + "      }\n"
+            + "    }, 50);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'></body></html>";
+
+        final List<WebClient> clients = new ArrayList<>();
+        final List<List<String>> collectedAlerts = new ArrayList<>();
+        try {
+            for (int i = 0; i < 10; i++) {
+                final WebClient client = new WebClient(getBrowserVersion());
+                client.getOptions().setSharedJavaScriptExecutor(true);
+                final List<String> alerts = Collections.synchronizedList(new ArrayList<String>());
+                client.setAlertHandler(new CollectingAlertHandler(alerts));
+
+                final MockWebConnection connection = new MockWebConnection();
+                connection.setResponse(URL_FIRST, html);
+                client.setWebConnection(connection);
+
+                clients.add(client);
+                collectedAlerts.add(alerts);
+                client.getPage(URL_FIRST);
+            }
+
+            for (int i = 0; i < clients.size(); i++) {
+                final WebClient client = clients.get(i);
+                assertTrue(((JavaScriptEngine) client.getJavaScriptEngine()).getJavaScriptExecutor()
+                        instanceof SharedJavaScriptExecutor);
+
+                assertEquals(0, client.waitForBackgroundJavaScript(5_000));
+                assertEquals(new String[] {"first", "second", "interval"}, collectedAlerts.get(i));
+            }
+        }
+        finally {
+            for (final WebClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void poolSize() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  setTimeout(function() { alert('timeout'); }, 10);\n"
+            + "</script></head><body></body></html>";
+
+        final int poolSize = SharedJavaScriptExecutor.getPoolSize();
+        try {
+            SharedJavaScriptExecutor.setPoolSize(1);
+            assertEquals(1, SharedJavaScriptExecutor.getPoolSize());
+
+            try (WebClient client = new WebClient(getBrowserVersion())) {
+                client.getOptions().setSharedJavaScriptExecutor(true);
+                final List<String> alerts = Collections.synchronizedList(new ArrayList<String>());
+                client.setAlertHandler(new CollectingAlertHandler(alerts));
+
+                final MockWebConnection connection = new MockWebConnection();
+                connection.setResponse(URL_FIRST, html);
+                client.setWebConnection(connection);
+
+                client.getPage(URL_FIRST);
+                assertEquals(0, client.waitForBackgroundJavaScript(5_000));
+                assertEquals(new String[] {"timeout"}, alerts);
+            }
+
+            try {
+                SharedJavaScriptExecutor.setPoolSize(0);
+                fail("IllegalArgumentException expected");
+            }
+            catch (final IllegalArgumentException e) {
+                // expected
+            }
+        }
+        finally {
+            SharedJavaScriptExecutor.setPoolSize(poolSize);
+        }
+    }
+}
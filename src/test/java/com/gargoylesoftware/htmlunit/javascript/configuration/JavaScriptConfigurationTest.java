@@ -46,6 +46,8 @@ import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
 import com.gargoylesoftware.htmlunit.WebClient;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 import com.gargoylesoftware.htmlunit.javascript.SimpleScriptable;
+import com.gargoylesoftware.htmlunit.javascript.host.ActiveXObject;
+import com.gargoylesoftware.htmlunit.javascript.host.dom.Node;
 import com.gargoylesoftware.htmlunit.javascript.host.worker.DedicatedWorkerGlobalScope;
 
 /**
@@ -93,6 +95,24 @@ public class JavaScriptConfigurationTest extends SimpleWebTestCase {
         assertEquals(knownBrowsers + 1, leakyMap.size());
     }
 
+    /**
+     * The class configurations are created only once per browser family.
+     */
+    @Test
+    public void classConfigurationCached() {
+        final ClassConfiguration config = AbstractJavaScriptConfiguration.getClassConfiguration(Node.class, CHROME);
+        assertNotNull(config);
+        assertSame(config, AbstractJavaScriptConfiguration.getClassConfiguration(Node.class, CHROME));
+        assertSame(config, JavaScriptConfiguration.getInstance(CHROME).getClassConfiguration("Node"));
+        assertNotSame(config, AbstractJavaScriptConfiguration.getClassConfiguration(Node.class, FIREFOX));
+
+        assertNull(AbstractJavaScriptConfiguration.getClassConfiguration(ActiveXObject.class, CHROME));
+        assertNull(AbstractJavaScriptConfiguration.getClassConfiguration(ActiveXObject.class, CHROME));
+        assertNotNull(AbstractJavaScriptConfiguration.getClassConfiguration(ActiveXObject.class, INTERNET_EXPLORER));
+
+        assertSame(JavaScriptConfiguration.getInstance(FIREFOX_68), JavaScriptConfiguration.getInstance(FIREFOX_68));
+    }
+
     /**
      * Regression test for Bug #899.
      * This test was throwing an OutOfMemoryError when the bug existed.
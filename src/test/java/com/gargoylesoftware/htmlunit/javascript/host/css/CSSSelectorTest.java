@@ -59,6 +59,50 @@ public class CSSSelectorTest extends WebDriverTestCase {
         loadPageWithAlerts2(html);
     }
 
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    @Alerts({"2", "li1,li1b", "1", "li1b", "0", "1", "li1", "xy", "1", "null"})
+    public void querySelectorAll_repeated() throws Exception {
+        final String html = "<html><head><title>First</title>\n"
+            + "<meta http-equiv='X-UA-Compatible' content='IE=edge'>\n"
+            + "<script>\n"
+            + "function ids(list) {\n"
+            + "  var result = [];\n"
+            + "  for (var i = 0; i < list.length; i++) { result.push(list[i].getAttribute('name')); }\n"
+            + "  return result.join(',');\n"
+            + "}\n"
+            + "function test() {\n"
+            + "  for (var i = 0; i < 3; i++) {\n"
+            + "    var all = document.querySelectorAll('#li1');\n"
+            + "  }\n"
+            + "  alert(all.length);\n"
+            + "  alert(ids(all));\n"
+            + "  var ul2 = document.getElementById('ul2');\n"
+            + "  alert(ul2.querySelectorAll('li#li1').length);\n"
+            + "  ul2.querySelector('#li1').id = 'li2';\n"
+            + "  alert(ids(ul2.querySelectorAll('#li2')));\n"
+            + "  alert(ul2.querySelectorAll('#li1').length);\n"
+            + "  alert(document.querySelectorAll('.x').length);\n"
+            + "  alert(document.querySelector('li.y').getAttribute('name'));\n"
+            + "  alert(document.querySelector('ul > .xy').className);\n"
+            + "  alert(document.querySelectorAll('#ul2 #li2').length);\n"
+            + "  alert(document.querySelector('#unknown'));\n"
+            + "}\n"
+            + "</script></head>\n"
+            + "<body onload='test()'>\n"
+            + "<ul id='ul1'>\n"
+            + "  <li id='li1' name='li1' class='x y'></li>\n"
+            + "</ul>\n"
+            + "<ul id='ul2'>\n"
+            + "  <li id='li1' name='li1b' class='xy'></li>\n"
+            + "</ul>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
+
     /**
      * @throws Exception if an error occurs
      */
@@ -2376,4 +2376,30 @@ public class ComputedCSSStyleDeclarationTest extends WebDriverTestCase {
             + "</html>";
         loadPageWithAlerts2(html);
     }
+
+    /**
+     * Removing a node has to invalidate the cached styles of the former siblings.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"inline", "none", "inline"})
+    public void cacheInvalidationSiblings() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>span:first-child { display: none; }</style>\n"
+            + "</head><body>\n"
+            + "<div><span id='a'>a</span><span id='b'>b</span></div>\n"
+
+            + "<script>\n"
+            + "  var a = document.getElementById('a');\n"
+            + "  var b = document.getElementById('b');\n"
+            + "  alert(window.getComputedStyle(b, null).display);\n"
+            + "  a.parentNode.removeChild(a);\n"
+            + "  alert(window.getComputedStyle(b, null).display);\n"
+            + "  b.parentNode.insertBefore(a, b);\n"
+            + "  alert(window.getComputedStyle(b, null).display);\n"
+            + "</script>\n"
+            + "</body></html>";
+        loadPageWithAlerts2(html);
+    }
 }
@@ -862,4 +862,49 @@ public class HTMLCollectionTest extends WebDriverTestCase {
 
         loadPageWithAlerts2(html);
     }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"1", "2", "1", "1", "0", "1", "1", "0", "3", "2"})
+    public void liveAfterChanges() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var outer = document.getElementById('outer');\n"
+            + "    var divs = outer.getElementsByTagName('div');\n"
+            + "    var children = outer.children;\n"
+            + "    var marked = document.getElementsByClassName('marked');\n"
+            + "    var named = document.getElementsByName('foo');\n"
+            + "    alert(divs.length);\n"
+
+            + "    var div = document.createElement('div');\n"
+            + "    document.getElementById('inner').appendChild(div);\n"
+            + "    alert(divs.length);\n"
+            + "    alert(children.length);\n"
+
+            + "    alert(marked.length);\n"
+            + "    document.getElementById('inner').className = '';\n"
+            + "    alert(marked.length);\n"
+            + "    div.className = 'marked';\n"
+            + "    alert(marked.length);\n"
+
+            + "    var input = document.getElementById('in');\n"
+            + "    input.setAttribute('title', 'foo');\n"
+            + "    alert(named.length);\n"
+            + "    input.setAttribute('name', 'bar');\n"
+            + "    alert(named.length);\n"
+
+            + "    outer.appendChild(document.createElement('div'));\n"
+            + "    alert(divs.length);\n"
+            + "    alert(children.length);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'>\n"
+            + "  <div id='outer'><div id='inner' class='marked'></div></div>\n"
+            + "  <input id='in' name='foo'>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.worker;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.CollectingAlertHandler;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+
+/**
+ * Tests for {@link Worker} running on their own threads.
+ */
+@RunWith(BrowserRunner.class)
+public class Worker2Test extends SimpleWebTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void parallelWorkers() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var onmessage = function(e) { alert(e.data); };\n"
+            + "    var w1 = new Worker('worker.js');\n"
+            + "    w1.onmessage = onmessage;\n"
+            + "    var w2 = new Worker('worker.js');\n"
+            + "    w2.onmessage = onmessage;\n"
+            + "    var msg = { name: 'a', values: [1, 2, 3], when: new Date() };\n"
+            + "    w1.postMessage(msg);\n"
+            + "    w2.postMessage({ name: 'b', values: [4, 5], when: new Date() });\n"
+            + "    alert(msg.values.length);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'></body></html>";
+
+        final String workerJs = "onmessage = function(e) {\n"
+            + "  var d = e.data;\n"
+            + "  d.values.push(d.values.length);\n"
+            + "  var sum = 0;\n"
+            + "  for (var i = 0; i < d.values.length; i++) { sum += d.values[i]; }\n"
+            + "  postMessage(d.name + ' ' + sum + ' ' + (d.when instanceof Date));\n"
+            + "  setTimeout(function() { postMessage('timer ' + d.name); }, 10);\n"
+            + "};\n";
+
+        getMockWebConnection().setResponse(URL_FIRST, html);
+        getMockWebConnection().setResponse(new URL(URL_FIRST, "worker.js"), workerJs, MimeType.APPLICATION_JAVASCRIPT);
+
+        final WebClient client = getWebClientWithMockWebConnection();
+        client.getOptions().setParallelWorkers(true);
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<String>());
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        client.getPage(URL_FIRST);
+        assertEquals(0, client.waitForBackgroundJavaScript(5_000));
+
+        final List<String> alerts = new ArrayList<>(collectedAlerts);
+        Collections.sort(alerts);
+        assertEquals(new String[] {"3", "a 9 true", "b 11 true", "timer a", "timer b"}, alerts);
+    }
+
+    /**
+     * Typed arrays are copied, host objects can't be cloned.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void parallelWorkersClone() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var w = new Worker('worker.js');\n"
+            + "    var bytes = new Uint8Array([1, 2, 3]);\n"
+            + "    w.onmessage = function(e) {\n"
+            + "      alert(e.data.name + ' ' + e.data.view.length + ' ' + e.data.view[0] + ' ' + bytes[0]);\n"
+            + "    };\n"
+            + "    try {\n"
+            + "      w.postMessage(document.body);\n"
+            + "    } catch(e) { alert(e.message.indexOf('DataCloneError') != -1); }\n"
+            + "    w.postMessage(bytes);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'></body></html>";
+
+        final String workerJs = "onmessage = function(e) {\n"
+            + "  var d = e.data;\n"
+            + "  d[0] = 7;\n"
+            + "  postMessage({ name: Object.prototype.toString.call(d), view: new Uint8Array(d.buffer, 1, 2) });\n"
+            + "};\n";
+
+        getMockWebConnection().setResponse(URL_FIRST, html);
+        getMockWebConnection().setResponse(new URL(URL_FIRST, "worker.js"), workerJs, MimeType.APPLICATION_JAVASCRIPT);
+
+        final WebClient client = getWebClientWithMockWebConnection();
+        client.getOptions().setParallelWorkers(true);
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<String>());
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        client.getPage(URL_FIRST);
+        assertEquals(0, client.waitForBackgroundJavaScript(5_000));
+        assertEquals(new String[] {"true", "[object Uint8Array] 2 2 1"}, collectedAlerts);
+    }
+}
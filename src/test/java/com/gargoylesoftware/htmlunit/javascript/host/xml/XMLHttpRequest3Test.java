@@ -24,6 +24,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.Servlet;
 import javax.servlet.http.HttpServlet;
@@ -190,6 +193,178 @@ public class XMLHttpRequest3Test extends WebServerTestCase {
         assertEquals(alerts, collectedAlerts);
     }
 
+    /**
+     * With non blocking XMLHttpRequests, a slow response does not block the timers of the page.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void nonBlockingSlowResponse() throws Exception {
+        final String content = "<html><head><script>\n"
+            + "function test() {\n"
+            + "  var req = new XMLHttpRequest();\n"
+            + "  req.onreadystatechange = function() {\n"
+            + "    if (req.readyState == 4) {\n"
+            + "      alert(req.responseText);\n"
+            + "    }\n"
+            + "  };\n"
+            + "  req.open('GET', 'slow.txt', true);\n"
+            + "  req.send('');\n"
+            + "  setTimeout(function() { alert('timeout'); }, 50);\n"
+            + "}\n"
+            + "</script></head>\n"
+            + "<body onload='test()'></body></html>";
+
+        final CountDownLatch timeoutLatch = new CountDownLatch(1);
+        final WebClient client = getWebClient();
+        client.getOptions().setNonBlockingXMLHttpRequest(true);
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<String>());
+        client.setAlertHandler((page, message) -> {
+            collectedAlerts.add(message);
+            if ("timeout".equals(message)) {
+                timeoutLatch.countDown();
+            }
+        });
+
+        final URL urlSlow = new URL(URL_FIRST, "slow.txt");
+        final MockWebConnection conn = new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest webRequest) throws IOException {
+                if (urlSlow.equals(webRequest.getUrl())) {
+                    try {
+                        timeoutLatch.await(5, TimeUnit.SECONDS);
+                    }
+                    catch (final InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return super.getResponse(webRequest);
+            }
+        };
+        conn.setResponse(URL_FIRST, content);
+        conn.setResponse(urlSlow, "slow", MimeType.TEXT_PLAIN);
+        client.setWebConnection(conn);
+        client.getPage(URL_FIRST);
+
+        assertEquals(0, client.waitForBackgroundJavaScript(10_000));
+        assertEquals(new String[] {"timeout", "slow"}, collectedAlerts);
+    }
+
+    /**
+     * A runtime exception of the background load must not leave the job pending.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void nonBlockingRuntimeException() throws Exception {
+        final String content = "<html><head><script>\n"
+            + "function test() {\n"
+            + "  var req = new XMLHttpRequest();\n"
+            + "  req.open('GET', 'broken.txt', true);\n"
+            + "  req.send('');\n"
+            + "}\n"
+            + "</script></head>\n"
+            + "<body onload='test()'></body></html>";
+
+        final WebClient client = getWebClient();
+        client.getOptions().setNonBlockingXMLHttpRequest(true);
+        client.getOptions().setThrowExceptionOnScriptError(false);
+
+        final URL urlBroken = new URL(URL_FIRST, "broken.txt");
+        final MockWebConnection conn = new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest webRequest) throws IOException {
+                if (urlBroken.equals(webRequest.getUrl())) {
+                    throw new IllegalStateException("broken");
+                }
+                return super.getResponse(webRequest);
+            }
+        };
+        conn.setResponse(URL_FIRST, content);
+        client.setWebConnection(conn);
+        client.getPage(URL_FIRST);
+
+        assertEquals(0, client.waitForBackgroundJavaScript(10_000));
+    }
+
+    /**
+     * Non blocking XMLHttpRequests use {@link com.gargoylesoftware.htmlunit.WebConnection#getResponseAsync(WebRequest)}
+     * and do not wait for the response.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void nonBlockingResponseAsync() throws Exception {
+        final String content = "<html><head><script>\n"
+            + "function test() {\n"
+            + "  var req = new XMLHttpRequest();\n"
+            + "  req.onreadystatechange = function() {\n"
+            + "    if (req.readyState == 4) {\n"
+            + "      alert(req.responseText);\n"
+            + "    }\n"
+            + "  };\n"
+            + "  req.open('GET', 'async.txt', true);\n"
+            + "  req.send('');\n"
+            + "  setTimeout(function() { alert('timeout'); }, 50);\n"
+            + "}\n"
+            + "</script></head>\n"
+            + "<body onload='test()'></body></html>";
+
+        final CountDownLatch timeoutLatch = new CountDownLatch(1);
+        final WebClient client = getWebClient();
+        client.getOptions().setNonBlockingXMLHttpRequest(true);
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<String>());
+        client.setAlertHandler((page, message) -> {
+            collectedAlerts.add(message);
+            if ("timeout".equals(message)) {
+                timeoutLatch.countDown();
+            }
+        });
+
+        final URL urlAsync = new URL(URL_FIRST, "async.txt");
+        final MockWebConnection conn = new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest webRequest) throws IOException {
+                if (urlAsync.equals(webRequest.getUrl())) {
+                    throw new IllegalStateException("blocking call");
+                }
+                return super.getResponse(webRequest);
+            }
+
+            @Override
+            public CompletableFuture<WebResponse> getResponseAsync(final WebRequest webRequest) {
+                if (!urlAsync.equals(webRequest.getUrl())) {
+                    return super.getResponseAsync(webRequest);
+                }
+                final CompletableFuture<WebResponse> future = new CompletableFuture<>();
+                final WebResponse response;
+                try {
+                    response = super.getResponse(webRequest);
+                }
+                catch (final IOException e) {
+                    future.completeExceptionally(e);
+                    return future;
+                }
+                final Thread thread = new Thread(() -> {
+                    try {
+                        timeoutLatch.await(5, TimeUnit.SECONDS);
+                    }
+                    catch (final InterruptedException e) {
+                        // ignore
+                    }
+                    future.complete(response);
+                });
+                thread.setDaemon(true);
+                thread.start();
+                return future;
+            }
+        };
+        conn.setResponse(URL_FIRST, content);
+        conn.setResponse(urlAsync, "async", MimeType.TEXT_PLAIN);
+        client.setWebConnection(conn);
+        client.getPage(URL_FIRST);
+
+        assertEquals(0, client.waitForBackgroundJavaScript(10_000));
+        assertEquals(new String[] {"timeout", "async"}, collectedAlerts);
+    }
+
     /**
      * Tests that the different HTTP methods are supported.
      * @throws Exception if an error occurs
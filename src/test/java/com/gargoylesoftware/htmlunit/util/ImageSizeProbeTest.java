@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2020 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ImageSizeProbe}.
+ */
+public class ImageSizeProbeTest {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void probe() throws Exception {
+        assertEquals("1x1 image/png", probe("testfiles/tiny-png.img"));
+        assertEquals("1x1 image/gif", probe("testfiles/tiny-gif.img"));
+        assertEquals("1x1 image/jpeg", probe("testfiles/tiny-jpg.img"));
+        assertEquals("4x7 image/jpeg", probe("testfiles/4x7.jpg"));
+
+        assertEquals("null", probe("testfiles/empty.png"));
+        assertEquals("null", probe("testfiles/empty.gif"));
+        assertEquals("null", probe("testfiles/empty.jpg"));
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void probeWebp() throws Exception {
+        final byte[] lossless = {'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P',
+            'V', 'P', '8', 'L', 0, 0, 0, 0, 0x2F, 0x09, (byte) 0xC0, 0x04, 0x00};
+        assertEquals(10, ImageSizeProbe.probe(new ByteArrayInputStream(lossless)).getWidth());
+        assertEquals(20, ImageSizeProbe.probe(new ByteArrayInputStream(lossless)).getHeight());
+
+        final byte[] extended = {'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P',
+            'V', 'P', '8', 'X', 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, 0x01, 0x00, 0x2B, 0x01, 0x00};
+        assertEquals(512, ImageSizeProbe.probe(new ByteArrayInputStream(extended)).getWidth());
+        assertEquals(300, ImageSizeProbe.probe(new ByteArrayInputStream(extended)).getHeight());
+        assertEquals("image/webp", ImageSizeProbe.probe(new ByteArrayInputStream(extended)).getContentType());
+
+        // truncated
+        assertNull(ImageSizeProbe.probe(new ByteArrayInputStream(new byte[] {'R', 'I', 'F', 'F', 0, 0})));
+    }
+
+    private String probe(final String resource) throws IOException {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(resource)) {
+            final ImageSizeProbe.ImageInfo info = ImageSizeProbe.probe(is);
+            if (info == null) {
+                return "null";
+            }
+            return info.getWidth() + "x" + info.getHeight() + " " + info.getContentType();
+        }
+    }
+}